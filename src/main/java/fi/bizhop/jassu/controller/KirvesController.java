@@ -5,9 +5,12 @@ import fi.bizhop.jassu.exception.TransactionException;
 import fi.bizhop.jassu.model.User;
 import fi.bizhop.jassu.model.kirves.Game;
 import fi.bizhop.jassu.model.kirves.in.GameIn;
+import fi.bizhop.jassu.model.kirves.out.BotStatsOut;
 import fi.bizhop.jassu.model.kirves.out.GameBrief;
 import fi.bizhop.jassu.model.kirves.out.GameOut;
 import fi.bizhop.jassu.service.AuthService;
+import fi.bizhop.jassu.service.KirvesBotService;
+import fi.bizhop.jassu.service.KirvesEstimateService;
 import fi.bizhop.jassu.service.KirvesService;
 import fi.bizhop.jassu.service.MessageService;
 import fi.bizhop.jassu.service.UserService;
@@ -28,12 +31,16 @@ public class KirvesController {
     final AuthService AUTH_SERVICE;
     final UserService USER_SERVICE;
     final MessageService MESSAGE_SERVICE;
+    final KirvesBotService BOT_SERVICE;
+    final KirvesEstimateService ESTIMATE_SERVICE;
 
-    public KirvesController(KirvesService kirvesService, AuthService authService, UserService userService, MessageService messageService) {
+    public KirvesController(KirvesService kirvesService, AuthService authService, UserService userService, MessageService messageService, KirvesBotService botService, KirvesEstimateService estimateService) {
         this.KIRVES_SERVICE = kirvesService;
         this.AUTH_SERVICE = authService;
         this.USER_SERVICE = userService;
         this.MESSAGE_SERVICE = messageService;
+        this.BOT_SERVICE = botService;
+        this.ESTIMATE_SERVICE = estimateService;
     }
 
     private User authorizeAndAuthenticate(HttpServletRequest request) throws ResponseStatusException {
@@ -76,6 +83,7 @@ public class KirvesController {
             this.KIRVES_SERVICE.joinGame(id, user);
             GameOut out = this.KIRVES_SERVICE.getGame(id).out(user);
             this.refresh(id);
+            this.BOT_SERVICE.wake(id);
             return out;
         } catch (KirvesGameException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
@@ -84,6 +92,31 @@ public class KirvesController {
         }
     }
 
+    @RequestMapping(value = "/api/kirves/{id}/bots/{count}", method = RequestMethod.POST, produces = "application/json")
+    public @ResponseBody GameOut addBots(@PathVariable Long id, @PathVariable int count, HttpServletRequest request, HttpServletResponse response) {
+        User user = this.authorizeAndAuthenticate(request);
+
+        try {
+            response.setStatus(HttpServletResponse.SC_OK);
+            this.BOT_SERVICE.addBots(id, count, user);
+            GameOut out = this.KIRVES_SERVICE.getGame(id).out(user).setId(id);
+            this.refresh(id);
+            return out;
+        } catch (KirvesGameException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @RequestMapping(value = "/api/kirves/bot/stats", method = RequestMethod.GET, produces = "application/json")
+    public @ResponseBody BotStatsOut getBotStats(HttpServletRequest request, HttpServletResponse response) {
+        this.authorizeAndAuthenticate(request);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        return this.BOT_SERVICE.getStats();
+    }
+
     @RequestMapping(value = "/api/kirves/{id}", method = RequestMethod.GET, produces = "application/json")
     public @ResponseBody GameOut getGame(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) {
         User user = this.authorizeAndAuthenticate(request);
@@ -91,7 +124,23 @@ public class KirvesController {
         response.setStatus(HttpServletResponse.SC_OK);
         try {
             Game game = this.KIRVES_SERVICE.getGame(id);
-            return game.out(user).setId(id);
+            //bots of a game loaded from database haven't been woken yet
+            this.BOT_SERVICE.wake(id);
+            return game.out(user).setId(id).setWinProbabilities(this.ESTIMATE_SERVICE.get(id, game));
+        } catch (KirvesGameException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, e.getMessage());
+        }
+    }
+
+    @RequestMapping(value = "/api/kirves/{id}/messages", method = RequestMethod.GET, produces = "application/json")
+    public @ResponseBody List<String> getMessageHistory(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) {
+        this.authorizeAndAuthenticate(request);
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        try {
+            return this.KIRVES_SERVICE.getMessageHistory(id);
         } catch (KirvesGameException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
@@ -119,8 +168,10 @@ public class KirvesController {
 
         response.setStatus(HttpServletResponse.SC_OK);
         try {
-            GameOut out = this.KIRVES_SERVICE.action(id, in, user).out(user);
+            Game game = this.KIRVES_SERVICE.action(id, in, user);
+            GameOut out = game.out(user).setWinProbabilities(this.ESTIMATE_SERVICE.get(id, game));
             this.refresh(id);
+            this.BOT_SERVICE.wake(id);
             return out;
         } catch (KirvesGameException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
@@ -2,9 +2,13 @@ package fi.bizhop.jassu.controller;
 
 import fi.bizhop.jassu.exception.CardException;
 import fi.bizhop.jassu.exception.PokerGameException;
+import fi.bizhop.jassu.model.poker.HoldAdviceOut;
 import fi.bizhop.jassu.model.poker.PokerGame;
 import fi.bizhop.jassu.model.poker.PokerGameIn;
 import fi.bizhop.jassu.model.poker.PokerGameOut;
+import fi.bizhop.jassu.model.poker.PokerHand;
+import fi.bizhop.jassu.model.poker.PokerStatsOut;
+import fi.bizhop.jassu.model.poker.RtpOut;
 import fi.bizhop.jassu.service.AuthService;
 import fi.bizhop.jassu.service.PokerService;
 import fi.bizhop.jassu.service.UserService;
@@ -12,7 +16,9 @@ import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @RestController
@@ -64,6 +70,60 @@ public class PokerController {
         }
     }
 
+    @RequestMapping(value = "/api/poker/{id}/advice", method = RequestMethod.GET, produces = "application/json")
+    public @ResponseBody List<HoldAdviceOut> getAdvice(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) {
+        String email = this.authService.getEmailFromJWT(request);
+        if(email == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return null;
+        }
+        else {
+            try {
+                return this.pokerService.getAdvice(id, email);
+            } catch (PokerGameException e) {
+                response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                return null;
+            } catch (CardException e) {
+                response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                return null;
+            }
+        }
+    }
+
+    @RequestMapping(value = "/api/poker/rtp", method = RequestMethod.GET, produces = "application/json")
+    public @ResponseBody RtpOut getRtp(HttpServletRequest request, HttpServletResponse response) {
+        return this.getRtp(null, request, response);
+    }
+
+    //return to player if the given multipliers were changed, only for admins
+    @RequestMapping(value = "/api/poker/rtp", method = RequestMethod.POST, consumes = "application/json", produces = "application/json")
+    public @ResponseBody RtpOut getRtp(@RequestBody Map<PokerHand.Type, BigDecimal> multipliers, HttpServletRequest request, HttpServletResponse response) {
+        String email = this.authService.getEmailFromJWT(request);
+        if(email == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return null;
+        }
+        else if(multipliers != null && !this.authService.isAdmin(email)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return null;
+        }
+        else {
+            return this.pokerService.getRtp(multipliers);
+        }
+    }
+
+    @RequestMapping(value = "/api/poker/stats", method = RequestMethod.GET, produces = "application/json")
+    public @ResponseBody PokerStatsOut getStats(HttpServletRequest request, HttpServletResponse response) {
+        String email = this.authService.getEmailFromJWT(request);
+        if(email == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            return null;
+        }
+        else {
+            return this.pokerService.getStats();
+        }
+    }
+
     @RequestMapping(value = "/api/poker", method = RequestMethod.GET, produces = "application/json")
     public @ResponseBody List<PokerGameOut> getGames(HttpServletRequest request, HttpServletResponse response) {
         String email = this.authService.getEmailFromJWT(request);
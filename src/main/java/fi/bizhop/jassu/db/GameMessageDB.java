@@ -0,0 +1,19 @@
+package fi.bizhop.jassu.db;
+
+import javax.persistence.*;
+
+//message that has dropped out of game data, rows are only inserted
+@Entity
+@Table(name="game_messages")
+public class GameMessageDB {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "game_messages_seq")
+    @SequenceGenerator(name = "game_messages_seq", sequenceName = "game_messages_seq", allocationSize = 50)
+    public Long id;
+
+    public Long gameId;
+    public String code;
+    public long seats;
+    //plain text messages of old save data
+    public String text;
+}
@@ -0,0 +1,11 @@
+package fi.bizhop.jassu.db;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface GameMessageRepo extends CrudRepository<GameMessageDB, Long> {
+    List<GameMessageDB> findByGameIdOrderByIdAsc(Long gameId);
+}
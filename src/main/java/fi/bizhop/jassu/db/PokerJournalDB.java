@@ -0,0 +1,25 @@
+package fi.bizhop.jassu.db;
+
+import javax.persistence.*;
+import java.math.BigDecimal;
+
+//one poker action, sequence ids so inserts can be batched
+@Entity
+@Table(name="poker_journal")
+public class PokerJournalDB {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "poker_journal_seq")
+    @SequenceGenerator(name = "poker_journal_seq", sequenceName = "poker_journal_seq", allocationSize = 50)
+    public Long id;
+
+    public Long gameId;
+    public String player;
+    public String action;
+    //deal only
+    public Long seed;
+    public BigDecimal wager;
+    //hold only, comma separated positions
+    public String parameters;
+    //game ended with this action
+    public Boolean finished;
+}
@@ -0,0 +1,17 @@
+package fi.bizhop.jassu.db;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PokerJournalRepo extends CrudRepository<PokerJournalDB, Long> {
+    //one page of records in order they were written
+    List<PokerJournalDB> findTop500ByIdGreaterThanOrderByIdAsc(Long id);
+
+    @Transactional
+    void deleteByGameIdIn(Collection<Long> gameIds);
+}
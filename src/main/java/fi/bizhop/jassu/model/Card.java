@@ -3,20 +3,52 @@ package fi.bizhop.jassu.model;
 import fi.bizhop.jassu.exception.CardException;
 
 import java.util.Arrays;
-import java.util.Map;
-import java.util.function.Function;
-
-import static java.util.stream.Collectors.toMap;
 
+/**
+ * Playing card. Cards are flyweights: there is exactly one instance per card (52 standard cards + 2 jokers),
+ * so cards can be compared by reference. Each card has a stable ordinal (0-53) that can be used as an array
+ * index or bit position.
+ *
+ * Ordinal is suit index * 13 + rank index for standard cards (suits and ranks in enum order) and
+ * 52 / 53 for black / red joker.
+ */
 public class Card implements Comparable<Card> {
+    public static final int NUM_OF_STANDARD_CARDS = 52;
+    public static final int NUM_OF_CARDS = 54;
+    private static final int RANKS_PER_SUIT = 13;
+
+    private static final Card[] CARDS = new Card[NUM_OF_CARDS];
+    private static final Suit[] SUITS_BY_CHAR = new Suit[128];
+    private static final Rank[] RANKS_BY_CHAR = new Rank[128];
+
+    static {
+        for(Suit suit : Suit.values()) {
+            SUITS_BY_CHAR[suit.ABBREVIATION.charAt(0)] = suit;
+        }
+        for(Rank rank : Rank.values()) {
+            RANKS_BY_CHAR[rank.ABBREVIATION.charAt(0)] = rank;
+        }
+        for(Suit suit : Suit.values()) {
+            for(Rank rank : Rank.values()) {
+                int ordinal = ordinalOf(suit, rank);
+                if(ordinal >= 0) {
+                    CARDS[ordinal] = new Card(suit, rank, ordinal);
+                }
+            }
+        }
+    }
+
     private final Suit SUIT;
     private final Rank RANK;
+    private final byte ORDINAL;
+    private final String ABBREVIATION;
 
-    private static final Map<String, Suit> SUITS_BY_ABBREVIATION =
-            Arrays.stream(Suit.values()).collect(toMap(Suit::getAbbreviation, Function.identity()));
-    private static final Map<String, Rank> RANKS_BY_ABBREVIATION =
-            Arrays.stream(Rank.values()).collect(toMap(Rank::getAbbreviation, Function.identity()));
-
+    private Card(Suit suit, Rank rank, int ordinal) {
+        this.SUIT = suit;
+        this.RANK = rank;
+        this.ORDINAL = (byte) ordinal;
+        this.ABBREVIATION = (rank.ABBREVIATION + suit.ABBREVIATION).intern();
+    }
 
     public Suit getSuit() {
         return this.SUIT;
@@ -26,31 +58,62 @@ public class Card implements Comparable<Card> {
         return this.RANK;
     }
 
-    public Card(Suit suit, Rank rank) throws CardException {
-        if(suit == Suit.JOKER && rank.VALUE < 15) {
-            throw new CardException("Joker must be rank 15 or 16");
+    public int ordinal() {
+        return this.ORDINAL;
+    }
+
+    /**
+     * Get the canonical card instance
+     *
+     * @param suit Suit
+     * @param rank Rank
+     * @return Card
+     * @throws CardException if suit and rank don't make a valid card (e.g. joker must be rank BLACK or RED)
+     */
+    public static Card of(Suit suit, Rank rank) throws CardException {
+        if(suit == null || rank == null) throw new CardException("Suit and rank are required");
+        int ordinal = ordinalOf(suit, rank);
+        if(ordinal < 0) {
+            throw new CardException(suit == Suit.JOKER ? "Joker must be rank BLACK or RED" : "Only joker can be rank BLACK or RED");
         }
-        this.SUIT = suit;
-        this.RANK = rank;
+        return CARDS[ordinal];
+    }
+
+    /**
+     * Get the canonical card instance by ordinal
+     *
+     * @param ordinal card ordinal, 0-53
+     * @return Card
+     */
+    public static Card of(int ordinal) {
+        return CARDS[ordinal];
     }
 
     public static Card fromAbbreviation(String abbreviation) throws CardException {
         if(abbreviation == null || abbreviation.isEmpty()) return null;
         if(abbreviation.length() != 2) throw new CardException("Invalid abbreviation");
-        Suit suit = SUITS_BY_ABBREVIATION.get(abbreviation.substring(1));
-        Rank rank = RANKS_BY_ABBREVIATION.get(abbreviation.substring(0, 1));
+        char rankChar = abbreviation.charAt(0);
+        char suitChar = abbreviation.charAt(1);
+        Rank rank = rankChar < 128 ? RANKS_BY_CHAR[rankChar] : null;
+        Suit suit = suitChar < 128 ? SUITS_BY_CHAR[suitChar] : null;
         if(suit == null || rank == null) throw new CardException("Invalid abbreviation");
-        return new Card(suit, rank);
+        int ordinal = ordinalOf(suit, rank);
+        if(ordinal < 0) throw new CardException("Invalid abbreviation");
+        return CARDS[ordinal];
     }
 
-    @Override
-    public boolean equals(Object o) {
-        if(o == null) return false;
-        if(o instanceof Card) {
-            Card card = (Card) o;
-            return this.SUIT == card.SUIT && this.RANK == card.RANK;
+    //returns -1 if combination is not a valid card
+    private static int ordinalOf(Suit suit, Rank rank) {
+        boolean jokerRank = rank == Rank.BLACK || rank == Rank.RED;
+        if(suit == Suit.JOKER) {
+            return jokerRank ? NUM_OF_STANDARD_CARDS + rank.ordinal() - Rank.BLACK.ordinal() : -1;
         }
-        return false;
+        return jokerRank ? -1 : suit.ordinal() * RANKS_PER_SUIT + rank.ordinal();
+    }
+
+    //returns all canonical cards in ordinal order
+    public static Card[] values() {
+        return Arrays.copyOf(CARDS, NUM_OF_CARDS);
     }
 
     @Override
@@ -61,7 +124,7 @@ public class Card implements Comparable<Card> {
 
     @Override
     public String toString() {
-        return this.RANK.ABBREVIATION + this.SUIT.ABBREVIATION;
+        return this.ABBREVIATION;
     }
 
     public enum Suit {
@@ -80,8 +143,9 @@ public class Card implements Comparable<Card> {
         }
 
         public static Suit fromAbbreviation(String abbreviation) {
-            if(abbreviation == null || abbreviation.isEmpty()) return null;
-            return SUITS_BY_ABBREVIATION.get(abbreviation);
+            if(abbreviation == null || abbreviation.length() != 1) return null;
+            char suitChar = abbreviation.charAt(0);
+            return suitChar < 128 ? SUITS_BY_CHAR[suitChar] : null;
         }
 
         public int getValue() {
@@ -124,4 +188,4 @@ public class Card implements Comparable<Card> {
         }
         public String getAbbreviation() { return this.ABBREVIATION; }
     }
-}
\ No newline at end of file
+}
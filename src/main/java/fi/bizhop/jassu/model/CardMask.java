@@ -0,0 +1,81 @@
+package fi.bizhop.jassu.model;
+
+import static fi.bizhop.jassu.model.Card.Rank.*;
+import static fi.bizhop.jassu.model.Card.Suit.JOKER;
+
+/**
+ * Bit masks over card ordinals (see {@link Card#ordinal()}). A set of cards fits in a single long:
+ * bits 0-51 are standard cards, 13 bits per suit, and bits 52-53 are the jokers.
+ */
+public class CardMask {
+    public static final int RANKS_PER_SUIT = 13;
+    public static final int SUIT_RANKS = (1 << RANKS_PER_SUIT) - 1;
+
+    public static final long JACKS;
+    public static final long JOKERS;
+    public static final long ALL;
+    //all but jokers
+    public static final long STANDARD;
+
+    private static final long[] SUITS = new long[Card.Suit.values().length];
+    //indexed by Rank.getValue()
+    private static final long[] RANKS = new long[RED.getValue() + 1];
+
+    static {
+        long all = 0;
+        for(int ordinal = 0; ordinal < Card.NUM_OF_CARDS; ordinal++) {
+            Card card = Card.of(ordinal);
+            long bit = 1L << ordinal;
+            SUITS[card.getSuit().ordinal()] |= bit;
+            RANKS[card.getRank().getValue()] |= bit;
+            all |= bit;
+        }
+        JACKS = RANKS[JACK.getValue()];
+        JOKERS = SUITS[JOKER.ordinal()];
+        ALL = all;
+        STANDARD = all & ~JOKERS;
+    }
+
+    public static long of(Card card) {
+        return 1L << card.ordinal();
+    }
+
+    public static long suit(Card.Suit suit) {
+        return SUITS[suit.ordinal()];
+    }
+
+    //returns 0 for values that are not card ranks
+    public static long rank(int rankValue) {
+        return rankValue < 0 || rankValue >= RANKS.length ? 0L : RANKS[rankValue];
+    }
+
+    //cards that count as trump: trump suit, all jacks and both jokers
+    public static long trumps(Card.Suit trump) {
+        return SUITS[trump.ordinal()] | JACKS | JOKERS;
+    }
+
+    //13 bit rank set (bit 0 = TWO ... bit 12 = ACE) of given standard suit
+    public static int suitRanks(long mask, Card.Suit suit) {
+        return (int) (mask >>> (suit.ordinal() * RANKS_PER_SUIT)) & SUIT_RANKS;
+    }
+
+    //13 bit rank set (bit 0 = TWO ... bit 12 = ACE) of all standard suits combined
+    public static int ranks(long mask) {
+        return (int) (mask | mask >>> RANKS_PER_SUIT | mask >>> (2 * RANKS_PER_SUIT) | mask >>> (3 * RANKS_PER_SUIT)) & SUIT_RANKS;
+    }
+
+    //rank value (2-14) of the highest rank in 13 bit rank set, or 0 if empty
+    public static int highestRankValue(int ranks) {
+        return ranks == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(ranks) + TWO.getValue();
+    }
+
+    //high card value of the best straight in 13 bit rank set (5 for A-2-3-4-5), or 0 if none
+    public static int straightHigh(int ranks) {
+        int runs = ranks & ranks >>> 1 & ranks >>> 2 & ranks >>> 3 & ranks >>> 4;
+        if(runs != 0) {
+            return highestRankValue(runs) + 4;
+        }
+        final int wheel = 0b1_0000_0000_1111;
+        return (ranks & wheel) == wheel ? FIVE.getValue() : 0;
+    }
+}
@@ -5,127 +5,216 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+/**
+ * Ordered collection of distinct cards. Cards are kept in an array between a head (top of the deck) and
+ * a tail cursor, so dealing from the top only moves the head cursor. Card membership is also kept in a bit
+ * mask (see {@link CardMask}) used by the rule queries.
+ */
 public class Cards {
     private static final Logger LOG = LogManager.getLogger(Cards.class);
+    private static final int DEFAULT_CAPACITY = 8;
 
-    protected final List<Card> cards;
+    private Card[] cards;
+    private int head = 0;
+    private int tail = 0;
+    private long mask = 0L;
+
+    //incremented on every change, cardsOut is valid while cardsOutVersion matches
+    private int version = 0;
+    private List<String> cardsOut = null;
+    private int cardsOutVersion = -1;
 
     public Cards() {
-        this.cards = new ArrayList<>();
+        this.cards = new Card[DEFAULT_CAPACITY];
     }
 
     public Cards(List<Card> cards) {
-        this.cards = cards;
+        this.cards = cards.toArray(new Card[0]);
+        this.tail = this.cards.length;
+        for(Card card : this.cards) {
+            this.mask |= CardMask.of(card);
+        }
     }
 
     public static Cards fromAbbreviations(List<String> abbreviations) {
         if(abbreviations == null) return new Cards();
-        List<Card> cards = abbreviations.stream()
-                .map(abbreviation -> {
-                    try {
-                        return Card.fromAbbreviation(abbreviation);
-                    } catch (CardException e) {
-                        LOG.warn(String.format("Unable to get card from abbreviation: %s", abbreviation));
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-        return new Cards(cards);
+        Cards cards = new Cards();
+        for(String abbreviation : abbreviations) {
+            try {
+                Card card = Card.fromAbbreviation(abbreviation);
+                if(card != null) {
+                    cards.add(card);
+                }
+            } catch (CardException e) {
+                LOG.warn(String.format("Unable to get card from abbreviation: %s", abbreviation));
+            }
+        }
+        return cards;
     }
 
     //default sort is by rank
     public void sort() {
-        Collections.sort(this.cards);
+        this.version++;
+        Arrays.sort(this.cards, this.head, this.tail);
     }
 
+    //shuffle in place using thread local random, so tables shuffling at the same time don't contend
     public Cards shuffle() {
-        Collections.shuffle(this.cards);
+        return this.shuffle(ThreadLocalRandom.current());
+    }
+
+    //Fisher-Yates shuffle in place
+    public Cards shuffle(Random random) {
+        this.version++;
+        for(int i = this.tail - 1; i > this.head; i--) {
+            int j = this.head + random.nextInt(i - this.head + 1);
+            Card temp = this.cards[i];
+            this.cards[i] = this.cards[j];
+            this.cards[j] = temp;
+        }
+        return this;
+    }
+
+    //replace contents with cards from template, reusing the existing array when it is big enough
+    public Cards reset(List<Card> template) {
+        this.version++;
+        int size = template.size();
+        if(this.cards.length < size) {
+            this.cards = new Card[size];
+        } else {
+            Arrays.fill(this.cards, this.head, this.tail, null);
+        }
+        this.mask = 0L;
+        for(int i = 0; i < size; i++) {
+            Card card = template.get(i);
+            this.cards[i] = card;
+            this.mask |= CardMask.of(card);
+        }
+        this.head = 0;
+        this.tail = size;
         return this;
     }
 
     public Cards deal(int quantity) throws CardException {
-        if(quantity > this.cards.size()) {
-            throw new CardException(String.format("Not enough cards: wanted %d, has %d", quantity, this.cards.size()));
+        Cards given = new Cards();
+        this.deal(quantity, given);
+        return given;
+    }
+
+    //deal cards from top of this deck directly to target
+    public void deal(int quantity, Cards target) throws CardException {
+        if(quantity > this.size()) {
+            throw new CardException(String.format("Not enough cards: wanted %d, has %d", quantity, this.size()));
         }
-        List<Card> given = new ArrayList<>();
         for(int i=0; i < quantity; i++) {
-            given.add(this.cards.remove(0));
+            target.add(this.removeTop());
         }
-        return new Cards(given);
+    }
+
+    //deal one card from top of the deck
+    public Card dealCard() throws CardException {
+        if(this.size() < 1) {
+            throw new CardException("Not enough cards: wanted 1, has 0");
+        }
+        return this.removeTop();
     }
 
     public Card remove(int index) throws CardException {
-        if(index < 0 || index > this.cards.size() - 1) {
+        if(index < 0 || index > this.size() - 1) {
             throw new CardException("Invalid card index");
         }
-        return this.cards.remove(index);
+        if(index == 0) {
+            return this.removeTop();
+        }
+        int position = this.head + index;
+        Card card = this.cards[position];
+        this.version++;
+        System.arraycopy(this.cards, position + 1, this.cards, position, this.tail - position - 1);
+        this.cards[--this.tail] = null;
+        this.mask &= ~CardMask.of(card);
+        return card;
+    }
+
+    private Card removeTop() {
+        this.version++;
+        Card card = this.cards[this.head];
+        this.cards[this.head++] = null;
+        this.mask &= ~CardMask.of(card);
+        if(this.head == this.tail) {
+            this.head = 0;
+            this.tail = 0;
+        }
+        return card;
     }
 
     public Card get(int index) throws CardException{
-        if(index < 0 || index > this.cards.size() - 1) {
+        if(index < 0 || index > this.size() - 1) {
             throw new CardException("Invalid card index");
         }
-        return this.cards.get(index);
+        return this.cards[this.head + index];
     }
 
     @Override
     public String toString() {
-        return IntStream.range(0, this.cards.size())
-                .mapToObj(i -> String.format("%d:%s", i, this.cards.get(i).toString()))
+        return IntStream.range(0, this.size())
+                .mapToObj(i -> String.format("%d:%s", i, this.cards[this.head + i].toString()))
                 .collect(Collectors.joining(", "));
     }
 
     public int size() {
-        return this.cards.size();
+        return this.tail - this.head;
     }
 
     public int highValue() {
         final int MIN_HAND = 1;
-        if(this.cards.size() < MIN_HAND) {
+        if(this.size() < MIN_HAND) {
             return 0;
         }
         this.sort();
-        return this.cards.get(0).getRank().getValue();
+        return this.cards[this.head].getRank().getValue();
     }
 
     //TODO: consider moving this logic to some poker specific class
     public void hold(List<Integer> params, Cards deck) throws CardException {
         //sanity check
-        if(params == null || params.size() > this.cards.size()) {
+        if(params == null || params.size() > this.size()) {
             return;
         } else if (params.isEmpty()) {
-            this.cards.clear();
-            this.cards.addAll(deck.deal(5).cards);
+            this.clear();
+            deck.deal(5, this);
             return;
         }
         params.sort(Integer::compareTo);
-        if(params.get(0) < 0 || params.get(params.size() -1) > this.cards.size() - 1) {
+        if(params.get(0) < 0 || params.get(params.size() -1) > this.size() - 1) {
             return;
         }
 
-        for(int i = 0; i < this.cards.size(); i++) {
+        for(int i = 0; i < this.size(); i++) {
             if(!params.contains(i)) {
-                this.cards.set(i, deck.deal(1).cards.get(0));
+                this.version++;
+                Card newCard = deck.dealCard();
+                Card oldCard = this.cards[this.head + i];
+                this.cards[this.head + i] = newCard;
+                this.mask = this.mask & ~CardMask.of(oldCard) | CardMask.of(newCard);
             }
         }
     }
 
     public Cards copy() {
-        return new Cards(new ArrayList<>(this.cards));
+        return new Cards(this.getCards());
     }
 
     public Cards removeFirstPair() {
-        if(this.cards.size() > 1) {
-            for(int i=0; i < this.cards.size() - 1; i++) {
-                Card current = this.cards.get(i);
-                Card next = this.cards.get(i + 1);
+        if(this.size() > 1) {
+            for(int i=0; i < this.size() - 1; i++) {
+                Card current = this.cards[this.head + i];
+                Card next = this.cards[this.head + i + 1];
                 if(current.getRank().getValue() == next.getRank().getValue()) {
-                    this.cards.remove(current);
-                    this.cards.remove(next);
+                    this.removeAt(i, 2);
                     return this;
                 }
             }
@@ -134,15 +223,13 @@ public class Cards {
     }
 
     public Cards removeFirstThree() {
-        if(this.cards.size() > 2) {
-            for(int i=0; i < this.cards.size() - 2; i++) {
-                Card current = this.cards.get(i);
-                Card next = this.cards.get(i + 1);
-                Card next2 = this.cards.get(i + 2);
+        if(this.size() > 2) {
+            for(int i=0; i < this.size() - 2; i++) {
+                Card current = this.cards[this.head + i];
+                Card next = this.cards[this.head + i + 1];
+                Card next2 = this.cards[this.head + i + 2];
                 if(current.getRank().getValue() == next.getRank().getValue() && current.getRank().getValue() == next2.getRank().getValue()) {
-                    this.cards.remove(current);
-                    this.cards.remove(next);
-                    this.cards.remove(next2);
+                    this.removeAt(i, 3);
                     return this;
                 }
             }
@@ -150,65 +237,124 @@ public class Cards {
         return this;
     }
 
-    public boolean containsRank(int rank) {
-        for(Card card : this.cards) {
-            if(card.getRank().getValue() == rank) {
-                return true;
-            }
+    //remove count consecutive cards starting from index
+    private void removeAt(int index, int count) {
+        this.version++;
+        int position = this.head + index;
+        for(int i = position; i < position + count; i++) {
+            this.mask &= ~CardMask.of(this.cards[i]);
         }
-        return false;
+        System.arraycopy(this.cards, position + count, this.cards, position, this.tail - position - count);
+        Arrays.fill(this.cards, this.tail - count, this.tail, null);
+        this.tail -= count;
+    }
+
+    public boolean containsRank(int rank) {
+        return (this.mask & CardMask.rank(rank)) != 0;
     }
 
     public long numOfSuit(Card.Suit suit) {
-        return this.cards.stream()
-                .filter(c -> c.getSuit() == suit)
-                .count();
+        return Long.bitCount(this.mask & CardMask.suit(suit));
+    }
+
+    public boolean contains(Card card) {
+        return (this.mask & CardMask.of(card)) != 0;
+    }
+
+    //bit mask of cards, see CardMask
+    public long mask() {
+        return this.mask;
     }
 
     public Cards filterBySuit(Card.Suit suit) {
-        List<Card> bySuit = this.cards.stream()
-                .filter(c -> c.getSuit() == suit)
-                .collect(Collectors.toList());
-        return new Cards(bySuit);
+        Cards bySuit = new Cards();
+        if((this.mask & CardMask.suit(suit)) != 0) {
+            for(int i = this.head; i < this.tail; i++) {
+                if(this.cards[i].getSuit() == suit) {
+                    bySuit.add(this.cards[i]);
+                }
+            }
+        }
+        return bySuit;
     }
 
+    //returns an immutable list of card abbreviations, cached until the cards change
     public List<String> getCardsOut() {
-        return this.cards.stream()
-                .map(Card::toString)
-                .collect(Collectors.toList());
+        if(this.cardsOutVersion != this.version) {
+            int size = this.size();
+            String[] out = new String[size];
+            for(int i = 0; i < size; i++) {
+                out[i] = this.cards[this.head + i].toString();
+            }
+            this.cardsOut = size == 0 ? List.of() : Collections.unmodifiableList(Arrays.asList(out));
+            this.cardsOutVersion = this.version;
+        }
+        return this.cardsOut;
     }
 
     public void clear() {
-        this.cards.clear();
+        this.version++;
+        Arrays.fill(this.cards, this.head, this.tail, null);
+        this.head = 0;
+        this.tail = 0;
+        this.mask = 0L;
     }
 
     public Card first() {
-        return this.cards.isEmpty() ? null : this.cards.get(0);
+        return this.size() == 0 ? null : this.cards[this.head];
     }
 
     public Card last() {
-        return this.cards.isEmpty() ? null : this.cards.get(this.cards.size() - 1);
+        return this.size() == 0 ? null : this.cards[this.tail - 1];
     }
 
     public void add(Card newCard) {
-        this.cards.add(newCard);
+        this.version++;
+        this.ensureCapacity(1);
+        this.cards[this.tail++] = newCard;
+        this.mask |= CardMask.of(newCard);
     }
 
     public void add(Cards newCards) {
-        this.cards.addAll(newCards.cards);
+        this.version++;
+        int count = newCards.size();
+        this.ensureCapacity(count);
+        System.arraycopy(newCards.cards, newCards.head, this.cards, this.tail, count);
+        this.tail += count;
+        this.mask |= newCards.mask;
+    }
+
+    //make room for count more cards after tail, compacting or growing the array
+    private void ensureCapacity(int count) {
+        if(this.tail + count <= this.cards.length) return;
+        int size = this.size();
+        Card[] target = size + count <= this.cards.length
+                ? this.cards
+                : new Card[Math.max(size + count, this.cards.length * 2)];
+        System.arraycopy(this.cards, this.head, target, 0, size);
+        if(target == this.cards) {
+            Arrays.fill(this.cards, size, this.tail, null);
+        }
+        this.cards = target;
+        this.head = 0;
+        this.tail = size;
     }
 
     //returns a copy of cards
     public List<Card> getCards() {
-        return new ArrayList<>(this.cards);
+        return new ArrayList<>(Arrays.asList(this.cards).subList(this.head, this.tail));
     }
 
     //remove specific card from deck
     public Card removeCard(Card card) throws CardException {
-        if(this.cards.remove(card)) {
-            return card;
+        if(this.contains(card)) {
+            for(int i = this.head; i < this.tail; i++) {
+                if(this.cards[i] == card) {
+                    return this.remove(i - this.head);
+                }
+            }
         }
-        else throw new CardException(String.format("Card %s not found in deck", card));
+        throw new CardException(String.format("Card %s not found in deck", card));
     }
 
     @Override
@@ -217,12 +363,12 @@ public class Cards {
         Cards other = (Cards)o;
         if(this.size() != other.size()) return false;
         for(int i=0; i < this.size(); i++) {
-           if(!this.cards.get(i).equals(other.cards.get(i))) return false;
+           if(this.cards[this.head + i] != other.cards[other.head + i]) return false;
         }
         return true;
     }
 
     public boolean hasNoTrumpCard(Card.Suit trump) {
-        return this.cards.stream().noneMatch(card -> card.getRank() == Card.Rank.JACK || List.of(trump, Card.Suit.JOKER).contains(card.getSuit()));
+        return (this.mask & CardMask.trumps(trump)) == 0;
     }
-}
\ No newline at end of file
+}
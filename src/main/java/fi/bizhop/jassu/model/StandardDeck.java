@@ -9,17 +9,28 @@ import static fi.bizhop.jassu.model.Card.Rank.*;
 import static fi.bizhop.jassu.model.Card.Suit.*;
 
 public class StandardDeck extends Cards {
+    //unshuffled standard deck, immutable
+    public static final List<Card> TEMPLATE;
+
+    static {
+        List<Card> template = new ArrayList<>();
+        try {
+            for(Card.Suit suit : List.of(HEARTS, SPADES, DIAMONDS, CLUBS)) {
+                for(Card.Rank rank : List.of(TWO, THREE, FOUR, FIVE, SIX, SEVEN, EIGHT, NINE, TEN, JACK, QUEEN, KING, ACE)) {
+                    template.add(Card.of(suit, rank));
+                }
+            }
+        } catch (CardException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        TEMPLATE = List.copyOf(template);
+    }
+
     public StandardDeck() throws CardException {
-        this.cards.addAll(getStandardDeck());
+        super(TEMPLATE);
     }
 
     public static List<Card> getStandardDeck() throws CardException {
-        List<Card> newDeck = new ArrayList<>();
-        for(Card.Suit suit : List.of(HEARTS, SPADES, DIAMONDS, CLUBS)) {
-            for(Card.Rank rank : List.of(TWO, THREE, FOUR, FIVE, SIX, SEVEN, EIGHT, NINE, TEN, JACK, QUEEN, KING, ACE)) {
-                newDeck.add(new Card(suit, rank));
-            }
-        }
-        return newDeck;
+        return new ArrayList<>(TEMPLATE);
     }
 }
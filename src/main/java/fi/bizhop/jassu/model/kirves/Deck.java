@@ -5,10 +5,25 @@ import fi.bizhop.jassu.model.Card;
 import fi.bizhop.jassu.model.Cards;
 import fi.bizhop.jassu.model.StandardDeck;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class Deck extends Cards {
+    //unshuffled standard deck with two jokers, immutable
+    public static final List<Card> TEMPLATE;
+
+    static {
+        List<Card> template = new ArrayList<>(StandardDeck.TEMPLATE);
+        try {
+            template.add(Card.of(Card.Suit.JOKER, Card.Rank.BLACK));
+            template.add(Card.of(Card.Suit.JOKER, Card.Rank.RED));
+        } catch (CardException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        TEMPLATE = List.copyOf(template);
+    }
+
     public Deck() throws CardException {
-        this.cards.addAll(StandardDeck.getStandardDeck());
-        this.cards.add(new Card(Card.Suit.JOKER, Card.Rank.BLACK));
-        this.cards.add(new Card(Card.Suit.JOKER, Card.Rank.RED));
+        super(TEMPLATE);
     }
 }
@@ -3,11 +3,13 @@ package fi.bizhop.jassu.model.kirves;
 import fi.bizhop.jassu.exception.CardException;
 import fi.bizhop.jassu.exception.KirvesGameException;
 import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
 import fi.bizhop.jassu.model.Cards;
 import fi.bizhop.jassu.model.User;
 import fi.bizhop.jassu.model.kirves.out.GameOut;
 import fi.bizhop.jassu.model.kirves.out.PlayerOut;
 import fi.bizhop.jassu.model.kirves.pojo.GameDataPOJO;
+import fi.bizhop.jassu.model.kirves.pojo.MessagePOJO;
 import fi.bizhop.jassu.model.kirves.pojo.PlayerPOJO;
 import fi.bizhop.jassu.model.kirves.pojo.ScorePOJO;
 import fi.bizhop.jassu.model.kirves.pojo.UserPOJO;
@@ -26,14 +28,30 @@ import static java.util.stream.Collectors.toMap;
 
 public class Game {
     private static final int NUM_OF_CARD_TO_DEAL = 5;
+    private static final int MAX_PLAYERS = Long.SIZE;
+    private static final int MAX_MESSAGES = 20;
+    private static final String MESSAGES_BUNDLE = "kirves.messages";
+    public static final Locale DEFAULT_LOCALE = new Locale("fi");
 
     private final Cards deck;
+    //players by seat index, seats are in turn order
     private final List<Player> players = new ArrayList<>();
+    private final Map<String, Integer> seats = new HashMap<>();
+    //bit n is set if player in seat n is in game
+    private long activeSeats = 0L;
+    //reused when resolving rounds, indexed by seat
+    private final Card[] playedBySeat = new Card[MAX_PLAYERS];
+    private final int[] roundsWonBySeat = new int[MAX_PLAYERS];
+    //latest messages, older ones are moved to olderMessages until saved
+    private final ArrayDeque<MessagePOJO> messages = new ArrayDeque<>(MAX_MESSAGES);
+    private final List<MessagePOJO> olderMessages = new ArrayList<>();
     private Player turn;
     private Player dealer;
     private Player firstPlayerOfRound;
     private Card trumpCard = null;
     private Card.Suit trump = null;
+    //cards that follow the first card of current trick, all cards before it is played
+    private long ledCards = CardMask.ALL;
     private Card cutCard = null;
     private Card secondCutCard = null;
     
@@ -52,7 +70,8 @@ public class Game {
             playersMap.put(playerPOJO.user.email, current);
             previous = current;
         }
-        this.players.addAll(playersMap.values());
+        if(playersMap.size() > MAX_PLAYERS) throw new KirvesGameException("Liikaa pelaajia");
+        playersMap.values().forEach(this::seat);
         Player last = this.players.get(this.players.size() - 1);
         this.players.get(0).setPrevious(last);
         last.setNext(this.players.get(0));
@@ -64,6 +83,11 @@ public class Game {
         this.trump = Card.Suit.fromAbbreviation(pojo.trump);
         this.cutCard = Card.fromAbbreviation(pojo.cutCard);
         this.secondCutCard = Card.fromAbbreviation(pojo.secondCutCard);
+        Card ledCard = this.getLedCard();
+        if(ledCard != null) this.ledCards = TrickEvaluator.followingCards(ledCard.ordinal(), this.trump);
+        if(pojo.messages != null) {
+            pojo.messages.forEach(this::addMessage);
+        }
     }
 
     public Game(User admin) throws CardException, KirvesGameException {
@@ -75,8 +99,52 @@ public class Game {
         this.setDealer(player);
     }
 
-    public String toJson() throws KirvesGameException {
+    /**
+     * New version of the game to act on, this one stays as it was. Players, cards and scores are copied,
+     * immutable parts like cards, users, messages and scores history are shared.
+     *
+     * @return copy of the game
+     */
+    public Game copy() {
+        return new Game(this);
+    }
+
+    private Game(Game other) {
+        this.data = new GameDataPOJO();
+        this.data.scores.putAll(other.data.scores);
+        this.data.scoresHistory.addAll(other.data.scoresHistory);
+        this.data.canJoin = other.data.canJoin;
+        this.data.canDeal = other.data.canDeal;
+        this.data.forcedGame = other.data.forcedGame;
+        this.data.canDeclineCut = other.data.canDeclineCut;
+        this.data.speaking = other.data.speaking;
+        this.data.messages = other.data.messages;
+        this.deck = other.deck.copy();
+
+        other.players.forEach(player -> this.seat(new Player(player)));
+        for(int seat = 0; seat < this.players.size(); seat++) {
+            this.players.get(seat).relink(other.players.get(seat), this.players);
+        }
+        this.turn = this.sameSeat(other.turn);
+        this.dealer = this.sameSeat(other.dealer);
+        this.firstPlayerOfRound = this.sameSeat(other.firstPlayerOfRound);
+        this.trumpCard = other.trumpCard;
+        this.trump = other.trump;
+        this.ledCards = other.ledCards;
+        this.cutCard = other.cutCard;
+        this.secondCutCard = other.secondCutCard;
+        this.messages.addAll(other.messages);
+        this.olderMessages.addAll(other.olderMessages);
+    }
+
+    //player of this game sitting where the player of the copied game sits
+    private Player sameSeat(Player player) {
+        return player == null ? null : this.players.get(player.getSeat());
+    }
+
+    public synchronized String toJson() throws KirvesGameException {
         this.data.players = this.players.stream().map(Player::toPojo).collect(toList());
+        this.data.messages = new ArrayList<>(this.messages);
         this.data.deck = this.deck.getCardsOut();
         this.data.turn = this.turn == null ? null : this.turn.getUserEmail();
         this.data.dealer = this.dealer == null ? null : this.dealer.getUserEmail();
@@ -95,8 +163,14 @@ public class Game {
     }
 
     public GameOut out(User user) throws KirvesGameException {
+        return this.out(user, DEFAULT_LOCALE);
+    }
+
+    public GameOut out(User user, Locale locale) throws KirvesGameException {
+        List<String> messages = this.renderMessages(this.messages, locale);
         List<String> myCards = new ArrayList<>();
         List<String> myActions = new ArrayList<>();
+        List<String> myPlayableCards = new ArrayList<>();
         String myExtraCard = null;
         if(user != null) {
             Optional<Player> me = this.getPlayer(user.getEmail());
@@ -106,6 +180,12 @@ public class Game {
                 myActions = player.getAvailableActions().stream()
                         .map(Enum::name)
                         .collect(toList());
+                if(player.getAvailableActions().contains(PLAY_CARD)) {
+                    long playable = this.getPlayableCards(player);
+                    for(Card card : player.getHand().getCards()) {
+                        if((playable & CardMask.of(card)) != 0) myPlayableCards.add(card.toString());
+                    }
+                }
                 Card extraCard = player.getExtraCard();
                 if(extraCard != null) {
                     myExtraCard = extraCard.toString();
@@ -123,8 +203,9 @@ public class Game {
                 myCards,
                 myExtraCard,
                 myActions,
-                this.data.messages.isEmpty() ? "" : this.data.messages.get(this.data.messages.size() - 1),
-                this.data.messages,
+                myPlayableCards,
+                messages.isEmpty() ? "" : messages.get(messages.size() - 1),
+                messages,
                 this.data.canJoin,
                 this.trumpCard == null ? "" : this.trumpCard.toString(),
                 this.trump == null ? "" : this.trump.toString(),
@@ -143,31 +224,54 @@ public class Game {
     }
 
     private String getFirstCardSuit() {
-        if(this.firstPlayerOfRound == null || this.trump == null) return "";
-        Card firstCard = this.firstPlayerOfRound.equals(this.turn) ? null : this.firstPlayerOfRound.getLastPlayedCard();
+        Card firstCard = this.getLedCard();
         if(firstCard == null) return "";
-        if(firstCard.getSuit() == JOKER || firstCard.getRank() == JACK) {
-            return this.trump.name();
-        } else {
-            return firstCard.getSuit().name();
+        return TrickEvaluator.effectiveSuit(firstCard, this.trump).name();
+    }
+
+    //first card of current round, null if it hasn't been played. First player of round may have folded,
+    //so it's the card of the first player from there on who has played more cards than the player in turn.
+    private Card getLedCard() {
+        if(this.firstPlayerOfRound == null || this.turn == null || this.trump == null) return null;
+        int cardsOfTurn = this.turn.getPlayedCards().size();
+        int firstSeat = this.firstPlayerOfRound.getSeat();
+        for(long rotated = this.activeSeatsFrom(firstSeat); rotated != 0; rotated &= rotated - 1) {
+            Player item = this.playerAt(firstSeat, rotated);
+            if(item.equals(this.turn)) return null;
+            if(item.getPlayedCards().size() > cardsOfTurn) return item.getLastPlayedCard();
         }
+        return null;
+    }
+
+    /**
+     * Cards the player can play to current round: cards of the led suit if the player has any, otherwise the
+     * whole hand. Jokers and jacks count as trump.
+     *
+     * @param player player
+     * @return mask of cards, see CardMask
+     */
+    public long getPlayableCards(Player player) {
+        long hand = player.getHand().mask();
+        long following = hand & this.ledCards;
+        return following != 0 ? following : hand;
     }
 
     public Optional<Player> getPlayer(String email) {
-        return this.players.stream().filter(player -> player.getUserEmail().equals(email)).findFirst();
+        Integer seat = this.seats.get(email);
+        return seat == null ? Optional.empty() : Optional.of(this.players.get(seat));
     }
 
     public Optional<Player> getRoundWinner(int round) {
-        return this.players.stream().filter(player -> player.getRoundsWon().contains(round)).findFirst();
+        return this.players.stream().filter(player -> player.hasWonRound(round)).findFirst();
     }
 
     public void addPlayer(User user) throws KirvesGameException {
         if(this.data.canJoin) {
-            if (this.players.stream()
-                    .noneMatch(player -> user.getEmail().equals(player.getUserEmail()))) {
+            if (!this.seats.containsKey(user.getEmail())) {
+                if(this.players.size() >= MAX_PLAYERS) throw new KirvesGameException("Peli on täynnä");
                 Player player = this.addPlayerInternal(user.toPOJO());
                 this.resetActions();
-                player.setAvailableActions(List.of(CUT));
+                player.setAvailableAction(CUT);
             } else {
                 throw new KirvesGameException(String.format("Pelaaja %s on jo pelissä", user.getNickname()));
             }
@@ -188,11 +292,63 @@ public class Game {
         } else {
             player = new Player(user);
         }
-        this.players.add(player);
+        this.seat(player);
         this.data.scores.put(user.email, new ScorePOJO(user.getNickname(), 0));
         return player;
     }
 
+    private void seat(Player player) {
+        int seat = this.players.size();
+        player.setSeat(seat);
+        this.players.add(player);
+        this.seats.put(player.getUserEmail(), seat);
+        if(player.isInGame()) {
+            this.activeSeats |= 1L << seat;
+        }
+    }
+
+    private void activate(Player player) {
+        player.activate();
+        this.activeSeats |= 1L << player.getSeat();
+    }
+
+    private void inactivate(Player player) {
+        player.inactivate();
+        this.activeSeats &= ~(1L << player.getSeat());
+    }
+
+    //next seat after given seat that is in game, wrapping around the table
+    private int nextActiveSeat(int seat) throws KirvesGameException {
+        if(this.activeSeats == 0) throw new KirvesGameException("Internal error: no players in game");
+        long after = this.activeSeats & (-2L << seat);
+        return Long.numberOfTrailingZeros(after != 0 ? after : this.activeSeats);
+    }
+
+    //previous seat before given seat that is in game, wrapping around the table
+    private int previousActiveSeat(int seat) throws KirvesGameException {
+        if(this.activeSeats == 0) throw new KirvesGameException("Internal error: no players in game");
+        long before = this.activeSeats & ((1L << seat) - 1);
+        return Long.SIZE - 1 - Long.numberOfLeadingZeros(before != 0 ? before : this.activeSeats);
+    }
+
+    //active seats rotated so that bit 0 is the given seat, iterate in turn order with playerAt(seat, rotated)
+    //and rotated &= rotated - 1. Seats past the last player are never set, so rotating over all 64 bits keeps the order
+    private long activeSeatsFrom(int seat) {
+        return Long.rotateRight(this.activeSeats, seat);
+    }
+
+    private Player playerAt(int seat, long rotated) {
+        return this.players.get((seat + Long.numberOfTrailingZeros(rotated)) & (Long.SIZE - 1));
+    }
+
+    private Player next(Player player) throws KirvesGameException {
+        return this.players.get(this.nextActiveSeat(player.getSeat()));
+    }
+
+    private Player previous(Player player) throws KirvesGameException {
+        return this.players.get(this.previousActiveSeat(player.getSeat()));
+    }
+
     public void deal(User user) throws CardException, KirvesGameException {
         this.deal(user, null);
     }
@@ -200,14 +356,17 @@ public class Game {
     //use this method directly only when testing!
     public void deal(User user, List<Card> possibleTrumpCards) throws CardException, KirvesGameException {
         if(!this.data.canDeal) throw new KirvesGameException("Jakaminen ei onnistu");
-        List<Player> players = this.getPlayersStartingFrom(this.dealer.getUserEmail());
-        for(Player player : players) {
+        boolean hasExtraCard = false;
+        int dealerSeat = this.dealer.getSeat();
+        for(long rotated = this.activeSeatsFrom(dealerSeat); rotated != 0; rotated &= rotated - 1) {
+            Player player = this.playerAt(dealerSeat, rotated);
             player.getPlayedCards().clear();
-            player.addCards(this.deck.deal(NUM_OF_CARD_TO_DEAL));
+            this.deck.deal(NUM_OF_CARD_TO_DEAL, player.getHand());
+            hasExtraCard |= player.getExtraCard() != null;
         }
         if(possibleTrumpCards == null) {
             //normal flow
-            this.trumpCard = this.deck.remove(0);
+            this.trumpCard = this.deck.dealCard();
         }
         else {
             //test flow
@@ -225,7 +384,7 @@ public class Game {
             this.trump = this.trumpCard.getSuit();
         }
         //yhteinen tai väkyri
-        if(     players.stream().anyMatch(player -> player.getExtraCard() != null) ||
+        if(     hasExtraCard ||
                 this.trumpCard.getSuit() == JOKER || this.trumpCard.getRank() == JACK
         ) {
             this.dealer.setExtraCard(this.trumpCard);
@@ -242,7 +401,7 @@ public class Game {
         this.secondCutCard = null;
         this.data.speaking = true;
         Player player = this.getPlayer(user.getEmail()).orElseThrow(() -> new KirvesGameException(String.format("'%s' ei löytynyt pelaajista", user.getNickname())));
-        Player nextPlayer = player.getNext(this.players.size());
+        Player nextPlayer = this.next(player);
         this.setCardPlayer(nextPlayer);
         this.firstPlayerOfRound = nextPlayer;
     }
@@ -252,15 +411,14 @@ public class Game {
         if(decline && !this.data.canDeclineCut) {
             throw new KirvesGameException("Nostosta ei voi kieltäytyä");
         }
-        this.deck.clear();
-        this.deck.add(new Deck().shuffle());
+        this.deck.reset(Deck.TEMPLATE).shuffle();
         if(!decline) {
             this.cutCard = cutCard != null ? this.deck.removeCard(cutCard) : this.deck.remove(RandomUtil.getInt(this.deck.size()));
             if (this.cutCard.getRank() == JACK || this.cutCard.getSuit() == JOKER) {
                 Card secondAfterCut = second != null ? this.deck.removeCard(second) : this.deck.remove(RandomUtil.getInt(this.deck.size()));
                 this.secondCutCard = secondAfterCut;
                 if (secondAfterCut.getRank() == JACK || secondAfterCut.getSuit() == JOKER) {
-                    this.data.messages.add(String.format("Uusi nosto, %s voi kieltäytyä nostamasta", cutter.getNickname()));
+                    this.addMessage(Message.CUT_AGAIN, cutter);
                     this.data.canDeclineCut = true;
                     return;
                 }
@@ -269,16 +427,18 @@ public class Game {
                 this.data.forcedGame = true;
             }
         } else {
-            this.data.messages.add(String.format("%s kieltäytyi nostosta", cutter.getNickname()));
+            this.addMessage(Message.DECLINED_CUT, cutter);
         }
-        this.getPlayersStartingFrom(this.dealer.getUserEmail()).forEach(player -> {
+        int dealerSeat = this.dealer.getSeat();
+        for(long rotated = this.activeSeatsFrom(dealerSeat); rotated != 0; rotated &= rotated - 1) {
+            Player player = this.playerAt(dealerSeat, rotated);
             player.setDeclaredPlayer(false);
             player.resetAvailableActions();
             player.getPlayedCards().clear();
             player.setSpeak(null);
             player.resetWonRounds();
-        });
-        this.dealer.setAvailableActions(List.of(DEAL));
+        }
+        this.dealer.setAvailableAction(DEAL);
         this.turn = this.dealer;
         this.data.canDeal = true;
         this.data.canJoin = false;
@@ -297,7 +457,7 @@ public class Game {
             player.setExtraCard(null);
         }
         player.moveInvisibleCardsToHand();
-        this.setCardPlayer(this.dealer.getNext(this.players.size()));
+        this.setCardPlayer(this.next(this.dealer));
     }
 
     public void discard(User user, int index) throws KirvesGameException, CardException {
@@ -305,7 +465,7 @@ public class Game {
         player.discard(index);
         //anyone discarding is always declared player
         player.setDeclaredPlayer(true);
-        this.setCardPlayer(this.dealer.getNext(this.players.size()));
+        this.setCardPlayer(this.next(this.dealer));
     }
 
     public void speak(User user, Speak speak) throws KirvesGameException {
@@ -319,14 +479,17 @@ public class Game {
             this.setCardPlayer(this.firstPlayerOfRound);
         } else {
             player.setSpeak(speak);
-            Player next = player.getNext(this.players.size());
+            Player next = this.next(player);
             if(this.firstPlayerOfRound.equals(next)) {
-                Optional<Player> changer = this.getPlayersStartingFrom(this.firstPlayerOfRound.getUserEmail()).stream()
-                        .filter(s -> s.getSpeak() == CHANGE)
-                        .findFirst();
-                if(changer.isPresent()) {
+                Player changer = null;
+                int firstSeat = this.firstPlayerOfRound.getSeat();
+                for(long rotated = this.activeSeatsFrom(firstSeat); rotated != 0 && changer == null; rotated &= rotated - 1) {
+                    Player item = this.playerAt(firstSeat, rotated);
+                    if(item.getSpeak() == CHANGE) changer = item;
+                }
+                if(changer != null) {
                     player.resetAvailableActions();
-                    changer.get().setAvailableActions(List.of(SPEAK_SUIT));
+                    changer.setAvailableAction(SPEAK_SUIT);
                 } else {
                     this.startNextRound();
                 }
@@ -350,37 +513,51 @@ public class Game {
 
     public void playCard(User user, int index) throws KirvesGameException, CardException {
         Player player = this.getPlayer(user.getEmail()).orElseThrow(() -> new KirvesGameException("Pelaajaa ei löytynyt"));
+        Card card = player.getHand().get(index);
+        if((this.getPlayableCards(player) & CardMask.of(card)) == 0) {
+            throw new KirvesGameException(String.format("Maa on tunnustettava, korttia %s ei voi pelata", card));
+        }
         player.playCard(index);
-        this.setCardPlayer(player.getNext(this.players.size()));
+        if(this.ledCards == CardMask.ALL) this.ledCards = TrickEvaluator.followingCards(card.ordinal(), this.trump);
+        this.setCardPlayer(this.next(player));
         this.determinePossibleRoundWinner();
+        //round was resolved
+        if(this.turn.equals(this.firstPlayerOfRound)) this.ledCards = CardMask.ALL;
     }
 
     public void fold(User user) throws KirvesGameException {
         Player player = this.getPlayer(user.getEmail()).orElseThrow(() -> new KirvesGameException("Pelaajaa ei löytynyt"));
         player.fold();
+        this.activeSeats &= ~(1L << player.getSeat());
+        //folding is only possible between rounds, so the first player of round keeps the turn and no round is resolved
         if(this.firstPlayerOfRound.equals(player)) {
-            this.firstPlayerOfRound = player.getNext(this.players.size());
+            this.firstPlayerOfRound = this.next(player);
         }
-        this.setCardPlayer(player.getNext(this.players.size()));
-        this.determinePossibleRoundWinner();
-        this.data.messages.add(String.format("%s meni pakkaan", user.getNickname()));
+        this.setCardPlayer(this.firstPlayerOfRound);
+        if(Long.bitCount(this.activeSeats) == 1) {
+            this.handleScoring(this.activeSeats);
+        }
+        this.addMessage(Message.FOLDED, 1L << player.getSeat());
     }
 
     private void determinePossibleRoundWinner() throws KirvesGameException {
-        List<Player> players = this.getPlayersStartingFrom(this.firstPlayerOfRound.getUserEmail());
-        if(players.size() == 0) throw new KirvesGameException("Virhe: 0 pelaajaa jäljellä");
-        if(players.size() == 1) {
-            Player winner = players.get(0);
-            this.handleScoring(Set.of(winner));
+        long seats = this.activeSeats;
+        int numOfPlayers = Long.bitCount(seats);
+        if(numOfPlayers == 0) throw new KirvesGameException("Virhe: 0 pelaajaa jäljellä");
+        if(numOfPlayers == 1) {
+            this.handleScoring(seats);
         } else if(this.turn.equals(this.firstPlayerOfRound)) {
-            List<Card> playedCards = players.stream()
-                    .map(Player::getLastPlayedCard)
-                    .collect(toList());
-
-            Card winningCard = winningCard(playedCards, this.trump);
-            Player roundWinner = players.stream()
-                    .filter(playerItem -> winningCard.equals(playerItem.getLastPlayedCard()))
-                    .findFirst().orElseThrow(() -> new KirvesGameException("Voittokorttia ei löytynyt pelatuista korteista"));
+            long declaredSeats = 0L;
+            for(long rest = seats; rest != 0; rest &= rest - 1) {
+                int seat = Long.numberOfTrailingZeros(rest);
+                Player player = this.players.get(seat);
+                this.playedBySeat[seat] = player.getLastPlayedCard();
+                if(player.isDeclaredPlayer()) declaredSeats |= 1L << seat;
+            }
+
+            int roundWinnerSeat = HandResolver.roundWinner(this.playedBySeat, seats, this.firstPlayerOfRound.getSeat(), this.trump);
+            if(roundWinnerSeat < 0) throw new KirvesGameException("Voittokorttia ei löytynyt pelatuista korteista");
+            Player roundWinner = this.players.get(roundWinnerSeat);
             roundWinner.addRoundWon();
 
             if(roundWinner.cardsInHand() != 0) {
@@ -388,14 +565,20 @@ public class Game {
                 this.firstPlayerOfRound = roundWinner;
             }
             else {
-                Player handWinner = determineHandWinner(players);
-                Set<Player> winners = determineScoringWinners(players, handWinner);
-                this.handleScoring(winners);
+                for(long rest = seats; rest != 0; rest &= rest - 1) {
+                    int seat = Long.numberOfTrailingZeros(rest);
+                    this.roundsWonBySeat[seat] = this.players.get(seat).getRoundsWonMask();
+                }
+                int handWinnerSeat = HandResolver.handWinner(this.roundsWonBySeat, seats);
+                if(handWinnerSeat < 0) throw new KirvesGameException("Voittajan määritys ei onnistunut");
+                this.handleScoring(HandResolver.scoringWinners(seats, declaredSeats, handWinnerSeat));
             }
         }
     }
 
     public static Set<Player> determineScoringWinners(List<Player> players, Player handWinner) {
+        boolean declaredPlayerLost = players.stream()
+                .anyMatch(player -> player.isDeclaredPlayer() && !player.equals(handWinner));
         Set<Player> winners = new HashSet<>();
         for(Player player : players) {
             //case: player is handWinner
@@ -403,29 +586,24 @@ public class Game {
                 winners.add(player);
             } else {
                 //case: other player didn't win as declared player
-                if(!player.isDeclaredPlayer()) {
-                    List<Player> otherPlayers = new ArrayList<>(players);
-                    otherPlayers.remove(player);
-                    for (Player other : otherPlayers) {
-                        if (other.isDeclaredPlayer() && !other.equals(handWinner)) {
-                            winners.add(player);
-                        }
-                    }
+                if(!player.isDeclaredPlayer() && declaredPlayerLost) {
+                    winners.add(player);
                 }
             }
         }
         return winners;
     }
 
-    private void handleScoring(Set<Player> winners) throws KirvesGameException {
-        String label = winners.size() == 1 ? "Voittaja" : "Voittajat";
-        List<String> winnerNicks = winners.stream().map(Player::getUserNickname).collect(toList());
-        this.data.messages.add(String.format("%s: %s", label, String.join(",", winnerNicks)));
-        for(Player winner : winners) {
+    private void handleScoring(long winnerSeats) throws KirvesGameException {
+        this.addMessage(Long.bitCount(winnerSeats) == 1 ? Message.WINNER : Message.WINNERS, winnerSeats);
+        for(long rest = winnerSeats; rest != 0; rest &= rest - 1) {
+            Player winner = this.players.get(Long.numberOfTrailingZeros(rest));
+            //scores are replaced, not changed, because copies of the game share them
             ScorePOJO previousScore = this.data.scores.get(winner.getUserEmail());
-            previousScore.score++;
-            if(previousScore.score == 3) {
-                winner.inactivate();
+            ScorePOJO score = new ScorePOJO(previousScore.nickname, previousScore.score + 1);
+            this.data.scores.put(winner.getUserEmail(), score);
+            if(score.score == 3) {
+                this.inactivate(winner);
             }
         }
         this.startNextRound();
@@ -433,7 +611,7 @@ public class Game {
             this.data.scoresHistory.add(new HashMap<>(this.data.scores));
             this.data.scores.clear();
             this.players.forEach(player -> {
-                player.activate();
+                this.activate(player);
                 this.data.scores.put(player.getUserEmail(), new ScorePOJO(player.getUserNickname(), 0));
             });
             this.setDealer(this.dealer);
@@ -441,10 +619,10 @@ public class Game {
     }
 
     public void startNextRound() throws KirvesGameException {
-        this.players.stream()
-                .filter(Player::isFolded)
-                .forEach(Player::activate);
-        this.setDealer(this.dealer.getNext(this.players.size()));
+        for(Player player : this.players) {
+            if(player.isFolded()) this.activate(player);
+        }
+        this.setDealer(this.next(this.dealer));
     }
 
     private List<Player> getPlayersStartingFrom(String userEmail) throws KirvesGameException {
@@ -452,56 +630,50 @@ public class Game {
             return this.players;
         }
         Player item = this.getPlayer(userEmail).orElseThrow(() -> new KirvesGameException("Pelaajaa ei löytynyt"));
-        return getPlayersStartingFrom(item, userEmail, this.players.size());
-    }
-
-    public static List<Player> getPlayersStartingFrom(Player item, String userEmail, int playersCount) throws KirvesGameException {
-        List<Player> players = new ArrayList<>();
-        if(!item.isInGame()) {
-            item = item.getNext(playersCount);
-            if(userEmail.equals(item.getUserEmail())) return List.of(item);
-            userEmail = item.getUserEmail();
+        int seat = item.getSeat();
+        List<Player> players = new ArrayList<>(Long.bitCount(this.activeSeats));
+        for(long rotated = this.activeSeatsFrom(seat); rotated != 0; rotated &= rotated - 1) {
+            players.add(this.playerAt(seat, rotated));
         }
-        int safetyCounter = 0;
-        do {
-            safetyCounter++;
-            if(safetyCounter > playersCount) throw new KirvesGameException("Virhe pelaajien linkityksessä");
-            players.add(item);
-            item = item.getNext(playersCount);
-        } while (!item.getUserEmail().equals(userEmail));
-
         return players;
     }
 
     private void setCardPlayer(Player player) throws KirvesGameException {
         this.resetActions();
-        Optional<Player> needsToDiscard = this.getPlayersStartingFrom(player.getUserEmail()).stream()
-                .filter(item -> item.getExtraCard() != null)
-                .findFirst();
+        Player needsToDiscard = null;
+        int seat = player.getSeat();
+        for(long rotated = this.activeSeatsFrom(seat); rotated != 0 && needsToDiscard == null; rotated &= rotated - 1) {
+            Player item = this.playerAt(seat, rotated);
+            if(item.getExtraCard() != null) needsToDiscard = item;
+        }
         if(this.dealer.hasInvisibleCards()) {
             this.turn = this.dealer;
-            this.turn.setAvailableActions(List.of(ACE_OR_TWO_DECISION));
+            this.turn.setAvailableAction(ACE_OR_TWO_DECISION);
         }
-        else if(needsToDiscard.isPresent()) {
-            needsToDiscard.get().setAvailableActions(List.of(DISCARD));
-            this.turn = needsToDiscard.get();
+        else if(needsToDiscard != null) {
+            needsToDiscard.setAvailableAction(DISCARD);
+            this.turn = needsToDiscard;
         }
         else {
             if(!player.isInGame()) {
-                player = player.getNext(this.players.size());
+                player = this.next(player);
             }
             this.turn = player;
             if(this.data.speaking && !this.data.forcedGame) {
-                this.turn.setAvailableActions(List.of(SPEAK));
+                this.turn.setAvailableAction(SPEAK);
             }
             else {
-                this.turn.setAvailableActions(List.of(PLAY_CARD));
+                this.turn.setAvailableAction(PLAY_CARD);
 
                 //set folding possibility to players
                 int numOfActivePlayers = this.getNumberOfPlayers(true);
-                this.getPlayersStartingFrom(player.getUserEmail()).stream()
-                        .filter(p -> canFold(p, this.firstPlayerOfRound, this.turn, this.trump, numOfActivePlayers))
-                        .forEach(p -> p.addAvailableAction(FOLD));
+                int turnSeat = player.getSeat();
+                for(long rotated = this.activeSeatsFrom(turnSeat); rotated != 0; rotated &= rotated - 1) {
+                    Player item = this.playerAt(turnSeat, rotated);
+                    if(canFold(item, this.firstPlayerOfRound, this.turn, this.trump, numOfActivePlayers)) {
+                        item.addAvailableAction(FOLD);
+                    }
+                }
             }
         }
     }
@@ -514,112 +686,89 @@ public class Game {
     }
 
     private void setDealer(Player dealer) throws KirvesGameException {
-        this.getPlayersStartingFrom(dealer.getUserEmail()).forEach(Player::clearHand);
+        int dealerSeat = dealer.getSeat();
+        for(long rotated = this.activeSeatsFrom(dealerSeat); rotated != 0; rotated &= rotated - 1) {
+            this.playerAt(dealerSeat, rotated).clearHand();
+        }
         this.dealer = dealer;
         this.data.canDeal = false;
         this.trumpCard = null;
         this.trump = null;
+        this.ledCards = CardMask.ALL;
         this.data.speaking = false;
         this.data.forcedGame = false;
         this.data.canDeclineCut = false;
         this.resetActions();
-        this.turn = dealer.getPrevious(this.players.size());
-        this.turn.setAvailableActions(List.of(CUT));
+        this.turn = this.previous(dealer);
+        this.turn.setAvailableAction(CUT);
     }
 
     public static Player determineHandWinner(List<Player> players) throws KirvesGameException {
-        //three or more rounds is clear winner
-        Optional<Player> threeOrMore = players.stream()
-                .filter(player -> player.getRoundsWon().size() >= 3)
-                .findFirst();
-        if(threeOrMore.isPresent()) {
-            return threeOrMore.get();
+        Player firstTwo = null;
+        int numOfTwo = 0;
+        int numOfOne = 0;
+        Player lastRound = null;
+        for(Player player : players) {
+            int rounds = player.getRoundsWonMask();
+            int count = Integer.bitCount(rounds);
+            if(count >= 3) {
+                //three or more rounds is clear winner
+                return player;
+            } else if(count == 2) {
+                numOfTwo++;
+                //two players with two rounds, first two wins
+                if(firstTwo == null || secondRound(rounds) < secondRound(firstTwo.getRoundsWonMask())) {
+                    firstTwo = player;
+                }
+            } else if(count == 1) {
+                numOfOne++;
+                if(player.hasWonRound(4)) {
+                    lastRound = player;
+                }
+            }
         }
 
-        //two rounds
-        List<Player> two = players.stream()
-                .filter(player -> player.getRoundsWon().size() == 2)
-                .collect(toList());
-
-        if(two.size() == 1) {
-            //only one player with two rounds is winner
-            return two.get(0);
-        } else if(two.size() == 2) {
-            //two players with two rounds, first two wins
-            Player first = two.get(0);
-            Player second = two.get(1);
-
-            return first.getRoundsWon().get(1) > second.getRoundsWon().get(1) ? second : first;
+        //only one player with two rounds is winner, with two such players first two wins
+        if(numOfTwo == 1 || numOfTwo == 2) {
+            return firstTwo;
         }
 
         //if these cases don't return anything, there should be five single round winners
-        List<Player> one = players.stream()
-                .filter(player -> player.getRoundsWon().size() == 1)
-                .collect(toList());
-
-        if(one.size() == 5) {
+        if(numOfOne == 5) {
             //last round wins
-            return players.stream()
-                    .filter(player -> player.getRoundsWon().get(0) == 4)
-                    .findFirst().orElseThrow(KirvesGameException::new);
+            if(lastRound == null) throw new KirvesGameException();
+            return lastRound;
         } else {
             throw new KirvesGameException("Voittajan määritys ei onnistunut");
         }
     }
 
+    //index of the second won round in round mask
+    private static int secondRound(int rounds) {
+        return Integer.numberOfTrailingZeros(rounds & (rounds - 1));
+    }
+
     public static Card winningCard(List<Card> playedCards, Card.Suit trump) {
-        int leader = 0;
-        for(int i = 1; i < playedCards.size(); i++) {
-            Card leaderCard = playedCards.get(leader);
-            Card candidate = playedCards.get(i);
-            if(candidateWins(leaderCard, candidate, trump)) {
-                leader = i;
-            }
-        }
-        return playedCards.get(leader);
+        Card[] cards = playedCards.toArray(new Card[0]);
+        return cards[TrickEvaluator.winner(cards, cards.length, trump)];
     }
 
     public boolean userHasActionAvailable(User user, Action action) {
         return this.getPlayer(user.getEmail())
-                .map(player -> player.getAvailableActions().contains(action))
+                .map(player -> player.hasAvailableAction(action))
                 .orElse(false);
     }
 
     public Optional<User> getUserWithAction(Action action) {
         return this.players.stream()
-                .map(player -> player.getAvailableActions().contains(action) ? player.getUser() : null)
+                .map(player -> player.hasAvailableAction(action) ? player.getUser() : null)
                 .filter(Objects::nonNull)
                 .map(User::new)
                 .findFirst();
     }
 
-    private static boolean candidateWins(Card leader, Card candidate, Card.Suit trump) {
-        int leaderRank = getConvertedRank(leader);
-        int candidateRank = getConvertedRank(candidate);
-        Card.Suit leaderSuit = leader.getSuit() == JOKER || leader.getRank() == JACK ? trump : leader.getSuit();
-        Card.Suit candidateSuit = candidate.getSuit() == JOKER || candidate.getRank() == JACK ? trump : candidate.getSuit();
-
-        if(candidateSuit == trump && leaderSuit != trump) {
-            return true;
-        }
-        else return candidateSuit == leaderSuit &&
-                candidateRank > leaderRank;
-    }
-
-    private static int getConvertedRank(Card card) {
-        if(card.getRank() == JACK) {
-            switch (card.getSuit()) {
-                case DIAMONDS: return 15;
-                case HEARTS: return 16;
-                case SPADES: return 17;
-                case CLUBS: return 18;
-            }
-        }
-        return card.getRank().getValue();
-    }
-
     public boolean hasPlayer(User user) {
-        return this.players.stream().anyMatch(player -> user.getEmail().equals(player.getUserEmail()));
+        return this.seats.containsKey(user.getEmail());
     }
 
     public Card getCutCard() {
@@ -641,9 +790,13 @@ public class Game {
         return this.getNumberOfPlayers(false);
     }
 
+    public int getFreeSeats() {
+        return MAX_PLAYERS - this.players.size();
+    }
+
     private int getNumberOfPlayers(boolean onlyActive) {
         if(onlyActive) {
-            return (int) this.players.stream().filter(Player::isInGame).count();
+            return Long.bitCount(this.activeSeats);
         } else {
             return this.players.size();
         }
@@ -661,6 +814,67 @@ public class Game {
         CHANGE, KEEP, PASS
     }
 
+    //message codes, texts are in resource bundle kirves/messages
+    public enum Message {
+        CUT_AGAIN, DECLINED_CUT, FOLDED, WINNER, WINNERS, TEXT
+    }
+
+    private void addMessage(Message code, User user) throws KirvesGameException {
+        Player player = this.getPlayer(user.getEmail()).orElseThrow(() -> new KirvesGameException("Pelaajaa ei löytynyt"));
+        this.addMessage(code, 1L << player.getSeat());
+    }
+
+    private void addMessage(Message code, long seats) {
+        this.addMessage(new MessagePOJO(code, seats));
+    }
+
+    private void addMessage(MessagePOJO message) {
+        if(this.messages.size() == MAX_MESSAGES) {
+            this.olderMessages.add(this.messages.pollFirst());
+        }
+        this.messages.addLast(message);
+    }
+
+    //latest messages, oldest first
+    public List<MessagePOJO> getMessages() {
+        return new ArrayList<>(this.messages);
+    }
+
+    /**
+     * Get and clear messages that have dropped out of latest messages since the last call
+     *
+     * @return older messages, oldest first
+     */
+    public List<MessagePOJO> drainOlderMessages() {
+        List<MessagePOJO> older = new ArrayList<>(this.olderMessages);
+        this.olderMessages.clear();
+        return older;
+    }
+
+    public List<String> renderMessages(Collection<MessagePOJO> messages, Locale locale) {
+        ResourceBundle bundle = ResourceBundle.getBundle(MESSAGES_BUNDLE, locale,
+                ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_PROPERTIES));
+        List<String> rendered = new ArrayList<>(messages.size());
+        for(MessagePOJO message : messages) {
+            String argument = message.code == Message.TEXT ? message.text : this.getNicknames(message.seats);
+            rendered.add(String.format(bundle.getString(message.code.name()), argument));
+        }
+        return rendered;
+    }
+
+    private String getNicknames(long seats) {
+        StringJoiner nicknames = new StringJoiner(",");
+        for(long rest = seats; rest != 0; rest &= rest - 1) {
+            int seat = Long.numberOfTrailingZeros(rest);
+            if(seat < this.players.size()) {
+                Player player = this.players.get(seat);
+                String nickname = player.getUserNickname();
+                nicknames.add(nickname.isEmpty() ? player.getUserEmail() : nickname);
+            }
+        }
+        return nicknames.toString();
+    }
+
     @Override
     public boolean equals(Object o) {
         if(!(o instanceof Game)) return false;
@@ -673,6 +887,7 @@ public class Game {
             if(!(this.players.get(0).equals(other.players.get(0)))) return false;
         }
         return this.data.equals(other.data)
+                && new ArrayList<>(this.messages).equals(new ArrayList<>(other.messages))
                 && this.deck.equals(other.deck)
                 && this.turn.equals(other.turn)
                 && this.dealer.equals(other.dealer)
@@ -0,0 +1,96 @@
+package fi.bizhop.jassu.model.kirves;
+
+import fi.bizhop.jassu.model.Card;
+
+/**
+ * Round, hand and scoring winner resolution over seat indexed arrays.
+ *
+ * Sets of seats are long bit masks (bit n = seat n) and won rounds of a seat are an int bit mask
+ * (bit n = round n won). Nothing is allocated, so this can be run for every trick of a simulation.
+ */
+public class HandResolver {
+    private static final int NUM_OF_ROUNDS = 5;
+
+    /**
+     * Find round winner
+     *
+     * @param playedBySeat last played card of each seat
+     * @param seats seats playing the round
+     * @param firstSeat seat that played first in the round
+     * @param trump trump suit
+     * @return seat of round winner, or -1 if some seat has no played card
+     */
+    public static int roundWinner(Card[] playedBySeat, long seats, int firstSeat, Card.Suit trump) {
+        Card first = playedBySeat[firstSeat];
+        if(first == null) return -1;
+        Card.Suit led = TrickEvaluator.effectiveSuit(first, trump);
+        int winner = -1;
+        int best = -1;
+        for(long rotated = Long.rotateRight(seats, firstSeat); rotated != 0; rotated &= rotated - 1) {
+            int seat = (firstSeat + Long.numberOfTrailingZeros(rotated)) & (Long.SIZE - 1);
+            Card card = playedBySeat[seat];
+            if(card == null) return -1;
+            int strength = TrickEvaluator.strength(card, trump, led);
+            if(strength > best) {
+                best = strength;
+                winner = seat;
+            }
+        }
+        return winner;
+    }
+
+    /**
+     * Find hand winner: three or more rounds wins, then the only player with two rounds or the one who got
+     * the second round first, and if everyone has one round the winner of the last round.
+     *
+     * @param roundsWonBySeat won rounds mask of each seat
+     * @param seats seats playing the hand
+     * @return seat of hand winner, or -1 if winner can't be determined
+     */
+    public static int handWinner(int[] roundsWonBySeat, long seats) {
+        int firstTwo = -1;
+        int firstTwoSecondRound = Integer.MAX_VALUE;
+        int numOfTwo = 0;
+        int numOfOne = 0;
+        int lastRound = -1;
+        for(long rest = seats; rest != 0; rest &= rest - 1) {
+            int seat = Long.numberOfTrailingZeros(rest);
+            int rounds = roundsWonBySeat[seat];
+            int count = Integer.bitCount(rounds);
+            if(count >= 3) {
+                return seat;
+            } else if(count == 2) {
+                numOfTwo++;
+                int secondRound = Integer.numberOfTrailingZeros(rounds & (rounds - 1));
+                if(secondRound < firstTwoSecondRound) {
+                    firstTwo = seat;
+                    firstTwoSecondRound = secondRound;
+                }
+            } else if(count == 1) {
+                numOfOne++;
+                if((rounds & 1 << (NUM_OF_ROUNDS - 1)) != 0) {
+                    lastRound = seat;
+                }
+            }
+        }
+        if(numOfTwo == 1 || numOfTwo == 2) return firstTwo;
+        return numOfOne == NUM_OF_ROUNDS ? lastRound : -1;
+    }
+
+    /**
+     * Find scoring winners: hand winner always scores, and if a declared player lost, every player
+     * that isn't a declared player scores too.
+     *
+     * @param seats seats playing the hand
+     * @param declaredSeats seats of declared players
+     * @param handWinnerSeat seat of hand winner
+     * @return seats of scoring winners
+     */
+    public static long scoringWinners(long seats, long declaredSeats, int handWinnerSeat) {
+        long handWinner = 1L << handWinnerSeat;
+        long declared = seats & declaredSeats;
+        return (declared & ~handWinner) != 0
+                ? handWinner | (seats & ~declared)
+                : handWinner;
+    }
+}
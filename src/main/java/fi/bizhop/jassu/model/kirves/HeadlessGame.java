@@ -0,0 +1,947 @@
+package fi.bizhop.jassu.model.kirves;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.kirves.pojo.GameDataPOJO;
+import fi.bizhop.jassu.model.kirves.pojo.PlayerPOJO;
+import fi.bizhop.jassu.model.kirves.pojo.ScorePOJO;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static fi.bizhop.jassu.model.Card.Rank.*;
+import static fi.bizhop.jassu.model.Card.Suit.*;
+
+/**
+ * Kirves rules without users, messages or persistence, for simulations. Transitions are the same as in
+ * Game: cut, deal, ace or two decision, speak, discard, play and fold, and scoring until only one player
+ * has less than three points, after which a new game starts with the same players.
+ *
+ * State is kept in primitives: sets of seats are int bit masks (bit n = seat n), hands are card masks and
+ * single cards are card ordinals (-1 = no card). Moves are ints combining Game.Action and an argument,
+ * see move(). Randomness (shuffle and cut) comes from the SplittableRandom given in constructor.
+ */
+public class HeadlessGame {
+    public static final int MAX_PLAYERS = 10;
+    //size of moves array for legalMoves
+    public static final int MAX_MOVES = 8;
+    //move of a seat that doesn't take its optional fold
+    public static final int WAIT = -1;
+
+    private static final int NUM_OF_CARD_TO_DEAL = 5;
+    private static final int WINNING_SCORE = 3;
+    private static final int ARGUMENT_BITS = 8;
+    private static final long JACKS_AND_JOKERS = CardMask.JACKS | CardMask.JOKERS;
+    private static final int[] TEMPLATE = Deck.TEMPLATE.stream().mapToInt(Card::ordinal).toArray();
+    private static final Card.Suit[] SUITS = Card.Suit.values();
+    private static final Card.Suit[] STANDARD_SUITS = {CLUBS, DIAMONDS, HEARTS, SPADES};
+    private static final Game.Action[] ACTIONS = Game.Action.values();
+    private static final Game.Speak[] SPEAKS = Game.Speak.values();
+
+    private final int numOfPlayers;
+    private final int allSeats;
+    private final SplittableRandom random;
+
+    private final int[] deck = new int[Card.NUM_OF_CARDS];
+    private int deckHead;
+    private int deckSize;
+
+    private final long[] hands;
+    private final int[] extraCards;
+    private final int[] lastPlayed;
+    private final int[] numOfPlayed;
+    private final int[] roundsWon;
+    private final int[] scores;
+    //speak ordinal + 1, 0 = no speak
+    private final byte[] speaks;
+    //invisible cards of dealer
+    private long hidden;
+    //cards played in current hand
+    private long played;
+
+    private int activeSeats;
+    private int foldedSeats;
+    private int declaredSeats;
+    //seats that have played in current round
+    private int trickSeats;
+    //cards that follow the first card of current round, all cards before it is played
+    private long ledCards = CardMask.ALL;
+
+    private int dealer;
+    private int turn;
+    private int firstPlayerOfRound;
+    //seat with the action that is not fold, and the action
+    private int actor;
+    private Game.Action action;
+    //seats that can fold
+    private int foldSeats;
+
+    private int trumpCard = -1;
+    private Card.Suit trump;
+    private int cutCard = -1;
+    private int secondCutCard = -1;
+    private boolean canDeal;
+    private boolean speaking;
+    private boolean forcedGame;
+    private boolean canDeclineCut;
+
+    //outcome counters
+    private int handsPlayed;
+    private int gamesPlayed;
+    private int lastHandWinner = -1;
+    private int lastWinners;
+    private int lastDeclared;
+    private int lastLoser = -1;
+
+    /**
+     * New game, seat 0 deals first and the last seat cuts
+     *
+     * @param numOfPlayers number of players, 2 - MAX_PLAYERS
+     * @param random source of shuffles and cuts
+     */
+    public HeadlessGame(int numOfPlayers, SplittableRandom random) {
+        if(numOfPlayers < 2 || numOfPlayers > MAX_PLAYERS) {
+            throw new IllegalArgumentException(String.format("Number of players must be 2-%d, was %d", MAX_PLAYERS, numOfPlayers));
+        }
+        this.numOfPlayers = numOfPlayers;
+        this.allSeats = (1 << numOfPlayers) - 1;
+        this.random = random;
+        this.hands = new long[numOfPlayers];
+        this.extraCards = new int[numOfPlayers];
+        this.lastPlayed = new int[numOfPlayers];
+        this.numOfPlayed = new int[numOfPlayers];
+        this.roundsWon = new int[numOfPlayers];
+        this.scores = new int[numOfPlayers];
+        this.speaks = new byte[numOfPlayers];
+        Arrays.fill(this.extraCards, -1);
+        Arrays.fill(this.lastPlayed, -1);
+        this.activeSeats = this.allSeats;
+        this.setDealer(0);
+    }
+
+    private HeadlessGame(HeadlessGame other, SplittableRandom random) {
+        this.numOfPlayers = other.numOfPlayers;
+        this.allSeats = other.allSeats;
+        this.random = random;
+        System.arraycopy(other.deck, 0, this.deck, 0, this.deck.length);
+        this.deckHead = other.deckHead;
+        this.deckSize = other.deckSize;
+        this.hands = other.hands.clone();
+        this.extraCards = other.extraCards.clone();
+        this.lastPlayed = other.lastPlayed.clone();
+        this.numOfPlayed = other.numOfPlayed.clone();
+        this.roundsWon = other.roundsWon.clone();
+        this.scores = other.scores.clone();
+        this.speaks = other.speaks.clone();
+        this.hidden = other.hidden;
+        this.played = other.played;
+        this.activeSeats = other.activeSeats;
+        this.foldedSeats = other.foldedSeats;
+        this.declaredSeats = other.declaredSeats;
+        this.trickSeats = other.trickSeats;
+        this.ledCards = other.ledCards;
+        this.dealer = other.dealer;
+        this.turn = other.turn;
+        this.firstPlayerOfRound = other.firstPlayerOfRound;
+        this.actor = other.actor;
+        this.action = other.action;
+        this.foldSeats = other.foldSeats;
+        this.trumpCard = other.trumpCard;
+        this.trump = other.trump;
+        this.cutCard = other.cutCard;
+        this.secondCutCard = other.secondCutCard;
+        this.canDeal = other.canDeal;
+        this.speaking = other.speaking;
+        this.forcedGame = other.forcedGame;
+        this.canDeclineCut = other.canDeclineCut;
+        this.handsPlayed = other.handsPlayed;
+        this.gamesPlayed = other.gamesPlayed;
+        this.lastHandWinner = other.lastHandWinner;
+        this.lastWinners = other.lastWinners;
+        this.lastDeclared = other.lastDeclared;
+        this.lastLoser = other.lastLoser;
+    }
+
+    //independent copy drawing shuffles and cuts from the given random
+    public HeadlessGame copy(SplittableRandom random) {
+        return new HeadlessGame(this, random);
+    }
+
+    /**
+     * Game from save data of Game, seats in the order of players. Outcome counters start from zero.
+     *
+     * @param pojo save data, see Game.toJson
+     * @param random source of shuffles and cuts
+     * @return game in the same state
+     * @throws CardException if card abbreviations are invalid
+     * @throws IllegalArgumentException if number of players is not supported or no player has an action
+     */
+    public static HeadlessGame of(GameDataPOJO pojo, SplittableRandom random) throws CardException {
+        List<PlayerPOJO> players = pojo.players;
+        HeadlessGame game = new HeadlessGame(players.size(), random);
+        game.activeSeats = 0;
+        game.actor = -1;
+        for(int seat = 0; seat < players.size(); seat++) {
+            PlayerPOJO player = players.get(seat);
+            int bit = 1 << seat;
+            game.hands[seat] = mask(player.hand);
+            game.extraCards[seat] = ordinal(player.extraCard);
+            game.hidden |= mask(player.invisibleCards);
+            game.played |= mask(player.playedCards);
+            int numOfPlayed = player.playedCards == null ? 0 : player.playedCards.size();
+            game.numOfPlayed[seat] = numOfPlayed;
+            game.lastPlayed[seat] = numOfPlayed == 0 ? -1 : ordinal(player.playedCards.get(numOfPlayed - 1));
+            for(Integer round : player.roundsWon) {
+                game.roundsWon[seat] |= 1 << round;
+            }
+            ScorePOJO score = pojo.scores.get(player.user.email);
+            game.scores[seat] = score == null ? 0 : score.score;
+            game.speaks[seat] = (byte) (player.speak == null ? 0 : player.speak.ordinal() + 1);
+            if(player.inGame) game.activeSeats |= bit;
+            if(player.folded) game.foldedSeats |= bit;
+            if(player.declaredPlayer) game.declaredSeats |= bit;
+            for(Game.Action action : player.availableActions) {
+                if(action == Game.Action.FOLD) {
+                    game.foldSeats |= bit;
+                } else {
+                    game.actor = seat;
+                    game.action = action;
+                }
+            }
+        }
+        if(game.actor < 0) throw new IllegalArgumentException("No player has an action");
+        game.dealer = seatOf(players, pojo.dealer);
+        game.turn = seatOf(players, pojo.turn);
+        game.firstPlayerOfRound = seatOf(players, pojo.firstPlayerOfRound);
+        //cards of current round are played from first player of round up to turn
+        for(int rotated = game.activeFrom(game.firstPlayerOfRound); rotated != 0 && game.turn != game.firstPlayerOfRound; rotated &= rotated - 1) {
+            int seat = game.seatAt(game.firstPlayerOfRound, rotated);
+            if(seat == game.turn) break;
+            if(game.numOfPlayed[seat] > game.numOfPlayed[game.turn]) game.trickSeats |= 1 << seat;
+        }
+        game.trumpCard = ordinal(pojo.trumpCard);
+        game.trump = Card.Suit.fromAbbreviation(pojo.trump);
+        //first card of current round was played by the first seat of trickSeats
+        for(int rotated = game.activeFrom(game.firstPlayerOfRound); rotated != 0 && game.trump != null; rotated &= rotated - 1) {
+            int seat = game.seatAt(game.firstPlayerOfRound, rotated);
+            if((game.trickSeats & 1 << seat) != 0) {
+                game.ledCards = TrickEvaluator.followingCards(game.lastPlayed[seat], game.trump);
+                break;
+            }
+        }
+        game.cutCard = ordinal(pojo.cutCard);
+        game.secondCutCard = ordinal(pojo.secondCutCard);
+        game.canDeal = pojo.canDeal;
+        game.speaking = pojo.speaking;
+        game.forcedGame = pojo.forcedGame;
+        game.canDeclineCut = pojo.canDeclineCut;
+        game.deckHead = 0;
+        game.deckSize = pojo.deck.size();
+        for(int i = 0; i < game.deckSize; i++) {
+            game.deck[i] = ordinal(pojo.deck.get(i));
+        }
+        return game;
+    }
+
+    private static long mask(List<String> abbreviations) throws CardException {
+        long mask = 0L;
+        if(abbreviations != null) {
+            for(String abbreviation : abbreviations) {
+                mask |= 1L << ordinal(abbreviation);
+            }
+        }
+        return mask;
+    }
+
+    private static int ordinal(String abbreviation) throws CardException {
+        Card card = Card.fromAbbreviation(abbreviation);
+        return card == null ? -1 : card.ordinal();
+    }
+
+    private static int seatOf(List<PlayerPOJO> players, String email) {
+        for(int seat = 0; seat < players.size(); seat++) {
+            if(players.get(seat).user.email.equals(email)) return seat;
+        }
+        return 0;
+    }
+
+    /**
+     * Deal the cards the viewer can't see again at random. Hands of other active seats, hidden cards of the
+     * dealer and the deck keep their sizes, all other cards stay where they are.
+     *
+     * @param viewer seat whose knowledge is kept, -1 to deal hands of all active seats again
+     */
+    public void determinize(int viewer) {
+        int[] pool = new int[Card.NUM_OF_CARDS];
+        int size = 0;
+        int unseen = viewer < 0 ? this.activeSeats : this.activeSeats & ~(1 << viewer);
+        for(int rest = unseen; rest != 0; rest &= rest - 1) {
+            size = addCards(pool, size, this.hands[Integer.numberOfTrailingZeros(rest)]);
+        }
+        size = addCards(pool, size, this.hidden);
+        System.arraycopy(this.deck, this.deckHead, pool, size, this.deckSize);
+        size += this.deckSize;
+        for(int i = size - 1; i > 0; i--) {
+            int j = this.random.nextInt(i + 1);
+            int temp = pool[i];
+            pool[i] = pool[j];
+            pool[j] = temp;
+        }
+
+        int next = 0;
+        for(int rest = unseen; rest != 0; rest &= rest - 1) {
+            int seat = Integer.numberOfTrailingZeros(rest);
+            long hand = 0L;
+            for(int count = Long.bitCount(this.hands[seat]); count > 0; count--) {
+                hand |= 1L << pool[next++];
+            }
+            this.hands[seat] = hand;
+        }
+        long hidden = 0L;
+        for(int count = Long.bitCount(this.hidden); count > 0; count--) {
+            hidden |= 1L << pool[next++];
+        }
+        this.hidden = hidden;
+        System.arraycopy(pool, next, this.deck, this.deckHead, this.deckSize);
+    }
+
+    /**
+     * Replace hands of active seats and hidden cards with a deal of the same cards, e.g. one made by
+     * determinize on a copy. Cards of the deal that are not in hands or hidden cards go to the deck.
+     *
+     * @param hands hand of each seat, hands of inactive seats are ignored
+     * @param hidden hidden cards of the dealer
+     * @throws IllegalArgumentException if the deal has other cards or other hand sizes than this game
+     */
+    void deal(long[] hands, long hidden) {
+        long pool = this.hidden;
+        long dealt = hidden;
+        for(int rest = this.activeSeats; rest != 0; rest &= rest - 1) {
+            int seat = Integer.numberOfTrailingZeros(rest);
+            if(Long.bitCount(hands[seat]) != Long.bitCount(this.hands[seat])) throw new IllegalArgumentException(String.format("Hand size of seat %d doesn't match", seat));
+            pool |= this.hands[seat];
+            dealt |= hands[seat];
+        }
+        for(int i = this.deckHead; i < this.deckHead + this.deckSize; i++) {
+            pool |= 1L << this.deck[i];
+        }
+        long deck = pool & ~dealt;
+        if((dealt & ~pool) != 0 || Long.bitCount(hidden) != Long.bitCount(this.hidden) || Long.bitCount(deck) != this.deckSize) {
+            throw new IllegalArgumentException("Deal doesn't match unseen cards");
+        }
+
+        for(int rest = this.activeSeats; rest != 0; rest &= rest - 1) {
+            int seat = Integer.numberOfTrailingZeros(rest);
+            this.hands[seat] = hands[seat];
+        }
+        this.hidden = hidden;
+        addCards(this.deck, this.deckHead, deck);
+    }
+
+    private static int addCards(int[] pool, int size, long cards) {
+        for(long rest = cards; rest != 0; rest &= rest - 1) {
+            pool[size++] = Long.numberOfTrailingZeros(rest);
+        }
+        return size;
+    }
+
+    public static int move(Game.Action action, int argument) {
+        return action.ordinal() << ARGUMENT_BITS | argument;
+    }
+
+    public static Game.Action action(int move) {
+        return ACTIONS[move >>> ARGUMENT_BITS];
+    }
+
+    //card ordinal for PLAY_CARD and DISCARD, 1 to decline for CUT, 1 to keep for ACE_OR_TWO_DECISION,
+    //Speak ordinal for SPEAK and Suit ordinal for SPEAK_SUIT
+    public static int argument(int move) {
+        return move & ((1 << ARGUMENT_BITS) - 1);
+    }
+
+    /**
+     * Legal moves of a seat. The actor gets the moves of its action (and FOLD if it can fold), other seats
+     * that can fold get FOLD and WAIT. Cards to play must follow the led suit, see getPlayableCards.
+     *
+     * @param seat seat
+     * @param moves array of MAX_MOVES moves to fill
+     * @return number of moves
+     */
+    public int legalMoves(int seat, int[] moves) {
+        int count = 0;
+        boolean canFold = (this.foldSeats & 1 << seat) != 0;
+        if(seat != this.actor) {
+            if(canFold) {
+                moves[count++] = move(Game.Action.FOLD, 0);
+                moves[count++] = WAIT;
+            }
+            return count;
+        }
+        switch (this.action) {
+            case CUT:
+                moves[count++] = move(Game.Action.CUT, 0);
+                if(this.canDeclineCut) moves[count++] = move(Game.Action.CUT, 1);
+                break;
+            case DEAL:
+                moves[count++] = move(Game.Action.DEAL, 0);
+                break;
+            case ACE_OR_TWO_DECISION:
+                moves[count++] = move(Game.Action.ACE_OR_TWO_DECISION, 0);
+                moves[count++] = move(Game.Action.ACE_OR_TWO_DECISION, 1);
+                break;
+            case SPEAK:
+                for(Game.Speak speak : SPEAKS) {
+                    moves[count++] = move(Game.Action.SPEAK, speak.ordinal());
+                }
+                break;
+            case SPEAK_SUIT:
+                for(Card.Suit suit : STANDARD_SUITS) {
+                    if(suit != this.trump) moves[count++] = move(Game.Action.SPEAK_SUIT, suit.ordinal());
+                }
+                break;
+            case DISCARD:
+            case PLAY_CARD:
+                long cards = this.action == Game.Action.PLAY_CARD ? this.getPlayableCards(seat) : this.hands[seat];
+                for(long rest = cards; rest != 0; rest &= rest - 1) {
+                    moves[count++] = move(this.action, Long.numberOfTrailingZeros(rest));
+                }
+                break;
+            default:
+                break;
+        }
+        if(canFold) moves[count++] = move(Game.Action.FOLD, 0);
+        return count;
+    }
+
+    /**
+     * Apply a legal move
+     *
+     * @param seat seat making the move
+     * @param move move from legalMoves, WAIT does nothing
+     * @throws IllegalArgumentException if move is not legal for the seat
+     * @throws IllegalStateException if rules can't determine a winner, where Game would throw KirvesGameException
+     */
+    public void apply(int seat, int move) {
+        if(move == WAIT) return;
+        Game.Action moveAction = action(move);
+        int argument = argument(move);
+        if(moveAction == Game.Action.FOLD) {
+            if((this.foldSeats & 1 << seat) == 0) throw new IllegalArgumentException(String.format("Seat %d can't fold", seat));
+            this.fold(seat);
+            return;
+        }
+        if(seat != this.actor || moveAction != this.action) {
+            throw new IllegalArgumentException(String.format("Seat %d can't %s", seat, moveAction));
+        }
+        switch (moveAction) {
+            case CUT: this.cut(seat, argument == 1); break;
+            case DEAL: this.deal(); break;
+            case ACE_OR_TWO_DECISION: this.aceOrTwoDecision(seat, argument == 1); break;
+            case SPEAK: this.speak(seat, SPEAKS[argument]); break;
+            case SPEAK_SUIT: this.speakSuit(seat, SUITS[argument]); break;
+            case DISCARD: this.discard(seat, this.requireInHand(seat, argument)); break;
+            case PLAY_CARD: this.playCard(seat, this.requirePlayable(seat, argument)); break;
+            default: break;
+        }
+    }
+
+    private int requireInHand(int seat, int card) {
+        if((this.hands[seat] & 1L << card) == 0) {
+            throw new IllegalArgumentException(String.format("Seat %d doesn't have card %s", seat, Card.of(card)));
+        }
+        return card;
+    }
+
+    private int requirePlayable(int seat, int card) {
+        if((this.getPlayableCards(seat) & 1L << card) == 0) {
+            throw new IllegalArgumentException(String.format("Seat %d can't play card %s", seat, Card.of(card)));
+        }
+        return card;
+    }
+
+    private void cut(int cutter, boolean decline) {
+        if(decline && !this.canDeclineCut) throw new IllegalArgumentException("Cut can't be declined");
+        System.arraycopy(TEMPLATE, 0, this.deck, 0, TEMPLATE.length);
+        this.deckHead = 0;
+        this.deckSize = TEMPLATE.length;
+        for(int i = this.deckSize - 1; i > 0; i--) {
+            int j = this.random.nextInt(i + 1);
+            int temp = this.deck[i];
+            this.deck[i] = this.deck[j];
+            this.deck[j] = temp;
+        }
+        this.cutCard = -1;
+        this.secondCutCard = -1;
+        if(!decline) {
+            int cut = this.removeFromDeck(this.random.nextInt(this.deckSize));
+            this.cutCard = cut;
+            if((JACKS_AND_JOKERS & 1L << cut) != 0) {
+                int second = this.removeFromDeck(this.random.nextInt(this.deckSize));
+                this.secondCutCard = second;
+                if((JACKS_AND_JOKERS & 1L << second) != 0) {
+                    this.canDeclineCut = true;
+                    return;
+                }
+                this.extraCards[cutter] = cut;
+                this.forcedGame = true;
+            }
+        }
+        for(int seat = 0; seat < this.numOfPlayers; seat++) {
+            if(this.isActive(seat)) {
+                this.numOfPlayed[seat] = 0;
+                this.lastPlayed[seat] = -1;
+                this.roundsWon[seat] = 0;
+                this.speaks[seat] = 0;
+            }
+        }
+        this.declaredSeats &= ~this.activeSeats;
+        this.played = 0L;
+        this.foldSeats = 0;
+        this.actor = this.dealer;
+        this.action = Game.Action.DEAL;
+        this.turn = this.dealer;
+        this.canDeal = true;
+    }
+
+    private int removeFromDeck(int index) {
+        int position = this.deckHead + index;
+        int card = this.deck[position];
+        System.arraycopy(this.deck, position + 1, this.deck, position, this.deckSize - index - 1);
+        this.deckSize--;
+        return card;
+    }
+
+    private int dealCard() {
+        this.deckSize--;
+        return this.deck[this.deckHead++];
+    }
+
+    private void deal() {
+        boolean hasExtraCard = false;
+        for(int rotated = this.activeFrom(this.dealer); rotated != 0; rotated &= rotated - 1) {
+            int seat = this.seatAt(this.dealer, rotated);
+            this.numOfPlayed[seat] = 0;
+            this.lastPlayed[seat] = -1;
+            for(int i = 0; i < NUM_OF_CARD_TO_DEAL; i++) {
+                this.hands[seat] |= 1L << this.dealCard();
+            }
+            hasExtraCard |= this.extraCards[seat] >= 0;
+        }
+        //dealer got the first cards of the deck, they are hidden first
+        int firstOfDealer = this.deckHead - Long.bitCount(this.activeSeats) * NUM_OF_CARD_TO_DEAL;
+        this.played = 0L;
+        this.trumpCard = this.dealCard();
+        Card trumpCard = Card.of(this.trumpCard);
+        this.trump = trumpCard.getSuit() == JOKER
+                ? trumpCard.getRank() == BLACK ? SPADES : HEARTS
+                : trumpCard.getSuit();
+        //yhteinen tai väkyri
+        if(hasExtraCard || (JACKS_AND_JOKERS & 1L << this.trumpCard) != 0) {
+            this.extraCards[this.dealer] = this.trumpCard;
+            this.declaredSeats |= 1 << this.dealer;
+            this.trumpCard = -1;
+            this.forcedGame = true;
+        } else if(trumpCard.getRank() == TWO || trumpCard.getRank() == ACE) {
+            int numOfHidden = trumpCard.getRank() == TWO ? 2 : 3;
+            for(int i = 0; i < numOfHidden; i++) {
+                this.hidden |= 1L << this.deck[firstOfDealer + i];
+            }
+            this.hands[this.dealer] &= ~this.hidden;
+            this.extraCards[this.dealer] = this.trumpCard;
+            this.trumpCard = -1;
+        }
+        this.canDeal = false;
+        this.cutCard = -1;
+        this.secondCutCard = -1;
+        this.speaking = true;
+        int next = this.nextActive(this.dealer);
+        this.setCardPlayer(next);
+        this.firstPlayerOfRound = next;
+    }
+
+    private void aceOrTwoDecision(int seat, boolean keepExtraCard) {
+        if(keepExtraCard) {
+            this.speaking = false;
+        } else {
+            this.trumpCard = this.extraCards[seat];
+            this.extraCards[seat] = -1;
+        }
+        this.hands[seat] |= this.hidden;
+        this.hidden = 0L;
+        this.setCardPlayer(this.nextActive(this.dealer));
+    }
+
+    private void discard(int seat, int card) {
+        this.hands[seat] = this.hands[seat] & ~(1L << card) | 1L << this.extraCards[seat];
+        this.extraCards[seat] = -1;
+        //anyone discarding is always declared player
+        this.declaredSeats |= 1 << seat;
+        this.setCardPlayer(this.nextActive(this.dealer));
+    }
+
+    private void speak(int seat, Game.Speak speak) {
+        this.speaks[seat] = (byte) (speak.ordinal() + 1);
+        if(speak == Game.Speak.KEEP) {
+            this.declaredSeats |= 1 << seat;
+            this.speaking = false;
+            this.setCardPlayer(this.firstPlayerOfRound);
+        } else {
+            int next = this.nextActive(seat);
+            if(next == this.firstPlayerOfRound) {
+                int changer = -1;
+                for(int rotated = this.activeFrom(this.firstPlayerOfRound); rotated != 0 && changer < 0; rotated &= rotated - 1) {
+                    int item = this.seatAt(this.firstPlayerOfRound, rotated);
+                    if(this.speaks[item] == Game.Speak.CHANGE.ordinal() + 1) changer = item;
+                }
+                if(changer >= 0) {
+                    this.actor = changer;
+                    this.action = Game.Action.SPEAK_SUIT;
+                } else {
+                    this.lastHandWinner = -1;
+                    this.lastWinners = 0;
+                    this.lastDeclared = this.declaredSeats & this.activeSeats;
+                    this.startNextRound();
+                }
+            } else {
+                this.setCardPlayer(next);
+            }
+        }
+    }
+
+    private void speakSuit(int seat, Card.Suit suit) {
+        if(suit == this.trump || suit == JOKER) throw new IllegalArgumentException(String.format("Suit must be other than %s", suit));
+        this.declaredSeats |= 1 << seat;
+        this.trump = suit;
+        this.trumpCard = -1;
+        this.speaking = false;
+        this.setCardPlayer(this.firstPlayerOfRound);
+    }
+
+    private void playCard(int seat, int card) {
+        this.hands[seat] &= ~(1L << card);
+        this.played |= 1L << card;
+        this.lastPlayed[seat] = card;
+        this.numOfPlayed[seat]++;
+        if(this.ledCards == CardMask.ALL) this.ledCards = TrickEvaluator.followingCards(card, this.trump);
+        this.trickSeats |= 1 << seat;
+        this.setCardPlayer(this.nextActive(seat));
+        this.determinePossibleRoundWinner();
+        //round was resolved
+        if(this.turn == this.firstPlayerOfRound) this.ledCards = CardMask.ALL;
+    }
+
+    private void fold(int seat) {
+        this.inactivate(seat);
+        this.foldedSeats |= 1 << seat;
+        //same as in Game, folding is only possible between rounds
+        if(this.firstPlayerOfRound == seat) {
+            this.firstPlayerOfRound = this.nextActive(seat);
+        }
+        this.setCardPlayer(this.firstPlayerOfRound);
+        if(Integer.bitCount(this.activeSeats) == 1) {
+            this.handleScoring(this.activeSeats, this.firstPlayerOfRound);
+        }
+    }
+
+    private void inactivate(int seat) {
+        this.hands[seat] = 0L;
+        this.numOfPlayed[seat] = 0;
+        this.lastPlayed[seat] = -1;
+        this.extraCards[seat] = -1;
+        if(seat == this.dealer) this.hidden = 0L;
+        this.activeSeats &= ~(1 << seat);
+        this.trickSeats &= ~(1 << seat);
+    }
+
+    private void determinePossibleRoundWinner() {
+        int seats = this.activeSeats;
+        int numOfPlayers = Integer.bitCount(seats);
+        if(numOfPlayers == 0) throw new IllegalStateException("No players left");
+        if(numOfPlayers == 1) {
+            this.handleScoring(seats, Integer.numberOfTrailingZeros(seats));
+        } else if(this.turn == this.firstPlayerOfRound) {
+            int first = this.firstPlayerOfRound;
+            int led = this.lastPlayed[first];
+            if(led < 0) throw new IllegalStateException("No card played by first player of round");
+            Card.Suit ledSuit = TrickEvaluator.effectiveSuit(Card.of(led), this.trump);
+            int roundWinner = -1;
+            int best = -1;
+            for(int rotated = this.activeFrom(first); rotated != 0; rotated &= rotated - 1) {
+                int seat = this.seatAt(first, rotated);
+                int card = this.lastPlayed[seat];
+                if(card < 0) throw new IllegalStateException(String.format("No card played by seat %d", seat));
+                int strength = TrickEvaluator.strength(Card.of(card), this.trump, ledSuit);
+                if(strength > best) {
+                    best = strength;
+                    roundWinner = seat;
+                }
+            }
+            this.roundsWon[roundWinner] |= 1 << (this.numOfPlayed[roundWinner] - 1);
+            this.trickSeats = 0;
+
+            if(this.hands[roundWinner] != 0) {
+                this.setCardPlayer(roundWinner);
+                this.firstPlayerOfRound = roundWinner;
+            } else {
+                int handWinner = HandResolver.handWinner(this.roundsWon, seats);
+                if(handWinner < 0) throw new IllegalStateException("Hand winner can't be determined");
+                int winners = (int) HandResolver.scoringWinners(seats, this.declaredSeats, handWinner);
+                this.handleScoring(winners, handWinner);
+            }
+        }
+    }
+
+    private void handleScoring(int winners, int handWinner) {
+        this.lastHandWinner = handWinner;
+        this.lastWinners = winners;
+        this.lastDeclared = this.declaredSeats & this.activeSeats;
+        for(int rest = winners; rest != 0; rest &= rest - 1) {
+            int winner = Integer.numberOfTrailingZeros(rest);
+            if(++this.scores[winner] == WINNING_SCORE) {
+                this.inactivate(winner);
+            }
+        }
+        this.startNextRound();
+        if(Integer.bitCount(this.activeSeats) < 2) {
+            this.lastLoser = this.activeSeats == 0 ? -1 : Integer.numberOfTrailingZeros(this.activeSeats);
+            this.gamesPlayed++;
+            Arrays.fill(this.scores, 0);
+            this.activeSeats = this.allSeats;
+            this.foldedSeats = 0;
+            this.setDealer(this.dealer);
+        }
+    }
+
+    private void startNextRound() {
+        this.handsPlayed++;
+        this.activeSeats |= this.foldedSeats;
+        this.foldedSeats = 0;
+        this.setDealer(this.nextActive(this.dealer));
+    }
+
+    private void setDealer(int dealer) {
+        for(int rest = this.activeSeats; rest != 0; rest &= rest - 1) {
+            this.hands[Integer.numberOfTrailingZeros(rest)] = 0L;
+        }
+        this.dealer = dealer;
+        this.canDeal = false;
+        this.trumpCard = -1;
+        this.trump = null;
+        this.speaking = false;
+        this.forcedGame = false;
+        this.canDeclineCut = false;
+        this.trickSeats = 0;
+        this.ledCards = CardMask.ALL;
+        this.foldSeats = 0;
+        this.turn = this.previousActive(dealer);
+        this.actor = this.turn;
+        this.action = Game.Action.CUT;
+    }
+
+    private void setCardPlayer(int seat) {
+        this.foldSeats = 0;
+        int needsToDiscard = -1;
+        for(int rotated = this.activeFrom(seat); rotated != 0 && needsToDiscard < 0; rotated &= rotated - 1) {
+            int item = this.seatAt(seat, rotated);
+            if(this.extraCards[item] >= 0) needsToDiscard = item;
+        }
+        if(this.hidden != 0L) {
+            this.turn = this.dealer;
+            this.actor = this.dealer;
+            this.action = Game.Action.ACE_OR_TWO_DECISION;
+        } else if(needsToDiscard >= 0) {
+            this.turn = needsToDiscard;
+            this.actor = needsToDiscard;
+            this.action = Game.Action.DISCARD;
+        } else {
+            if(!this.isActive(seat)) {
+                seat = this.nextActive(seat);
+            }
+            this.turn = seat;
+            this.actor = seat;
+            if(this.speaking && !this.forcedGame) {
+                this.action = Game.Action.SPEAK;
+            } else {
+                this.action = Game.Action.PLAY_CARD;
+                if(Integer.bitCount(this.activeSeats) >= 2 && this.trump != null && this.firstPlayerOfRound == this.turn) {
+                    long trumps = CardMask.trumps(this.trump);
+                    for(int rest = this.activeSeats; rest != 0; rest &= rest - 1) {
+                        int item = Integer.numberOfTrailingZeros(rest);
+                        boolean canFold = Long.bitCount(this.hands[item]) == NUM_OF_CARD_TO_DEAL
+                                ? item != this.firstPlayerOfRound
+                                : (this.hands[item] & trumps) == 0;
+                        if(canFold) this.foldSeats |= 1 << item;
+                    }
+                }
+            }
+        }
+    }
+
+    //active seats rotated so that bit 0 is the given seat, see seatAt
+    private int activeFrom(int seat) {
+        return (this.activeSeats >>> seat | this.activeSeats << (this.numOfPlayers - seat)) & this.allSeats;
+    }
+
+    private int seatAt(int seat, int rotated) {
+        int item = seat + Integer.numberOfTrailingZeros(rotated);
+        return item >= this.numOfPlayers ? item - this.numOfPlayers : item;
+    }
+
+    private int nextActive(int seat) {
+        if(this.activeSeats == 0) throw new IllegalStateException("No players in game");
+        int after = this.activeSeats & (-2 << seat);
+        return Integer.numberOfTrailingZeros(after != 0 ? after : this.activeSeats);
+    }
+
+    private int previousActive(int seat) {
+        if(this.activeSeats == 0) throw new IllegalStateException("No players in game");
+        int before = this.activeSeats & ((1 << seat) - 1);
+        return Integer.SIZE - 1 - Integer.numberOfLeadingZeros(before != 0 ? before : this.activeSeats);
+    }
+
+    public int getNumOfPlayers() {
+        return this.numOfPlayers;
+    }
+
+    //seat with an action other than fold
+    public int getActor() {
+        return this.actor;
+    }
+
+    public Game.Action getAction() {
+        return this.action;
+    }
+
+    public int getFoldSeats() {
+        return this.foldSeats;
+    }
+
+    public int getTurn() {
+        return this.turn;
+    }
+
+    public int getDealer() {
+        return this.dealer;
+    }
+
+    public int getFirstPlayerOfRound() {
+        return this.firstPlayerOfRound;
+    }
+
+    public boolean isActive(int seat) {
+        return (this.activeSeats & 1 << seat) != 0;
+    }
+
+    public int getActiveSeats() {
+        return this.activeSeats;
+    }
+
+    public int getDeclaredSeats() {
+        return this.declaredSeats;
+    }
+
+    //seats that have played in current round, in turn order from first player of round
+    public int getTrickSeats() {
+        return this.trickSeats;
+    }
+
+    public long getHand(int seat) {
+        return this.hands[seat];
+    }
+
+    //cards of the hand that follow the first card of current round, or the whole hand if none do
+    public long getPlayableCards(int seat) {
+        long following = this.hands[seat] & this.ledCards;
+        return following == 0 ? this.hands[seat] : following;
+    }
+
+    //hand including extra card and invisible cards
+    public long getAllCards(int seat) {
+        long cards = this.hands[seat];
+        if(this.extraCards[seat] >= 0) cards |= 1L << this.extraCards[seat];
+        return seat == this.dealer ? cards | this.hidden : cards;
+    }
+
+    public int getExtraCard(int seat) {
+        return this.extraCards[seat];
+    }
+
+    public long getHiddenCards() {
+        return this.hidden;
+    }
+
+    public int getLastPlayed(int seat) {
+        return this.lastPlayed[seat];
+    }
+
+    public long getPlayedCards() {
+        return this.played;
+    }
+
+    public int getRoundsWon(int seat) {
+        return this.roundsWon[seat];
+    }
+
+    public int getScore(int seat) {
+        return this.scores[seat];
+    }
+
+    public Game.Speak getSpeak(int seat) {
+        return this.speaks[seat] == 0 ? null : SPEAKS[this.speaks[seat] - 1];
+    }
+
+    public Card.Suit getTrump() {
+        return this.trump;
+    }
+
+    public int getTrumpCard() {
+        return this.trumpCard;
+    }
+
+    public int getCutCard() {
+        return this.cutCard;
+    }
+
+    public int getSecondCutCard() {
+        return this.secondCutCard;
+    }
+
+    //cards left in deck in deal order
+    public int[] getDeck() {
+        return Arrays.copyOfRange(this.deck, this.deckHead, this.deckHead + this.deckSize);
+    }
+
+    public boolean isSpeaking() {
+        return this.speaking;
+    }
+
+    public int getHandsPlayed() {
+        return this.handsPlayed;
+    }
+
+    public int getGamesPlayed() {
+        return this.gamesPlayed;
+    }
+
+    //seat of the hand winner of last finished hand, -1 if everyone passed
+    public int getLastHandWinner() {
+        return this.lastHandWinner;
+    }
+
+    //seats that scored in last finished hand
+    public int getLastWinners() {
+        return this.lastWinners;
+    }
+
+    //declared players of last finished hand
+    public int getLastDeclared() {
+        return this.lastDeclared;
+    }
+
+    //seat left without three points in last finished game, -1 if none
+    public int getLastLoser() {
+        return this.lastLoser;
+    }
+}
@@ -0,0 +1,130 @@
+package fi.bizhop.jassu.model.kirves;
+
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+
+import java.util.SplittableRandom;
+
+/**
+ * Simple rule of thumb player: keeps or changes trump with enough trumps, discards the weakest card,
+ * leads with the strongest card, and otherwise wins the round as cheaply as possible or gives the weakest
+ * card. Never folds.
+ */
+public class HeuristicPolicy implements Policy {
+    public static final HeuristicPolicy INSTANCE = new HeuristicPolicy();
+
+    private static final int TRUMPS_TO_KEEP = 3;
+    private static final int TRUMPS_TO_CHANGE = 3;
+    private static final Card.Suit[] STANDARD_SUITS = {Card.Suit.CLUBS, Card.Suit.DIAMONDS, Card.Suit.HEARTS, Card.Suit.SPADES};
+
+    @Override
+    public int choose(HeadlessGame game, int seat, int[] moves, int count, SplittableRandom random) {
+        if(seat != game.getActor()) return HeadlessGame.WAIT;
+        long hand = game.getHand(seat);
+        if(game.getAction() == Game.Action.PLAY_CARD && hand == 0L) return moves[0];
+        Card.Suit trump = game.getTrump();
+        switch (game.getAction()) {
+            case ACE_OR_TWO_DECISION: {
+                //visible cards only, the hidden ones are not known yet
+                int trumps = Long.bitCount(hand & CardMask.trumps(trump)) + 1;
+                return find(moves, count, Game.Action.ACE_OR_TWO_DECISION, trumps >= TRUMPS_TO_KEEP ? 1 : 0);
+            }
+            case SPEAK: {
+                Game.Speak speak = Game.Speak.PASS;
+                if(Long.bitCount(hand & CardMask.trumps(trump)) >= TRUMPS_TO_KEEP) {
+                    speak = Game.Speak.KEEP;
+                } else if(Long.bitCount(hand & CardMask.trumps(bestSuit(hand, trump))) >= TRUMPS_TO_CHANGE) {
+                    speak = Game.Speak.CHANGE;
+                }
+                return find(moves, count, Game.Action.SPEAK, speak.ordinal());
+            }
+            case SPEAK_SUIT:
+                return find(moves, count, Game.Action.SPEAK_SUIT, bestSuit(hand, trump).ordinal());
+            case DISCARD:
+                return HeadlessGame.move(Game.Action.DISCARD, weakest(hand, trump));
+            case PLAY_CARD:
+                return HeadlessGame.move(Game.Action.PLAY_CARD, card(game, game.getPlayableCards(seat), trump));
+            default:
+                return moves[0];
+        }
+    }
+
+    private static int card(HeadlessGame game, long hand, Card.Suit trump) {
+        int trick = game.getTrickSeats();
+        if(trick == 0) return strongest(hand, trump);
+
+        Card.Suit led = TrickEvaluator.effectiveSuit(Card.of(game.getLastPlayed(game.getFirstPlayerOfRound())), trump);
+        int best = 0;
+        for(int rest = trick; rest != 0; rest &= rest - 1) {
+            best = Math.max(best, TrickEvaluator.strength(Card.of(game.getLastPlayed(Integer.numberOfTrailingZeros(rest))), trump, led));
+        }
+        int cheapestWinner = -1;
+        int cheapestStrength = Integer.MAX_VALUE;
+        for(long rest = hand; rest != 0; rest &= rest - 1) {
+            int card = Long.numberOfTrailingZeros(rest);
+            int strength = TrickEvaluator.strength(Card.of(card), trump, led);
+            if(strength > best && strength < cheapestStrength) {
+                cheapestWinner = card;
+                cheapestStrength = strength;
+            }
+        }
+        return cheapestWinner >= 0 ? cheapestWinner : weakest(hand, trump);
+    }
+
+    //strength of a card when its own suit is led
+    private static int value(int card, Card.Suit trump) {
+        Card c = Card.of(card);
+        return TrickEvaluator.strength(c, trump, TrickEvaluator.effectiveSuit(c, trump));
+    }
+
+    private static int strongest(long hand, Card.Suit trump) {
+        int strongest = -1;
+        int best = -1;
+        for(long rest = hand; rest != 0; rest &= rest - 1) {
+            int card = Long.numberOfTrailingZeros(rest);
+            int value = value(card, trump);
+            if(value > best) {
+                best = value;
+                strongest = card;
+            }
+        }
+        return strongest;
+    }
+
+    private static int weakest(long hand, Card.Suit trump) {
+        int weakest = -1;
+        int worst = Integer.MAX_VALUE;
+        for(long rest = hand; rest != 0; rest &= rest - 1) {
+            int card = Long.numberOfTrailingZeros(rest);
+            int value = value(card, trump);
+            if(value < worst) {
+                worst = value;
+                weakest = card;
+            }
+        }
+        return weakest;
+    }
+
+    //suit other than current trump with most trumps in hand
+    private static Card.Suit bestSuit(long hand, Card.Suit trump) {
+        Card.Suit best = null;
+        int most = -1;
+        for(Card.Suit suit : STANDARD_SUITS) {
+            if(suit == trump) continue;
+            int count = Long.bitCount(hand & CardMask.suit(suit));
+            if(count > most) {
+                most = count;
+                best = suit;
+            }
+        }
+        return best;
+    }
+
+    private static int find(int[] moves, int count, Game.Action action, int argument) {
+        int move = HeadlessGame.move(action, argument);
+        for(int i = 0; i < count; i++) {
+            if(moves[i] == move) return move;
+        }
+        return moves[0];
+    }
+}
@@ -0,0 +1,251 @@
+package fi.bizhop.jassu.model.kirves;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Single observer information set Monte Carlo tree search over HeadlessGame. Each iteration deals the cards
+ * the searching seat can't see again (HeadlessGame.determinize), walks down the tree using only moves that
+ * are legal in that deal and plays the rest of the hand with the rollout policy. A node is rewarded with 1
+ * when the seat that made its move scores from the hand.
+ *
+ * Search is anytime: it runs until the deadline or the iteration limit and the most visited move of the
+ * root is the answer. Folding is never searched, in these rules staying in can't cost points.
+ */
+public class Ismcts {
+    //UCB exploration constant, rewards are 0 or 1
+    public static final double EXPLORATION = 0.7;
+    //clock is read once per this many iterations
+    private static final int CLOCK_INTERVAL = 16;
+
+    private final Policy rollout;
+    private final double exploration;
+
+    public Ismcts(Policy rollout, double exploration) {
+        this.rollout = rollout;
+        this.exploration = exploration;
+    }
+
+    public Ismcts() {
+        this(HeuristicPolicy.INSTANCE, EXPLORATION);
+    }
+
+    /**
+     * Search the move of the actor
+     *
+     * @param root current game, cards hidden from the seat are replaced in every iteration
+     * @param seat searching seat, must be the actor of root
+     * @param deadline System.nanoTime() after which search stops
+     * @param maxIterations iteration limit
+     * @param random source of deals and rollouts
+     * @return visits of root moves
+     */
+    public Result search(HeadlessGame root, int seat, long deadline, int maxIterations, SplittableRandom random) {
+        if(root.getActor() != seat) throw new IllegalArgumentException(String.format("Seat %d is not the actor", seat));
+        Node tree = new Node(HeadlessGame.WAIT, seat, null);
+        int[] moves = new int[HeadlessGame.MAX_MOVES];
+        Policy[] policies = new Policy[root.getNumOfPlayers()];
+        Arrays.fill(policies, this.rollout);
+
+        int iterations = 0;
+        while(iterations < maxIterations && (iterations % CLOCK_INTERVAL != 0 || System.nanoTime() < deadline)) {
+            HeadlessGame game = root.copy(random);
+            game.determinize(seat);
+            this.iterate(game, tree, policies, moves, random);
+            iterations++;
+        }
+
+        Result result = new Result(iterations);
+        for(Node child : tree.children) {
+            result.add(child.move, child.visits, child.reward);
+        }
+        return result;
+    }
+
+    private void iterate(HeadlessGame game, Node tree, Policy[] policies, int[] moves, SplittableRandom random) {
+        int handsPlayed = game.getHandsPlayed();
+        Node node = tree;
+        try {
+            //selection and expansion
+            while(game.getHandsPlayed() == handsPlayed) {
+                int actor = game.getActor();
+                int count = legalMoves(game, actor, moves);
+                if(count == 0) return;
+                int untried = node.untried(moves, count);
+                if(untried > 0) {
+                    int move = node.pick(moves, count, random.nextInt(untried));
+                    game.apply(actor, move);
+                    node = node.add(move, actor);
+                    break;
+                }
+                node = node.select(moves, count, this.exploration);
+                game.apply(actor, node.move);
+            }
+            //rollout to the end of the hand
+            while(game.getHandsPlayed() == handsPlayed) {
+                Simulation.step(game, policies, random, moves);
+            }
+        } catch (IllegalStateException e) {
+            //rules reached a state where Game would throw, nobody scores
+            this.update(node, 0);
+            return;
+        }
+        this.update(node, game.getLastWinners());
+    }
+
+    private void update(Node node, int winners) {
+        for(Node item = node; item != null; item = item.parent) {
+            item.visits++;
+            if((winners & 1 << item.seat) != 0) item.reward++;
+        }
+    }
+
+    //moves of the actor without fold
+    private static int legalMoves(HeadlessGame game, int actor, int[] moves) {
+        int count = game.legalMoves(actor, moves);
+        int fold = HeadlessGame.move(Game.Action.FOLD, 0);
+        int kept = 0;
+        for(int i = 0; i < count; i++) {
+            if(moves[i] != fold) moves[kept++] = moves[i];
+        }
+        return kept;
+    }
+
+    private static class Node {
+        private final int move;
+        //seat that made the move
+        private final int seat;
+        private final Node parent;
+        private final List<Node> children = new ArrayList<>(4);
+        private int visits;
+        //iterations where this move was legal while parent was visited
+        private int available;
+        private double reward;
+
+        private Node(int move, int seat, Node parent) {
+            this.move = move;
+            this.seat = seat;
+            this.parent = parent;
+        }
+
+        private Node child(int move) {
+            for(Node child : this.children) {
+                if(child.move == move) return child;
+            }
+            return null;
+        }
+
+        private int untried(int[] moves, int count) {
+            int untried = 0;
+            for(int i = 0; i < count; i++) {
+                if(this.child(moves[i]) == null) untried++;
+            }
+            return untried;
+        }
+
+        //nth untried move
+        private int pick(int[] moves, int count, int n) {
+            for(int i = 0; i < count; i++) {
+                if(this.child(moves[i]) == null && n-- == 0) return moves[i];
+            }
+            throw new IllegalStateException("No untried moves");
+        }
+
+        private Node add(int move, int seat) {
+            Node child = new Node(move, seat, this);
+            this.children.add(child);
+            return child;
+        }
+
+        //UCB over children legal in this deal, all of them have been tried
+        private Node select(int[] moves, int count, double exploration) {
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for(int i = 0; i < count; i++) {
+                Node child = this.child(moves[i]);
+                child.available++;
+                double value = child.reward / child.visits + exploration * Math.sqrt(Math.log(child.available) / child.visits);
+                if(value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Visits and rewards of root moves. Results of searches on the same game can be merged.
+     */
+    public static class Result {
+        private int[] moves = new int[HeadlessGame.MAX_MOVES];
+        private int[] visits = new int[HeadlessGame.MAX_MOVES];
+        private double[] rewards = new double[HeadlessGame.MAX_MOVES];
+        private int count;
+        private long iterations;
+
+        public Result(long iterations) {
+            this.iterations = iterations;
+        }
+
+        private void add(int move, int visits, double reward) {
+            for(int i = 0; i < this.count; i++) {
+                if(this.moves[i] == move) {
+                    this.visits[i] += visits;
+                    this.rewards[i] += reward;
+                    return;
+                }
+            }
+            if(this.count == this.moves.length) {
+                this.moves = Arrays.copyOf(this.moves, this.count * 2);
+                this.visits = Arrays.copyOf(this.visits, this.count * 2);
+                this.rewards = Arrays.copyOf(this.rewards, this.count * 2);
+            }
+            this.moves[this.count] = move;
+            this.visits[this.count] = visits;
+            this.rewards[this.count] = reward;
+            this.count++;
+        }
+
+        public void merge(Result other) {
+            for(int i = 0; i < other.count; i++) {
+                this.add(other.moves[i], other.visits[i], other.rewards[i]);
+            }
+            this.iterations += other.iterations;
+        }
+
+        //most visited move, WAIT if nothing was searched
+        public int getBestMove() {
+            int best = HeadlessGame.WAIT;
+            int most = 0;
+            for(int i = 0; i < this.count; i++) {
+                if(this.visits[i] > most) {
+                    most = this.visits[i];
+                    best = this.moves[i];
+                }
+            }
+            return best;
+        }
+
+        public int getVisits(int move) {
+            for(int i = 0; i < this.count; i++) {
+                if(this.moves[i] == move) return this.visits[i];
+            }
+            return 0;
+        }
+
+        //average reward of a move, 0 if not visited
+        public double getValue(int move) {
+            for(int i = 0; i < this.count; i++) {
+                if(this.moves[i] == move) return this.rewards[i] / this.visits[i];
+            }
+            return 0.0;
+        }
+
+        public long getIterations() {
+            return this.iterations;
+        }
+    }
+}
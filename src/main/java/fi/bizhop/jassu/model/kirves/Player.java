@@ -7,10 +7,20 @@ import fi.bizhop.jassu.model.Cards;
 import fi.bizhop.jassu.model.kirves.pojo.PlayerPOJO;
 import fi.bizhop.jassu.model.kirves.pojo.UserPOJO;
 
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 
+/**
+ * Kirves player. Live state is kept in primitives: available actions in an EnumSet, won rounds as a bit mask
+ * (bit n = round n won) and flags plus speak packed into a single int. PlayerPOJO is only created for saving.
+ */
 public class Player {
+    private static final int DECLARED_PLAYER = 1;
+    private static final int IN_GAME = 1 << 1;
+    private static final int FOLDED = 1 << 2;
+    //speak is stored as ordinal + 1, 0 means no speak
+    private static final int SPEAK_SHIFT = 3;
+    private static final int SPEAK_BITS = 0b11 << SPEAK_SHIFT;
+    private static final Game.Speak[] SPEAKS = Game.Speak.values();
 
     private final Cards hand = new Cards();
     private final Cards invisibleCards = new Cards();
@@ -18,8 +28,12 @@ public class Player {
     private final Cards playedCards = new Cards();
     private Player next;
     private Player previous;
+    private int seat = -1;
 
-    private final PlayerPOJO data;
+    private final UserPOJO user;
+    private final EnumSet<Game.Action> availableActions = EnumSet.noneOf(Game.Action.class);
+    private int roundsWon = 0;
+    private int state = IN_GAME;
 
     /**
      * Recreate player from pojo data. Links previous if available.
@@ -29,7 +43,15 @@ public class Player {
      * @throws CardException if extra card cannot be created from abbreviation
      */
     public Player(PlayerPOJO pojo, Player previous) throws CardException {
-        this.data = pojo;
+        this.user = pojo.user;
+        this.availableActions.addAll(pojo.availableActions);
+        for(Integer round : pojo.roundsWon) {
+            this.roundsWon |= 1 << round;
+        }
+        this.state = (pojo.declaredPlayer ? DECLARED_PLAYER : 0)
+                | (pojo.inGame ? IN_GAME : 0)
+                | (pojo.folded ? FOLDED : 0);
+        this.setSpeak(pojo.speak);
         this.hand.add(Cards.fromAbbreviations(pojo.hand));
         this.invisibleCards.add(Cards.fromAbbreviations(pojo.invisibleCards));
         this.extraCard = Card.fromAbbreviation(pojo.extraCard);
@@ -47,7 +69,7 @@ public class Player {
      * @param previous previous Player
      */
     public Player(UserPOJO user, Player next, Player previous) {
-        this.data = new PlayerPOJO(user);
+        this.user = user;
         this.next = next;
         this.previous = previous;
         next.previous = this;
@@ -59,11 +81,35 @@ public class Player {
      * @param user UserPOJO
      */
     public Player(UserPOJO user) {
-        this.data = new PlayerPOJO(user);
+        this.user = user;
         this.next = this;
         this.previous = this;
     }
 
+    /**
+     * Copy of a player for a new version of the game. Cards are copied, next and previous are linked with
+     * relink() once all players are copied.
+     *
+     * @param other player to copy
+     */
+    Player(Player other) {
+        this.user = other.user;
+        this.hand.add(other.hand);
+        this.invisibleCards.add(other.invisibleCards);
+        this.extraCard = other.extraCard;
+        this.playedCards.add(other.playedCards);
+        this.seat = other.seat;
+        this.availableActions.addAll(other.availableActions);
+        this.roundsWon = other.roundsWon;
+        this.state = other.state;
+    }
+
+    //link to copies of the players other is linked to, players are in seat order
+    void relink(Player other, List<Player> players) {
+        this.next = players.get(other.next.seat);
+        this.previous = players.get(other.previous.seat);
+    }
+
     public String getUserEmail() {
         return this.getUser() == null
                 ? ""
@@ -75,7 +121,7 @@ public class Player {
     }
 
     public UserPOJO getUser() {
-        return this.data.user;
+        return this.user;
     }
 
     public int cardsInHand() {
@@ -99,33 +145,56 @@ public class Player {
     }
 
     public void addRoundWon() {
-        this.data.roundsWon.add(this.playedCards.size() - 1);
+        this.roundsWon |= 1 << (this.playedCards.size() - 1);
     }
 
     public void resetWonRounds() {
-        this.data.roundsWon.clear();
+        this.roundsWon = 0;
     }
 
     public void resetAvailableActions() {
-        this.data.availableActions.clear();
+        this.availableActions.clear();
     }
 
+    //won round indexes in ascending order
     public List<Integer> getRoundsWon() {
-        return Collections.unmodifiableList(this.data.roundsWon);
+        List<Integer> rounds = new ArrayList<>(Integer.bitCount(this.roundsWon));
+        for(int mask = this.roundsWon; mask != 0; mask &= mask - 1) {
+            rounds.add(Integer.numberOfTrailingZeros(mask));
+        }
+        return rounds;
+    }
+
+    //bit n is set if round n is won
+    public int getRoundsWonMask() {
+        return this.roundsWon;
+    }
+
+    public int getNumberOfRoundsWon() {
+        return Integer.bitCount(this.roundsWon);
     }
 
-    public List<Game.Action> getAvailableActions() {
-        return Collections.unmodifiableList(this.data.availableActions);
+    public boolean hasWonRound(int round) {
+        return round >= 0 && round < Integer.SIZE && (this.roundsWon & 1 << round) != 0;
     }
 
-    public void setAvailableActions(List<Game.Action> availableActions) {
-        this.data.availableActions.clear();
-        this.data.availableActions.addAll(availableActions);
+    public Set<Game.Action> getAvailableActions() {
+        return Collections.unmodifiableSet(this.availableActions);
+    }
+
+    public boolean hasAvailableAction(Game.Action action) {
+        return this.availableActions.contains(action);
+    }
+
+    //replace available actions with single action
+    public void setAvailableAction(Game.Action action) {
+        this.availableActions.clear();
+        this.addAvailableAction(action);
     }
 
     public void addAvailableAction(Game.Action action) {
         if(action == null) return;
-        this.data.availableActions.add(action);
+        this.availableActions.add(action);
     }
 
     public Card getExtraCard() {
@@ -141,7 +210,7 @@ public class Player {
     }
 
     public void hideCards(int numberOfCards) throws CardException {
-        this.invisibleCards.add(this.hand.deal(numberOfCards));
+        this.hand.deal(numberOfCards, this.invisibleCards);
     }
 
     public void moveInvisibleCardsToHand() {
@@ -162,32 +231,21 @@ public class Player {
         this.extraCard = null;
     }
 
-    public Player getNext(int max) throws KirvesGameException {
-       return this.getNextInternal(max, 0);
-    }
-
-    private Player getNextInternal(int max, int count) throws KirvesGameException {
-        count++;
-        if(count > max) throw new KirvesGameException("Internal error: reached Player.getNext() limit");
-        return this.next.data.inGame ? this.next : this.next.getNextInternal(max, count);
-    }
-
     public void setNext(Player next) {
         this.next = next;
     }
 
-    public Player getPrevious(int max) throws KirvesGameException {
-        return this.getPreviousInternal(max, 0);
+    public void setPrevious(Player previous) {
+        this.previous = previous;
     }
 
-    private Player getPreviousInternal(int max, int count) throws KirvesGameException {
-        count++;
-        if(count > max) throw new KirvesGameException("Internal error: reached Player.getPrevious() limit");
-        return this.previous.data.inGame ? this.previous : this.previous.getPreviousInternal(max, count);
+    //seat index in game, -1 if not seated
+    public int getSeat() {
+        return this.seat;
     }
 
-    public void setPrevious(Player previous) {
-        this.previous = previous;
+    void setSeat(int seat) {
+        this.seat = seat;
     }
 
     @Override
@@ -197,7 +255,10 @@ public class Player {
 
         if(this.extraCard == null && other.extraCard != null) return false;
 
-        return this.data.equals(other.data)
+        return this.user.equals(other.user)
+                && this.availableActions.equals(other.availableActions)
+                && this.roundsWon == other.roundsWon
+                && this.state == other.state
                 && this.hand.equals(other.hand)
                 && this.invisibleCards.equals(other.invisibleCards)
                 && (this.extraCard == null || this.extraCard.equals(other.extraCard))
@@ -212,11 +273,11 @@ public class Player {
     }
 
     public boolean isDeclaredPlayer() {
-        return this.data.declaredPlayer;
+        return (this.state & DECLARED_PLAYER) != 0;
     }
 
     public void setDeclaredPlayer(boolean declaredPlayer) {
-        this.data.declaredPlayer = declaredPlayer;
+        this.state = declaredPlayer ? this.state | DECLARED_PLAYER : this.state & ~DECLARED_PLAYER;
     }
 
     public void clearHand() {
@@ -224,12 +285,11 @@ public class Player {
     }
 
     public boolean isInGame() {
-        return this.data.inGame;
+        return (this.state & IN_GAME) != 0;
     }
 
     public void activate() {
-        this.data.inGame = true;
-        this.data.folded = false;
+        this.state = (this.state | IN_GAME) & ~FOLDED;
     }
 
     public void inactivate() {
@@ -237,34 +297,43 @@ public class Player {
         this.playedCards.clear();
         this.extraCard = null;
         this.invisibleCards.clear();
-        this.data.inGame = false;
+        this.state &= ~IN_GAME;
     }
 
     public void fold() {
         this.inactivate();
-        this.data.folded = true;
+        this.state |= FOLDED;
     }
 
     public boolean isFolded() {
-        return this.data.folded;
+        return (this.state & FOLDED) != 0;
     }
 
     public PlayerPOJO toPojo() {
-        this.data.hand = this.hand.getCardsOut();
-        this.data.invisibleCards = this.invisibleCards.getCardsOut();
-        this.data.extraCard = this.extraCard == null ? null : this.extraCard.toString();
-        this.data.playedCards = this.playedCards.getCardsOut();
-        this.data.next = this.next == null ? null : this.next.getUserEmail();
-        this.data.previous = this.previous == null ? null : this.previous.getUserEmail();
-
-        return this.data;
+        PlayerPOJO pojo = new PlayerPOJO(this.user);
+        pojo.hand = this.hand.getCardsOut();
+        pojo.invisibleCards = this.invisibleCards.getCardsOut();
+        pojo.extraCard = this.extraCard == null ? null : this.extraCard.toString();
+        pojo.playedCards = this.playedCards.getCardsOut();
+        pojo.next = this.next == null ? null : this.next.getUserEmail();
+        pojo.previous = this.previous == null ? null : this.previous.getUserEmail();
+        pojo.roundsWon.addAll(this.getRoundsWon());
+        pojo.availableActions.addAll(this.availableActions);
+        pojo.declaredPlayer = this.isDeclaredPlayer();
+        pojo.inGame = this.isInGame();
+        pojo.folded = this.isFolded();
+        pojo.speak = this.getSpeak();
+
+        return pojo;
     }
 
     public void setSpeak(Game.Speak speak) {
-        this.data.speak = speak;
+        int speakBits = speak == null ? 0 : (speak.ordinal() + 1) << SPEAK_SHIFT;
+        this.state = this.state & ~SPEAK_BITS | speakBits;
     }
 
     public Game.Speak getSpeak() {
-        return this.data.speak;
+        int speakBits = (this.state & SPEAK_BITS) >>> SPEAK_SHIFT;
+        return speakBits == 0 ? null : SPEAKS[speakBits - 1];
     }
 }
@@ -0,0 +1,24 @@
+package fi.bizhop.jassu.model.kirves;
+
+import java.util.SplittableRandom;
+
+/**
+ * Move selection of a seat in HeadlessGame. Policies are shared between threads, so they should not keep
+ * state between calls.
+ */
+@FunctionalInterface
+public interface Policy {
+    /**
+     * Choose a move
+     *
+     * @param game game, only the parts visible to the seat should be used
+     * @param seat seat to move
+     * @param moves legal moves from HeadlessGame.legalMoves
+     * @param count number of legal moves
+     * @param random random for the policy
+     * @return one of the legal moves
+     */
+    int choose(HeadlessGame game, int seat, int[] moves, int count, SplittableRandom random);
+
+    Policy RANDOM = (game, seat, moves, count, random) -> moves[random.nextInt(count)];
+}
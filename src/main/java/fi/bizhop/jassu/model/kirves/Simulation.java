@@ -0,0 +1,193 @@
+package fi.bizhop.jassu.model.kirves;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Plays complete Kirves games with HeadlessGame and collects balance statistics. Games run in a parallel
+ * stream, each with its own SplittableRandom seeded from the game index, so results don't depend on the
+ * number of threads.
+ *
+ * On each step seats that can fold are asked first in seat order, and then the actor moves.
+ */
+public class Simulation {
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Play games in parallel
+     *
+     * @param policies policy of each seat, number of policies is the number of players
+     * @param games number of complete games to play
+     * @param seed seed of the first game
+     * @return statistics of all games
+     * @throws IllegalStateException if the rules of some game reach a state where Game would throw, with the seed of the game
+     */
+    public static Stats run(Policy[] policies, int games, long seed) {
+        return IntStream.range(0, games).parallel()
+                .collect(() -> new Stats(policies.length),
+                        (stats, index) -> {
+                            long gameSeed = seed + index * SEED_GAMMA;
+                            SplittableRandom random = new SplittableRandom(gameSeed);
+                            try {
+                                play(new HeadlessGame(policies.length, random.split()), policies, random, stats, 1);
+                            } catch (IllegalStateException e) {
+                                throw new IllegalStateException(String.format("Game with seed %d failed: %s", gameSeed, e.getMessage()), e);
+                            }
+                        },
+                        Stats::add);
+    }
+
+    /**
+     * Play until given number of games is finished
+     *
+     * @param game game to play
+     * @param policies policy of each seat
+     * @param random random for policies
+     * @param stats statistics to add to
+     * @param games number of games to finish
+     * @throws IllegalStateException if the rules reach a state where Game would throw
+     */
+    public static void play(HeadlessGame game, Policy[] policies, SplittableRandom random, Stats stats, int games) {
+        int[] moves = new int[HeadlessGame.MAX_MOVES];
+        int targetGames = game.getGamesPlayed() + games;
+        int handsPlayed = game.getHandsPlayed();
+        int gamesPlayed = game.getGamesPlayed();
+        while(gamesPlayed < targetGames) {
+            step(game, policies, random, moves);
+            stats.moves++;
+            if(game.getHandsPlayed() != handsPlayed) {
+                handsPlayed = game.getHandsPlayed();
+                stats.addHand(game, game.getGamesPlayed() != gamesPlayed);
+                gamesPlayed = game.getGamesPlayed();
+            }
+        }
+    }
+
+    //one move: an optional fold of some seat, or the move of the actor
+    static void step(HeadlessGame game, Policy[] policies, SplittableRandom random, int[] moves) {
+        int actor = game.getActor();
+        int foldSeats = game.getFoldSeats() & ~(1 << actor);
+        for(int rest = foldSeats; rest != 0; rest &= rest - 1) {
+            int seat = Integer.numberOfTrailingZeros(rest);
+            int count = game.legalMoves(seat, moves);
+            int move = policies[seat].choose(game, seat, moves, count, random);
+            if(move != HeadlessGame.WAIT) {
+                game.apply(seat, move);
+                return;
+            }
+        }
+        int count = game.legalMoves(actor, moves);
+        if(count == 0) throw new IllegalStateException(String.format("No legal moves for seat %d", actor));
+        game.apply(actor, policies[actor].choose(game, actor, moves, count, random));
+    }
+
+    /**
+     * Counts over simulated hands and games
+     */
+    public static class Stats {
+        private final long[] losses;
+        private long games;
+        private long hands;
+        private long passedHands;
+        private long declaredHands;
+        private long declaredWins;
+        private long moves;
+
+        public Stats(int numOfPlayers) {
+            this.losses = new long[numOfPlayers];
+        }
+
+        void addHand(HeadlessGame game, boolean gameEnded) {
+            this.hands++;
+            int winner = game.getLastHandWinner();
+            if(winner < 0) {
+                this.passedHands++;
+            } else if(game.getLastDeclared() != 0) {
+                this.declaredHands++;
+                if((game.getLastDeclared() & 1 << winner) != 0) this.declaredWins++;
+            }
+            if(gameEnded) {
+                this.games++;
+                if(game.getLastLoser() >= 0) this.losses[game.getLastLoser()]++;
+            }
+        }
+
+        void add(Stats other) {
+            for(int seat = 0; seat < this.losses.length; seat++) {
+                this.losses[seat] += other.losses[seat];
+            }
+            this.games += other.games;
+            this.hands += other.hands;
+            this.passedHands += other.passedHands;
+            this.declaredHands += other.declaredHands;
+            this.declaredWins += other.declaredWins;
+            this.moves += other.moves;
+        }
+
+        //games lost by each seat, seat 0 deals first
+        public long[] getLosses() {
+            return this.losses.clone();
+        }
+
+        public long getGames() {
+            return this.games;
+        }
+
+        public long getHands() {
+            return this.hands;
+        }
+
+        //hands where everyone passed
+        public long getPassedHands() {
+            return this.passedHands;
+        }
+
+        //hands played with a declared player
+        public long getDeclaredHands() {
+            return this.declaredHands;
+        }
+
+        //hands won by a declared player
+        public long getDeclaredWins() {
+            return this.declaredWins;
+        }
+
+        public long getMoves() {
+            return this.moves;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("games %d, hands %d (passed %d), declared wins %d/%d, moves %d, losses by seat %s",
+                    this.games, this.hands, this.passedHands, this.declaredWins, this.declaredHands, this.moves, Arrays.toString(this.losses));
+        }
+    }
+
+    /**
+     * Simulate games with heuristic players, e.g. players=4 games=100000 seed=1
+     */
+    public static void main(String[] args) {
+        int players = 4;
+        int games = 10_000;
+        long seed = 1L;
+        for(String arg : args) {
+            String[] parts = arg.split("=");
+            switch (parts[0]) {
+                case "players": players = Integer.parseInt(parts[1]); break;
+                case "games": games = Integer.parseInt(parts[1]); break;
+                case "seed": seed = Long.parseLong(parts[1]); break;
+                default: throw new IllegalArgumentException(String.format("Unknown argument %s", arg));
+            }
+        }
+        Policy[] policies = new Policy[players];
+        Arrays.fill(policies, HeuristicPolicy.INSTANCE);
+        for(int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            Stats stats = run(policies, games, seed + run);
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%s%n%.0f hands/s (%d ms, %d cores)%n", stats, stats.hands * 1e9 / nanos, nanos / 1_000_000,
+                    Runtime.getRuntime().availableProcessors());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package fi.bizhop.jassu.model.kirves;
+
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+
+import static fi.bizhop.jassu.model.Card.Rank.JACK;
+import static fi.bizhop.jassu.model.Card.Suit.*;
+
+/**
+ * Precomputed card strengths for resolving Kirves tricks.
+ *
+ * Jokers and jacks count as trump. Strength of a card depends on the trump and the led suit (effective suit
+ * of the first card of the trick): trumps are strongest, then cards of the led suit by rank, and other
+ * cards can't win (strength 0). The card with the highest strength wins the trick.
+ *
+ * A player must follow the led suit: if the hand has cards of the effective suit of the first card, one of
+ * them has to be played, see followingCards.
+ */
+public class TrickEvaluator {
+    private static final int NUM_OF_SUITS = 4;
+    private static final int TRUMP_BONUS = 32;
+
+    //indexed by [trump][led suit][card ordinal], see index()
+    private static final byte[] STRENGTH = new byte[NUM_OF_SUITS * NUM_OF_SUITS * Card.NUM_OF_CARDS];
+    //indexed by [trump][card ordinal]
+    private static final Card.Suit[] EFFECTIVE_SUIT = new Card.Suit[NUM_OF_SUITS * Card.NUM_OF_CARDS];
+    //indexed by [trump][card ordinal]
+    private static final long[] FOLLOWING = new long[NUM_OF_SUITS * Card.NUM_OF_CARDS];
+    private static final Card.Suit[] SUITS = {CLUBS, DIAMONDS, HEARTS, SPADES};
+
+    static {
+        for(Card.Suit trump : SUITS) {
+            long trumps = CardMask.trumps(trump);
+            for(int ordinal = 0; ordinal < Card.NUM_OF_CARDS; ordinal++) {
+                Card card = Card.of(ordinal);
+                boolean isTrump = (trumps & CardMask.of(card)) != 0;
+                EFFECTIVE_SUIT[trump.ordinal() * Card.NUM_OF_CARDS + ordinal] = isTrump ? trump : card.getSuit();
+                FOLLOWING[trump.ordinal() * Card.NUM_OF_CARDS + ordinal] = isTrump ? trumps : CardMask.suit(card.getSuit()) & ~trumps;
+                for(Card.Suit led : SUITS) {
+                    int strength = isTrump
+                            ? TRUMP_BONUS + getConvertedRank(card)
+                            : card.getSuit() == led ? getConvertedRank(card) : 0;
+                    STRENGTH[index(trump, led, ordinal)] = (byte) strength;
+                }
+            }
+        }
+    }
+
+    private static int index(Card.Suit trump, Card.Suit led, int ordinal) {
+        return (trump.ordinal() * NUM_OF_SUITS + led.ordinal()) * Card.NUM_OF_CARDS + ordinal;
+    }
+
+    //jacks rank between ace and jokers in order: diamonds, hearts, spades, clubs
+    private static int getConvertedRank(Card card) {
+        if(card.getRank() == JACK) {
+            switch (card.getSuit()) {
+                case DIAMONDS: return 15;
+                case HEARTS: return 16;
+                case SPADES: return 17;
+                case CLUBS: return 18;
+            }
+        }
+        return card.getRank().getValue();
+    }
+
+    //suit the card counts as: trump for jokers and jacks, own suit for others
+    public static Card.Suit effectiveSuit(Card card, Card.Suit trump) {
+        return EFFECTIVE_SUIT[trump.ordinal() * Card.NUM_OF_CARDS + card.ordinal()];
+    }
+
+    //cards of the same effective suit as the led card, mask of card ordinals
+    public static long followingCards(int ledCard, Card.Suit trump) {
+        return FOLLOWING[trump.ordinal() * Card.NUM_OF_CARDS + ledCard];
+    }
+
+    public static boolean isTrump(Card card, Card.Suit trump) {
+        return (CardMask.trumps(trump) & CardMask.of(card)) != 0;
+    }
+
+    public static int strength(Card card, Card.Suit trump, Card.Suit led) {
+        return STRENGTH[index(trump, led, card.ordinal())];
+    }
+
+    /**
+     * Find winning card of a trick
+     *
+     * @param cards played cards in playing order, first card is the led card
+     * @param count number of cards in trick
+     * @param trump trump suit
+     * @return index of winning card
+     */
+    public static int winner(Card[] cards, int count, Card.Suit trump) {
+        int base = index(trump, effectiveSuit(cards[0], trump), 0);
+        int winner = 0;
+        int best = STRENGTH[base + cards[0].ordinal()];
+        for(int i = 1; i < count; i++) {
+            int strength = STRENGTH[base + cards[i].ordinal()];
+            if(strength > best) {
+                best = strength;
+                winner = i;
+            }
+        }
+        return winner;
+    }
+}
@@ -0,0 +1,271 @@
+package fi.bizhop.jassu.model.kirves;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Estimate of each seat's chance to score from the current hand, as seen by someone who knows only the
+ * public cards. Unseen cards are dealt again at random (HeadlessGame.determinize without a viewer) and the
+ * hand is played to the end with the playout policy. Estimate of a seat is the share of playouts it scored in.
+ *
+ * Estimate is incremental: run() adds playouts until the sample limit or the time budget of the state is
+ * used and can be called again to continue. When the game moves on to the next trick the deals are kept and
+ * fixed to agree with the cards played in the trick, so consecutive estimates are made from the same deals.
+ * States in the middle of a trick keep the estimate of the trick start.
+ *
+ * Not thread safe.
+ */
+public class WinEstimator {
+    //clock is read once per this many playouts
+    private static final int CLOCK_INTERVAL = 16;
+
+    private final Policy policy;
+    private final int maxSamples;
+    private final long budget;
+
+    //null when there is no hand to estimate
+    private HeadlessGame state;
+    private long[] version;
+    //hand of each seat and hidden cards in the last slot
+    private long[][] deals = new long[0][];
+    private int numOfDeals;
+    private int samples;
+    private int[] wins = new int[0];
+    private long spent;
+
+    /**
+     * @param policy playout policy of all seats
+     * @param maxSamples playouts of a state
+     * @param budget playout time of a state in nanoseconds
+     */
+    public WinEstimator(Policy policy, int maxSamples, long budget) {
+        this.policy = policy;
+        this.maxSamples = maxSamples;
+        this.budget = budget;
+    }
+
+    /**
+     * Move the estimate to the current state of the game. Estimate starts again if the state has changed,
+     * except in the middle of a trick. Before the deal there is nothing to estimate.
+     *
+     * @param game current state, kept by the estimator
+     * @param random source of fixes to kept deals
+     * @return true if the estimate started again or was cleared
+     */
+    public boolean update(HeadlessGame game, SplittableRandom random) {
+        if(game.getAction() == Game.Action.CUT || game.getAction() == Game.Action.DEAL) {
+            boolean changed = this.state != null;
+            this.state = null;
+            this.numOfDeals = 0;
+            this.samples = 0;
+            return changed;
+        }
+        if(game.getAction() == Game.Action.PLAY_CARD && game.getTrickSeats() != 0 && this.sameHand(game)) return false;
+        long[] version = version(game);
+        if(this.state != null && Arrays.equals(version, this.version)) return false;
+
+        int[] trick = this.state == null ? null : trick(this.state, game);
+        int kept = 0;
+        if(trick != null) {
+            long pool = unseen(game);
+            for(int i = 0; i < this.numOfDeals; i++) {
+                long[] deal = this.deals[i];
+                if(fix(deal, trick, random) && fits(deal, game, pool)) {
+                    this.deals[i] = this.deals[kept];
+                    this.deals[kept++] = deal;
+                }
+            }
+        }
+        this.state = game;
+        this.version = version;
+        this.numOfDeals = kept;
+        this.samples = 0;
+        this.wins = new int[game.getNumOfPlayers()];
+        this.spent = 0L;
+        return true;
+    }
+
+    /**
+     * Add playouts to the estimate of the current state
+     *
+     * @param deadline System.nanoTime() after which playouts stop
+     * @param random source of deals and playouts
+     * @return number of playouts done
+     */
+    public int run(long deadline, SplittableRandom random) {
+        if(this.isDone()) return 0;
+        long start = System.nanoTime();
+        long remaining = this.budget - this.spent;
+        Policy[] policies = new Policy[this.state.getNumOfPlayers()];
+        Arrays.fill(policies, this.policy);
+        int[] moves = new int[HeadlessGame.MAX_MOVES];
+
+        int count = 0;
+        while(this.samples < this.maxSamples && (count % CLOCK_INTERVAL != 0 || inTime(start, deadline, remaining))) {
+            if(this.samples == this.numOfDeals) this.addDeal(random);
+            this.playout(this.deals[this.samples], policies, moves, random);
+            this.samples++;
+            count++;
+        }
+        this.spent += System.nanoTime() - start;
+        return count;
+    }
+
+    private static boolean inTime(long start, long deadline, long remaining) {
+        long now = System.nanoTime();
+        return now < deadline && now - start < remaining;
+    }
+
+    private void addDeal(SplittableRandom random) {
+        if(this.numOfDeals == this.deals.length) {
+            this.deals = Arrays.copyOf(this.deals, Math.min(this.maxSamples, Math.max(16, this.numOfDeals * 2)));
+        }
+        HeadlessGame game = this.state.copy(random);
+        game.determinize(-1);
+        long[] deal = new long[game.getNumOfPlayers() + 1];
+        for(int seat = 0; seat < game.getNumOfPlayers(); seat++) {
+            deal[seat] = game.getHand(seat);
+        }
+        deal[game.getNumOfPlayers()] = game.getHiddenCards();
+        this.deals[this.numOfDeals++] = deal;
+    }
+
+    private void playout(long[] deal, Policy[] policies, int[] moves, SplittableRandom random) {
+        HeadlessGame game = this.state.copy(random);
+        game.deal(deal, deal[game.getNumOfPlayers()]);
+        int handsPlayed = game.getHandsPlayed();
+        try {
+            while(game.getHandsPlayed() == handsPlayed) {
+                Simulation.step(game, policies, random, moves);
+            }
+        } catch (IllegalStateException e) {
+            //rules reached a state where Game would throw, nobody scores
+            return;
+        }
+        for(int rest = game.getLastWinners(); rest != 0; rest &= rest - 1) {
+            this.wins[Integer.numberOfTrailingZeros(rest)]++;
+        }
+    }
+
+    private boolean sameHand(HeadlessGame game) {
+        return this.state != null && this.state.getDealer() == game.getDealer()
+                && (this.state.getPlayedCards() & ~game.getPlayedCards()) == 0L;
+    }
+
+    //state of the game as far as the estimate is concerned
+    private static long[] version(HeadlessGame game) {
+        long[] fields = new long[game.getNumOfPlayers() + 10];
+        fields[0] = game.getPlayedCards();
+        fields[1] = game.getActiveSeats();
+        fields[2] = game.getDeclaredSeats();
+        fields[3] = game.getDealer();
+        fields[4] = game.getTurn();
+        fields[5] = game.getActor();
+        fields[6] = game.getAction().ordinal();
+        fields[7] = game.getTrump() == null ? -1 : game.getTrump().ordinal();
+        fields[8] = game.getTrumpCard();
+        fields[9] = game.getHiddenCards() == 0L ? 0 : 1;
+        for(int seat = 0; seat < game.getNumOfPlayers(); seat++) {
+            fields[10 + seat] = game.getSpeak(seat) == null ? -1 : game.getSpeak(seat).ordinal();
+        }
+        return fields;
+    }
+
+    //card each seat played to get from previous to game, null if that is not exactly one trick of the same hand
+    private static int[] trick(HeadlessGame previous, HeadlessGame game) {
+        if(previous.getAction() != Game.Action.PLAY_CARD || game.getAction() != Game.Action.PLAY_CARD
+                || previous.getTrickSeats() != 0 || game.getTrickSeats() != 0
+                || previous.getActiveSeats() != game.getActiveSeats()
+                || previous.getDealer() != game.getDealer() || previous.getTrump() != game.getTrump()
+                || previous.getPlayedCards() == game.getPlayedCards()
+                || (previous.getPlayedCards() & ~game.getPlayedCards()) != 0L) {
+            return null;
+        }
+        long cards = game.getPlayedCards() & ~previous.getPlayedCards();
+        int[] trick = new int[game.getNumOfPlayers()];
+        Arrays.fill(trick, -1);
+        long attributed = 0L;
+        for(int rest = game.getActiveSeats(); rest != 0; rest &= rest - 1) {
+            int seat = Integer.numberOfTrailingZeros(rest);
+            int card = game.getLastPlayed(seat);
+            if(card < 0 || (cards & 1L << card) == 0) return null;
+            trick[seat] = card;
+            attributed |= 1L << card;
+        }
+        return attributed == cards ? trick : null;
+    }
+
+    //remove played cards from a deal, a card dealt to another seat is swapped with a random card of the player
+    private static boolean fix(long[] deal, int[] trick, SplittableRandom random) {
+        for(int seat = 0; seat < trick.length; seat++) {
+            if(trick[seat] < 0) continue;
+            long card = 1L << trick[seat];
+            if((deal[seat] & card) == 0) {
+                int count = Long.bitCount(deal[seat]);
+                if(count == 0) return false;
+                long swapped = nth(deal[seat], random.nextInt(count));
+                deal[seat] |= card;
+                deal[seat] &= ~swapped;
+                for(int other = 0; other < deal.length; other++) {
+                    if(other != seat && (deal[other] & card) != 0) {
+                        deal[other] = deal[other] & ~card | swapped;
+                        break;
+                    }
+                }
+            }
+            deal[seat] &= ~card;
+        }
+        return true;
+    }
+
+    private static long nth(long cards, int n) {
+        long rest = cards;
+        for(int i = 0; i < n; i++) {
+            rest &= rest - 1;
+        }
+        return Long.lowestOneBit(rest);
+    }
+
+    //cards nobody but their holder can see
+    private static long unseen(HeadlessGame game) {
+        long pool = game.getHiddenCards();
+        for(int rest = game.getActiveSeats(); rest != 0; rest &= rest - 1) {
+            pool |= game.getHand(Integer.numberOfTrailingZeros(rest));
+        }
+        for(int card : game.getDeck()) {
+            pool |= 1L << card;
+        }
+        return pool;
+    }
+
+    private static boolean fits(long[] deal, HeadlessGame game, long pool) {
+        for(int seat = 0; seat < game.getNumOfPlayers(); seat++) {
+            if(!game.isActive(seat)) continue;
+            if((deal[seat] & ~pool) != 0L || Long.bitCount(deal[seat]) != Long.bitCount(game.getHand(seat))) return false;
+        }
+        return deal[game.getNumOfPlayers()] == game.getHiddenCards();
+    }
+
+    //nothing to estimate or the sample limit or time budget of the state is used
+    public boolean isDone() {
+        return this.state == null || this.samples >= this.maxSamples || this.spent >= this.budget;
+    }
+
+    public boolean hasEstimate() {
+        return this.state != null && this.samples > 0;
+    }
+
+    public int getSamples() {
+        return this.samples;
+    }
+
+    //deals made for this or earlier states that are still usable
+    public int getDeals() {
+        return this.numOfDeals;
+    }
+
+    //share of playouts the seat scored in, 0 if there are none
+    public double getProbability(int seat) {
+        return this.samples == 0 ? 0.0 : (double) this.wins[seat] / this.samples;
+    }
+}
@@ -0,0 +1,62 @@
+package fi.bizhop.jassu.model.kirves.out;
+
+public class BotStatsOut {
+    private long moves;
+    private double averageThinkTime;
+    private long maxThinkTime;
+    private long iterations;
+    private long rejectedSearches;
+
+    public BotStatsOut() {}
+
+    public BotStatsOut(long moves, double averageThinkTime, long maxThinkTime, long iterations, long rejectedSearches) {
+        this.moves = moves;
+        this.averageThinkTime = averageThinkTime;
+        this.maxThinkTime = maxThinkTime;
+        this.iterations = iterations;
+        this.rejectedSearches = rejectedSearches;
+    }
+
+    public long getMoves() {
+        return this.moves;
+    }
+
+    public void setMoves(long moves) {
+        this.moves = moves;
+    }
+
+    //milliseconds
+    public double getAverageThinkTime() {
+        return this.averageThinkTime;
+    }
+
+    public void setAverageThinkTime(double averageThinkTime) {
+        this.averageThinkTime = averageThinkTime;
+    }
+
+    //milliseconds
+    public long getMaxThinkTime() {
+        return this.maxThinkTime;
+    }
+
+    public void setMaxThinkTime(long maxThinkTime) {
+        this.maxThinkTime = maxThinkTime;
+    }
+
+    public long getIterations() {
+        return this.iterations;
+    }
+
+    public void setIterations(long iterations) {
+        this.iterations = iterations;
+    }
+
+    //searches not run because the search pool was full
+    public long getRejectedSearches() {
+        return this.rejectedSearches;
+    }
+
+    public void setRejectedSearches(long rejectedSearches) {
+        this.rejectedSearches = rejectedSearches;
+    }
+}
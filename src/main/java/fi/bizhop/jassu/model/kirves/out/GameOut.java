@@ -12,6 +12,7 @@ public class GameOut {
     private List<String> myCardsInHand;
     private String myExtraCard;
     private List<String> myAvailableActions;
+    private List<String> myPlayableCards;
     private boolean canJoin;
     private boolean canDeclineCut;
     private String trumpCard;
@@ -23,6 +24,7 @@ public class GameOut {
     private String firstCardSuit;
     private Map<String, Integer> scores;
     private List<Map<String, Integer>> scoresHistory;
+    private Map<String, Double> winProbabilities;
 
     //TODO: remove when frontend is handling message as list
     @Deprecated
@@ -37,6 +39,7 @@ public class GameOut {
                    List<String> myCardsInHand,
                    String myExtraCard,
                    List<String> myAvailableActions,
+                   List<String> myPlayableCards,
                    String message,
                    List<String> messages,
                    boolean canJoin,
@@ -56,6 +59,7 @@ public class GameOut {
         this.myCardsInHand = myCardsInHand;
         this.myExtraCard = myExtraCard;
         this.myAvailableActions = myAvailableActions;
+        this.myPlayableCards = myPlayableCards;
         this.message = message;
         this.messages = messages;
         this.canJoin = canJoin;
@@ -116,6 +120,11 @@ public class GameOut {
         return this.myAvailableActions;
     }
 
+    //cards in hand that can be played now, empty if it's not my turn to play
+    public List<String> getMyPlayableCards() {
+        return this.myPlayableCards;
+    }
+
     public String getMyExtraCard() {
         return this.myExtraCard;
     }
@@ -153,6 +162,16 @@ public class GameOut {
         return this.scoresHistory;
     }
 
+    //estimated chance to score from the current hand by nickname
+    public Map<String, Double> getWinProbabilities() {
+        return this.winProbabilities;
+    }
+
+    public GameOut setWinProbabilities(Map<String, Double> winProbabilities) {
+        this.winProbabilities = winProbabilities;
+        return this;
+    }
+
     public String getSecondCutCard() {
         return this.secondCutCard;
     }
@@ -13,13 +13,14 @@ public class GameDataPOJO {
     public String trump;
     public String cutCard;
     public String secondCutCard;
+    //latest messages only, older ones are saved separately
+    public List<MessagePOJO> messages = new ArrayList<>();
 
     //these values are updated running the game and evaluated for GameDataPOJO equality
     public final Map<String, ScorePOJO> scores = new LinkedHashMap<>();
     public final List<Map<String, ScorePOJO>> scoresHistory = new ArrayList<>();
     public boolean canJoin = false;
     public boolean canDeal = false;
-    public List<String> messages = new ArrayList<>();
     public boolean forcedGame = false;
     public boolean canDeclineCut = false;
     public boolean speaking = false;
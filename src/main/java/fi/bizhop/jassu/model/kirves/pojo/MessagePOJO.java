@@ -0,0 +1,38 @@
+package fi.bizhop.jassu.model.kirves.pojo;
+
+import fi.bizhop.jassu.model.kirves.Game;
+
+import java.util.Objects;
+
+/**
+ * Game message as code and seat mask (bit n = seat n), rendered to text only for output.
+ * Plain text is only used for messages saved before message codes existed.
+ */
+public class MessagePOJO {
+    public Game.Message code;
+    public long seats = 0L;
+    public String text;
+
+    public MessagePOJO() {}
+
+    public MessagePOJO(Game.Message code, long seats) {
+        this.code = code;
+        this.seats = seats;
+    }
+
+    //old save data has messages as plain strings
+    public MessagePOJO(String text) {
+        this.code = Game.Message.TEXT;
+        this.text = text;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof MessagePOJO)) return false;
+        MessagePOJO other = (MessagePOJO) o;
+
+        return this.code == other.code
+                && this.seats == other.seats
+                && Objects.equals(this.text, other.text);
+    }
+}
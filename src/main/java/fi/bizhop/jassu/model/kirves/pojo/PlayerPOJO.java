@@ -14,7 +14,8 @@ public class PlayerPOJO {
     public String next;
     public String previous;
 
-    //these values are updated running the game and evaluated for PlayerPOJO equality
+    //these values are also only updated when generating save data (Player keeps them packed while running the game)
+    //and they are evaluated for PlayerPOJO equality
     public UserPOJO user;
     public final List<Integer> roundsWon = new ArrayList<>();
     public final List<Game.Action> availableActions = new ArrayList<>();
@@ -0,0 +1,43 @@
+package fi.bizhop.jassu.model.poker;
+
+import java.util.List;
+
+public class HoldAdviceOut {
+    //positions of held cards, same as HOLD action parameters
+    private List<Integer> hold;
+    private List<String> cards;
+    //expected multiplier of the wager
+    private double expectedReturn;
+
+    public HoldAdviceOut() {}
+
+    public HoldAdviceOut(List<Integer> hold, List<String> cards, double expectedReturn) {
+        this.hold = hold;
+        this.cards = cards;
+        this.expectedReturn = expectedReturn;
+    }
+
+    public List<Integer> getHold() {
+        return this.hold;
+    }
+
+    public void setHold(List<Integer> hold) {
+        this.hold = hold;
+    }
+
+    public List<String> getCards() {
+        return this.cards;
+    }
+
+    public void setCards(List<String> cards) {
+        this.cards = cards;
+    }
+
+    public double getExpectedReturn() {
+        return this.expectedReturn;
+    }
+
+    public void setExpectedReturn(double expectedReturn) {
+        this.expectedReturn = expectedReturn;
+    }
+}
@@ -2,29 +2,50 @@ package fi.bizhop.jassu.model.poker;
 
 import fi.bizhop.jassu.exception.CardException;
 import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
 import fi.bizhop.jassu.model.Cards;
 import fi.bizhop.jassu.model.StandardDeck;
 import fi.bizhop.jassu.service.UserService;
 import fi.bizhop.jassu.util.PokerHandEvaluator;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 import static fi.bizhop.jassu.model.poker.PokerHand.Type;
 
+/**
+ * Single player draw poker game in compact form: the deck is not stored but shuffled from a seed when
+ * cards are needed, the hand is a card mask (see CardMask) and money is fixed point with two decimals.
+ *
+ * Hand order is derived from the deal order: in draw the hand is the five first cards of the deck, with
+ * replaced positions taking the following cards in position order. In double the hand is the double
+ * cards in deal order.
+ */
 public class PokerGame {
+    private static final int HAND_SIZE = 5;
+    private static final int MONEY_SCALE = 2;
+    private static final int DOUBLING = 1 << Action.values().length;
+    //indexed by bit set of action ordinals
+    private static final List<List<Action>> ACTION_LISTS = new ArrayList<>();
 
-    private final Cards deck;
-    private Cards hand;
-    private BigDecimal money;
-    private List<Action> availableActions = List.of(Action.HOLD);
+    private final long seed;
+    private long hand;
+    private long money;
+    private int strength;
+    //cards dealt from deck
+    private byte dealt = 0;
+    private byte doubles = 0;
+    //bit set of available action ordinals, DOUBLING after the first double
+    private byte state = (byte) (1 << Action.HOLD.ordinal());
     private String player;
-    private int doubles = 0;
-    private PokerHand evaluation;
 
     private static final Map<Type, BigDecimal> multipliers;
 
@@ -40,22 +61,62 @@ public class PokerGame {
         multipliers.put(Type.FULL_HOUSE, BigDecimal.valueOf(13L));
         multipliers.put(Type.FOUR_OF_A_KIND, BigDecimal.valueOf(30L));
         multipliers.put(Type.STRAIGHT_FLUSH, BigDecimal.valueOf(50L));
+        multipliers.put(Type.FIVE_OF_A_KIND, BigDecimal.valueOf(0L));
+
+        for(int actions = 0; actions < 1 << Action.values().length; actions++) {
+            List<Action> list = new ArrayList<>();
+            for(Action action : Action.values()) {
+                if((actions & 1 << action.ordinal()) != 0) list.add(action);
+            }
+            ACTION_LISTS.add(List.copyOf(list));
+        }
     }
 
     public PokerGame(BigDecimal wager) throws CardException {
-        this.deck = new StandardDeck().shuffle();
-        this.money = wager;
+        this(wager, ThreadLocalRandom.current().nextLong());
+    }
+
+    public PokerGame(BigDecimal wager, long seed) {
+        this.seed = seed;
+        this.money = toFixed(wager);
     }
 
+    public long getSeed() {
+        return this.seed;
+    }
+
+    //null until dealt
     public Cards getHand() {
-        return this.hand;
+        if(this.dealt == 0) return null;
+
+        Card[] deck = this.shuffledDeck();
+        List<Card> cards = new ArrayList<>(HAND_SIZE);
+        if((this.state & DOUBLING) != 0) {
+            for(int i = HAND_SIZE; i < this.dealt; i++) {
+                if((this.hand & CardMask.of(deck[i])) != 0) cards.add(deck[i]);
+            }
+        } else {
+            int next = HAND_SIZE;
+            for(int i = 0; i < HAND_SIZE; i++) {
+                cards.add((this.hand & CardMask.of(deck[i])) != 0 ? deck[i] : deck[next++]);
+            }
+        }
+        return new Cards(cards);
     }
 
-    public Cards getDeck() { return this.deck; }
+    //cards not dealt yet, in deal order
+    public Cards getDeck() {
+        Card[] deck = this.shuffledDeck();
+        return new Cards(Arrays.asList(deck).subList(this.dealt, deck.length));
+    }
 
-    public BigDecimal getMoney() { return this.money; }
+    public BigDecimal getMoney() {
+        return fromFixed(this.money);
+    }
 
-    public List<Action> getAvailableActions() { return this.availableActions; }
+    public List<Action> getAvailableActions() {
+        return ACTION_LISTS.get(this.state & (DOUBLING - 1));
+    }
 
     public String getPlayer() {
         return this.player;
@@ -66,23 +127,38 @@ public class PokerGame {
     }
 
     public void deal() throws CardException {
-        this.hand = this.deck.deal(5);
-        this.evaluation = PokerHandEvaluator.evaluate(this.hand);
+        Card[] deck = this.shuffledDeck();
+        this.hand = 0L;
+        for(int i = 0; i < HAND_SIZE; i++) {
+            this.hand |= CardMask.of(deck[i]);
+        }
+        this.dealt = HAND_SIZE;
+        this.strength = PokerHandEvaluator.evaluate(this.hand);
     }
 
+    //money was already multiplied in hold
     public void stay(UserService userService) {
-        if(this.doubles == 0) {
-            this.money = this.money.multiply(multipliers.get(this.evaluation.type));
-        }
-        userService.modifyMoney(this.money, this.player);
-        this.availableActions = new ArrayList<>();
+        userService.modifyMoney(this.getMoney(), this.player);
+        this.setAvailableActions();
     }
 
     public boolean active() {
-        return !this.availableActions.isEmpty();
+        return (this.state & (DOUBLING - 1)) != 0;
+    }
+
+    public static Map<Type, BigDecimal> getMultipliers() {
+        return Map.copyOf(multipliers);
+    }
+
+    public static BigDecimal getMultiplier(Type type) {
+        return multipliers.get(type);
     }
 
     public static List<MultiplierOut> getMultiplierTable() {
+        return getMultiplierTable(multipliers);
+    }
+
+    public static List<MultiplierOut> getMultiplierTable(Map<Type, BigDecimal> multipliers) {
         return multipliers.entrySet().stream()
                 .filter(e -> !e.getValue().equals(BigDecimal.valueOf(0L)))
                 .map(e -> new MultiplierOut(e.getKey().getText(), e.getValue()))
@@ -92,25 +168,26 @@ public class PokerGame {
 
     public void tryDouble(Action action, UserService userService) throws CardException {
         if(this.doubles < 5) {
-            if(this.doubles == 0) {
-                this.hand.clear();
+            if((this.state & DOUBLING) == 0) {
+                this.state |= DOUBLING;
+                this.hand = 0L;
             }
-            Card doubleCard = this.deck.deal(1).first();
-            this.hand.add(doubleCard);
+            Card doubleCard = this.shuffledDeck()[this.dealt++];
+            this.hand |= CardMask.of(doubleCard);
             int doubleValue = doubleCard.getRank().getValue();
             if(doubleValue == 14) {
                 doubleValue = 1;
             }
             if((action == Action.DOUBLE_HIGH && doubleValue > 7) || action == Action.DOUBLE_LOW && doubleValue < 7 ) {
-                this.money = this.money.multiply(BigDecimal.valueOf(2));
+                this.money *= 2;
                 this.doubles++;
                 if(this.doubles > 4) {
                     this.stay(userService);
                 }
             }
             else {
-                this.money = BigDecimal.valueOf(0);
-                this.availableActions = new ArrayList<>();
+                this.money = 0L;
+                this.setAvailableActions();
             }
         }
         else {
@@ -119,14 +196,65 @@ public class PokerGame {
     }
 
     public void hold(List<Integer> parameters) throws CardException {
-        this.hand.hold(parameters, this.getDeck());
-        this.evaluation = PokerHandEvaluator.evaluate(this.hand);
-        this.money = this.money.multiply(multipliers.get(this.evaluation.type));
-        this.availableActions = this.money.equals(BigDecimal.valueOf(0)) ? new ArrayList<>() : List.of(Action.STAY, Action.DOUBLE_HIGH, Action.DOUBLE_LOW);
+        //sanity check, invalid parameters keep the hand
+        if(parameters != null && parameters.size() <= HAND_SIZE
+                && parameters.stream().allMatch(position -> position != null && position >= 0 && position < HAND_SIZE)) {
+            Card[] deck = this.shuffledDeck();
+            int next = HAND_SIZE;
+            for(int i = 0; i < HAND_SIZE; i++) {
+                if(!parameters.contains(i)) {
+                    this.hand = this.hand & ~CardMask.of(deck[i]) | CardMask.of(deck[next++]);
+                }
+            }
+            this.dealt = (byte) next;
+        }
+        this.strength = PokerHandEvaluator.evaluate(this.hand);
+        this.multiplyMoney(multipliers.get(this.getEvaluation().type));
+        if(this.money == 0L) {
+            this.setAvailableActions();
+        } else {
+            this.setAvailableActions(Action.STAY, Action.DOUBLE_HIGH, Action.DOUBLE_LOW);
+        }
     }
 
+    //null until dealt
     public PokerHand getEvaluation() {
-        return this.evaluation;
+        if(this.dealt == 0) return null;
+        return new PokerHand(PokerHandEvaluator.getHigh(this.strength), PokerHandEvaluator.getType(this.strength), this.strength);
+    }
+
+    private void setAvailableActions(Action... actions) {
+        int state = this.state & DOUBLING;
+        for(Action action : actions) {
+            state |= 1 << action.ordinal();
+        }
+        this.state = (byte) state;
+    }
+
+    private void multiplyMoney(BigDecimal multiplier) {
+        this.money = toFixed(this.getMoney().multiply(multiplier));
+    }
+
+    //same seed gives the same deck
+    private Card[] shuffledDeck() {
+        Card[] deck = StandardDeck.TEMPLATE.toArray(new Card[0]);
+        SplittableRandom random = new SplittableRandom(this.seed);
+        for(int i = deck.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Card temp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = temp;
+        }
+        return deck;
+    }
+
+    private static long toFixed(BigDecimal money) {
+        return money.movePointRight(MONEY_SCALE).setScale(0, RoundingMode.DOWN).longValueExact();
+    }
+
+    //whole amounts without decimals
+    private static BigDecimal fromFixed(long money) {
+        return money % 100 == 0 ? BigDecimal.valueOf(money / 100) : BigDecimal.valueOf(money, MONEY_SCALE);
     }
 
     public enum Action {
@@ -3,10 +3,12 @@ package fi.bizhop.jassu.model.poker;
 import java.util.HashMap;
 import java.util.Map;
 
-public class PokerHand {
+public class PokerHand implements Comparable<PokerHand> {
     public static final Map<Integer, String> cardNames;
     public int high;
     public Type type;
+    //total order of hands, see PokerHandEvaluator
+    public int strength;
 
     static {
         cardNames = new HashMap<>();
@@ -26,9 +28,10 @@ public class PokerHand {
         cardNames.put(14, "Ace");
     }
 
-    public PokerHand(int high, Type type) {
+    public PokerHand(int high, Type type, int strength) {
         this.high = high;
         this.type = type;
+        this.strength = strength;
     }
 
     public enum Type{
@@ -41,7 +44,9 @@ public class PokerHand {
         FLUSH("Väri"),
         FULL_HOUSE("Täyskäsi"),
         FOUR_OF_A_KIND("Neloset"),
-        STRAIGHT_FLUSH("Värisuora");
+        STRAIGHT_FLUSH("Värisuora"),
+        //only with wild jokers
+        FIVE_OF_A_KIND("Vitoset");
 
         private final String text;
         Type(String text) {
@@ -52,6 +57,11 @@ public class PokerHand {
         }
     }
 
+    @Override
+    public int compareTo(PokerHand other) {
+        return Integer.compare(this.strength, other.strength);
+    }
+
     @Override
     public String toString() {
         return this.type.getText();
@@ -0,0 +1,49 @@
+package fi.bizhop.jassu.model.poker;
+
+public class PokerStatsOut {
+    private int games;
+    private int finishedGames;
+    private int players;
+    private long evictions;
+
+    public PokerStatsOut() {}
+
+    public PokerStatsOut(int games, int finishedGames, int players, long evictions) {
+        this.games = games;
+        this.finishedGames = finishedGames;
+        this.players = players;
+        this.evictions = evictions;
+    }
+
+    public int getGames() {
+        return this.games;
+    }
+
+    public void setGames(int games) {
+        this.games = games;
+    }
+
+    public int getFinishedGames() {
+        return this.finishedGames;
+    }
+
+    public void setFinishedGames(int finishedGames) {
+        this.finishedGames = finishedGames;
+    }
+
+    public int getPlayers() {
+        return this.players;
+    }
+
+    public void setPlayers(int players) {
+        this.players = players;
+    }
+
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    public void setEvictions(long evictions) {
+        this.evictions = evictions;
+    }
+}
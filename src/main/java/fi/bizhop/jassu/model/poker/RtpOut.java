@@ -0,0 +1,32 @@
+package fi.bizhop.jassu.model.poker;
+
+import java.util.List;
+
+public class RtpOut {
+    //expected multiplier of the wager with optimal holds
+    private double rtp;
+    private List<MultiplierOut> multipliersTable;
+
+    public RtpOut() {}
+
+    public RtpOut(double rtp, List<MultiplierOut> multipliersTable) {
+        this.rtp = rtp;
+        this.multipliersTable = multipliersTable;
+    }
+
+    public double getRtp() {
+        return this.rtp;
+    }
+
+    public void setRtp(double rtp) {
+        this.rtp = rtp;
+    }
+
+    public List<MultiplierOut> getMultipliersTable() {
+        return this.multipliersTable;
+    }
+
+    public void setMultipliersTable(List<MultiplierOut> multipliersTable) {
+        this.multipliersTable = multipliersTable;
+    }
+}
@@ -6,15 +6,27 @@ import fi.bizhop.jassu.security.JWTAuth;
 import org.springframework.stereotype.Service;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
 
 @Service
 public class AuthService {
     final UserService userService;
 
     private static final String HEADER_STRING = "Authorization";
+    //comma separated emails of admin users
+    private static final String ADMINS_ENV = "JASSU_ADMINS";
+
+    private final Set<String> admins;
 
     public AuthService(UserService userService) {
         this.userService = userService;
+        String admins = System.getenv(ADMINS_ENV);
+        this.admins = admins == null
+                ? Set.of()
+                : Arrays.stream(admins.split(",")).map(String::trim).filter(email -> !email.isEmpty()).collect(toSet());
     }
 
     public User login(HttpServletRequest request) {
@@ -57,4 +69,8 @@ public class AuthService {
         String token = request.getHeader(HEADER_STRING);
         return JWTAuth.getUserEmail(token);
     }
+
+    public boolean isAdmin(String email) {
+        return email != null && this.admins.contains(email);
+    }
 }
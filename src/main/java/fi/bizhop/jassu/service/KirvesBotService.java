@@ -0,0 +1,303 @@
+package fi.bizhop.jassu.service;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.exception.KirvesGameException;
+import fi.bizhop.jassu.exception.TransactionException;
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.User;
+import fi.bizhop.jassu.model.kirves.Game;
+import fi.bizhop.jassu.model.kirves.HeadlessGame;
+import fi.bizhop.jassu.model.kirves.Ismcts;
+import fi.bizhop.jassu.model.kirves.in.GameIn;
+import fi.bizhop.jassu.model.kirves.out.BotStatsOut;
+import fi.bizhop.jassu.model.kirves.pojo.GameDataPOJO;
+import fi.bizhop.jassu.model.kirves.pojo.PlayerPOJO;
+import fi.bizhop.jassu.model.kirves.pojo.UserPOJO;
+import fi.bizhop.jassu.util.JsonUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bot players for Kirves tables. Bots join like any player and act when the game gives them an action:
+ * wake(id) is called after changes of a game, and a driver thread lets the bots of that game move until a
+ * human has the action.
+ *
+ * Moves are searched with Ismcts until thinkTime has passed. One tree is searched on the driver thread and
+ * more trees on a search pool shared by all tables; root visits of the trees are merged. The pool and its
+ * queue are bounded, so when many tables are busy a bot answers in time with fewer trees.
+ */
+@Service
+public class KirvesBotService {
+    private static final Logger LOG = LogManager.getLogger(KirvesBotService.class);
+    private static final String BOT_DOMAIN = "botti.invalid";
+    private static final long THINK_TIME = 200L;
+    private static final int MAX_ITERATIONS = 1_000_000;
+    //how long to wait for a search that started late
+    private static final long SEARCH_GRACE = 20L;
+    private static final int QUEUE_PER_THREAD = 4;
+    private static final long CONFLICT_DELAY = 50L;
+    private static final long SHUTDOWN_TIMEOUT = 1000L;
+
+    final KirvesService kirvesService;
+    final MessageService messageService;
+
+    private final Ismcts ismcts = new Ismcts();
+    private final long thinkTime;
+    private final int trees;
+    private final ExecutorService driver;
+    private final ThreadPoolExecutor searchPool;
+    //games that have a driver running
+    private final Set<Long> driving = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder thinkNanos = new LongAdder();
+    private final AtomicLong maxThinkNanos = new AtomicLong();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder rejectedSearches = new LongAdder();
+
+    @Autowired
+    public KirvesBotService(KirvesService kirvesService, MessageService messageService) {
+        this(kirvesService, messageService, THINK_TIME, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param thinkTime search time of a move in milliseconds
+     * @param threads number of driver threads and of search threads, one move searches threads trees
+     */
+    KirvesBotService(KirvesService kirvesService, MessageService messageService, long thinkTime, int threads) {
+        this.kirvesService = kirvesService;
+        this.messageService = messageService;
+        this.thinkTime = TimeUnit.MILLISECONDS.toNanos(thinkTime);
+        this.trees = threads;
+        this.driver = Executors.newFixedThreadPool(threads, daemon("kirves-bot"));
+        this.searchPool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), daemon("kirves-bot-search"));
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong count = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, String.format("%s-%d", name, count.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        this.driver.shutdownNow();
+        this.searchPool.shutdownNow();
+        this.driver.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    public static boolean isBot(User user) {
+        return user.getEmail() != null && user.getEmail().endsWith("@" + BOT_DOMAIN);
+    }
+
+    /**
+     * Add bot players to a game. The last player to join cuts, so bots start the game right away if
+     * one of them joins last. Only the admin or a player of the game can add bots.
+     *
+     * @param id game id
+     * @param count number of bots to add
+     * @param user user adding the bots
+     * @return added bots
+     */
+    public List<User> addBots(Long id, int count, User user) throws KirvesGameException, CardException, TransactionException {
+        if(count < 1) throw new KirvesGameException(String.format("Bottien määrä pitää olla vähintään 1, oli %d", count));
+        Game game = this.kirvesService.getGame(id);
+        if(!game.hasPlayer(user) && !this.kirvesService.isAdmin(id, user)) {
+            throw new KirvesGameException(String.format("Et voi lisätä botteja, %s ei ole pelin omistaja tai pelaaja (gameId=%d)", user.getNickname(), id));
+        }
+        //checked before any bot joins
+        if(count > game.getFreeSeats()) throw new KirvesGameException(String.format("Pelissä on tilaa %d pelaajalle, bottien määrä oli %d", game.getFreeSeats(), count));
+        List<User> bots = new ArrayList<>(count);
+        int number = 1;
+        while(bots.size() < count) {
+            User bot = new User(new UserPOJO(String.format("botti%d@%s", number, BOT_DOMAIN), String.format("Botti %d", number)));
+            if(!game.hasPlayer(bot)) {
+                this.kirvesService.joinGame(id, bot);
+                bots.add(bot);
+            }
+            number++;
+        }
+        this.wake(id);
+        return bots;
+    }
+
+    //let bots of a game move if one of them has the action
+    public void wake(Long id) {
+        if(this.driving.add(id)) {
+            try {
+                this.driver.execute(() -> this.drive(id));
+            } catch (RejectedExecutionException e) {
+                this.driving.remove(id);
+            }
+        }
+    }
+
+    private void drive(Long id) {
+        boolean recheck = true;
+        try {
+            while(this.move(id)) {
+                this.messageService.send("/topic/refresh", id.toString());
+            }
+        } catch (TransactionException e) {
+            //a player was acting at the same time, try again a bit later
+            LOG.debug(String.format("Bot move in game id=%d conflicted: %s", id, e.getMessage()));
+            recheck = this.pause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recheck = false;
+        } catch (Exception e) {
+            LOG.warn(String.format("Bot move failed in game id=%d: %s", id, e.getMessage()));
+            recheck = false;
+        } finally {
+            this.driving.remove(id);
+        }
+        //a wake while this driver was finishing was skipped
+        if(recheck && this.botHasAction(id)) this.wake(id);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(CONFLICT_DELAY);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean botHasAction(Long id) {
+        try {
+            return botWithAction(this.kirvesService.getGame(id)).isPresent();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    //move of a bot with the action, false if no bot has it
+    private boolean move(Long id) throws KirvesGameException, CardException, TransactionException, InterruptedException {
+        Game game = this.kirvesService.getGame(id);
+        Optional<User> bot = botWithAction(game);
+        if(!bot.isPresent()) return false;
+
+        long start = System.nanoTime();
+        GameDataPOJO pojo = JsonUtil.getJavaObject(game.toJson(), GameDataPOJO.class)
+                .orElseThrow(() -> new KirvesGameException("Muunnos json -> GameDataPOJO ei onnistunut"));
+        GameIn in = this.think(pojo, bot.get(), start + this.thinkTime);
+        long nanos = System.nanoTime() - start;
+        this.moves.increment();
+        this.thinkNanos.add(nanos);
+        this.maxThinkNanos.accumulateAndGet(nanos, Math::max);
+        LOG.debug(String.format("Bot %s chose %s in game id=%d in %d ms", bot.get().getNickname(), in.action, id, nanos / 1_000_000));
+
+        this.kirvesService.action(id, in, bot.get());
+        return true;
+    }
+
+    //fold is never a bot's only action, so the player with any other action is the one to move
+    private static Optional<User> botWithAction(Game game) {
+        for(Game.Action action : Game.Action.values()) {
+            if(action == Game.Action.FOLD) continue;
+            Optional<User> user = game.getUserWithAction(action);
+            if(user.isPresent()) return user.filter(KirvesBotService::isBot);
+        }
+        return Optional.empty();
+    }
+
+    private GameIn think(GameDataPOJO pojo, User bot, long deadline) throws CardException, KirvesGameException, InterruptedException {
+        int seat = -1;
+        for(int i = 0; i < pojo.players.size() && seat < 0; i++) {
+            if(pojo.players.get(i).user.email.equals(bot.getEmail())) seat = i;
+        }
+        if(seat < 0) throw new KirvesGameException(String.format("'%s' ei löytynyt pelaajista", bot.getNickname()));
+        HeadlessGame root;
+        try {
+            root = HeadlessGame.of(pojo, new SplittableRandom());
+        } catch (IllegalArgumentException e) {
+            throw new KirvesGameException(String.format("Botti ei voi pelata tätä peliä: %s", e.getMessage()));
+        }
+
+        int[] legal = new int[HeadlessGame.MAX_MOVES];
+        int count = root.legalMoves(seat, legal);
+        int fold = HeadlessGame.move(Game.Action.FOLD, 0);
+        int choices = 0;
+        int move = HeadlessGame.WAIT;
+        for(int i = 0; i < count; i++) {
+            if(legal[i] != fold) {
+                choices++;
+                move = legal[i];
+            }
+        }
+        if(choices == 0) throw new KirvesGameException(String.format("Botilla %s ei ole siirtoja", bot.getNickname()));
+        if(choices > 1) move = this.search(root, seat, deadline);
+        return toGameIn(move, pojo.players.get(seat));
+    }
+
+    private int search(HeadlessGame root, int seat, long deadline) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom();
+        List<Future<Ismcts.Result>> futures = new ArrayList<>(this.trees - 1);
+        for(int tree = 1; tree < this.trees; tree++) {
+            SplittableRandom treeRandom = random.split();
+            try {
+                futures.add(this.searchPool.submit(() -> this.ismcts.search(root, seat, deadline, MAX_ITERATIONS, treeRandom)));
+            } catch (RejectedExecutionException e) {
+                this.rejectedSearches.increment();
+            }
+        }
+        Ismcts.Result result = this.ismcts.search(root, seat, deadline, MAX_ITERATIONS, random);
+        long grace = TimeUnit.MILLISECONDS.toNanos(SEARCH_GRACE);
+        for(Future<Ismcts.Result> future : futures) {
+            try {
+                result.merge(future.get(Math.max(0L, deadline - System.nanoTime()) + grace, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                //started too late to be useful
+                future.cancel(false);
+                this.rejectedSearches.increment();
+            } catch (ExecutionException e) {
+                LOG.warn(String.format("Bot search failed: %s", e.getCause()));
+            }
+        }
+        this.iterations.add(result.getIterations());
+        return result.getBestMove();
+    }
+
+    private static GameIn toGameIn(int move, PlayerPOJO player) {
+        GameIn in = new GameIn();
+        in.action = HeadlessGame.action(move);
+        int argument = HeadlessGame.argument(move);
+        switch (in.action) {
+            case PLAY_CARD:
+            case DISCARD:
+                in.index = player.hand.indexOf(Card.of(argument).toString());
+                break;
+            case CUT: in.declineCut = argument == 1; break;
+            case ACE_OR_TWO_DECISION: in.keepExtraCard = argument == 1; break;
+            case SPEAK: in.speak = Game.Speak.values()[argument]; break;
+            case SPEAK_SUIT: in.suit = Card.Suit.values()[argument]; break;
+            default: break;
+        }
+        return in;
+    }
+
+    public BotStatsOut getStats() {
+        long moves = this.moves.sum();
+        double averageMillis = moves == 0 ? 0.0 : this.thinkNanos.sum() / 1e6 / moves;
+        return new BotStatsOut(moves, averageMillis, TimeUnit.NANOSECONDS.toMillis(this.maxThinkNanos.get()),
+                this.iterations.sum(), this.rejectedSearches.sum());
+    }
+}
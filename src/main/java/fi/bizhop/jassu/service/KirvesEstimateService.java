@@ -0,0 +1,140 @@
+package fi.bizhop.jassu.service;
+
+import fi.bizhop.jassu.exception.KirvesGameException;
+import fi.bizhop.jassu.model.kirves.Game;
+import fi.bizhop.jassu.model.kirves.HeadlessGame;
+import fi.bizhop.jassu.model.kirves.HeuristicPolicy;
+import fi.bizhop.jassu.model.kirves.WinEstimator;
+import fi.bizhop.jassu.model.kirves.pojo.GameDataPOJO;
+import fi.bizhop.jassu.util.JsonUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estimated chance of each player to score from the current hand of a Kirves game, see WinEstimator.
+ *
+ * Estimates are made on background threads: get(id) returns the latest estimate right away and asks for an
+ * update, so requests never wait for playouts. A game state is estimated once, up to the sample limit or
+ * the time budget, and the estimate is cached until the game moves on to the next trick. A refresh is sent
+ * when a new estimate is ready.
+ */
+@Service
+public class KirvesEstimateService {
+    private static final Logger LOG = LogManager.getLogger(KirvesEstimateService.class);
+    private static final int MAX_SAMPLES = 2000;
+    private static final long TIME_BUDGET = 200L;
+    private static final long SHUTDOWN_TIMEOUT = 1000L;
+
+    final KirvesService kirvesService;
+    final MessageService messageService;
+
+    private final int maxSamples;
+    private final long timeBudget;
+    private final ExecutorService executor;
+    //estimators are used only by the update of their game
+    private final Map<Long, WinEstimator> estimators = new ConcurrentHashMap<>();
+    private final Map<Long, Map<String, Double>> estimates = new ConcurrentHashMap<>();
+    //versions whose estimate is done, versions are not changed once published
+    private final Map<Long, Game> estimated = new ConcurrentHashMap<>();
+    //games that have an update running or queued
+    private final Set<Long> updating = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public KirvesEstimateService(KirvesService kirvesService, MessageService messageService) {
+        this(kirvesService, messageService, MAX_SAMPLES, TIME_BUDGET, 1);
+    }
+
+    /**
+     * @param maxSamples playouts of a game state
+     * @param timeBudget playout time of a game state in milliseconds
+     * @param threads number of estimating threads
+     */
+    KirvesEstimateService(KirvesService kirvesService, MessageService messageService, int maxSamples, long timeBudget, int threads) {
+        this.kirvesService = kirvesService;
+        this.messageService = messageService;
+        this.maxSamples = maxSamples;
+        this.timeBudget = TimeUnit.MILLISECONDS.toNanos(timeBudget);
+        AtomicLong count = new AtomicLong();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, String.format("kirves-estimate-%d", count.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        this.executor.shutdownNow();
+        this.executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Latest estimate of a game, an update is started unless the version is already estimated
+     *
+     * @param id game id
+     * @param game version of the game the estimate is shown with
+     * @return chance to score from the current hand by nickname, empty if there is no estimate
+     */
+    public Map<String, Double> get(Long id, Game game) {
+        if(this.estimated.get(id) != game) this.update(id);
+        return this.estimates.getOrDefault(id, Collections.emptyMap());
+    }
+
+    public void update(Long id) {
+        if(this.updating.add(id)) {
+            try {
+                this.executor.execute(() -> this.estimate(id));
+            } catch (RejectedExecutionException e) {
+                this.updating.remove(id);
+            }
+        }
+    }
+
+    private void estimate(Long id) {
+        try {
+            Game game = this.kirvesService.getGame(id);
+            GameDataPOJO pojo = JsonUtil.getJavaObject(game.toJson(), GameDataPOJO.class)
+                    .orElseThrow(() -> new KirvesGameException("Muunnos json -> GameDataPOJO ei onnistunut"));
+            SplittableRandom random = new SplittableRandom();
+            HeadlessGame state = HeadlessGame.of(pojo, random);
+            WinEstimator estimator = this.estimators.computeIfAbsent(id, key -> new WinEstimator(HeuristicPolicy.INSTANCE, this.maxSamples, this.timeBudget));
+            boolean changed = estimator.update(state, random);
+            if(estimator.isDone() && !changed) {
+                this.estimated.put(id, game);
+                return;
+            }
+
+            long start = System.nanoTime();
+            estimator.run(start + this.timeBudget, random);
+            Map<String, Double> estimate = new LinkedHashMap<>();
+            if(estimator.hasEstimate()) {
+                for(int seat = 0; seat < pojo.players.size(); seat++) {
+                    if(state.isActive(seat)) estimate.put(pojo.players.get(seat).user.getNickname(), estimator.getProbability(seat));
+                }
+            }
+            this.estimates.put(id, Collections.unmodifiableMap(estimate));
+            if(estimator.isDone()) this.estimated.put(id, game);
+            LOG.debug(String.format("Estimated game id=%d from %d playouts in %d ms", id, estimator.getSamples(), (System.nanoTime() - start) / 1_000_000));
+            this.messageService.send("/topic/refresh", id.toString());
+        } catch (Exception e) {
+            //game was removed or can't be simulated
+            LOG.debug(String.format("No estimate for game id=%d: %s", id, e.getMessage()));
+            this.estimators.remove(id);
+            this.estimates.remove(id);
+            this.estimated.remove(id);
+        } finally {
+            this.updating.remove(id);
+        }
+    }
+}
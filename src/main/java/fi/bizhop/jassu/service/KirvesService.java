@@ -1,5 +1,7 @@
 package fi.bizhop.jassu.service;
 
+import fi.bizhop.jassu.db.GameMessageDB;
+import fi.bizhop.jassu.db.GameMessageRepo;
 import fi.bizhop.jassu.db.KirvesGameDB;
 import fi.bizhop.jassu.db.KirvesGameRepo;
 import fi.bizhop.jassu.db.UserDB;
@@ -11,17 +13,20 @@ import fi.bizhop.jassu.model.kirves.Game;
 import fi.bizhop.jassu.model.kirves.in.GameIn;
 import fi.bizhop.jassu.model.kirves.out.GameBrief;
 import fi.bizhop.jassu.model.kirves.pojo.GameDataPOJO;
+import fi.bizhop.jassu.model.kirves.pojo.MessagePOJO;
 import fi.bizhop.jassu.util.JsonUtil;
 import fi.bizhop.jassu.util.TransactionHandler;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static fi.bizhop.jassu.exception.TransactionException.Type.LOCK;
 import static fi.bizhop.jassu.exception.TransactionException.Type.TIMEOUT;
 import static java.util.stream.Collectors.toList;
 
@@ -31,14 +36,16 @@ public class KirvesService {
 
     private final UserService USER_SERVICE;
     private final KirvesGameRepo GAME_REPO;
+    private final GameMessageRepo MESSAGE_REPO;
 
     private final Map<Long, Game> IN_MEMORY_GAMES = new ConcurrentHashMap<>();
 
     private final TransactionHandler TRANSACTION_HANDLER = new TransactionHandler();
 
-    public KirvesService(UserService userService, KirvesGameRepo gameRepo) {
+    public KirvesService(UserService userService, KirvesGameRepo gameRepo, GameMessageRepo messageRepo) {
         this.USER_SERVICE = userService;
         this.GAME_REPO = gameRepo;
+        this.MESSAGE_REPO = messageRepo;
     }
 
     public Long init(User admin) throws CardException, KirvesGameException, TransactionException {
@@ -68,9 +75,17 @@ public class KirvesService {
     }
 
     public void joinGame(Long id, User user) throws KirvesGameException, CardException, TransactionException {
-        Game game = this.getGame(id);
-        game.addPlayer(user);
-        this.saveGame(id, game);
+        this.begin(id, user);
+        try {
+            Game current = this.getGame(id);
+            Game game = current.copy();
+            game.addPlayer(user);
+            this.saveGame(id, current, game);
+        } catch (Exception e) {
+            this.TRANSACTION_HANDLER.release(id, user);
+            throw e;
+        }
+        this.end(id, user);
         LOG.info(String.format("Added player email=%s to game id=%d", user.getEmail(), id));
     }
 
@@ -106,33 +121,58 @@ public class KirvesService {
     //Use delay only for testing transaction timeout
     public Game action(Long id, GameIn in, User user, long delay) throws KirvesGameException, CardException, TransactionException, InterruptedException {
         if(in.action == null) throw new KirvesGameException("Toiminto ei voi olla tyhjä (null)");
-        Game game = this.getGame(id);
+        this.begin(id, user);
+        Game game;
         try {
-            this.TRANSACTION_HANDLER.begin(id, user, game.toJson());
+            //latest version can only change while the lock is held
+            Game current = this.getGame(id);
+            this.sleep(delay);
+            //action changes a new version of the game, current version is kept as it was for rollback
+            game = current.copy();
+            this.action(in, user, game);
+            this.checkLock(id, user);
+            this.saveGame(id, current, game);
+        } catch (Exception e) {
+            this.TRANSACTION_HANDLER.release(id, user);
+            throw e;
+        }
+        this.end(id, user);
+        return game;
+    }
+
+    private void begin(Long id, User user) throws KirvesGameException, CardException, TransactionException {
+        //loading the game registers its transaction
+        this.getGame(id);
+        try {
+            this.TRANSACTION_HANDLER.begin(id, user);
         } catch (TransactionException e) {
             if(e.getType() == TIMEOUT) {
-                this.IN_MEMORY_GAMES.put(id, new Game(this.TRANSACTION_HANDLER.rollback(id, GameDataPOJO.class)));
-                this.TRANSACTION_HANDLER.begin(id, user, game.toJson());
+                //timed out action never published its version, so there is nothing to roll back
+                this.TRANSACTION_HANDLER.release(id);
+                this.TRANSACTION_HANDLER.begin(id, user);
             } else {
                 throw e;
             }
         }
-        this.sleep(delay);
+    }
+
+    //new version is published only if the lock hasn't timed out
+    private void checkLock(Long id, User user) throws TransactionException {
         try {
-            this.action(in, user, game);
-        } catch (Exception e) {
-            this.IN_MEMORY_GAMES.put(id, new Game(this.TRANSACTION_HANDLER.rollback(id, GameDataPOJO.class)));
-            throw e;
+            this.TRANSACTION_HANDLER.check(id, user);
+        } catch (TransactionException e) {
+            LOG.warn(String.format("Transaction check failed (id=%d, user=%s, message=%s), rolling back", id, user.getEmail(), e.getMessage()));
+            throw new TransactionException(e.getType(), "Transaktion päättäminen epäonnistui. Edellinen tilanne palautettu.");
         }
+    }
+
+    private void end(Long id, User user) throws TransactionException {
         try {
             this.TRANSACTION_HANDLER.end(id);
-            this.saveGame(id, game);
-            return game;
         } catch (TransactionException e) {
-            //ending transaction failed, probably for timeout. Log and rollback;
-            LOG.warn(String.format("Ending transaction failed (id=%d, user=%s, message=%s), rolling back", id, user.getEmail(), e.getMessage()));
-            this.IN_MEMORY_GAMES.put(id, new Game(this.TRANSACTION_HANDLER.rollback(id, GameDataPOJO.class)));
-            throw new TransactionException(e.getType(), "Transaktion päättäminen epäonnistui. Edellinen tilanne palautettu.");
+            //new version is already saved, only the lock is left to release
+            LOG.warn(String.format("Ending transaction failed after save (id=%d, user=%s, message=%s)", id, user.getEmail(), e.getMessage()));
+            this.TRANSACTION_HANDLER.release(id, user);
         }
     }
 
@@ -152,8 +192,12 @@ public class KirvesService {
         }
     }
 
+    public boolean isAdmin(Long id, User user) throws KirvesGameException {
+        return user.getEmail().equals(this.getGameDB(id).admin.email);
+    }
+
     public void inactivateGame(Long id, User me) throws KirvesGameException, TransactionException {
-        this.TRANSACTION_HANDLER.begin(id, me, null);
+        this.TRANSACTION_HANDLER.begin(id, me);
 
         KirvesGameDB game = this.getGameDB(id);
         if(me.getEmail().equals(game.admin.email)) {
@@ -168,12 +212,61 @@ public class KirvesService {
         this.TRANSACTION_HANDLER.end(id);
     }
 
-    private void saveGame(Long id, Game game) throws KirvesGameException {
+    /**
+     * Get all messages of a game, including the ones that have dropped out of game data
+     *
+     * @param id game id
+     * @return rendered messages, oldest first
+     */
+    public List<String> getMessageHistory(Long id) throws KirvesGameException, CardException, TransactionException {
+        Game game = this.getGame(id);
+        List<MessagePOJO> messages = new ArrayList<>();
+        for(GameMessageDB messageDB : this.MESSAGE_REPO.findByGameIdOrderByIdAsc(id)) {
+            MessagePOJO message = new MessagePOJO(Game.Message.valueOf(messageDB.code), messageDB.seats);
+            message.text = messageDB.text;
+            messages.add(message);
+        }
+        messages.addAll(game.getMessages());
+        return game.renderMessages(messages, Game.DEFAULT_LOCALE);
+    }
+
+    /**
+     * Save and publish a new version of a game while holding its transaction lock. The version is
+     * published only after it is saved, so a failed save leaves the previous version in place.
+     * Versions are not changed once published, so readers of the previous version are not affected.
+     *
+     * @param id game id
+     * @param previous version the new one was made from
+     * @param game new version
+     * @throws TransactionException if the game has changed since previous
+     */
+    private void saveGame(Long id, Game previous, Game game) throws KirvesGameException, TransactionException {
+        if(this.IN_MEMORY_GAMES.get(id) != previous) {
+            throw new TransactionException(LOCK, "Peli muuttui samaan aikaan, yritä uudelleen");
+        }
+        //the drained messages only leave the new version, previous still has them if saving fails
+        List<MessagePOJO> olderMessages = game.drainOlderMessages();
+        //history is only appended to, so just the dropped messages are written. they are written
+        //before the game so a failure can only repeat messages, never lose them
+        if(!olderMessages.isEmpty()) {
+            List<GameMessageDB> messages = new ArrayList<>();
+            for(MessagePOJO message : olderMessages) {
+                GameMessageDB messageDB = new GameMessageDB();
+                messageDB.gameId = id;
+                messageDB.code = message.code.name();
+                messageDB.seats = message.seats;
+                messageDB.text = message.text;
+                messages.add(messageDB);
+            }
+            this.MESSAGE_REPO.saveAll(messages);
+        }
         KirvesGameDB gameDB = this.getGameDB(id);
         gameDB.gameData = game.toJson();
         gameDB.players = game.getNumberOfPlayers();
         gameDB.canJoin = game.getCanJoin();
         this.GAME_REPO.save(gameDB);
-        this.IN_MEMORY_GAMES.put(id, game);
+        if(this.IN_MEMORY_GAMES.computeIfPresent(id, (key, latest) -> latest == previous ? game : latest) != game) {
+            throw new TransactionException(LOCK, "Peli muuttui samaan aikaan, yritä uudelleen");
+        }
     }
 }
@@ -0,0 +1,159 @@
+package fi.bizhop.jassu.service;
+
+import fi.bizhop.jassu.db.PokerJournalDB;
+import fi.bizhop.jassu.db.PokerJournalRepo;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Append only journal of poker actions. Appending only queues the record: a writer thread saves queued
+ * records in batches, one transaction per batch, so poker requests don't wait for the database.
+ * A failed batch is retried until it is saved.
+ *
+ * Records of games that are no longer needed are deleted by the writer too, after their queued records are saved.
+ */
+@Service
+public class PokerJournal {
+    private static final Logger LOG = LogManager.getLogger(PokerJournal.class);
+    private static final int MAX_BATCH = 500;
+    //page size of findTop500ByIdGreaterThanOrderByIdAsc
+    private static final int READ_PAGE = 500;
+    private static final long RETRY_DELAY = 1000L;
+    private static final long SHUTDOWN_TIMEOUT = 10_000L;
+
+    final PokerJournalRepo pokerJournalRepo;
+
+    private final BlockingQueue<PokerJournalDB> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Long> deletedGames = new LinkedBlockingQueue<>();
+    private volatile boolean running = true;
+    private Thread writer;
+
+    public PokerJournal(PokerJournalRepo pokerJournalRepo) {
+        this.pokerJournalRepo = pokerJournalRepo;
+    }
+
+    @PostConstruct
+    public void start() {
+        this.writer = new Thread(this::write, "poker-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    //saves records still in queue before returning
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        this.running = false;
+        if(this.writer != null) {
+            this.writer.join(SHUTDOWN_TIMEOUT);
+        }
+    }
+
+    public void deal(Long id, PokerGame game, BigDecimal wager) {
+        PokerJournalDB record = record(id, game, PokerJournalAction.DEAL);
+        record.seed = game.getSeed();
+        record.wager = wager;
+        this.append(record);
+    }
+
+    public void action(Long id, PokerGame game, PokerGame.Action action, List<Integer> parameters) {
+        PokerJournalDB record = record(id, game, PokerJournalAction.valueOf(action.name()));
+        if(parameters != null) {
+            record.parameters = parameters.stream().map(String::valueOf).collect(Collectors.joining(","));
+        }
+        this.append(record);
+    }
+
+    void append(PokerJournalDB record) {
+        this.queue.add(record);
+    }
+
+    //all records in order they were written, read a page at a time
+    public void readAll(Consumer<PokerJournalDB> reader) {
+        Long last = Long.MIN_VALUE;
+        while(true) {
+            List<PokerJournalDB> page = this.pokerJournalRepo.findTop500ByIdGreaterThanOrderByIdAsc(last);
+            page.forEach(reader);
+            if(page.size() < READ_PAGE) return;
+            last = page.get(page.size() - 1).id;
+        }
+    }
+
+    //delete all records of games, including ones still in queue
+    public void deleteGames(Collection<Long> gameIds) {
+        this.deletedGames.addAll(gameIds);
+    }
+
+    private static PokerJournalDB record(Long id, PokerGame game, PokerJournalAction action) {
+        PokerJournalDB record = new PokerJournalDB();
+        record.gameId = id;
+        record.player = game.getPlayer();
+        record.action = action.name();
+        record.finished = !game.active();
+        return record;
+    }
+
+    private void write() {
+        List<PokerJournalDB> batch = new ArrayList<>(MAX_BATCH);
+        List<Long> deletes = new ArrayList<>();
+        while(this.running || !this.queue.isEmpty() || !this.deletedGames.isEmpty() || !deletes.isEmpty()) {
+            try {
+                //records of a game are queued before its deletion, so taking deletions first keeps them in order
+                this.deletedGames.drainTo(deletes);
+                PokerJournalDB first = this.queue.poll(deletes.isEmpty() ? RETRY_DELAY : 0L, TimeUnit.MILLISECONDS);
+                if(first != null) {
+                    batch.add(first);
+                    this.queue.drainTo(batch, MAX_BATCH - 1);
+                    this.save(batch);
+                }
+                //delete only when the queue was emptied, otherwise records of deleted games may still be in it
+                if(batch.size() < MAX_BATCH && !deletes.isEmpty()) {
+                    this.delete(deletes);
+                    deletes.clear();
+                }
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void save(List<PokerJournalDB> batch) throws InterruptedException {
+        this.retry(() -> this.pokerJournalRepo.saveAll(batch), String.format("Saving %d poker journal records failed", batch.size()));
+    }
+
+    private void delete(List<Long> gameIds) throws InterruptedException {
+        this.retry(() -> this.pokerJournalRepo.deleteByGameIdIn(gameIds), String.format("Deleting poker journal records of %d games failed", gameIds.size()));
+    }
+
+    private void retry(Runnable operation, String error) throws InterruptedException {
+        while(true) {
+            try {
+                operation.run();
+                return;
+            } catch (RuntimeException e) {
+                LOG.error(error, e);
+                if(!this.running) return;
+                Thread.sleep(RETRY_DELAY);
+            }
+        }
+    }
+
+    public enum PokerJournalAction {
+        DEAL, HOLD, STAY, DOUBLE_HIGH, DOUBLE_LOW
+    }
+}
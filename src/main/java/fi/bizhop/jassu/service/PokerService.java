@@ -1,32 +1,80 @@
 package fi.bizhop.jassu.service;
 
+import fi.bizhop.jassu.db.PokerJournalDB;
 import fi.bizhop.jassu.exception.CardException;
 import fi.bizhop.jassu.exception.PokerGameException;
+import fi.bizhop.jassu.model.poker.HoldAdviceOut;
 import fi.bizhop.jassu.model.poker.PokerGame;
 import fi.bizhop.jassu.model.poker.PokerGameIn;
+import fi.bizhop.jassu.model.poker.PokerHand;
+import fi.bizhop.jassu.model.poker.PokerStatsOut;
+import fi.bizhop.jassu.model.poker.RtpOut;
+import fi.bizhop.jassu.util.HoldAdvisor;
+import fi.bizhop.jassu.util.RtpCalculator;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import static fi.bizhop.jassu.model.poker.PokerGame.Action.*;
 
+/**
+ * Draw poker games in memory. Games are indexed by player, and finished games are evicted when there are
+ * more than maxFinished of them or when they have been finished longer than finishedTtl. Games still
+ * unfinished unfinishedTtl after the deal are abandoned and evicted too, the wager is not returned.
+ *
+ * Deals and actions are written to the poker journal, and unfinished games are restored from it on startup.
+ * Journal records of evicted games are deleted.
+ */
 @Service
 public class PokerService {
     private static final Logger LOG = LogManager.getLogger(PokerService.class);
+    private static final int MAX_FINISHED_GAMES = 10_000;
+    private static final long FINISHED_GAME_TTL = 10 * 60 * 1000L;
+    private static final long UNFINISHED_GAME_TTL = 24 * 60 * 60 * 1000L;
 
     final UserService userService;
+    final PokerJournal pokerJournal;
 
-    private final Map<Long, PokerGame> games = new HashMap<>();
-    private Long sequence = 0L;
+    private final Map<Long, PokerGame> games = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> gamesByPlayer = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
 
-    public PokerService(UserService userService) {
+    //finished games, oldest first
+    private final Queue<TimedGame> finished = new ConcurrentLinkedQueue<>();
+    //all games by time of deal, oldest first
+    private final Queue<TimedGame> dealt = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger numOfFinished = new AtomicInteger();
+    private final AtomicLong evictions = new AtomicLong();
+    private final int maxFinished;
+    private final long finishedTtl;
+    private final long unfinishedTtl;
+
+    @Autowired
+    public PokerService(UserService userService, PokerJournal pokerJournal) {
+        this(userService, pokerJournal, MAX_FINISHED_GAMES, FINISHED_GAME_TTL);
+    }
+
+    PokerService(UserService userService, PokerJournal pokerJournal, int maxFinished, long finishedTtl) {
+        this(userService, pokerJournal, maxFinished, finishedTtl, UNFINISHED_GAME_TTL);
+    }
+
+    PokerService(UserService userService, PokerJournal pokerJournal, int maxFinished, long finishedTtl, long unfinishedTtl) {
         this.userService = userService;
+        this.pokerJournal = pokerJournal;
+        this.maxFinished = maxFinished;
+        this.finishedTtl = finishedTtl;
+        this.unfinishedTtl = unfinishedTtl;
     }
 
     public PokerGame newGame() throws CardException {
@@ -34,14 +82,100 @@ public class PokerService {
     }
 
     public PokerGame newGameForPlayer(String email) throws CardException {
+        this.evict();
         BigDecimal wager = BigDecimal.valueOf(1);
         this.userService.modifyMoney(wager.negate(), email);
         PokerGame game = new PokerGame(wager);
         game.setPlayer(email);
-        this.games.put(this.sequence++, game);
+        Long id = this.sequence.getAndIncrement();
+        this.add(id, game);
+        this.pokerJournal.deal(id, game, wager);
         return game;
     }
 
+    private void add(Long id, PokerGame game) {
+        this.games.put(id, game);
+        this.gamesByPlayer.computeIfAbsent(game.getPlayer(), key -> new ConcurrentSkipListSet<>()).add(id);
+        this.dealt.add(new TimedGame(id, System.currentTimeMillis()));
+    }
+
+    private void remove(Long id) {
+        PokerGame game = this.games.remove(id);
+        if(game != null) {
+            this.gamesByPlayer.computeIfPresent(game.getPlayer(), (email, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        this.pokerJournal.deleteGames(List.of(id));
+        this.evictions.incrementAndGet();
+    }
+
+    @PostConstruct
+    public void init() {
+        //payout totals take about a second, so they are computed before the first advice is asked for
+        HoldAdvisor.warmUp();
+        this.restore();
+    }
+
+    //rebuild unfinished games from the journal, journal records of other games are removed
+    public void restore() {
+        //only records of games not finished so far are kept
+        Map<Long, List<PokerJournalDB>> unfinished = new LinkedHashMap<>();
+        Set<Long> deleted = new HashSet<>();
+        this.pokerJournal.readAll(record -> {
+            this.sequence.accumulateAndGet(record.gameId + 1, Math::max);
+            if(Boolean.TRUE.equals(record.finished)) {
+                unfinished.remove(record.gameId);
+                deleted.add(record.gameId);
+            } else if(!deleted.contains(record.gameId)) {
+                unfinished.computeIfAbsent(record.gameId, id -> new ArrayList<>()).add(record);
+            }
+        });
+        for(Map.Entry<Long, List<PokerJournalDB>> entry : unfinished.entrySet()) {
+            Long id = entry.getKey();
+            try {
+                PokerGame game = this.replay(entry.getValue());
+                if(game != null && game.active()) {
+                    this.add(id, game);
+                    continue;
+                }
+            } catch (CardException | RuntimeException e) {
+                LOG.warn(String.format("Unable to restore poker game id=%d", id), e);
+            }
+            deleted.add(id);
+        }
+        if(!deleted.isEmpty()) {
+            this.pokerJournal.deleteGames(deleted);
+        }
+        LOG.info(String.format("Restored %d poker games", this.games.size()));
+    }
+
+    //unfinished game from its journal records, null if deal is missing
+    private PokerGame replay(List<PokerJournalDB> records) throws CardException {
+        PokerGame game = null;
+        for(PokerJournalDB record : records) {
+            PokerJournal.PokerJournalAction action = PokerJournal.PokerJournalAction.valueOf(record.action);
+            if(action == PokerJournal.PokerJournalAction.DEAL) {
+                game = new PokerGame(record.wager, record.seed);
+                game.setPlayer(record.player);
+                game.deal();
+            } else if(game != null) {
+                PokerGameIn in = new PokerGameIn();
+                in.action = PokerGame.Action.valueOf(record.action);
+                in.parameters = record.parameters == null ? null : parseParameters(record.parameters);
+                this.apply(game, in);
+            }
+        }
+        return game;
+    }
+
+    private static List<Integer> parseParameters(String parameters) {
+        return parameters.isEmpty()
+                ? new ArrayList<>()
+                : Arrays.stream(parameters.split(",")).map(Integer::valueOf).collect(Collectors.toList());
+    }
+
     public PokerGame getGame(Long id, String email) throws PokerGameException {
         PokerGame game = this.games.get(id);
         if(game == null) {
@@ -56,32 +190,114 @@ public class PokerService {
     }
 
     public List<PokerGame> getGames(String email) {
-        return this.games.values().stream()
-                .filter(game -> email.equals(game.getPlayer()))
+        Set<Long> ids = this.gamesByPlayer.getOrDefault(email, Set.of());
+        return ids.stream()
+                .map(this.games::get)
+                .filter(Objects::nonNull)
                 .filter(PokerGame::active)
                 .collect(Collectors.toList());
     }
 
     public PokerGame action(Long id, PokerGameIn in, String email) throws PokerGameException, CardException {
-        PokerGame game = this.games.get(id);
-        if(!email.equals(game.getPlayer())) {
-            throw new PokerGameException("Not your game");
+        PokerGame game = this.getGame(id, email);
+        synchronized (game) {
+            //evicted meanwhile, its records are deleted
+            if(this.games.get(id) != game) {
+                throw new PokerGameException(String.format("No game with id: %d", id));
+            }
+            if(this.apply(game, in)) {
+                this.pokerJournal.action(id, game, in.action, in.parameters);
+                if(!game.active()) {
+                    this.finished.add(new TimedGame(id, System.currentTimeMillis()));
+                    this.numOfFinished.incrementAndGet();
+                }
+            }
+        }
+        this.evict();
+        return game;
+    }
+
+    //true if action was available
+    private boolean apply(PokerGame game, PokerGameIn in) throws CardException {
+        if(!game.getAvailableActions().contains(in.action)) {
+            return false;
+        }
+        if(in.action == STAY) {
+            game.stay(this.userService);
         }
-        if(game.getAvailableActions().contains(in.action)) {
-            if(in.action == STAY) {
-                game.stay(this.userService);
+        else if(in.action == HOLD) {
+            game.hold(in.parameters);
+        }
+        else if(in.action == DOUBLE_HIGH || in.action == DOUBLE_LOW) {
+            game.tryDouble(in.action, this.userService);
+        }
+        return true;
+    }
+
+    //remove finished games over the limit or older than ttl, and games left unfinished
+    private void evict() {
+        long now = System.currentTimeMillis();
+        while(true) {
+            TimedGame oldest = this.finished.peek();
+            if(oldest == null || (this.numOfFinished.get() <= this.maxFinished && now - oldest.time < this.finishedTtl)) {
+                break;
+            }
+            if(this.finished.remove(oldest)) {
+                this.numOfFinished.decrementAndGet();
+                this.remove(oldest.id);
             }
-            else if(in.action == HOLD) {
-                game.hold(in.parameters);
+        }
+        while(true) {
+            TimedGame oldest = this.dealt.peek();
+            if(oldest == null || now - oldest.time < this.unfinishedTtl) {
+                return;
             }
-            else if(in.action == DOUBLE_HIGH || in.action == DOUBLE_LOW) {
-                game.tryDouble(in.action, this.userService);
+            if(this.dealt.remove(oldest)) {
+                //finished games are evicted by the finished queue
+                PokerGame game = this.games.get(oldest.id);
+                if(game != null) {
+                    synchronized (game) {
+                        if(game.active()) {
+                            this.remove(oldest.id);
+                        }
+                    }
+                }
             }
         }
-        return game;
+    }
+
+    public PokerStatsOut getStats() {
+        return new PokerStatsOut(this.games.size(), this.numOfFinished.get(), this.gamesByPlayer.size(), this.evictions.get());
+    }
+
+    public List<HoldAdviceOut> getAdvice(Long id, String email) throws PokerGameException, CardException {
+        PokerGame game = this.getGame(id, email);
+        if(!game.getAvailableActions().contains(HOLD)) {
+            throw new PokerGameException("No cards to hold");
+        }
+        return HoldAdvisor.advise(game.getHand());
+    }
+
+    //return to player with current multipliers, changed by given multipliers
+    public RtpOut getRtp(Map<PokerHand.Type, BigDecimal> changes) {
+        Map<PokerHand.Type, BigDecimal> multipliers = new EnumMap<>(PokerGame.getMultipliers());
+        if(changes != null) {
+            multipliers.putAll(changes);
+        }
+        return new RtpOut(RtpCalculator.rtp(multipliers), PokerGame.getMultiplierTable(multipliers));
     }
 
     public void dummy() {
         System.out.println("Dummy");
     }
+
+    private static class TimedGame {
+        final long id;
+        final long time;
+
+        TimedGame(long id, long time) {
+            this.id = id;
+            this.time = time;
+        }
+    }
 }
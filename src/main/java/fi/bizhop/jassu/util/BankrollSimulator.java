@@ -0,0 +1,317 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import fi.bizhop.jassu.model.poker.PokerHand;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo simulation of player bankrolls over sessions of draw poker, including double up.
+ *
+ * Every hand costs one wager. A session ends after the given number of hands, or when the bankroll can't
+ * cover the next wager (ruin). Hands follow the rules of PokerGame: five cards are dealt, held cards are
+ * kept and the rest drawn from the same deck, and a paying hand can be doubled with the next cards of the
+ * deck (high wins over 7, low under 7, ace is 1) until a loss, a stay or five won doubles.
+ *
+ * Games are played on card masks with PokerHandEvaluator, so multiplier tables can be varied without
+ * touching the table of PokerGame. BankrollSimulatorTest plays the same deals through PokerGame to keep
+ * the two rule sets the same. Sessions run in a parallel stream, each with its own SplittableRandom
+ * seeded from the session index, so results don't depend on the number of threads.
+ */
+public class BankrollSimulator {
+    private static final int HAND_SIZE = 5;
+    private static final int MAX_DOUBLES = 5;
+    private static final int NUM_OF_DRAWN = HAND_SIZE + HAND_SIZE + MAX_DOUBLES;
+    private static final int N = Card.NUM_OF_STANDARD_CARDS;
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double[] PERCENTILES = {0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99};
+
+    //BINOMIAL[n][k] = n choose k
+    private static final int[][] BINOMIAL = new int[N + 1][HAND_SIZE + 1];
+    //rank value used in double up, ace is 1
+    private static final int[] DOUBLE_VALUES = new int[N];
+    private static final long HIGH_CARDS;
+    private static final long LOW_CARDS;
+
+    static {
+        for(int n = 0; n <= N; n++) {
+            BINOMIAL[n][0] = 1;
+            for(int k = 1; k <= HAND_SIZE && k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+        long high = 0L;
+        long low = 0L;
+        for(int ordinal = 0; ordinal < N; ordinal++) {
+            int value = Card.of(ordinal).getRank().getValue();
+            DOUBLE_VALUES[ordinal] = value == 14 ? 1 : value;
+            if(DOUBLE_VALUES[ordinal] > 7) high |= 1L << ordinal;
+            if(DOUBLE_VALUES[ordinal] < 7) low |= 1L << ordinal;
+        }
+        HIGH_CARDS = high;
+        LOW_CARDS = low;
+    }
+
+    /**
+     * Cards to hold of a dealt hand
+     */
+    @FunctionalInterface
+    public interface HoldStrategy {
+        /**
+         * @param hand dealt cards as a card mask
+         * @return held cards, bit n = n:th card of the hand in ordinal order (same as HoldAdvisor.expectedReturns)
+         */
+        int hold(long hand);
+
+        //keep every hand as dealt
+        HoldStrategy PAT = hand -> (1 << HAND_SIZE) - 1;
+
+        //hold with best expected return for the multipliers, best holds of all hands are calculated up front
+        static HoldStrategy optimal(Map<PokerHand.Type, BigDecimal> multipliers) {
+            byte[] holds = optimalHolds(multipliers);
+            return hand -> holds[colex(hand)];
+        }
+    }
+
+    /**
+     * Whether to double a win
+     */
+    @FunctionalInterface
+    public interface DoubleStrategy {
+        /**
+         * @param money current win in wagers
+         * @param doubles number of doubles won so far
+         * @param seen cards seen so far as a card mask
+         * @return DOUBLE_HIGH or DOUBLE_LOW, or null to stay
+         */
+        PokerGame.Action choose(double money, int doubles, long seen);
+
+        DoubleStrategy NEVER = (money, doubles, seen) -> null;
+
+        //double until given number of doubles is won, betting on the side with more unseen cards
+        static DoubleStrategy upTo(int maxDoubles) {
+            return (money, doubles, seen) -> {
+                if(doubles >= maxDoubles) return null;
+                return Long.bitCount(HIGH_CARDS & ~seen) >= Long.bitCount(LOW_CARDS & ~seen)
+                        ? PokerGame.Action.DOUBLE_HIGH
+                        : PokerGame.Action.DOUBLE_LOW;
+            };
+        }
+    }
+
+    //colex rank of a five card hand
+    private static int colex(long hand) {
+        int index = 0;
+        int k = 1;
+        for(long rest = hand; rest != 0; rest &= rest - 1) {
+            index += BINOMIAL[Long.numberOfTrailingZeros(rest)][k++];
+        }
+        return index;
+    }
+
+    //best hold of every five card hand by colex rank
+    private static byte[] optimalHolds(Map<PokerHand.Type, BigDecimal> multipliers) {
+        double[] payouts = RtpCalculator.payouts(multipliers);
+        double[][] totals = RtpCalculator.totals(payouts);
+        byte[] holds = new byte[BINOMIAL[N][HAND_SIZE]];
+        //hands with highest card e have colex ranks from C(e, 5) to C(e + 1, 5)
+        IntStream.range(HAND_SIZE - 1, N).parallel().forEach(e -> {
+            for(int d = 0; d < e; d++)
+            for(int c = 0; c < d; c++)
+            for(int b = 0; b < c; b++)
+            for(int a = 0; a < b; a++) {
+                long hand = 1L << a | 1L << b | 1L << c | 1L << d | 1L << e;
+                double[] expected = RtpCalculator.expectedReturns(hand, payouts, totals);
+                int best = 0;
+                for(int hold = 1; hold < expected.length; hold++) {
+                    if(expected[hold] > expected[best]) best = hold;
+                }
+                holds[colex(hand)] = (byte) best;
+            }
+        });
+        return holds;
+    }
+
+    public static Result simulate(Map<PokerHand.Type, BigDecimal> multipliers, HoldStrategy holdStrategy, DoubleStrategy doubleStrategy,
+                                  int sessions, int hands, double bankroll, long seed) {
+        double[] payouts = RtpCalculator.payouts(multipliers);
+        double[] finals = new double[sessions];
+        int[] played = new int[sessions];
+        IntStream.range(0, sessions).parallel().forEach(session -> {
+            SplittableRandom random = new SplittableRandom(seed + session * SEED_GAMMA);
+            int[] deck = IntStream.range(0, N).toArray();
+            double money = bankroll;
+            int hand = 0;
+            while(hand < hands && money >= 1.0) {
+                money += play(deck, random, payouts, holdStrategy, doubleStrategy) - 1.0;
+                hand++;
+            }
+            finals[session] = money;
+            played[session] = hand;
+        });
+        return new Result(finals, played, hands, bankroll);
+    }
+
+    //win of one hand in wagers
+    static double play(int[] deck, SplittableRandom random, double[] payouts, HoldStrategy holdStrategy, DoubleStrategy doubleStrategy) {
+        //partial shuffle, only the cards that can be needed
+        for(int i = 0; i < NUM_OF_DRAWN; i++) {
+            int j = i + random.nextInt(N - i);
+            int temp = deck[i];
+            deck[i] = deck[j];
+            deck[j] = temp;
+        }
+        return play(deck, payouts, holdStrategy, doubleStrategy);
+    }
+
+    //win of one hand in wagers, cards are dealt from the start of deck
+    static double play(int[] deck, double[] payouts, HoldStrategy holdStrategy, DoubleStrategy doubleStrategy) {
+        long dealt = 0L;
+        for(int i = 0; i < HAND_SIZE; i++) {
+            dealt |= 1L << deck[i];
+        }
+        int hold = holdStrategy.hold(dealt);
+        long hand = 0L;
+        int index = 0;
+        int next = HAND_SIZE;
+        for(long rest = dealt; rest != 0; rest &= rest - 1, index++) {
+            hand |= (hold & 1 << index) != 0 ? Long.lowestOneBit(rest) : 1L << deck[next++];
+        }
+        long seen = dealt | hand;
+
+        double money = payouts[PokerHandEvaluator.getType(PokerHandEvaluator.evaluate(hand)).ordinal()];
+        for(int doubles = 0; money > 0.0 && doubles < MAX_DOUBLES; doubles++) {
+            PokerGame.Action action = doubleStrategy.choose(money, doubles, seen);
+            if(action == null) break;
+            int card = deck[next++];
+            seen |= 1L << card;
+            int value = DOUBLE_VALUES[card];
+            boolean won = action == PokerGame.Action.DOUBLE_HIGH ? value > 7 : value < 7;
+            money = won ? money * 2 : 0.0;
+        }
+        return money;
+    }
+
+    /**
+     * Outcome of simulated sessions
+     */
+    public static class Result {
+        private final double[] percentiles;
+        private final double mean;
+        private final double standardDeviation;
+        private final double ruinProbability;
+        private final double houseEdge;
+        private final long handsPlayed;
+
+        Result(double[] finals, int[] played, int hands, double bankroll) {
+            int sessions = finals.length;
+            double sum = 0.0;
+            double squares = 0.0;
+            long handsPlayed = 0;
+            int ruined = 0;
+            for(int session = 0; session < sessions; session++) {
+                sum += finals[session];
+                squares += finals[session] * finals[session];
+                handsPlayed += played[session];
+                if(played[session] < hands) ruined++;
+            }
+            double[] sorted = finals.clone();
+            Arrays.sort(sorted);
+            this.percentiles = new double[PERCENTILES.length];
+            for(int i = 0; i < PERCENTILES.length; i++) {
+                this.percentiles[i] = sorted[Math.min(sessions - 1, (int) (PERCENTILES[i] * sessions))];
+            }
+            this.mean = sum / sessions;
+            this.standardDeviation = Math.sqrt(Math.max(0.0, squares / sessions - this.mean * this.mean));
+            this.ruinProbability = (double) ruined / sessions;
+            //final = bankroll - hands played + returned
+            double returned = sum - sessions * bankroll + handsPlayed;
+            this.houseEdge = handsPlayed == 0 ? 0.0 : 1.0 - returned / handsPlayed;
+            this.handsPlayed = handsPlayed;
+        }
+
+        //final bankroll at 1, 5, 25, 50, 75, 95 and 99 percent
+        public double[] getPercentiles() {
+            return this.percentiles.clone();
+        }
+
+        public double getMean() {
+            return this.mean;
+        }
+
+        public double getStandardDeviation() {
+            return this.standardDeviation;
+        }
+
+        public double getRuinProbability() {
+            return this.ruinProbability;
+        }
+
+        public double getHouseEdge() {
+            return this.houseEdge;
+        }
+
+        public long getHandsPlayed() {
+            return this.handsPlayed;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("house edge %.3f%%, ruin %.3f%%, mean %.2f, sd %.2f, hands %d%n",
+                    this.houseEdge * 100, this.ruinProbability * 100, this.mean, this.standardDeviation, this.handsPlayed));
+            for(int i = 0; i < PERCENTILES.length; i++) {
+                sb.append(String.format("p%d %.2f  ", Math.round(PERCENTILES[i] * 100), this.percentiles[i]));
+            }
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Simulate sessions with optimal holds for one or more multiplier tables, e.g.
+     * sessions=100000 hands=200 bankroll=50 doubles=1 FULL_HOUSE=12,TWO_PAIRS=1 FULL_HOUSE=10
+     * Each table argument changes the current multipliers, without table arguments the current ones are used.
+     */
+    public static void main(String[] args) {
+        int sessions = 100_000;
+        int hands = 200;
+        double bankroll = 50.0;
+        int doubles = 0;
+        long seed = 1L;
+        List<Map<PokerHand.Type, BigDecimal>> tables = new ArrayList<>();
+        for(String arg : args) {
+            String[] parts = arg.split("=");
+            switch (parts[0]) {
+                case "sessions": sessions = Integer.parseInt(parts[1]); break;
+                case "hands": hands = Integer.parseInt(parts[1]); break;
+                case "bankroll": bankroll = Double.parseDouble(parts[1]); break;
+                case "doubles": doubles = Integer.parseInt(parts[1]); break;
+                case "seed": seed = Long.parseLong(parts[1]); break;
+                default:
+                    Map<PokerHand.Type, BigDecimal> multipliers = new EnumMap<>(PokerGame.getMultipliers());
+                    for(String change : arg.split(",")) {
+                        String[] typeAndValue = change.split("=");
+                        multipliers.put(PokerHand.Type.valueOf(typeAndValue[0]), new BigDecimal(typeAndValue[1]));
+                    }
+                    tables.add(multipliers);
+            }
+        }
+        if(tables.isEmpty()) {
+            tables.add(PokerGame.getMultipliers());
+        }
+        DoubleStrategy doubleStrategy = doubles > 0 ? DoubleStrategy.upTo(doubles) : DoubleStrategy.NEVER;
+        for(Map<PokerHand.Type, BigDecimal> multipliers : tables) {
+            long start = System.nanoTime();
+            Result result = simulate(multipliers, HoldStrategy.optimal(multipliers), doubleStrategy, sessions, hands, bankroll, seed);
+            System.out.printf("%s%n%s%n(%d ms)%n", multipliers, result, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
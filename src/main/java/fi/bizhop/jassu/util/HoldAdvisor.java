@@ -0,0 +1,142 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.HoldAdviceOut;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import fi.bizhop.jassu.model.poker.PokerHand;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static fi.bizhop.jassu.model.CardMask.RANKS_PER_SUIT;
+import static fi.bizhop.jassu.model.CardMask.SUIT_RANKS;
+
+/**
+ * Exact expected returns of all 32 ways to hold cards of a five card draw hand, using the PokerGame
+ * multipliers. Returns are derived from the payout totals of RtpCalculator, which are computed once by
+ * warmUp or on first use, so advice doesn't evaluate any draws.
+ *
+ * Results don't depend on the suits as such, so recently used ones are cached by canonical hand: suits
+ * ordered by their rank sets. Holds of the canonical hand are bit sets over its cards in ordinal order.
+ */
+public class HoldAdvisor {
+    private static final int HAND_SIZE = 5;
+    private static final int NUM_OF_HOLDS = 1 << HAND_SIZE;
+    private static final int NUM_OF_SUITS = 4;
+    private static final int MAX_CACHED = 20_000;
+
+    //indexed by hand type ordinal
+    private static final double[] PAYOUTS = new double[PokerHand.Type.values().length];
+    private static final LruCache<Long, double[]> CACHE = new LruCache<>(MAX_CACHED);
+
+    //see RtpCalculator.totals
+    private static double[][] totals;
+
+    static {
+        for(PokerHand.Type type : PokerHand.Type.values()) {
+            PAYOUTS[type.ordinal()] = PokerGame.getMultiplier(type).doubleValue();
+        }
+    }
+
+    /**
+     * Get all holds ranked by expected return
+     *
+     * @param hand five card hand
+     * @return 32 holds, best first
+     * @throws CardException if hand isn't five standard cards
+     */
+    public static List<HoldAdviceOut> advise(Cards hand) throws CardException {
+        long mask = hand.mask();
+        if(hand.size() != HAND_SIZE || (mask & CardMask.JOKERS) != 0 || Long.bitCount(mask) != HAND_SIZE) {
+            throw new CardException("Advice needs five different standard cards");
+        }
+
+        int[] order = suitOrder(mask);
+        long canonical = permute(mask, order);
+        double[] returns = CACHE.get(canonical);
+        if(returns == null) {
+            returns = CACHE.putIfAbsent(canonical, expectedReturns(canonical));
+        }
+
+        List<HoldAdviceOut> advice = new ArrayList<>(NUM_OF_HOLDS);
+        for(int hold = 0; hold < NUM_OF_HOLDS; hold++) {
+            long held = 0;
+            List<Integer> positions = new ArrayList<>();
+            List<String> cards = new ArrayList<>();
+            for(int position = 0; position < HAND_SIZE; position++) {
+                if((hold & 1 << position) != 0) {
+                    Card card = hand.get(position);
+                    held |= CardMask.of(card);
+                    positions.add(position);
+                    cards.add(card.toString());
+                }
+            }
+            advice.add(new HoldAdviceOut(positions, cards, returns[holdIndex(permute(held, order), canonical)]));
+        }
+        advice.sort(Comparator.comparingDouble(HoldAdviceOut::getExpectedReturn).reversed());
+        return advice;
+    }
+
+    /**
+     * Expected returns of all holds of a hand
+     *
+     * @param mask card mask of five standard cards
+     * @return expected returns indexed by hold, bit n set = n:th card of hand in ordinal order held
+     */
+    public static double[] expectedReturns(long mask) {
+        return RtpCalculator.expectedReturns(mask, PAYOUTS, totals());
+    }
+
+    /**
+     * Compute the payout totals ahead of the first advice, takes about a second
+     */
+    public static void warmUp() {
+        totals();
+    }
+
+    private static synchronized double[][] totals() {
+        if(totals == null) {
+            totals = RtpCalculator.totals(PAYOUTS);
+        }
+        return totals;
+    }
+
+    //suits ordered by descending rank set, order[n] = original suit of canonical suit n
+    private static int[] suitOrder(long mask) {
+        int[] order = {0, 1, 2, 3};
+        for(int i = 1; i < NUM_OF_SUITS; i++) {
+            for(int j = i; j > 0 && suitRanks(mask, order[j]) > suitRanks(mask, order[j - 1]); j--) {
+                int swap = order[j];
+                order[j] = order[j - 1];
+                order[j - 1] = swap;
+            }
+        }
+        return order;
+    }
+
+    private static int suitRanks(long mask, int suit) {
+        return (int) (mask >>> (suit * RANKS_PER_SUIT)) & SUIT_RANKS;
+    }
+
+    private static long permute(long mask, int[] order) {
+        long permuted = 0;
+        for(int suit = 0; suit < NUM_OF_SUITS; suit++) {
+            permuted |= (long) suitRanks(mask, order[suit]) << (suit * RANKS_PER_SUIT);
+        }
+        return permuted;
+    }
+
+    //held cards as bit set over cards of hand in ordinal order
+    private static int holdIndex(long held, long hand) {
+        int index = 0;
+        int bit = 0;
+        for(long rest = hand; rest != 0; rest &= rest - 1, bit++) {
+            if((held & Long.lowestOneBit(rest)) != 0) index |= 1 << bit;
+        }
+        return index;
+    }
+}
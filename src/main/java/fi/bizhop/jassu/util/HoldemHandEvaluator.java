@@ -0,0 +1,141 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.PokerHand;
+
+import java.util.Arrays;
+
+import static fi.bizhop.jassu.model.Card.Suit.*;
+import static fi.bizhop.jassu.model.CardMask.RANKS_PER_SUIT;
+import static fi.bizhop.jassu.model.poker.PokerHand.Type.INVALID;
+
+/**
+ * Best five card hand of seven cards (two hole cards and five board cards in Texas hold'em).
+ *
+ * Strengths are the same as in {@link PokerHandEvaluator}, so seven and five card hands compare directly.
+ * Subsets are not enumerated: if a suit has five or more cards the hand is a flush (seven cards can't
+ * have a flush and a full house or four of a kind at the same time) and its strength is looked up by the
+ * rank set of that suit. Otherwise the strength is looked up by the product of rank primes.
+ */
+public class HoldemHandEvaluator {
+    public static final int NUM_OF_CARDS = 7;
+
+    private static final Card.Suit[] STANDARD_SUITS = {CLUBS, DIAMONDS, HEARTS, SPADES};
+    private static final int MIN_FLUSH = 5;
+
+    //indexed by rank index (0 = TWO ... 12 = ACE)
+    private static final long[] PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41};
+    //indexed by card ordinal
+    private static final long[] PRIME_OF_CARD = new long[Card.NUM_OF_STANDARD_CARDS];
+
+    //best flush or straight flush, indexed by 13 bit rank set of five or more ranks
+    private static final int[] FLUSHES = new int[1 << RANKS_PER_SUIT];
+
+    //open addressing hash table of rank prime products of seven cards
+    private static final int PRODUCT_BITS = 17;
+    private static final long[] PRODUCTS = new long[1 << PRODUCT_BITS];
+    private static final int[] RANKS = new int[1 << PRODUCT_BITS];
+
+    static {
+        for(int ordinal = 0; ordinal < Card.NUM_OF_STANDARD_CARDS; ordinal++) {
+            PRIME_OF_CARD[ordinal] = PRIMES[ordinal % RANKS_PER_SUIT];
+        }
+
+        //subsets of a rank set are smaller numbers, so they are ready when the set is reached
+        for(int ranks = 0; ranks < FLUSHES.length; ranks++) {
+            int count = Integer.bitCount(ranks);
+            if(count == MIN_FLUSH) {
+                FLUSHES[ranks] = PokerHandEvaluator.flushStrength(ranks);
+            } else if(count > MIN_FLUSH) {
+                for(int rest = ranks; rest != 0; rest &= rest - 1) {
+                    FLUSHES[ranks] = Math.max(FLUSHES[ranks], FLUSHES[ranks & ~Integer.lowestOneBit(rest)]);
+                }
+            }
+        }
+
+        int[] ranks = new int[NUM_OF_CARDS];
+        fillRanks(ranks, 0, 0);
+    }
+
+    //enumerate rank combinations of seven cards in ascending order, at most four of each rank
+    private static void fillRanks(int[] ranks, int index, int from) {
+        if(index == ranks.length) {
+            long product = 1;
+            for(int rank : ranks) product *= PRIMES[rank];
+            int slot = slot(product);
+            while(PRODUCTS[slot] != 0) {
+                slot = (slot + 1) & (PRODUCTS.length - 1);
+            }
+            PRODUCTS[slot] = product;
+            RANKS[slot] = bestOfRanks(ranks);
+            return;
+        }
+        for(int rank = from; rank < RANKS_PER_SUIT; rank++) {
+            if(index >= 4 && ranks[index - 4] == rank) continue;
+            ranks[index] = rank;
+            fillRanks(ranks, index + 1, rank);
+        }
+    }
+
+    //best non flush strength of five of the ranks
+    private static int bestOfRanks(int[] ranks) {
+        int best = 0;
+        int[] counts = new int[RANKS_PER_SUIT];
+        for(int skip1 = 0; skip1 < ranks.length; skip1++) {
+            for(int skip2 = skip1 + 1; skip2 < ranks.length; skip2++) {
+                Arrays.fill(counts, 0);
+                for(int i = 0; i < ranks.length; i++) {
+                    if(i != skip1 && i != skip2) counts[ranks[i]]++;
+                }
+                best = Math.max(best, PokerHandEvaluator.rankStrength(counts));
+            }
+        }
+        return best;
+    }
+
+    private static int slot(long product) {
+        return (int) ((product * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - PRODUCT_BITS));
+    }
+
+    public static PokerHand evaluate(Cards cards) {
+        long mask = cards.mask();
+        if(cards.size() != NUM_OF_CARDS || (mask & CardMask.JOKERS) != 0 || Long.bitCount(mask) != NUM_OF_CARDS) {
+            return new PokerHand(0, INVALID, 0);
+        }
+
+        int strength = evaluate(mask);
+        return new PokerHand(PokerHandEvaluator.getHigh(strength), PokerHandEvaluator.getType(strength), strength);
+    }
+
+    /**
+     * Evaluate best five card hand of seven cards without allocating
+     *
+     * @param mask card mask (see {@link CardMask}) of exactly seven standard cards
+     * @return hand strength, see {@link PokerHandEvaluator}
+     * @throws IllegalArgumentException if mask has jokers or other than seven cards
+     */
+    public static int evaluate(long mask) {
+        //tables only cover seven standard cards, other masks would not be found in them
+        if(Long.bitCount(mask) != NUM_OF_CARDS || (mask & ~CardMask.STANDARD) != 0) {
+            throw new IllegalArgumentException(String.format("Not seven standard cards: %x", mask));
+        }
+        for(Card.Suit suit : STANDARD_SUITS) {
+            int suitRanks = CardMask.suitRanks(mask, suit);
+            if(Integer.bitCount(suitRanks) >= MIN_FLUSH) {
+                return FLUSHES[suitRanks];
+            }
+        }
+
+        long product = 1;
+        for(long rest = mask; rest != 0; rest &= rest - 1) {
+            product *= PRIME_OF_CARD[Long.numberOfTrailingZeros(rest)];
+        }
+        int slot = slot(product);
+        while(PRODUCTS[slot] != product) {
+            slot = (slot + 1) & (PRODUCTS.length - 1);
+        }
+        return RANKS[slot];
+    }
+}
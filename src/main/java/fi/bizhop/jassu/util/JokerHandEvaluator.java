@@ -0,0 +1,162 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.PokerHand;
+
+import static fi.bizhop.jassu.model.Card.Rank.TWO;
+import static fi.bizhop.jassu.model.CardMask.RANKS_PER_SUIT;
+import static fi.bizhop.jassu.model.CardMask.SUIT_RANKS;
+import static fi.bizhop.jassu.model.poker.PokerHand.Type.FIVE_OF_A_KIND;
+import static fi.bizhop.jassu.model.poker.PokerHand.Type.INVALID;
+
+/**
+ * Five card hands from the 54 card deck, jokers are wild.
+ *
+ * Hands with jokers are looked up from tables built for the standard cards of the hand (three or four),
+ * so evaluation doesn't try substitutes for the jokers. In a flush the jokers take ranks not in the hand,
+ * otherwise they can take any rank, and five of a kind is possible if enabled. Strengths are the same
+ * as in {@link PokerHandEvaluator}, five of a kind beats all other hands.
+ */
+public class JokerHandEvaluator {
+    private static final int HAND_SIZE = 5;
+    private static final int MAX_OF_RANK = 4;
+
+    //indexed by rank index (0 = TWO ... 12 = ACE)
+    private static final int[] PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41};
+    //indexed by card ordinal
+    private static final int[] PRIME_OF_CARD = new int[Card.NUM_OF_STANDARD_CARDS];
+
+    //best flush or straight flush completed with jokers, indexed by 13 bit rank set of three or four ranks
+    private static final int[] FLUSHES = new int[1 << RANKS_PER_SUIT];
+
+    //open addressing hash table of rank prime products of three or four standard cards
+    private static final int PRODUCT_BITS = 12;
+    private static final int[] PRODUCTS = new int[1 << PRODUCT_BITS];
+    private static final int[] RANKS = new int[1 << PRODUCT_BITS];
+    private static final int[] RANKS_WITH_FIVE = new int[1 << PRODUCT_BITS];
+
+    static {
+        for(int ordinal = 0; ordinal < Card.NUM_OF_STANDARD_CARDS; ordinal++) {
+            PRIME_OF_CARD[ordinal] = PRIMES[ordinal % RANKS_PER_SUIT];
+        }
+
+        for(int ranks = 0; ranks <= SUIT_RANKS; ranks++) {
+            int jokers = HAND_SIZE - Integer.bitCount(ranks);
+            if(jokers == 1 || jokers == 2) {
+                FLUSHES[ranks] = bestFlush(ranks, jokers);
+            }
+        }
+
+        int[] counts = new int[RANKS_PER_SUIT];
+        fillRanks(counts, 0, 0, HAND_SIZE - 1);
+        fillRanks(counts, 0, 0, HAND_SIZE - 2);
+    }
+
+    //best flush adding jokers as ranks not in the set
+    private static int bestFlush(int ranks, int jokers) {
+        if(jokers == 0) return PokerHandEvaluator.flushStrength(ranks);
+        int best = 0;
+        for(int rank = 0; rank < RANKS_PER_SUIT; rank++) {
+            if((ranks & 1 << rank) == 0) {
+                best = Math.max(best, bestFlush(ranks | 1 << rank, jokers - 1));
+            }
+        }
+        return best;
+    }
+
+    //enumerate rank counts of size cards in ascending rank order, at most four of each rank
+    private static void fillRanks(int[] counts, int cards, int from, int size) {
+        if(cards == size) {
+            int product = 1;
+            for(int rank = 0; rank < RANKS_PER_SUIT; rank++) {
+                for(int i = 0; i < counts[rank]; i++) product *= PRIMES[rank];
+            }
+            int slot = slot(product);
+            while(PRODUCTS[slot] != 0) {
+                slot = (slot + 1) & (PRODUCTS.length - 1);
+            }
+            PRODUCTS[slot] = product;
+            RANKS[slot] = bestOfRanks(counts, HAND_SIZE - size, false);
+            RANKS_WITH_FIVE[slot] = bestOfRanks(counts, HAND_SIZE - size, true);
+            return;
+        }
+        for(int rank = from; rank < RANKS_PER_SUIT; rank++) {
+            if(counts[rank] == MAX_OF_RANK) continue;
+            counts[rank]++;
+            fillRanks(counts, cards + 1, rank, size);
+            counts[rank]--;
+        }
+    }
+
+    //best non flush hand adding jokers as any rank
+    private static int bestOfRanks(int[] counts, int jokers, boolean fiveOfAKind) {
+        if(jokers == 0) {
+            for(int rank = 0; rank < RANKS_PER_SUIT; rank++) {
+                if(counts[rank] == HAND_SIZE) {
+                    return PokerHandEvaluator.highOnly(FIVE_OF_A_KIND, rank + TWO.getValue());
+                }
+            }
+            return PokerHandEvaluator.rankStrength(counts);
+        }
+        int best = 0;
+        for(int rank = 0; rank < RANKS_PER_SUIT; rank++) {
+            if(counts[rank] == MAX_OF_RANK && !fiveOfAKind) continue;
+            counts[rank]++;
+            best = Math.max(best, bestOfRanks(counts, jokers - 1, fiveOfAKind));
+            counts[rank]--;
+        }
+        return best;
+    }
+
+    private static int slot(int product) {
+        return (product * 0x9E3779B1) >>> (Integer.SIZE - PRODUCT_BITS);
+    }
+
+    public static PokerHand evaluate(Cards cards, boolean fiveOfAKind) {
+        long mask = cards.mask();
+        if(cards.size() != HAND_SIZE || Long.bitCount(mask) != HAND_SIZE) {
+            return new PokerHand(0, INVALID, 0);
+        }
+
+        int strength = evaluate(mask, fiveOfAKind);
+        return new PokerHand(PokerHandEvaluator.getHigh(strength), PokerHandEvaluator.getType(strength), strength);
+    }
+
+    /**
+     * Evaluate five card hand with wild jokers without allocating
+     *
+     * @param mask card mask (see {@link CardMask}) of exactly five cards, jokers included
+     * @param fiveOfAKind true if jokers can make five of a kind
+     * @return hand strength, see {@link PokerHandEvaluator}
+     * @throws IllegalArgumentException if mask has other than five cards
+     */
+    public static int evaluate(long mask, boolean fiveOfAKind) {
+        //tables only cover five cards, other masks would not be found in them
+        if(Long.bitCount(mask) != HAND_SIZE || (mask & ~CardMask.ALL) != 0) {
+            throw new IllegalArgumentException(String.format("Not five cards: %x", mask));
+        }
+        long standard = mask & ~CardMask.JOKERS;
+        if(standard == mask) {
+            return PokerHandEvaluator.evaluate(mask);
+        }
+
+        int product = 1;
+        for(long rest = standard; rest != 0; rest &= rest - 1) {
+            product *= PRIME_OF_CARD[Long.numberOfTrailingZeros(rest)];
+        }
+        int slot = slot(product);
+        while(PRODUCTS[slot] != product) {
+            slot = (slot + 1) & (PRODUCTS.length - 1);
+        }
+        int best = fiveOfAKind ? RANKS_WITH_FIVE[slot] : RANKS[slot];
+
+        int ranks = CardMask.ranks(standard);
+        int suit = Long.numberOfTrailingZeros(standard) / RANKS_PER_SUIT;
+        if(((int) (standard >>> (suit * RANKS_PER_SUIT)) & SUIT_RANKS) == ranks && Integer.bitCount(ranks) == Long.bitCount(standard)) {
+            best = Math.max(best, FLUSHES[ranks]);
+        }
+        return best;
+    }
+}
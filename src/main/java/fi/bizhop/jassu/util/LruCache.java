@@ -0,0 +1,40 @@
+package fi.bizhop.jassu.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread safe cache of at most maxSize entries, the least recently used entry is dropped first.
+ * Values are computed by the caller outside the cache, so a slow computation doesn't block other keys.
+ */
+public class LruCache<K, V> {
+    private final Map<K, V> entries;
+
+    public LruCache(int maxSize) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return this.size() > maxSize;
+            }
+        };
+    }
+
+    //null if not cached
+    public synchronized V get(K key) {
+        return this.entries.get(key);
+    }
+
+    /**
+     * Cache a value unless another one was cached for the key meanwhile
+     *
+     * @return cached value
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        V previous = this.entries.putIfAbsent(key, value);
+        return previous == null ? value : previous;
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+}
@@ -1,64 +1,258 @@
 package fi.bizhop.jassu.util;
 
 import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
 import fi.bizhop.jassu.model.Cards;
 import fi.bizhop.jassu.model.poker.PokerHand;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 
+import static fi.bizhop.jassu.model.Card.Rank.ACE;
+import static fi.bizhop.jassu.model.Card.Rank.TWO;
 import static fi.bizhop.jassu.model.Card.Suit.*;
+import static fi.bizhop.jassu.model.CardMask.RANKS_PER_SUIT;
+import static fi.bizhop.jassu.model.CardMask.SUIT_RANKS;
 import static fi.bizhop.jassu.model.poker.PokerHand.Type.*;
 
+/**
+ * Poker hand evaluation.
+ *
+ * Five card hands are evaluated with lookup tables (see {@link #evaluate(long)}): hands with five different
+ * ranks are looked up by their 13 bit rank set, others by the product of rank primes, which is unique for
+ * each combination of ranks.
+ *
+ * Hand strength is an int that orders hands totally: type ordinal &lt;&lt; 20, then five 4 bit rank values
+ * from most to least significant (e.g. two pairs: higher pair, lower pair, kicker). The first rank value
+ * is the high card of PokerHand. Straights only have the high card.
+ */
 public class PokerHandEvaluator {
-    public static PokerHand evaluate(Cards originalCards) {
-        Cards cards = originalCards.copy();
+    private static final Card.Suit[] STANDARD_SUITS = {CLUBS, DIAMONDS, HEARTS, SPADES};
+    private static final PokerHand.Type[] TYPES = PokerHand.Type.values();
+    private static final int RANK_BITS = 4;
+    private static final int TYPE_SHIFT = 5 * RANK_BITS;
+    private static final int HIGH_SHIFT = TYPE_SHIFT - RANK_BITS;
+    private static final int RANK_MASK = (1 << RANK_BITS) - 1;
+
+    //indexed by rank index (0 = TWO ... 12 = ACE)
+    private static final int[] PRIMES = {2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41};
+    //indexed by card ordinal
+    private static final int[] PRIME_OF_CARD = new int[Card.NUM_OF_STANDARD_CARDS];
+
+    //indexed by 13 bit rank set of five different ranks
+    private static final int[] FLUSHES = new int[1 << RANKS_PER_SUIT];
+    private static final int[] UNIQUE_RANKS = new int[1 << RANKS_PER_SUIT];
+
+    //open addressing hash table of rank prime products of hands with repeated ranks
+    private static final int PRODUCT_BITS = 14;
+    private static final int[] PRODUCTS = new int[1 << PRODUCT_BITS];
+    private static final int[] REPEATED_RANKS = new int[1 << PRODUCT_BITS];
+
+    static {
+        for(int ordinal = 0; ordinal < Card.NUM_OF_STANDARD_CARDS; ordinal++) {
+            PRIME_OF_CARD[ordinal] = PRIMES[ordinal % RANKS_PER_SUIT];
+        }
+        int[] counts = new int[RANKS_PER_SUIT];
+        for(int a = 0; a < RANKS_PER_SUIT; a++)
+        for(int b = a; b < RANKS_PER_SUIT; b++)
+        for(int c = b; c < RANKS_PER_SUIT; c++)
+        for(int d = c; d < RANKS_PER_SUIT; d++)
+        for(int e = d; e < RANKS_PER_SUIT; e++) {
+            if(a == e) continue; //five of a kind
+            Arrays.fill(counts, 0);
+            for(int rank : new int[] {a, b, c, d, e}) counts[rank]++;
+            int ranks = 1 << a | 1 << b | 1 << c | 1 << d | 1 << e;
+            if(Integer.bitCount(ranks) == 5) {
+                int straight = CardMask.straightHigh(ranks);
+                FLUSHES[ranks] = straight > 0 ? highOnly(STRAIGHT_FLUSH, straight) : strength(FLUSH, counts);
+                UNIQUE_RANKS[ranks] = straight > 0 ? highOnly(STRAIGHT, straight) : strength(HIGH, counts);
+            } else {
+                int product = PRIMES[a] * PRIMES[b] * PRIMES[c] * PRIMES[d] * PRIMES[e];
+                int slot = slot(product);
+                while(PRODUCTS[slot] != 0) {
+                    slot = (slot + 1) & (PRODUCTS.length - 1);
+                }
+                PRODUCTS[slot] = product;
+                REPEATED_RANKS[slot] = strength(type(counts), counts);
+            }
+        }
+    }
+
+    private static int slot(int product) {
+        return (product * 0x9E3779B1) >>> (Integer.SIZE - PRODUCT_BITS);
+    }
+
+    //strength with high card only
+    static int highOnly(PokerHand.Type type, int high) {
+        return type.ordinal() << TYPE_SHIFT | high << HIGH_SHIFT;
+    }
+
+    //type of a hand with repeated ranks from rank counts
+    private static PokerHand.Type type(int[] counts) {
+        int pairs = 0;
+        boolean three = false;
+        for(int count : counts) {
+            if(count == 4) return FOUR_OF_A_KIND;
+            if(count == 3) three = true;
+            if(count == 2) pairs++;
+        }
+        if(three) return pairs > 0 ? FULL_HOUSE : THREE_OF_A_KIND;
+        return pairs > 1 ? TWO_PAIRS : PAIR;
+    }
+
+    //rank values ordered by count, then by rank, both descending
+    private static int strength(PokerHand.Type type, int[] counts) {
+        int strength = type.ordinal() << TYPE_SHIFT;
+        int shift = HIGH_SHIFT;
+        for(int count = 4; count > 0; count--) {
+            for(int rank = RANKS_PER_SUIT - 1; rank >= 0; rank--) {
+                if(counts[rank] == count) {
+                    strength |= (rank + TWO.getValue()) << shift;
+                    shift -= RANK_BITS;
+                }
+            }
+        }
+        return strength;
+    }
+
+    //strength of five cards that are not a flush from rank counts, indexed by rank index
+    static int rankStrength(int[] counts) {
+        int ranks = 0;
+        for(int rank = 0; rank < RANKS_PER_SUIT; rank++) {
+            if(counts[rank] > 0) ranks |= 1 << rank;
+        }
+        return Integer.bitCount(ranks) == 5 ? UNIQUE_RANKS[ranks] : strength(type(counts), counts);
+    }
+
+    //strength of five suited cards from their 13 bit rank set
+    static int flushStrength(int ranks) {
+        return FLUSHES[ranks];
+    }
+
+    public static PokerHand evaluate(Cards cards) {
         if(cards.size() != 5) {
-            return new PokerHand(0, INVALID);
+            return hand(0, INVALID);
         }
 
+        long mask = cards.mask();
+        if((mask & CardMask.JOKERS) != 0 || Long.bitCount(mask) != 5) {
+            //jokers or duplicate cards, tables only cover five different standard cards
+            return evaluateByChecks(cards);
+        }
+
+        int strength = evaluate(mask);
+        return new PokerHand(getHigh(strength), getType(strength), strength);
+    }
+
+    /**
+     * Evaluate five card hand without allocating
+     *
+     * @param mask card mask (see {@link CardMask}) of exactly five standard cards
+     * @return hand strength, higher is better
+     * @throws IllegalArgumentException if mask has jokers or other than five cards
+     */
+    public static int evaluate(long mask) {
+        //tables only cover five standard cards, other masks would not be found in them
+        if(Long.bitCount(mask) != 5 || (mask & ~CardMask.STANDARD) != 0) {
+            throw new IllegalArgumentException(String.format("Not five standard cards: %x", mask));
+        }
+        int ranks = CardMask.ranks(mask);
+        if(Integer.bitCount(ranks) == 5) {
+            int suit = Long.numberOfTrailingZeros(mask) / RANKS_PER_SUIT;
+            int suitRanks = (int) (mask >>> (suit * RANKS_PER_SUIT)) & SUIT_RANKS;
+            return suitRanks == ranks ? FLUSHES[ranks] : UNIQUE_RANKS[ranks];
+        }
+
+        int product = 1;
+        for(long rest = mask; rest != 0; rest &= rest - 1) {
+            product *= PRIME_OF_CARD[Long.numberOfTrailingZeros(rest)];
+        }
+        int slot = slot(product);
+        while(PRODUCTS[slot] != product) {
+            slot = (slot + 1) & (PRODUCTS.length - 1);
+        }
+        return REPEATED_RANKS[slot];
+    }
+
+    /**
+     * Evaluate a batch of five card hands
+     *
+     * @param masks card masks of exactly five standard cards
+     * @param strengths target for hand strengths, strengths[i] is strength of masks[i]
+     * @throws IllegalArgumentException if a mask has jokers or other than five cards
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     */
+    public static void evaluate(long[] masks, int[] strengths, int from, int to) {
+        for(int i = from; i < to; i++) {
+            strengths[i] = evaluate(masks[i]);
+        }
+    }
+
+    public static void evaluate(long[] masks, int[] strengths) {
+        evaluate(masks, strengths, 0, masks.length);
+    }
+
+    //same as evaluate(long[], int[]) split to common fork join pool
+    public static void evaluateParallel(long[] masks, int[] strengths) {
+        Arrays.parallelSetAll(strengths, i -> evaluate(masks[i]));
+    }
+
+    public static PokerHand.Type getType(int strength) {
+        return TYPES[strength >>> TYPE_SHIFT];
+    }
+
+    public static int getHigh(int strength) {
+        return strength >>> HIGH_SHIFT & RANK_MASK;
+    }
+
+    //hand with type and high card only, kickers are not known
+    private static PokerHand hand(int high, PokerHand.Type type) {
+        return new PokerHand(high, type, highOnly(type, high));
+    }
+
+    //reference evaluation with the check methods, also handles jokers and duplicate cards
+    static PokerHand evaluateByChecks(Cards cards) {
         int straightFlush = checkStraightFlush(cards);
         if(straightFlush > 0) {
-            return new PokerHand(straightFlush, STRAIGHT_FLUSH);
+            return hand(straightFlush, STRAIGHT_FLUSH);
         }
 
         int four = checkFourOfAKind(cards);
         if(four > 0) {
-            return new PokerHand(four, FOUR_OF_A_KIND);
+            return hand(four, FOUR_OF_A_KIND);
         }
 
         int fullHouse = checkFullHouse(cards);
         if(fullHouse > 0) {
-            return new PokerHand(fullHouse, FULL_HOUSE);
+            return hand(fullHouse, FULL_HOUSE);
         }
 
         int flush = checkFlush(cards);
         if(flush > 0) {
-            return new PokerHand(flush, FLUSH);
+            return hand(flush, FLUSH);
         }
 
         int straight = checkStraight(cards);
         if(straight > 0) {
-            return new PokerHand(straight, STRAIGHT);
+            return hand(straight, STRAIGHT);
         }
 
         int three = checkThreeOfAKind(cards);
         if(three > 0) {
-            return new PokerHand(three, THREE_OF_A_KIND);
+            return hand(three, THREE_OF_A_KIND);
         }
 
         int twoPairs = checkTwoPair(cards);
         if(twoPairs > 0) {
-            return new PokerHand(twoPairs, TWO_PAIRS);
+            return hand(twoPairs, TWO_PAIRS);
         }
 
         int pair = checkPair(cards);
         if(pair > 0) {
-            return new PokerHand(pair, PAIR);
+            return hand(pair, PAIR);
         }
 
-        return new PokerHand(cards.highValue(), HIGH);
+        return hand(CardMask.highestRankValue(CardMask.ranks(cards.mask())), HIGH);
     }
 
     //return highest card of straight flush value or 0 if not present
@@ -68,18 +262,12 @@ public class PokerHandEvaluator {
             return 0;
         }
 
-        cards.sort();
-        List<Integer> highs = new ArrayList<>();
-        Cards spades = cards.filterBySuit(SPADES);
-        Cards clubs = cards.filterBySuit(CLUBS);
-        Cards diamonds = cards.filterBySuit(DIAMONDS);
-        Cards hearts = cards.filterBySuit(HEARTS);
-        highs.add(checkStraight(spades));
-        highs.add(checkStraight(clubs));
-        highs.add(checkStraight(diamonds));
-        highs.add(checkStraight(hearts));
-        highs.sort(Collections.reverseOrder());
-        return highs.get(0);
+        long mask = cards.mask();
+        int highest = 0;
+        for(Card.Suit suit : STANDARD_SUITS) {
+            highest = Math.max(highest, CardMask.straightHigh(CardMask.suitRanks(mask, suit)));
+        }
+        return highest;
     }
 
     //return four of a kind value or 0 if not present
@@ -89,16 +277,7 @@ public class PokerHandEvaluator {
             return 0;
         }
 
-        cards.sort();
-        List<Card> cardList = cards.getCards();
-        for(int i = 0; i < cards.size() - MIN_HAND + 1; i++) {
-            int rank = cardList.get(i).getRank().getValue();
-            Cards rest = new Cards(cardList.subList(i+1, cards.size()));
-            if(checkThreeOfAKind(rest) == rank) {
-                return rank;
-            }
-        }
-        return 0;
+        return highestRankWithCount(cards.mask(), 4, 0);
     }
 
     //return three of a kind value or 0 if not present
@@ -108,16 +287,7 @@ public class PokerHandEvaluator {
             return 0;
         }
 
-        cards.sort();
-        List<Card> cardList = cards.getCards();
-        for(int i = 0; i < cards.size() - MIN_HAND + 1; i++) {
-            int rank = cardList.get(i).getRank().getValue();
-            Cards rest = new Cards(cardList.subList(i+1, cards.size()));
-            if(checkPair(rest) == rank) {
-                return rank;
-            }
-        }
-        return 0;
+        return highestRankWithCount(cards.mask(), 3, 0);
     }
 
     //return pair value or 0 if not present
@@ -127,16 +297,7 @@ public class PokerHandEvaluator {
             return 0;
         }
 
-        cards.sort(); //sort first to get highest pair
-        List<Card> cardList = cards.getCards();
-        for(int i = 0; i < cards.size() - MIN_HAND + 1; i++) {
-            int rank = cardList.get(i).getRank().getValue();
-            Cards rest = new Cards(cardList.subList(i+1, cards.size()));
-            if(rest.containsRank(rank)) {
-                return rank;
-            }
-        }
-        return 0;
+        return highestRankWithCount(cards.mask(), 2, 0);
     }
 
     //return full house value (of three) or 0 if not present
@@ -145,14 +306,11 @@ public class PokerHandEvaluator {
         if(cards.size() < MIN_HAND) {
             return 0;
         }
-        cards.sort();
 
-        int three = checkThreeOfAKind(cards);
-        if(three > 0) {
-            Cards other = cards.copy().removeFirstThree();
-            if(checkPair(other) > 0) {
-                return three;
-            }
+        long mask = cards.mask();
+        int three = highestRankWithCount(mask, 3, 0);
+        if(three > 0 && highestRankWithCount(mask, 2, three) > 0) {
+            return three;
         }
         return 0;
     }
@@ -164,45 +322,25 @@ public class PokerHandEvaluator {
             return 0;
         }
 
-        cards.sort();
-        List<Card> cardList = cards.getCards();
-        for(int i=0; i < cards.size() - MIN_HAND + 1; i++) {
-            Card.Suit suit = cardList.get(i).getSuit();
-            Cards rest = new Cards(cardList.subList(i+1, cards.size()));
-            if(rest.numOfSuit(suit) > 3) {
-                return cardList.get(i).getRank().getValue();
+        long mask = cards.mask();
+        int highest = 0;
+        for(Card.Suit suit : STANDARD_SUITS) {
+            int ranks = CardMask.suitRanks(mask, suit);
+            if(Integer.bitCount(ranks) >= MIN_HAND) {
+                highest = Math.max(highest, CardMask.highestRankValue(ranks));
             }
         }
-        return 0;
+        return highest;
     }
 
     //return highest straight card value or 0 if not present
-    @SuppressWarnings("UnusedAssignment")
     public static int checkStraight(Cards cards) {
         final int MIN_HAND = 5;
         if(cards.size() < MIN_HAND) {
             return 0;
         }
 
-        cards.sort();
-        List<Card> cardList = cards.getCards();
-        int possibleHighest = 0;
-        for(int i=0; i < cards.size() - MIN_HAND + 1; i++) {
-            int rank = cardList.get(i).getRank().getValue();
-            Cards rest = new Cards(cardList.subList(i+1, cards.size()));
-            if(rank == 14) {
-                if(rest.containsRank(5) && rest.containsRank(4) && rest.containsRank(3) && rest.containsRank(2)) {
-                    possibleHighest = 5;
-                }
-            }
-            if(rank > 5) {
-                if(rest.containsRank(rank - 1) && rest.containsRank(rank -2) && rest.containsRank(rank - 3) && rest.containsRank(rank - 4)) {
-                    return rank;
-                }
-            }
-            return possibleHighest;
-        }
-        return 0;
+        return CardMask.straightHigh(CardMask.ranks(cards.mask()));
     }
 
     //return higher pair value or 0 if not present
@@ -212,14 +350,28 @@ public class PokerHandEvaluator {
             return 0;
         }
 
-        cards.sort();
-        int pair = checkPair(cards);
+        long mask = cards.mask();
+        int pair = highestRankWithCount(mask, 2, 0);
         if(pair > 0) {
-            Cards other = cards.copy().removeFirstPair();
-            if(checkPair(other) > 0) {
+            //four of a kind counts as two pairs
+            if(rankCount(mask, pair) >= 4 || highestRankWithCount(mask, 2, pair) > 0) {
                 return pair;
             }
         }
         return 0;
     }
+
+    //return highest rank value having at least count cards, ignoring excludedRank, or 0 if not present
+    private static int highestRankWithCount(long mask, int count, int excludedRank) {
+        for(int rank = ACE.getValue(); rank >= TWO.getValue(); rank--) {
+            if(rank != excludedRank && rankCount(mask, rank) >= count) {
+                return rank;
+            }
+        }
+        return 0;
+    }
+
+    private static int rankCount(long mask, int rank) {
+        return Long.bitCount(mask & CardMask.rank(rank));
+    }
 }
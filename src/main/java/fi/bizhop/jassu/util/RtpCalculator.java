@@ -0,0 +1,247 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import fi.bizhop.jassu.model.poker.PokerHand;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static fi.bizhop.jassu.model.CardMask.RANKS_PER_SUIT;
+import static fi.bizhop.jassu.model.CardMask.SUIT_RANKS;
+
+/**
+ * Exact return to player of five card draw with optimal holds, for a given multiplier table. As in
+ * PokerGame, a hand is paid its multiplier once after the draw; doubling is not included.
+ *
+ * For every card set T of up to four cards, the payouts of all five card hands containing T are summed
+ * first. For a starting hand, the payouts of draws holding S are then the hands that share exactly S
+ * with the starting hand, which inclusion-exclusion over the 32 subsets of the starting hand gives
+ * without enumerating any draws. Starting hands are reduced to suit isomorphic classes (134,459) that
+ * are evaluated in parallel. Results of recently used multiplier tables are cached.
+ */
+public class RtpCalculator {
+    private static final int HAND_SIZE = 5;
+    private static final int NUM_OF_HOLDS = 1 << HAND_SIZE;
+    private static final int NUM_OF_SUITS = 4;
+    private static final int N = Card.NUM_OF_STANDARD_CARDS;
+    private static final int CLASSES_PER_TASK = 1024;
+    private static final int MAX_CACHED = 16;
+
+    //BINOMIAL[n][k] = n choose k
+    private static final long[][] BINOMIAL = new long[N + 1][HAND_SIZE + 1];
+    private static final LruCache<List<Double>, Double> CACHE = new LruCache<>(MAX_CACHED);
+
+    //canonical starting hands and number of hands in each class, see canonical()
+    private static long[] classes;
+    private static int[] weights;
+
+    static {
+        for(int n = 0; n <= N; n++) {
+            BINOMIAL[n][0] = 1;
+            for(int k = 1; k <= HAND_SIZE && k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+            }
+        }
+    }
+
+    public static double rtp() {
+        return rtp(PokerGame.getMultipliers());
+    }
+
+    /**
+     * Calculate return to player
+     *
+     * @param multipliers multiplier of wager for each hand type, missing types pay nothing
+     * @return expected multiplier of wager with optimal holds
+     */
+    public static double rtp(Map<PokerHand.Type, BigDecimal> multipliers) {
+        double[] payouts = payouts(multipliers);
+        List<Double> key = new ArrayList<>(payouts.length);
+        for(double payout : payouts) {
+            key.add(payout);
+        }
+        Double cached = CACHE.get(key);
+        return cached != null ? cached : CACHE.putIfAbsent(key, calculate(payouts));
+    }
+
+    private static double calculate(double[] payouts) {
+        initClasses();
+        double[][] totals = totals(payouts);
+        double sum = ForkJoinPool.commonPool().invoke(new Classes(payouts, totals, 0, classes.length));
+        return sum / BINOMIAL[N][HAND_SIZE];
+    }
+
+    //expected returns of holds of a starting hand, indexed by hold as in HoldAdvisor.expectedReturns
+    static double[] expectedReturns(long hand, double[] payouts, double[][] totals) {
+        int[] cards = new int[HAND_SIZE];
+        int count = 0;
+        for(long rest = hand; rest != 0; rest &= rest - 1) {
+            cards[count++] = Long.numberOfTrailingZeros(rest);
+        }
+
+        double[] sums = new double[NUM_OF_HOLDS];
+        for(int subset = 0; subset < NUM_OF_HOLDS - 1; subset++) {
+            int size = 0;
+            int rank = 0;
+            for(int i = 0; i < HAND_SIZE; i++) {
+                if((subset & 1 << i) != 0) {
+                    rank += BINOMIAL[cards[i]][++size];
+                }
+            }
+            sums[subset] = totals[size][rank];
+        }
+        sums[NUM_OF_HOLDS - 1] = payout(hand, payouts);
+
+        //payouts of hands containing the subset -> payouts of hands sharing exactly the subset
+        for(int bit = 1; bit < NUM_OF_HOLDS; bit <<= 1) {
+            for(int subset = 0; subset < NUM_OF_HOLDS; subset++) {
+                if((subset & bit) == 0) {
+                    sums[subset] -= sums[subset | bit];
+                }
+            }
+        }
+        for(int subset = 0; subset < NUM_OF_HOLDS; subset++) {
+            sums[subset] /= BINOMIAL[N - HAND_SIZE][HAND_SIZE - Integer.bitCount(subset)];
+        }
+        return sums;
+    }
+
+    //multipliers as doubles indexed by type ordinal
+    static double[] payouts(Map<PokerHand.Type, BigDecimal> multipliers) {
+        double[] payouts = new double[PokerHand.Type.values().length];
+        multipliers.forEach((type, multiplier) -> payouts[type.ordinal()] = multiplier.doubleValue());
+        return payouts;
+    }
+
+    //totals[k][colex rank of k cards] = sum of payouts of all five card hands containing the cards
+    static double[][] totals(double[] payouts) {
+        double[][] totals = new double[HAND_SIZE][];
+        for(int k = 0; k < HAND_SIZE; k++) {
+            totals[k] = new double[(int) BINOMIAL[N][k]];
+        }
+        int[] cards = new int[HAND_SIZE];
+        for(cards[0] = 0; cards[0] < N; cards[0]++)
+        for(cards[1] = cards[0] + 1; cards[1] < N; cards[1]++)
+        for(cards[2] = cards[1] + 1; cards[2] < N; cards[2]++)
+        for(cards[3] = cards[2] + 1; cards[3] < N; cards[3]++)
+        for(cards[4] = cards[3] + 1; cards[4] < N; cards[4]++) {
+            long hand = 1L << cards[0] | 1L << cards[1] | 1L << cards[2] | 1L << cards[3] | 1L << cards[4];
+            double payout = payout(hand, payouts);
+            if(payout == 0.0) continue;
+            for(int subset = 0; subset < NUM_OF_HOLDS - 1; subset++) {
+                int size = 0;
+                int rank = 0;
+                for(int i = 0; i < HAND_SIZE; i++) {
+                    if((subset & 1 << i) != 0) {
+                        rank += BINOMIAL[cards[i]][++size];
+                    }
+                }
+                totals[size][rank] += payout;
+            }
+        }
+        return totals;
+    }
+
+    //multiplier paid for a five card hand
+    static double payout(long hand, double[] payouts) {
+        return payouts[PokerHandEvaluator.getType(PokerHandEvaluator.evaluate(hand)).ordinal()];
+    }
+
+    private static synchronized void initClasses() {
+        if(classes != null) return;
+
+        Map<Long, Integer> counts = new HashMap<>();
+        for(int a = 0; a < N; a++)
+        for(int b = a + 1; b < N; b++)
+        for(int c = b + 1; c < N; c++)
+        for(int d = c + 1; d < N; d++)
+        for(int e = d + 1; e < N; e++) {
+            counts.merge(canonical(1L << a | 1L << b | 1L << c | 1L << d | 1L << e), 1, Integer::sum);
+        }
+        long[] canonicalHands = new long[counts.size()];
+        int[] classWeights = new int[counts.size()];
+        int index = 0;
+        for(Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            canonicalHands[index] = entry.getKey();
+            classWeights[index++] = entry.getValue();
+        }
+        weights = classWeights;
+        classes = canonicalHands;
+    }
+
+    //same hand with suits ordered by descending rank set
+    static long canonical(long hand) {
+        int[] suits = new int[NUM_OF_SUITS];
+        for(int suit = 0; suit < NUM_OF_SUITS; suit++) {
+            suits[suit] = (int) (hand >>> (suit * RANKS_PER_SUIT)) & SUIT_RANKS;
+        }
+        Arrays.sort(suits);
+        long canonical = 0;
+        for(int suit = 0; suit < NUM_OF_SUITS; suit++) {
+            canonical |= (long) suits[NUM_OF_SUITS - 1 - suit] << (suit * RANKS_PER_SUIT);
+        }
+        return canonical;
+    }
+
+    static int numOfClasses() {
+        initClasses();
+        return classes.length;
+    }
+
+    //sum of best expected return times class weight over classes[from..to)
+    private static class Classes extends RecursiveTask<Double> {
+        private final double[] payouts;
+        private final double[][] totals;
+        private final int from;
+        private final int to;
+
+        Classes(double[] payouts, double[][] totals, int from, int to) {
+            this.payouts = payouts;
+            this.totals = totals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if(this.to - this.from <= CLASSES_PER_TASK) {
+                double sum = 0;
+                for(int i = this.from; i < this.to; i++) {
+                    double best = 0;
+                    for(double expected : expectedReturns(classes[i], this.payouts, this.totals)) {
+                        best = Math.max(best, expected);
+                    }
+                    sum += best * weights[i];
+                }
+                return sum;
+            }
+            int middle = (this.from + this.to) >>> 1;
+            Classes left = new Classes(this.payouts, this.totals, this.from, middle);
+            left.fork();
+            double right = new Classes(this.payouts, this.totals, middle, this.to).compute();
+            return left.join() + right;
+        }
+    }
+
+    /**
+     * Print return to player, optionally with changed multipliers, e.g. FULL_HOUSE=12 TWO_PAIRS=1
+     */
+    public static void main(String[] args) {
+        Map<PokerHand.Type, BigDecimal> multipliers = new EnumMap<>(PokerGame.getMultipliers());
+        for(String arg : args) {
+            String[] parts = arg.split("=");
+            multipliers.put(PokerHand.Type.valueOf(parts[0]), new BigDecimal(parts[1]));
+        }
+        long start = System.nanoTime();
+        double rtp = rtp(multipliers);
+        System.out.printf("%s%nRTP: %.6f%% (%d ms)%n", multipliers, rtp * 100, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -12,10 +12,9 @@ public class Transaction {
     private static final long TX_TIMEOUT = 5 * 1000; //transaction timeout (5s)
 
     private User lockUser = null;
-    private String rollbackState = null;
     private long startTime = 0;
 
-    public synchronized void begin(User user, String rollbackState) throws TransactionException {
+    public synchronized void begin(User user) throws TransactionException {
         if(this.lockUser != null) {
             if(this.startTime == 0) throw new TransactionException(INTERNAL, "No startTime set on transaction");
             if(System.currentTimeMillis() > this.startTime + TX_TIMEOUT) {
@@ -27,7 +26,6 @@ public class Transaction {
             }
         }
         this.lockUser = user;
-        this.rollbackState = rollbackState;
         this.startTime = System.currentTimeMillis();
     }
 
@@ -38,15 +36,16 @@ public class Transaction {
         if(!this.lockUser.equals(user)) throw new TransactionException(LOCK, "You don't have lock");
     }
 
-    public synchronized <T> T rollback(Class<T> type) throws TransactionException {
-        if(this.rollbackState == null) throw new TransactionException(INTERNAL, "Unable to rollback, rollbackState is null");
-        LOG.info(String.format("Perform rollback. User with lock was %s", this.lockUser.getEmail()));
+    //release the lock without ending, state to roll back to is kept by the caller
+    public synchronized void release() {
+        if(this.lockUser != null) LOG.info(String.format("Release lock of %s", this.lockUser.getEmail()));
         this.lockUser = null;
-        T response = JsonUtil.getJavaObject(this.rollbackState, type)
-                .orElseThrow(() -> new TransactionException(INTERNAL, String.format("Unable to convert rollbackState to %s", type.getSimpleName())));
-        this.rollbackState = null;
         this.startTime = 0;
-        return response;
+    }
+
+    //release the lock if user still has it, a timed out lock may have been taken over
+    public synchronized void release(User user) {
+        if(this.lockUser != null && this.lockUser.equals(user)) this.release();
     }
 
     public synchronized void end() throws TransactionException {
@@ -54,7 +53,6 @@ public class Transaction {
         if(this.lockUser == null) throw new TransactionException(LOCK, "No lock when ending");
         if(System.currentTimeMillis() > this.startTime + TX_TIMEOUT) throw new TransactionException(TIMEOUT, String.format("Transaction has timed out for user: %s", this.lockUser.getEmail()));
         this.lockUser = null;
-        this.rollbackState = null;
         this.startTime = 0;
     }
 }
@@ -24,18 +24,30 @@ public class TransactionHandler {
         LOG.info(String.format("Transaction handler registered for game id=%d", id));
     }
 
-    public synchronized void begin(Long id, User user, String rollbackState) throws TransactionException {
+    public synchronized void begin(Long id, User user) throws TransactionException {
         if(!this.TXS.containsKey(id)) throw new TransactionException(INTERNAL, "Game must be registered to TransactionHandler");
 
         Transaction tx = this.TXS.get(id);
-        tx.begin(user, rollbackState);
+        tx.begin(user);
         tx.check(user);
     }
 
-    public synchronized <T> T rollback(Long id, Class<T> type) throws TransactionException {
+    public synchronized void check(Long id, User user) throws TransactionException {
         if(!this.TXS.containsKey(id)) throw new TransactionException(INTERNAL, "Game must be registered to TransactionHandler");
 
-        return this.TXS.get(id).rollback(type);
+        this.TXS.get(id).check(user);
+    }
+
+    public synchronized void release(Long id) throws TransactionException {
+        if(!this.TXS.containsKey(id)) throw new TransactionException(INTERNAL, "Game must be registered to TransactionHandler");
+
+        this.TXS.get(id).release();
+    }
+
+    public synchronized void release(Long id, User user) throws TransactionException {
+        if(!this.TXS.containsKey(id)) throw new TransactionException(INTERNAL, "Game must be registered to TransactionHandler");
+
+        this.TXS.get(id).release(user);
     }
 
     public synchronized void end(Long id) throws TransactionException {
@@ -3,6 +3,8 @@ package fi.bizhop.jassu.controller;
 import fi.bizhop.jassu.TestBase;
 import fi.bizhop.jassu.model.kirves.out.GameBrief;
 import fi.bizhop.jassu.service.AuthService;
+import fi.bizhop.jassu.service.KirvesBotService;
+import fi.bizhop.jassu.service.KirvesEstimateService;
 import fi.bizhop.jassu.service.KirvesService;
 import fi.bizhop.jassu.service.MessageService;
 import fi.bizhop.jassu.service.UserService;
@@ -40,6 +42,10 @@ public class KirvesControllerTest extends TestBase {
     KirvesService kirvesService;
     @MockBean
     MessageService messageService;
+    @MockBean
+    KirvesBotService kirvesBotService;
+    @MockBean
+    KirvesEstimateService kirvesEstimateService;
 
     @Autowired
     private MockMvc mockMvc;
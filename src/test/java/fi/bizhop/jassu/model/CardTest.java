@@ -0,0 +1,173 @@
+package fi.bizhop.jassu.model;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.kirves.Deck;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static fi.bizhop.jassu.model.Card.Rank.*;
+import static fi.bizhop.jassu.model.Card.Suit.*;
+import static org.junit.Assert.*;
+
+public class CardTest {
+    @Test
+    public void testOrdinals() {
+        Set<Integer> ordinals = new HashSet<>();
+        for(int i = 0; i < Card.NUM_OF_CARDS; i++) {
+            Card card = Card.of(i);
+            assertEquals(i, card.ordinal());
+            ordinals.add(card.ordinal());
+        }
+        assertEquals(54, ordinals.size());
+    }
+
+    @Test
+    public void testCanonicalInstances() throws CardException {
+        assertSame(Card.of(SPADES, ACE), Card.of(SPADES, ACE));
+        assertSame(Card.of(SPADES, ACE), Card.fromAbbreviation("AS"));
+        assertSame(Card.of(JOKER, BLACK), Card.fromAbbreviation("BJ"));
+        assertSame(Card.of(JOKER, RED), Card.fromAbbreviation("RJ"));
+
+        List<Card> deck = new Deck().getCards();
+        for(Card card : deck) {
+            assertSame(card, Card.fromAbbreviation(card.toString()));
+            assertSame(card, Card.of(card.ordinal()));
+        }
+    }
+
+    @Test
+    public void testInvalidCards() {
+        for(String abbreviation : List.of("A", "ASS", "XS", "AX", "BS", "AJ", "2J")) {
+            try {
+                Card.fromAbbreviation(abbreviation);
+                fail(String.format("%s should not be a valid card", abbreviation));
+            } catch (CardException ignored) {}
+        }
+        try {
+            Card.of(JOKER, ACE);
+            fail("Joker must be BLACK or RED");
+        } catch (CardException ignored) {}
+        try {
+            Card.of(HEARTS, RED);
+            fail("Only joker can be BLACK or RED");
+        } catch (CardException ignored) {}
+    }
+
+    @Test
+    public void testCardsMask() throws CardException {
+        Cards hand = Cards.fromAbbreviations(List.of("3H", "4S", "6C", "TH", "JD"));
+        assertEquals(2, hand.numOfSuit(HEARTS));
+        assertEquals(0, hand.numOfSuit(JOKER));
+        assertTrue(hand.containsRank(10));
+        assertFalse(hand.containsRank(14));
+        //jack of diamonds is trump whatever the trump suit is
+        assertFalse(hand.hasNoTrumpCard(SPADES));
+
+        hand.removeCard(Card.of(DIAMONDS, JACK));
+        assertTrue(hand.hasNoTrumpCard(DIAMONDS));
+        assertFalse(hand.hasNoTrumpCard(CLUBS));
+        assertFalse(hand.contains(Card.of(DIAMONDS, JACK)));
+
+        Cards deck = new Deck();
+        Cards dealt = deck.deal(5);
+        hand.add(dealt);
+        hand.add(Card.of(JOKER, RED));
+        assertEquals(CardMask.ALL, deck.mask() | dealt.mask() | CardMask.of(Card.of(JOKER, RED)));
+        for(Card card : dealt.getCards()) {
+            assertTrue(hand.contains(card));
+            assertFalse(deck.contains(card));
+        }
+        assertTrue(hand.contains(Card.of(JOKER, RED)));
+        assertFalse(hand.hasNoTrumpCard(HEARTS));
+
+        hand.clear();
+        assertEquals(0L, hand.mask());
+    }
+
+    @Test
+    public void testDealingFromDeck() throws CardException {
+        Cards deck = new Deck();
+        List<String> original = deck.getCardsOut();
+
+        Cards hand = new Cards();
+        deck.deal(5, hand);
+        assertEquals(original.subList(0, 5), hand.getCardsOut());
+        assertEquals(original.subList(5, 54), deck.getCardsOut());
+
+        Card top = deck.dealCard();
+        assertEquals(original.get(5), top.toString());
+        assertEquals(48, deck.size());
+
+        //removing from the middle keeps the order of the rest
+        Card removed = deck.remove(10);
+        assertEquals(original.get(16), removed.toString());
+        List<String> expected = new java.util.ArrayList<>(original.subList(6, 54));
+        expected.remove(10);
+        assertEquals(expected, deck.getCardsOut());
+        assertEquals(Cards.fromAbbreviations(expected), deck);
+
+        //cards can be added back after dealing
+        deck.add(top);
+        deck.add(hand);
+        assertEquals(53, deck.size());
+        assertSame(top, deck.get(47));
+        assertEquals(hand.getCardsOut(), deck.getCardsOut().subList(48, 53));
+
+        try {
+            deck.deal(54);
+            fail("Should not be able to deal more cards than deck has");
+        } catch (CardException ignored) {}
+        deck.deal(53);
+        assertEquals(0, deck.size());
+        assertEquals(0L, deck.mask());
+    }
+
+    @Test
+    public void testResetAndShuffle() throws CardException {
+        Cards deck = new Deck();
+        deck.deal(20);
+
+        deck.reset(Deck.TEMPLATE).shuffle(new Random(1L));
+        assertEquals(54, deck.size());
+        assertEquals(CardMask.ALL, deck.mask());
+        assertEquals(new HashSet<>(Deck.TEMPLATE), new HashSet<>(deck.getCards()));
+
+        //same seed, same order
+        Cards other = new Cards().reset(Deck.TEMPLATE).shuffle(new Random(1L));
+        assertEquals(deck, other);
+
+        Cards standard = new StandardDeck().shuffle();
+        assertEquals(52, standard.size());
+        assertEquals(0L, standard.mask() & CardMask.JOKERS);
+
+        try {
+            Deck.TEMPLATE.add(Card.of(0));
+            fail("Template should be immutable");
+        } catch (UnsupportedOperationException ignored) {}
+    }
+
+    @Test
+    public void testCachedCardsOut() throws CardException {
+        Cards hand = Cards.fromAbbreviations(List.of("3H", "4S", "6C"));
+        List<String> out = hand.getCardsOut();
+        assertSame(out, hand.getCardsOut());
+        assertSame("3H", out.get(0));
+
+        hand.add(Card.of(JOKER, RED));
+        List<String> changed = hand.getCardsOut();
+        assertNotSame(out, changed);
+        assertEquals(List.of("3H", "4S", "6C", "RJ"), changed);
+
+        hand.sort();
+        assertEquals(List.of("RJ", "6C", "4S", "3H"), hand.getCardsOut());
+
+        try {
+            hand.getCardsOut().add("AS");
+            fail("Output should be immutable");
+        } catch (UnsupportedOperationException ignored) {}
+    }
+}
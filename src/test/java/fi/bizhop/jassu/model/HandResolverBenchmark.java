@@ -0,0 +1,198 @@
+package fi.bizhop.jassu.model;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.exception.KirvesGameException;
+import fi.bizhop.jassu.model.kirves.Deck;
+import fi.bizhop.jassu.model.kirves.HandResolver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static fi.bizhop.jassu.model.Card.Rank.JACK;
+import static fi.bizhop.jassu.model.Card.Suit.HEARTS;
+import static fi.bizhop.jassu.model.Card.Suit.JOKER;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Microbenchmark comparing list based trick, hand and scoring resolution to HandResolver. The list based
+ * methods are copies of the ones Game used before HandResolver, with players reduced to their won rounds
+ * list and declared flag. Not a test, run the main method manually.
+ */
+public class HandResolverBenchmark {
+    private static final int ITERATIONS = 2_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws CardException, KirvesGameException {
+        int[][] roundsWon = {
+                {0b00011, 0b00100, 0b11000, 0},
+                {0b10000, 0b00001, 0b00110, 0b01000},
+                {0b11100, 0b00001, 0b00010, 0},
+                {0b00001, 0b00010, 0b01000, 0b10100}
+        };
+        List<List<ListPlayer>> playerLists = new ArrayList<>();
+        for(int[] rounds : roundsWon) {
+            List<ListPlayer> players = new ArrayList<>();
+            for(int seat = 0; seat < rounds.length; seat++) {
+                List<Integer> won = new ArrayList<>();
+                for(int round = 0; round < ROUNDS; round++) {
+                    if((rounds[seat] & 1 << round) != 0) won.add(round);
+                }
+                players.add(new ListPlayer(won, seat == 0));
+            }
+            playerLists.add(players);
+        }
+        Card[] deck = new Cards().reset(Deck.TEMPLATE).shuffle().getCards().toArray(new Card[0]);
+        long seats = 0b1111;
+
+        for(int run = 0; run < 3; run++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for(int i = 0; i < ITERATIONS; i++) {
+                int offset = i % (deck.length - 4);
+                List<Card> trick = new ArrayList<>(List.of(deck[offset], deck[offset + 1], deck[offset + 2], deck[offset + 3]));
+                sink += winningCard(trick, HEARTS).ordinal();
+                List<ListPlayer> players = playerLists.get(i & 3);
+                ListPlayer handWinner = determineHandWinner(players);
+                Set<ListPlayer> winners = determineScoringWinners(players, handWinner);
+                sink += winners.size();
+            }
+            long lists = System.nanoTime() - start;
+
+            Card[] played = new Card[4];
+            long declared = 0b0001;
+            start = System.nanoTime();
+            for(int i = 0; i < ITERATIONS; i++) {
+                int offset = i % (deck.length - 4);
+                System.arraycopy(deck, offset, played, 0, 4);
+                sink += HandResolver.roundWinner(played, seats, 0, HEARTS);
+                int handWinner = HandResolver.handWinner(roundsWon[i & 3], seats);
+                sink += Long.bitCount(HandResolver.scoringWinners(seats, declared, handWinner));
+            }
+            long masks = System.nanoTime() - start;
+
+            System.out.printf("run %d: lists %.1f ns/op, seat masks %.1f ns/op (%d)%n",
+                    run, (double) lists / ITERATIONS, (double) masks / ITERATIONS, sink);
+        }
+    }
+
+    private static class ListPlayer {
+        private final List<Integer> roundsWon;
+        private final boolean declaredPlayer;
+
+        ListPlayer(List<Integer> roundsWon, boolean declaredPlayer) {
+            this.roundsWon = roundsWon;
+            this.declaredPlayer = declaredPlayer;
+        }
+
+        List<Integer> getRoundsWon() {
+            return Collections.unmodifiableList(this.roundsWon);
+        }
+
+        boolean isDeclaredPlayer() {
+            return this.declaredPlayer;
+        }
+    }
+
+    private static ListPlayer determineHandWinner(List<ListPlayer> players) throws KirvesGameException {
+        //three or more rounds is clear winner
+        Optional<ListPlayer> threeOrMore = players.stream()
+                .filter(player -> player.getRoundsWon().size() >= 3)
+                .findFirst();
+        if(threeOrMore.isPresent()) {
+            return threeOrMore.get();
+        }
+
+        //two rounds
+        List<ListPlayer> two = players.stream()
+                .filter(player -> player.getRoundsWon().size() == 2)
+                .collect(toList());
+
+        if(two.size() == 1) {
+            //only one player with two rounds is winner
+            return two.get(0);
+        } else if(two.size() == 2) {
+            //two players with two rounds, first two wins
+            ListPlayer first = two.get(0);
+            ListPlayer second = two.get(1);
+
+            return first.getRoundsWon().get(1) > second.getRoundsWon().get(1) ? second : first;
+        }
+
+        //if these cases don't return anything, there should be five single round winners
+        List<ListPlayer> one = players.stream()
+                .filter(player -> player.getRoundsWon().size() == 1)
+                .collect(toList());
+
+        if(one.size() == 5) {
+            //last round wins
+            return players.stream()
+                    .filter(player -> player.getRoundsWon().get(0) == 4)
+                    .findFirst().orElseThrow(KirvesGameException::new);
+        } else {
+            throw new KirvesGameException("Voittajan määritys ei onnistunut");
+        }
+    }
+
+    private static Set<ListPlayer> determineScoringWinners(List<ListPlayer> players, ListPlayer handWinner) {
+        Set<ListPlayer> winners = new HashSet<>();
+        for(ListPlayer player : players) {
+            //case: player is handWinner
+            if(player.equals(handWinner)) {
+                winners.add(player);
+            } else {
+                //case: other player didn't win as declared player
+                if(!player.isDeclaredPlayer()) {
+                    List<ListPlayer> otherPlayers = new ArrayList<>(players);
+                    otherPlayers.remove(player);
+                    for (ListPlayer other : otherPlayers) {
+                        if (other.isDeclaredPlayer() && !other.equals(handWinner)) {
+                            winners.add(player);
+                        }
+                    }
+                }
+            }
+        }
+        return winners;
+    }
+
+    private static Card winningCard(List<Card> playedCards, Card.Suit trump) {
+        int leader = 0;
+        for(int i = 1; i < playedCards.size(); i++) {
+            Card leaderCard = playedCards.get(leader);
+            Card candidate = playedCards.get(i);
+            if(candidateWins(leaderCard, candidate, trump)) {
+                leader = i;
+            }
+        }
+        return playedCards.get(leader);
+    }
+
+    private static boolean candidateWins(Card leader, Card candidate, Card.Suit trump) {
+        int leaderRank = getConvertedRank(leader);
+        int candidateRank = getConvertedRank(candidate);
+        Card.Suit leaderSuit = leader.getSuit() == JOKER || leader.getRank() == JACK ? trump : leader.getSuit();
+        Card.Suit candidateSuit = candidate.getSuit() == JOKER || candidate.getRank() == JACK ? trump : candidate.getSuit();
+
+        if(candidateSuit == trump && leaderSuit != trump) {
+            return true;
+        }
+        else return candidateSuit == leaderSuit &&
+                candidateRank > leaderRank;
+    }
+
+    private static int getConvertedRank(Card card) {
+        if(card.getRank() == JACK) {
+            switch (card.getSuit()) {
+                case DIAMONDS: return 15;
+                case HEARTS: return 16;
+                case SPADES: return 17;
+                case CLUBS: return 18;
+            }
+        }
+        return card.getRank().getValue();
+    }
+}
@@ -0,0 +1,280 @@
+package fi.bizhop.jassu.model;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.exception.KirvesGameException;
+import fi.bizhop.jassu.model.kirves.*;
+import fi.bizhop.jassu.model.kirves.pojo.GameDataPOJO;
+import fi.bizhop.jassu.model.kirves.pojo.UserPOJO;
+import fi.bizhop.jassu.util.JsonUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class HeadlessGameTest {
+    private static final int MAX_STEPS = 5_000;
+    private static final int RESTORED_SEEDS = 60;
+
+    //random moves, folding only now and then
+    private static final Policy RARELY_FOLDING = (game, seat, moves, count, random) -> {
+        int fold = HeadlessGame.move(Game.Action.FOLD, 0);
+        if(seat != game.getActor()) return random.nextInt(20) == 0 ? fold : HeadlessGame.WAIT;
+        int[] others = Arrays.stream(moves, 0, count).filter(move -> move != fold).toArray();
+        boolean canFold = others.length < count;
+        return others.length == 0 || canFold && random.nextInt(20) == 0 ? fold : others[random.nextInt(others.length)];
+    };
+
+    @Test
+    public void testSameAsGame() throws CardException, KirvesGameException {
+        int hands = 0;
+        int games = 0;
+        for(long seed = 0; seed < 300; seed++) {
+            int numOfPlayers = 2 + (int) (seed % 5);
+            List<User> users = new ArrayList<>();
+            for(int seat = 0; seat < numOfPlayers; seat++) {
+                users.add(new User(new UserPOJO(String.format("seat%d@example.com", seat), String.format("seat%d", seat))));
+            }
+            Game game = new Game(users.get(0));
+            for(User user : users.subList(1, numOfPlayers)) {
+                game.addPlayer(user);
+            }
+            SplittableRandom random = new SplittableRandom(seed);
+            HeadlessGame headless = new HeadlessGame(numOfPlayers, random.split());
+            Policy[] policies = new Policy[numOfPlayers];
+            Arrays.fill(policies, seed % 2 == 0 ? RARELY_FOLDING : HeuristicPolicy.INSTANCE);
+            int[] moves = new int[HeadlessGame.MAX_MOVES];
+
+            assertSameState(game, headless, users);
+            for(int step = 0; step < MAX_STEPS && headless.getGamesPlayed() < 2; step++) {
+                int seat = headless.getActor();
+                int move = HeadlessGame.WAIT;
+                for(int rest = headless.getFoldSeats() & ~(1 << seat); rest != 0 && move == HeadlessGame.WAIT; rest &= rest - 1) {
+                    int folder = Integer.numberOfTrailingZeros(rest);
+                    int count = headless.legalMoves(folder, moves);
+                    move = policies[folder].choose(headless, folder, moves, count, random);
+                    if(move != HeadlessGame.WAIT) seat = folder;
+                }
+                if(move == HeadlessGame.WAIT) {
+                    int count = headless.legalMoves(seat, moves);
+                    //Game would be stuck here too
+                    if(count == 0) break;
+                    move = policies[seat].choose(headless, seat, moves, count, random);
+                }
+
+                boolean headlessFailed = false;
+                try {
+                    headless.apply(seat, move);
+                } catch (IllegalStateException e) {
+                    headlessFailed = true;
+                }
+                boolean gameFailed = false;
+                try {
+                    game = apply(game, headless, users.get(seat), move);
+                } catch (KirvesGameException e) {
+                    gameFailed = true;
+                }
+                assertEquals(String.format("seed %d step %d: %s", seed, step, HeadlessGame.action(move)), gameFailed, headlessFailed);
+                //folding never leaves the game in a broken state
+                if(gameFailed) assertNotEquals(String.format("seed %d step %d", seed, step), Game.Action.FOLD, HeadlessGame.action(move));
+                if(gameFailed) break;
+                assertSameState(game, headless, users);
+                if(seed < RESTORED_SEEDS) assertRestored(game, headless, users);
+            }
+            hands += headless.getHandsPlayed();
+            games += headless.getGamesPlayed();
+        }
+        assertTrue(games > 100);
+        assertTrue(hands > games);
+    }
+
+    @Test
+    public void testDeterminize() throws CardException, KirvesGameException {
+        List<User> users = new ArrayList<>();
+        for(int seat = 0; seat < 4; seat++) {
+            users.add(new User(new UserPOJO(String.format("seat%d@example.com", seat), String.format("seat%d", seat))));
+        }
+        Game game = new Game(users.get(0));
+        for(User user : users.subList(1, 4)) {
+            game.addPlayer(user);
+        }
+        game.cut(users.get(3), false, Card.of(Card.Suit.SPADES, Card.Rank.THREE), null);
+        game.deal(users.get(0));
+        HeadlessGame original = HeadlessGame.of(pojo(game), new SplittableRandom(1));
+        long unseen = original.getHand(0) | original.getHand(2) | original.getHand(3) | original.getHiddenCards()
+                | Arrays.stream(original.getDeck()).mapToLong(card -> 1L << card).reduce(0L, (a, b) -> a | b);
+
+        boolean changed = false;
+        for(int i = 0; i < 20; i++) {
+            HeadlessGame game2 = original.copy(new SplittableRandom(i));
+            game2.determinize(1);
+            assertEquals(original.getHand(1), game2.getHand(1));
+            long cards = game2.getHiddenCards()
+                    | Arrays.stream(game2.getDeck()).mapToLong(card -> 1L << card).reduce(0L, (a, b) -> a | b);
+            for(int seat : new int[] {0, 2, 3}) {
+                assertEquals(Long.bitCount(original.getHand(seat)), Long.bitCount(game2.getHand(seat)));
+                assertEquals(0L, cards & game2.getHand(seat));
+                cards |= game2.getHand(seat);
+                changed |= original.getHand(seat) != game2.getHand(seat);
+            }
+            assertEquals(unseen, cards);
+            assertEquals(original.getDeck().length, game2.getDeck().length);
+            assertEquals(original.getTrump(), game2.getTrump());
+        }
+        assertTrue(changed);
+    }
+
+    @Test
+    public void testSimulation() {
+        Policy[] policies = new Policy[4];
+        Arrays.fill(policies, HeuristicPolicy.INSTANCE);
+        Simulation.Stats stats = Simulation.run(policies, 2_000, 1L);
+
+        assertEquals(2_000, stats.getGames());
+        assertEquals(2_000, Arrays.stream(stats.getLosses()).sum());
+        assertTrue(stats.getHands() > stats.getGames() * 3);
+
+        Simulation.Stats again = Simulation.run(policies, 2_000, 1L);
+        assertEquals(stats.toString(), again.toString());
+    }
+
+    @Test
+    public void testFoldBetweenRounds() {
+        int folds = 0;
+        for(long seed = 0; seed < 20; seed++) {
+            SplittableRandom random = new SplittableRandom(seed);
+            HeadlessGame game = new HeadlessGame(4, random.split());
+            int[] moves = new int[HeadlessGame.MAX_MOVES];
+            int fold = HeadlessGame.move(Game.Action.FOLD, 0);
+            while(game.getHandsPlayed() == 0) {
+                int actor = game.getActor();
+                int others = game.getFoldSeats() & ~(1 << actor);
+                if(others != 0 && Integer.bitCount(game.getActiveSeats()) > 2) {
+                    int folder = Integer.numberOfTrailingZeros(others);
+                    int first = game.getFirstPlayerOfRound();
+                    int[] roundsWon = new int[4];
+                    for(int seat = 0; seat < 4; seat++) roundsWon[seat] = game.getRoundsWon(seat);
+
+                    game.apply(folder, fold);
+                    folds++;
+                    //first player of round still leads, no round is resolved
+                    assertFalse(game.isActive(folder));
+                    assertEquals(actor, game.getActor());
+                    assertEquals(first, game.getFirstPlayerOfRound());
+                    assertEquals(Game.Action.PLAY_CARD, game.getAction());
+                    assertEquals(0, game.getTrickSeats());
+                    for(int seat = 0; seat < 4; seat++) assertEquals(roundsWon[seat], game.getRoundsWon(seat));
+                    break;
+                }
+                int count = game.legalMoves(actor, moves);
+                int[] notFolding = Arrays.stream(moves, 0, count).filter(move -> move != fold).toArray();
+                game.apply(actor, HeuristicPolicy.INSTANCE.choose(game, actor, notFolding, notFolding.length, random));
+            }
+        }
+        assertTrue(folds > 0);
+    }
+
+    @Test
+    public void testSimulationFailsWithSeed() {
+        Policy[] policies = new Policy[5];
+        Arrays.fill(policies, RARELY_FOLDING);
+        //a seat that folds after winning rounds can leave the hand without a winner, Game throws there too
+        try {
+            Simulation.run(policies, 200, 1L);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Game with seed "));
+            assertEquals("Hand winner can't be determined", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testCopy() {
+        HeadlessGame game = new HeadlessGame(3, new SplittableRandom(3));
+        Policy[] policies = {HeuristicPolicy.INSTANCE, HeuristicPolicy.INSTANCE, HeuristicPolicy.INSTANCE};
+        Simulation.play(game, policies, new SplittableRandom(4), new Simulation.Stats(3), 1);
+        HeadlessGame copy = game.copy(new SplittableRandom(5));
+        Simulation.play(copy, policies, new SplittableRandom(6), new Simulation.Stats(3), 1);
+
+        assertEquals(1, game.getGamesPlayed());
+        assertEquals(2, copy.getGamesPlayed());
+        assertTrue(copy.getHandsPlayed() > game.getHandsPlayed());
+    }
+
+    private static Game apply(Game game, HeadlessGame headless, User user, int move) throws CardException, KirvesGameException {
+        Game.Action action = HeadlessGame.action(move);
+        int argument = HeadlessGame.argument(move);
+        assertTrue(game.userHasActionAvailable(user, action));
+        Player player = game.getPlayer(user.getEmail()).orElseThrow(KirvesGameException::new);
+        switch (action) {
+            case CUT:
+                Card cutCard = headless.getCutCard() < 0 ? null : Card.of(headless.getCutCard());
+                Card second = headless.getSecondCutCard() < 0 ? null : Card.of(headless.getSecondCutCard());
+                game.cut(user, argument == 1, cutCard, second);
+                //same deck order as in headless game
+                GameDataPOJO pojo = JsonUtil.getJavaObject(game.toJson(), GameDataPOJO.class).orElseThrow(KirvesGameException::new);
+                pojo.deck = Arrays.stream(headless.getDeck()).mapToObj(ordinal -> Card.of(ordinal).toString()).collect(Collectors.toList());
+                return new Game(pojo);
+            case DEAL: game.deal(user); break;
+            case ACE_OR_TWO_DECISION: game.aceOrTwoDecision(user, argument == 1); break;
+            case SPEAK: game.speak(user, Game.Speak.values()[argument]); break;
+            case SPEAK_SUIT: game.speakSuit(user, Card.Suit.values()[argument]); break;
+            case DISCARD: game.discard(user, player.getHand().getCards().indexOf(Card.of(argument))); break;
+            case PLAY_CARD: game.playCard(user, player.getHand().getCards().indexOf(Card.of(argument))); break;
+            case FOLD: game.fold(user); break;
+        }
+        return game;
+    }
+
+    private static GameDataPOJO pojo(Game game) throws KirvesGameException {
+        return JsonUtil.getJavaObject(game.toJson(), GameDataPOJO.class).orElseThrow(KirvesGameException::new);
+    }
+
+    //game restored from save data is in the same state
+    private static void assertRestored(Game game, HeadlessGame headless, List<User> users) throws CardException, KirvesGameException {
+        HeadlessGame restored = HeadlessGame.of(pojo(game), new SplittableRandom(0));
+        assertSameState(game, restored, users);
+        assertEquals(headless.getActor(), restored.getActor());
+        assertEquals(headless.getAction(), restored.getAction());
+        //Game doesn't move turn to the cutter when players join
+        if(headless.getAction() != Game.Action.CUT) assertEquals(headless.getTurn(), restored.getTurn());
+        assertEquals(headless.getDealer(), restored.getDealer());
+        assertEquals(headless.getHiddenCards(), restored.getHiddenCards());
+        assertEquals(headless.getTrumpCard(), restored.getTrumpCard());
+        assertArrayEquals(headless.getDeck(), restored.getDeck());
+        //after folds turn can skip seats, and the cards of current round can't be told from saved data
+        if(headless.getAction() == Game.Action.PLAY_CARD && headless.getActiveSeats() == (1 << users.size()) - 1) {
+            assertEquals(headless.getFirstPlayerOfRound(), restored.getFirstPlayerOfRound());
+            assertEquals(headless.getTrickSeats(), restored.getTrickSeats());
+        }
+    }
+
+    private static void assertSameState(Game game, HeadlessGame headless, List<User> users) throws KirvesGameException {
+        assertEquals(game.getTrump(), headless.getTrump());
+        Map<String, Integer> scores = game.out().getScores();
+        for(int seat = 0; seat < users.size(); seat++) {
+            User user = users.get(seat);
+            Player player = game.getPlayer(user.getEmail()).orElseThrow(KirvesGameException::new);
+            String message = String.format("seat %d", seat);
+            assertEquals(message, player.getHand().mask(), headless.getHand(seat));
+            Card extraCard = player.getExtraCard();
+            assertEquals(message, extraCard == null ? -1 : extraCard.ordinal(), headless.getExtraCard(seat));
+            assertEquals(message, player.isInGame(), headless.isActive(seat));
+            assertEquals(message, player.isDeclaredPlayer(), (headless.getDeclaredSeats() & 1 << seat) != 0);
+            assertEquals(message, player.getRoundsWonMask(), headless.getRoundsWon(seat));
+            assertEquals(message, scores.getOrDefault(user.getNickname(), 0).intValue(), headless.getScore(seat));
+
+            EnumSet<Game.Action> actions = EnumSet.noneOf(Game.Action.class);
+            if(headless.getActor() == seat) actions.add(headless.getAction());
+            if((headless.getFoldSeats() & 1 << seat) != 0) actions.add(Game.Action.FOLD);
+            assertEquals(message, player.getAvailableActions(), actions);
+            if(actions.contains(Game.Action.PLAY_CARD)) assertEquals(message, game.getPlayableCards(player), headless.getPlayableCards(seat));
+        }
+    }
+}
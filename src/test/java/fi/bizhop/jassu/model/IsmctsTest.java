@@ -0,0 +1,96 @@
+package fi.bizhop.jassu.model;
+
+import fi.bizhop.jassu.model.kirves.Game;
+import fi.bizhop.jassu.model.kirves.HeadlessGame;
+import fi.bizhop.jassu.model.kirves.Ismcts;
+import fi.bizhop.jassu.model.kirves.Policy;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class IsmctsTest {
+    private static final int ITERATIONS = 300;
+    private static final int HANDS = 150;
+
+    @Test
+    public void testLegalMove() {
+        HeadlessGame game = new HeadlessGame(4, new SplittableRandom(1));
+        SplittableRandom random = new SplittableRandom(2);
+        int[] moves = new int[HeadlessGame.MAX_MOVES];
+        Ismcts ismcts = new Ismcts();
+        for(int step = 0; step < 200; step++) {
+            int actor = game.getActor();
+            int count = game.legalMoves(actor, moves);
+            Ismcts.Result result = ismcts.search(game, actor, Long.MAX_VALUE, ITERATIONS, random);
+            int best = result.getBestMove();
+
+            assertEquals(ITERATIONS, result.getIterations());
+            assertTrue(Arrays.stream(moves, 0, count).anyMatch(move -> move == best));
+            assertNotEquals(Game.Action.FOLD, HeadlessGame.action(best));
+            game.apply(actor, best);
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        HeadlessGame game = new HeadlessGame(3, new SplittableRandom(3));
+        Ismcts ismcts = new Ismcts();
+        Ismcts.Result result = ismcts.search(game, game.getActor(), Long.MAX_VALUE, 100, new SplittableRandom(4));
+        Ismcts.Result other = ismcts.search(game, game.getActor(), Long.MAX_VALUE, 50, new SplittableRandom(5));
+        int move = result.getBestMove();
+        int visits = result.getVisits(move) + other.getVisits(move);
+        result.merge(other);
+
+        assertEquals(150, result.getIterations());
+        assertEquals(visits, result.getVisits(move));
+    }
+
+    @Test
+    public void testDeadline() {
+        HeadlessGame game = new HeadlessGame(4, new SplittableRandom(6));
+        long start = System.nanoTime();
+        Ismcts.Result result = new Ismcts().search(game, game.getActor(), start + 20_000_000L, Integer.MAX_VALUE, new SplittableRandom(7));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(result.getIterations() > 0);
+        assertTrue(String.format("searched %d ms", millis), millis < 200);
+    }
+
+    @Test
+    public void testBetterThanRandom() {
+        Ismcts ismcts = new Ismcts();
+        Policy searching = (game, seat, moves, count, random) -> seat != game.getActor()
+                ? HeadlessGame.WAIT
+                : ismcts.search(game, seat, Long.MAX_VALUE, ITERATIONS, random).getBestMove();
+        int withSearch = scoredHands(searching);
+        int withRandom = scoredHands(Policy.RANDOM);
+        System.out.printf("Seat 0 scored in %d/%d hands with search, %d with random moves%n", withSearch, HANDS, withRandom);
+
+        assertTrue(withSearch > withRandom);
+    }
+
+    //hands where seat 0 scored against random players
+    private static int scoredHands(Policy policy) {
+        Policy[] policies = {policy, Policy.RANDOM, Policy.RANDOM};
+        HeadlessGame game = new HeadlessGame(3, new SplittableRandom(8));
+        SplittableRandom random = new SplittableRandom(9);
+        int[] moves = new int[HeadlessGame.MAX_MOVES];
+        int scored = 0;
+        while(game.getHandsPlayed() < HANDS) {
+            int handsPlayed = game.getHandsPlayed();
+            int actor = game.getActor();
+            int count = game.legalMoves(actor, moves);
+            int fold = HeadlessGame.move(Game.Action.FOLD, 0);
+            int move;
+            do {
+                move = policies[actor].choose(game, actor, moves, count, random);
+            } while(move == fold);
+            game.apply(actor, move);
+            if(game.getHandsPlayed() != handsPlayed && (game.getLastWinners() & 1) != 0) scored++;
+        }
+        return scored;
+    }
+}
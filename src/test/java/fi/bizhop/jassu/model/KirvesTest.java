@@ -17,6 +17,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -42,12 +43,12 @@ public class KirvesTest {
 
         try {
             JACKS_AND_JOKERS = List.of(
-                    new Card(HEARTS, JACK),
-                    new Card(SPADES, JACK),
-                    new Card(CLUBS, JACK),
-                    new Card(DIAMONDS, JACK),
-                    new Card(JOKER, BLACK),
-                    new Card(JOKER, RED));
+                    Card.of(HEARTS, JACK),
+                    Card.of(SPADES, JACK),
+                    Card.of(CLUBS, JACK),
+                    Card.of(DIAMONDS, JACK),
+                    Card.of(JOKER, BLACK),
+                    Card.of(JOKER, RED));
         } catch (CardException e) {
             System.out.println("Unable to initialize card list");
             System.exit(1);
@@ -59,7 +60,7 @@ public class KirvesTest {
                 if(suit != JOKER) {
                     for(Card.Rank rank : Card.Rank.values()) {
                         if(List.of(TWO, ACE).contains(rank)) {
-                            temp.add(new Card(suit, rank));
+                            temp.add(Card.of(suit, rank));
                         }
                     }
                 }
@@ -76,7 +77,7 @@ public class KirvesTest {
                 if(suit != JOKER) {
                     for(Card.Rank rank : Card.Rank.values()) {
                         if(!List.of(JACK, BLACK, RED, TWO, ACE).contains(rank)) {
-                            temp.add(new Card(suit, rank));
+                            temp.add(Card.of(suit, rank));
                         }
                     }
                 }
@@ -110,6 +111,20 @@ public class KirvesTest {
         assertEquals(4, game.out(TEST_USERS.get(0)).getPlayers().size());
     }
 
+    @Test
+    public void testSeatOrder() throws CardException, KirvesGameException {
+        Game game = getTestGame();
+
+        List<String> order = game.out(TEST_USERS.get(2)).getPlayers().stream()
+                .map(PlayerOut::getEmail)
+                .collect(Collectors.toList());
+        assertEquals(List.of(TEST_USERS.get(2), TEST_USERS.get(3), TEST_USERS.get(0), TEST_USERS.get(1)).stream()
+                .map(User::getEmail)
+                .collect(Collectors.toList()), order);
+        assertTrue(game.hasPlayer(TEST_USERS.get(3)));
+        assertFalse(game.hasPlayer(new User("other@example.com", "")));
+    }
+
     @Test
     public void testTurnOrderAndAvailableActions() throws CardException, KirvesGameException {
         Game game = getTestGame();
@@ -353,6 +368,45 @@ public class KirvesTest {
         assertTrue(game.userHasActionAvailable(TEST_USERS.get(1), PLAY_CARD));
     }
 
+    @Test
+    public void testFollowingSuit() throws CardException, KirvesGameException {
+        Game game = getTestGame();
+
+        User cutter = game.getUserWithAction(CUT).orElseThrow(KirvesGameException::new);
+        game.cut(cutter, false, getRandomCard(OTHER_CARDS), null);
+        game.deal(TEST_USERS.get(0), OTHER_CARDS);
+        game.speak(TEST_USERS.get(1), KEEP);
+
+        GameOut leader = game.out(TEST_USERS.get(1));
+        assertEquals(leader.getMyCardsInHand(), leader.getMyPlayableCards());
+        game.playCard(TEST_USERS.get(1), 0);
+        Card ledCard = game.getPlayer(TEST_USERS.get(1).getEmail()).orElseThrow(KirvesGameException::new).getLastPlayedCard();
+        Card.Suit led = TrickEvaluator.effectiveSuit(ledCard, game.getTrump());
+
+        assertTrue(game.out(TEST_USERS.get(3)).getMyPlayableCards().isEmpty());
+        GameOut follower = game.out(TEST_USERS.get(2));
+        List<String> hand = follower.getMyCardsInHand();
+        List<String> playable = follower.getMyPlayableCards();
+        boolean canFollow = false;
+        for(String card : hand) {
+            canFollow |= TrickEvaluator.effectiveSuit(Card.fromAbbreviation(card), game.getTrump()) == led;
+        }
+        for(String card : hand) {
+            boolean follows = TrickEvaluator.effectiveSuit(Card.fromAbbreviation(card), game.getTrump()) == led;
+            assertEquals(card, !canFollow || follows, playable.contains(card));
+            if(!playable.contains(card)) {
+                try {
+                    game.playCard(TEST_USERS.get(2), hand.indexOf(card));
+                    fail(String.format("%s doesn't follow %s", card, ledCard));
+                } catch (KirvesGameException e) {
+                    assertEquals(hand, game.out(TEST_USERS.get(2)).getMyCardsInHand());
+                }
+            }
+        }
+        game.playCard(TEST_USERS.get(2), hand.indexOf(playable.get(0)));
+        assertTrue(game.userHasActionAvailable(TEST_USERS.get(3), PLAY_CARD));
+    }
+
     @Test
     public void testSpeakKeepAfterWantingChange() throws CardException, KirvesGameException {
         Game game = getTestGame();
@@ -386,7 +440,27 @@ public class KirvesTest {
     }
 
     @Test
-    public void testPlayingThroughThreeHands() throws CardException, KirvesGameException {
+    public void testFoldingBetweenRounds() throws CardException, KirvesGameException {
+        Game game = getTestGame();
+
+        game.cut(TEST_USERS.get(3), false, getRandomCard(OTHER_CARDS), null);
+        game.deal(TEST_USERS.get(0), OTHER_CARDS);
+        game.speak(TEST_USERS.get(1), KEEP);
+
+        //first player of round keeps the turn, no round is resolved
+        assertTrue(game.userHasActionAvailable(TEST_USERS.get(2), FOLD));
+        game.fold(TEST_USERS.get(2));
+        assertEquals(3, game.out().getPlayers().stream().filter(playerOut -> !playerOut.isFolded()).count());
+        assertEquals(0, game.out().getNumOfPlayedRounds());
+        assertTrue(game.userHasActionAvailable(TEST_USERS.get(1), PLAY_CARD));
+        assertFalse(game.userHasActionAvailable(TEST_USERS.get(2), PLAY_CARD));
+
+        game.playCard(TEST_USERS.get(1), 0);
+        assertTrue(game.userHasActionAvailable(TEST_USERS.get(3), PLAY_CARD));
+    }
+
+    @Test
+    public void testPlayingThroughThreeHands()throws CardException, KirvesGameException {
         //currently there is no easy way to test more than three hands
         Game game = getTestGame();
 
@@ -416,32 +490,116 @@ public class KirvesTest {
     @Test
     public void testWinningCards() throws CardException {
         //samaa maata, isompi voittaa
-        List<Card> cards = List.of(new Card(SPADES, SEVEN), new Card(SPADES, TEN));
+        List<Card> cards = List.of(Card.of(SPADES, SEVEN), Card.of(SPADES, TEN));
         assertEquals(cards.get(1), Game.winningCard(cards, DIAMONDS));
 
         //eri maata, ajokortti voittaa
-        cards = List.of(new Card(SPADES, SEVEN), new Card(CLUBS, TEN));
+        cards = List.of(Card.of(SPADES, SEVEN), Card.of(CLUBS, TEN));
         assertEquals(cards.get(0), Game.winningCard(cards, DIAMONDS));
 
         //valtti voittaa, vaikkaa on pienempi
-        cards = List.of(new Card(SPADES, SEVEN), new Card(CLUBS, TWO));
+        cards = List.of(Card.of(SPADES, SEVEN), Card.of(CLUBS, TWO));
         assertEquals(cards.get(1), Game.winningCard(cards, CLUBS));
 
         //pamppu voittaa valttiässän
-        cards = List.of(new Card(SPADES, ACE), new Card(SPADES, JACK));
+        cards = List.of(Card.of(SPADES, ACE), Card.of(SPADES, JACK));
         assertEquals(cards.get(1), Game.winningCard(cards, SPADES));
 
         //pamppu voittaa hantin (lasketaan valtiksi)
-        cards = List.of(new Card(CLUBS, ACE), new Card(SPADES, JACK));
+        cards = List.of(Card.of(CLUBS, ACE), Card.of(SPADES, JACK));
         assertEquals(cards.get(1), Game.winningCard(cards, HEARTS));
 
         //punainen jokeri voittaa mustan
-        cards = List.of(new Card(JOKER, BLACK), new Card(JOKER, RED));
+        cards = List.of(Card.of(JOKER, BLACK), Card.of(JOKER, RED));
         assertEquals(cards.get(1), Game.winningCard(cards, SPADES));
 
         //jokeri voittaa pampun
-        cards = List.of(new Card(CLUBS, JACK), new Card(JOKER, BLACK));
+        cards = List.of(Card.of(CLUBS, JACK), Card.of(JOKER, BLACK));
         assertEquals(cards.get(1), Game.winningCard(cards, SPADES));
+
+        //valtti voittaa, vaikka ajokortti on isompi, muut eivät voi voittaa
+        cards = List.of(Card.of(HEARTS, KING), Card.of(HEARTS, ACE), Card.of(CLUBS, ACE), Card.of(DIAMONDS, THREE), Card.of(SPADES, ACE));
+        assertEquals(cards.get(3), Game.winningCard(cards, DIAMONDS));
+        assertEquals(cards.get(1), Game.winningCard(cards, HEARTS));
+    }
+
+    @Test
+    public void testPlayerState() throws CardException {
+        PlayerPOJO pojo = new PlayerPOJO(new UserPOJO("player", "player"));
+        pojo.roundsWon.addAll(List.of(1, 4));
+        pojo.availableActions.addAll(List.of(PLAY_CARD, FOLD));
+        pojo.declaredPlayer = true;
+        pojo.speak = PASS;
+        Player player = new Player(pojo, null);
+
+        assertEquals(List.of(1, 4), player.getRoundsWon());
+        assertEquals(0b10010, player.getRoundsWonMask());
+        assertEquals(2, player.getNumberOfRoundsWon());
+        assertTrue(player.hasWonRound(4));
+        assertFalse(player.hasWonRound(0));
+        assertTrue(player.hasAvailableAction(FOLD));
+        assertTrue(player.isDeclaredPlayer());
+        assertTrue(player.isInGame());
+        assertFalse(player.isFolded());
+        assertEquals(PASS, player.getSpeak());
+
+        player.setSpeak(CHANGE);
+        player.setDeclaredPlayer(false);
+        player.setAvailableAction(CUT);
+        assertEquals(CHANGE, player.getSpeak());
+        assertFalse(player.isDeclaredPlayer());
+        assertEquals(Set.of(CUT), player.getAvailableActions());
+
+        player.fold();
+        assertFalse(player.isInGame());
+        assertTrue(player.isFolded());
+        assertEquals(CHANGE, player.getSpeak());
+
+        PlayerPOJO saved = player.toPojo();
+        assertEquals(List.of(1, 4), saved.roundsWon);
+        assertEquals(List.of(CUT), saved.availableActions);
+        assertFalse(saved.inGame);
+        assertTrue(saved.folded);
+        assertEquals(CHANGE, saved.speak);
+
+        player.activate();
+        player.setSpeak(null);
+        player.resetWonRounds();
+        assertTrue(player.isInGame());
+        assertFalse(player.isFolded());
+        assertNull(player.getSpeak());
+        assertEquals(List.of(), player.getRoundsWon());
+    }
+
+    @Test
+    public void testTrickEvaluator() throws CardException {
+        Card.Suit[] trumps = {CLUBS, DIAMONDS, HEARTS, SPADES};
+        for(Card.Suit trump : trumps) {
+            assertEquals(trump, TrickEvaluator.effectiveSuit(Card.of(JOKER, RED), trump));
+            assertEquals(trump, TrickEvaluator.effectiveSuit(Card.of(HEARTS, JACK), trump));
+            assertTrue(TrickEvaluator.isTrump(Card.of(CLUBS, JACK), trump));
+            assertEquals(trump == HEARTS, TrickEvaluator.isTrump(Card.of(HEARTS, TWO), trump));
+
+            //every pair of cards: led card loses only to a trump or a bigger card of the same suit
+            for(int led = 0; led < Card.NUM_OF_CARDS; led++) {
+                for(int other = 0; other < Card.NUM_OF_CARDS; other++) {
+                    if(led == other) continue;
+                    Card ledCard = Card.of(led);
+                    Card otherCard = Card.of(other);
+                    Card.Suit ledSuit = TrickEvaluator.effectiveSuit(ledCard, trump);
+                    Card.Suit otherSuit = TrickEvaluator.effectiveSuit(otherCard, trump);
+                    boolean otherWins = (otherSuit == trump && ledSuit != trump)
+                            || (otherSuit == ledSuit && TrickEvaluator.strength(otherCard, trump, ledSuit) > TrickEvaluator.strength(ledCard, trump, ledSuit));
+                    assertEquals(otherWins ? 1 : 0, TrickEvaluator.winner(new Card[] {ledCard, otherCard}, 2, trump));
+                }
+            }
+        }
+
+        //pamput järjestyksessä ruutu, hertta, pata, risti
+        Card[] jacks = {Card.of(SPADES, ACE), Card.of(DIAMONDS, JACK), Card.of(HEARTS, JACK), Card.of(SPADES, JACK), Card.of(CLUBS, JACK)};
+        for(int count = 1; count <= jacks.length; count++) {
+            assertEquals(count - 1, TrickEvaluator.winner(jacks, count, SPADES));
+        }
     }
 
     @Test
@@ -476,6 +634,38 @@ public class KirvesTest {
         assertEquals(winner.getUserEmail(), firstTwoPOJO.user.email);
     }
     
+    @Test
+    public void testHandResolver() throws CardException {
+        //seats 0, 2 and 3 playing, seat 2 starts
+        long seats = 0b1101;
+        Card[] played = new Card[4];
+        played[0] = Card.of(HEARTS, ACE);
+        played[1] = Card.of(JOKER, RED);
+        played[2] = Card.of(HEARTS, KING);
+        played[3] = Card.of(CLUBS, TWO);
+        assertEquals(0, HandResolver.roundWinner(played, seats, 2, SPADES));
+        assertEquals(3, HandResolver.roundWinner(played, seats, 2, CLUBS));
+        played[3] = null;
+        assertEquals(-1, HandResolver.roundWinner(played, seats, 2, CLUBS));
+
+        //three rounds
+        assertEquals(2, HandResolver.handWinner(new int[] {0b00011, 0, 0b11100, 0}, seats | 0b10));
+        //two players with two rounds, first two wins
+        assertEquals(3, HandResolver.handWinner(new int[] {0b11000, 0, 0b00100, 0b00011}, seats));
+        //only one with two rounds
+        assertEquals(0, HandResolver.handWinner(new int[] {0b00011, 0, 0b00100, 0b01000}, seats));
+        //single rounds, last round wins
+        assertEquals(2, HandResolver.handWinner(new int[] {0b00001, 0b00010, 0b10000, 0b01000, 0b00100}, 0b11111));
+
+        //declared player wins alone
+        assertEquals(0b0001, HandResolver.scoringWinners(seats, 0b0001, 0));
+        //declared player loses, other players win
+        assertEquals(0b1100, HandResolver.scoringWinners(seats, 0b0001, 2));
+        //yhteinen: declared players don't score unless they win
+        assertEquals(0b0111, HandResolver.scoringWinners(0b1111, 0b1001, 0));
+        assertEquals(0b0110, HandResolver.scoringWinners(0b1111, 0b1001, 1));
+    }
+
     @Test
     public void testScoringWinnersLogic() throws CardException {
         PlayerPOJO pojo1 = new PlayerPOJO();
@@ -591,6 +781,71 @@ public class KirvesTest {
         assertEquals(game, gameFromPojo);
     }
 
+    @Test
+    public void testCopy() throws CardException, KirvesGameException {
+        Game game = getTestGame();
+        User cutter = game.getUserWithAction(CUT).orElseThrow(KirvesGameException::new);
+        game.cut(cutter, false, getRandomCard(OTHER_CARDS), null);
+        game.deal(TEST_USERS.get(0), OTHER_CARDS);
+        game.getUserWithAction(SPEAK).ifPresent(player -> {
+            try {
+                game.speak(player, KEEP);
+            } catch (KirvesGameException e) {
+                fail("Failed to speak");
+            }
+        });
+        String json = game.toJson();
+
+        Game copy = game.copy();
+        assertEquals(json, copy.toJson());
+        playThroughHand(copy, TEST_USERS);
+        assertNotEquals(json, copy.toJson());
+
+        //original is unchanged and can still be played
+        assertEquals(json, game.toJson());
+        playThroughHand(game, TEST_USERS);
+        assertEquals(copy.toJson(), game.toJson());
+    }
+
+    @Test
+    public void testMessages() throws CardException, KirvesGameException {
+        List<User> users = List.of(
+                new User(new UserPOJO("first@example.com", "Eka")),
+                new User(new UserPOJO("second@example.com", "Toka")));
+        Game game = getTestGame(users);
+
+        User cutter = game.getUserWithAction(CUT).orElseThrow(KirvesGameException::new);
+        List<Card> cutCards = getRandomCards(JACKS_AND_JOKERS, 2);
+        game.cut(cutter, false, cutCards.get(0), cutCards.get(1));
+        game.cut(cutter, true);
+        String nickname = cutter.getEmail().equals("first@example.com") ? "Eka" : "Toka";
+        assertEquals(List.of(
+                String.format("Uusi nosto, %s voi kieltäytyä nostamasta", nickname),
+                String.format("%s kieltäytyi nostosta", nickname)), game.out().getMessages());
+        List<String> english = game.out(null, Locale.ENGLISH).getMessages();
+        assertEquals(String.format("%s declined the cut", nickname), english.get(english.size() - 1));
+
+        //messages saved as plain strings are still readable, only latest 20 are kept in game data
+        List<String> oldMessages = new ArrayList<>();
+        for(int i = 0; i < 25; i++) {
+            oldMessages.add(String.format("viesti %d", i));
+        }
+        String json = game.toJson().replaceFirst("\"messages\":\\[[^\\]]*\\]",
+                "\"messages\":" + JsonUtil.getJson(oldMessages).orElseThrow());
+        GameDataPOJO pojo = JsonUtil.getJavaObject(json, GameDataPOJO.class).orElseThrow();
+        game = new Game(pojo);
+
+        List<String> messages = game.out().getMessages();
+        assertEquals(20, messages.size());
+        assertEquals("viesti 24", messages.get(messages.size() - 1));
+        assertEquals(oldMessages.subList(5, 25), messages);
+        assertEquals(oldMessages.subList(0, 5), game.renderMessages(game.drainOlderMessages(), Game.DEFAULT_LOCALE));
+        assertTrue(game.drainOlderMessages().isEmpty());
+
+        pojo = JsonUtil.getJavaObject(game.toJson(), GameDataPOJO.class).orElseThrow();
+        assertEquals(20, pojo.messages.size());
+    }
+
     @Test
     public void testCanFold() throws CardException {
         PlayerPOJO p1pojo = new PlayerPOJO();
@@ -720,7 +975,8 @@ public class KirvesTest {
             if(!game.userHasActionAvailable(player, PLAY_CARD)) {
                 throw new KirvesGameException(String.format("TEST: user %s is not in turn", player.getEmail()));
             }
-            game.playCard(player, 0);
+            GameOut out = game.out(player);
+            game.playCard(player, out.getMyCardsInHand().indexOf(out.getMyPlayableCards().get(0)));
         }
     }
 
@@ -1,29 +1,32 @@
 package fi.bizhop.jassu.model;
 
 import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import fi.bizhop.jassu.model.poker.PokerHand;
+import fi.bizhop.jassu.service.UserService;
 import fi.bizhop.jassu.util.PokerHandEvaluator;
 import org.junit.Test;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
 import static fi.bizhop.jassu.model.Card.Rank.*;
 import static fi.bizhop.jassu.model.Card.Suit.*;
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class PokerTest {
     @Test
     public void testPair() throws CardException {
         List<Card> pair = new ArrayList<>();
-        pair.add(new Card(SPADES, ACE));
-        pair.add(new Card(HEARTS, ACE));
+        pair.add(Card.of(SPADES, ACE));
+        pair.add(Card.of(HEARTS, ACE));
         Cards hand = new Cards(pair);
         assertTrue(PokerHandEvaluator.checkPair(hand) > 0);
 
         List<Card> notPair = new ArrayList<>();
-        notPair.add(new Card(SPADES, ACE));
-        notPair.add(new Card(SPADES, TWO));
+        notPair.add(Card.of(SPADES, ACE));
+        notPair.add(Card.of(SPADES, TWO));
         Cards hand2 = new Cards(notPair);
         assertFalse(PokerHandEvaluator.checkPair(hand2) > 0);
 
@@ -34,16 +37,16 @@ public class PokerTest {
     @Test
     public void testThree() throws CardException {
         List<Card> three = new ArrayList<>();
-        three.add(new Card(SPADES, ACE));
-        three.add(new Card(HEARTS, ACE));
-        three.add(new Card(CLUBS, ACE));
+        three.add(Card.of(SPADES, ACE));
+        three.add(Card.of(HEARTS, ACE));
+        three.add(Card.of(CLUBS, ACE));
         Cards hand = new Cards(three);
         assertTrue(PokerHandEvaluator.checkThreeOfAKind(hand) > 0);
 
         List<Card> notThree = new ArrayList<>();
-        notThree.add(new Card(SPADES, ACE));
-        notThree.add(new Card(HEARTS, ACE));
-        notThree.add(new Card(CLUBS, TWO));
+        notThree.add(Card.of(SPADES, ACE));
+        notThree.add(Card.of(HEARTS, ACE));
+        notThree.add(Card.of(CLUBS, TWO));
         Cards hand2 = new Cards(notThree);
         assertFalse(PokerHandEvaluator.checkThreeOfAKind(hand2) > 0);
 
@@ -54,18 +57,18 @@ public class PokerTest {
     @Test
     public void testTwoPair() throws CardException {
         List<Card> twoPair = new ArrayList<>();
-        twoPair.add(new Card(SPADES, ACE));
-        twoPair.add(new Card(HEARTS, ACE));
-        twoPair.add(new Card(SPADES, KING));
-        twoPair.add(new Card(HEARTS, KING));
+        twoPair.add(Card.of(SPADES, ACE));
+        twoPair.add(Card.of(HEARTS, ACE));
+        twoPair.add(Card.of(SPADES, KING));
+        twoPair.add(Card.of(HEARTS, KING));
         Cards hand = new Cards(twoPair);
         assertTrue(PokerHandEvaluator.checkTwoPair(hand) > 0);
 
         List<Card> notTwoPair = new ArrayList<>();
-        notTwoPair.add(new Card(SPADES, ACE));
-        notTwoPair.add(new Card(HEARTS, ACE));
-        notTwoPair.add(new Card(SPADES, KING));
-        notTwoPair.add(new Card(HEARTS, SEVEN));
+        notTwoPair.add(Card.of(SPADES, ACE));
+        notTwoPair.add(Card.of(HEARTS, ACE));
+        notTwoPair.add(Card.of(SPADES, KING));
+        notTwoPair.add(Card.of(HEARTS, SEVEN));
         Cards hand2 = new Cards(notTwoPair);
         assertFalse(PokerHandEvaluator.checkTwoPair(hand2) > 0);
 
@@ -76,29 +79,29 @@ public class PokerTest {
     @Test
     public void testStraight() throws CardException {
         List<Card> straight = new ArrayList<>();
-        straight.add(new Card(HEARTS, KING));
-        straight.add(new Card(SPADES, QUEEN));
-        straight.add(new Card(HEARTS, JACK));
-        straight.add(new Card(CLUBS, TEN));
-        straight.add(new Card(SPADES, NINE));
+        straight.add(Card.of(HEARTS, KING));
+        straight.add(Card.of(SPADES, QUEEN));
+        straight.add(Card.of(HEARTS, JACK));
+        straight.add(Card.of(CLUBS, TEN));
+        straight.add(Card.of(SPADES, NINE));
         Cards hand = new Cards(straight);
         assertTrue(PokerHandEvaluator.checkStraight(hand) > 0);
 
         List<Card> specialStraight = new ArrayList<>();
-        specialStraight.add(new Card(SPADES, ACE));
-        specialStraight.add(new Card(HEARTS, TWO));
-        specialStraight.add(new Card(SPADES, THREE));
-        specialStraight.add(new Card(HEARTS, FOUR));
-        specialStraight.add(new Card(CLUBS, FIVE));
+        specialStraight.add(Card.of(SPADES, ACE));
+        specialStraight.add(Card.of(HEARTS, TWO));
+        specialStraight.add(Card.of(SPADES, THREE));
+        specialStraight.add(Card.of(HEARTS, FOUR));
+        specialStraight.add(Card.of(CLUBS, FIVE));
         Cards hand2 = new Cards(specialStraight);
         assertTrue(PokerHandEvaluator.checkStraight(hand2) > 0);
 
         List<Card> notStraight = new ArrayList<>();
-        notStraight.add(new Card(HEARTS, KING));
-        notStraight.add(new Card(SPADES, QUEEN));
-        notStraight.add(new Card(HEARTS, JACK));
-        notStraight.add(new Card(CLUBS, TEN));
-        notStraight.add(new Card(SPADES, SIX));
+        notStraight.add(Card.of(HEARTS, KING));
+        notStraight.add(Card.of(SPADES, QUEEN));
+        notStraight.add(Card.of(HEARTS, JACK));
+        notStraight.add(Card.of(CLUBS, TEN));
+        notStraight.add(Card.of(SPADES, SIX));
         Cards hand3 = new Cards(notStraight);
         assertFalse(PokerHandEvaluator.checkStraight(hand3) > 0);
 
@@ -109,20 +112,20 @@ public class PokerTest {
     @Test
     public void testFullHouse() throws CardException {
         List<Card> fullHouse = new ArrayList<>();
-        fullHouse.add(new Card(SPADES, ACE));
-        fullHouse.add(new Card(HEARTS, ACE));
-        fullHouse.add(new Card(CLUBS, ACE));
-        fullHouse.add(new Card(DIAMONDS, KING));
-        fullHouse.add(new Card(HEARTS, KING));
+        fullHouse.add(Card.of(SPADES, ACE));
+        fullHouse.add(Card.of(HEARTS, ACE));
+        fullHouse.add(Card.of(CLUBS, ACE));
+        fullHouse.add(Card.of(DIAMONDS, KING));
+        fullHouse.add(Card.of(HEARTS, KING));
         Cards hand = new Cards(fullHouse);
         assertTrue(PokerHandEvaluator.checkFullHouse(hand) > 0);
 
         List<Card> notFullHouse = new ArrayList<>();
-        notFullHouse.add(new Card(SPADES, ACE));
-        notFullHouse.add(new Card(HEARTS, ACE));
-        notFullHouse.add(new Card(CLUBS, TWO));
-        notFullHouse.add(new Card(CLUBS, SEVEN));
-        notFullHouse.add(new Card(CLUBS, FIVE));
+        notFullHouse.add(Card.of(SPADES, ACE));
+        notFullHouse.add(Card.of(HEARTS, ACE));
+        notFullHouse.add(Card.of(CLUBS, TWO));
+        notFullHouse.add(Card.of(CLUBS, SEVEN));
+        notFullHouse.add(Card.of(CLUBS, FIVE));
         Cards hand2 = new Cards(notFullHouse);
         assertFalse(PokerHandEvaluator.checkFullHouse(hand2) > 0);
 
@@ -133,17 +136,17 @@ public class PokerTest {
     @Test
     public void testFour() throws CardException {
         List<Card> four = new ArrayList<>();
-        four.add(new Card(SPADES, ACE));
-        four.add(new Card(HEARTS, ACE));
-        four.add(new Card(CLUBS, ACE));
-        four.add(new Card(DIAMONDS, ACE));
+        four.add(Card.of(SPADES, ACE));
+        four.add(Card.of(HEARTS, ACE));
+        four.add(Card.of(CLUBS, ACE));
+        four.add(Card.of(DIAMONDS, ACE));
         Cards hand = new Cards(four);
         assertTrue(PokerHandEvaluator.checkFourOfAKind(hand) > 0);
 
         List<Card> notFour = new ArrayList<>();
-        notFour.add(new Card(SPADES, ACE));
-        notFour.add(new Card(HEARTS, ACE));
-        notFour.add(new Card(CLUBS, TWO));
+        notFour.add(Card.of(SPADES, ACE));
+        notFour.add(Card.of(HEARTS, ACE));
+        notFour.add(Card.of(CLUBS, TWO));
         Cards hand2 = new Cards(notFour);
         assertFalse(PokerHandEvaluator.checkFourOfAKind(hand2) > 0);
 
@@ -154,20 +157,20 @@ public class PokerTest {
     @Test
     public void testStraightFlush() throws CardException {
         List<Card> straightFlush = new ArrayList<>();
-        straightFlush.add(new Card(SPADES, ACE));
-        straightFlush.add(new Card(SPADES, KING));
-        straightFlush.add(new Card(SPADES, QUEEN));
-        straightFlush.add(new Card(SPADES, JACK));
-        straightFlush.add(new Card(SPADES, TEN));
+        straightFlush.add(Card.of(SPADES, ACE));
+        straightFlush.add(Card.of(SPADES, KING));
+        straightFlush.add(Card.of(SPADES, QUEEN));
+        straightFlush.add(Card.of(SPADES, JACK));
+        straightFlush.add(Card.of(SPADES, TEN));
         Cards hand = new Cards(straightFlush);
         assertTrue(PokerHandEvaluator.checkStraightFlush(hand) > 0);
 
         List<Card> notStraightFlush = new ArrayList<>();
-        notStraightFlush.add(new Card(SPADES, ACE));
-        notStraightFlush.add(new Card(HEARTS, ACE));
-        notStraightFlush.add(new Card(CLUBS, TWO));
-        notStraightFlush.add(new Card(CLUBS, SEVEN));
-        notStraightFlush.add(new Card(CLUBS, FIVE));
+        notStraightFlush.add(Card.of(SPADES, ACE));
+        notStraightFlush.add(Card.of(HEARTS, ACE));
+        notStraightFlush.add(Card.of(CLUBS, TWO));
+        notStraightFlush.add(Card.of(CLUBS, SEVEN));
+        notStraightFlush.add(Card.of(CLUBS, FIVE));
         Cards hand2 = new Cards(notStraightFlush);
         assertFalse(PokerHandEvaluator.checkStraightFlush(hand2) > 0);
 
@@ -178,24 +181,79 @@ public class PokerTest {
     @Test
     public void testFlush() throws CardException {
         List<Card> flush = new ArrayList<>();
-        flush.add(new Card(SPADES, ACE));
-        flush.add(new Card(SPADES, QUEEN));
-        flush.add(new Card(SPADES, EIGHT));
-        flush.add(new Card(SPADES, SEVEN));
-        flush.add(new Card(SPADES, TWO));
+        flush.add(Card.of(SPADES, ACE));
+        flush.add(Card.of(SPADES, QUEEN));
+        flush.add(Card.of(SPADES, EIGHT));
+        flush.add(Card.of(SPADES, SEVEN));
+        flush.add(Card.of(SPADES, TWO));
         Cards hand = new Cards(flush);
         assertTrue(PokerHandEvaluator.checkFlush(hand) > 0);
 
         List<Card> notFlush = new ArrayList<>();
-        notFlush.add(new Card(SPADES, ACE));
-        notFlush.add(new Card(HEARTS, QUEEN));
-        notFlush.add(new Card(SPADES, EIGHT));
-        notFlush.add(new Card(CLUBS, SEVEN));
-        notFlush.add(new Card(DIAMONDS, TWO));
+        notFlush.add(Card.of(SPADES, ACE));
+        notFlush.add(Card.of(HEARTS, QUEEN));
+        notFlush.add(Card.of(SPADES, EIGHT));
+        notFlush.add(Card.of(CLUBS, SEVEN));
+        notFlush.add(Card.of(DIAMONDS, TWO));
         Cards hand2 = new Cards(notFlush);
         assertFalse(PokerHandEvaluator.checkFlush(hand2) > 0);
 
         Cards deck = new StandardDeck();
         assertTrue(PokerHandEvaluator.checkFlush(deck) > 0);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompactGame() throws CardException {
+        PokerGame game = new PokerGame(BigDecimal.ONE, 42L);
+        assertNull(game.getHand());
+        game.deal();
+        Cards hand = game.getHand();
+        Cards deck = game.getDeck();
+        assertEquals(5, hand.size());
+        assertEquals(47, deck.size());
+        assertEquals(PokerHandEvaluator.evaluate(hand).strength, game.getEvaluation().strength);
+        assertEquals(List.of(PokerGame.Action.HOLD), game.getAvailableActions());
+
+        //same seed, same cards
+        PokerGame sameSeed = new PokerGame(BigDecimal.ONE, 42L);
+        sameSeed.deal();
+        assertEquals(hand.getCardsOut(), sameSeed.getHand().getCardsOut());
+
+        game.hold(new ArrayList<>(List.of(0, 2)));
+        Cards held = game.getHand();
+        assertEquals(hand.get(0), held.get(0));
+        assertEquals(deck.get(0), held.get(1));
+        assertEquals(hand.get(2), held.get(2));
+        assertEquals(deck.get(1), held.get(3));
+        assertEquals(deck.get(2), held.get(4));
+        assertEquals(44, game.getDeck().size());
+
+        PokerHand evaluation = PokerHandEvaluator.evaluate(held);
+        assertEquals(evaluation.type, game.getEvaluation().type);
+        assertEquals(0, PokerGame.getMultiplier(evaluation.type).compareTo(game.getMoney()));
+        assertEquals(game.getMoney().signum() == 0, !game.active());
+    }
+
+    @Test
+    public void testStayPaysMultiplierOnce() throws CardException {
+        BigDecimal[] paid = new BigDecimal[1];
+        UserService userService = new UserService(null) {
+            @Override
+            public void modifyMoney(BigDecimal value, String email) {
+                paid[0] = value;
+            }
+        };
+        int stays = 0;
+        for(long seed = 0; stays < 10; seed++) {
+            PokerGame game = new PokerGame(BigDecimal.valueOf(2), seed);
+            game.deal();
+            game.hold(new ArrayList<>(List.of(0, 1, 2, 3, 4)));
+            if(!game.active()) continue;
+
+            game.stay(userService);
+            BigDecimal expected = PokerGame.getMultiplier(game.getEvaluation().type).multiply(BigDecimal.valueOf(2));
+            assertEquals(0, expected.compareTo(paid[0]));
+            stays++;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package fi.bizhop.jassu.model;
+
+import fi.bizhop.jassu.model.kirves.*;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class WinEstimatorTest {
+    private static final int SAMPLES = 200;
+
+    @Test
+    public void testEstimate() {
+        HeadlessGame game = new HeadlessGame(4, new SplittableRandom(1));
+        SplittableRandom random = new SplittableRandom(2);
+        WinEstimator estimator = new WinEstimator(HeuristicPolicy.INSTANCE, SAMPLES, Long.MAX_VALUE);
+        assertTrue(estimator.update(toTrickStart(game, random), random));
+        while(!estimator.isDone()) {
+            estimator.run(Long.MAX_VALUE, random);
+        }
+
+        assertEquals(SAMPLES, estimator.getSamples());
+        double total = 0.0;
+        for(int seat = 0; seat < game.getNumOfPlayers(); seat++) {
+            double probability = estimator.getProbability(seat);
+            assertTrue(probability >= 0.0 && probability <= 1.0);
+            total += probability;
+        }
+        assertTrue(total > 0.0);
+        assertEquals(0, estimator.run(Long.MAX_VALUE, random));
+    }
+
+    @Test
+    public void testDealsKeptBetweenTricks() {
+        HeadlessGame game = new HeadlessGame(3, new SplittableRandom(3));
+        SplittableRandom random = new SplittableRandom(4);
+        WinEstimator estimator = new WinEstimator(HeuristicPolicy.INSTANCE, SAMPLES, Long.MAX_VALUE);
+        int kept = 0;
+        for(int trick = 0; trick < 20; trick++) {
+            estimator.update(toTrickStart(game, random), random);
+            estimator.run(Long.MAX_VALUE, random);
+            assertEquals(SAMPLES, estimator.getSamples());
+
+            int played = Long.bitCount(game.getPlayedCards());
+            int handsPlayed = game.getHandsPlayed();
+            //in the middle of a trick the estimate of trick start is kept
+            step(game, random);
+            if(game.getAction() == Game.Action.PLAY_CARD && game.getTrickSeats() != 0) {
+                assertFalse(estimator.update(game.copy(random), random));
+                assertEquals(SAMPLES, estimator.getSamples());
+            }
+
+            HeadlessGame next = toTrickStart(game, random);
+            assertTrue(estimator.update(next, random));
+            assertEquals(0, estimator.getSamples());
+            if(game.getHandsPlayed() == handsPlayed && Long.bitCount(next.getPlayedCards()) == played + Long.bitCount(next.getActiveSeats())) {
+                assertEquals(SAMPLES, estimator.getDeals());
+                kept++;
+            }
+            estimator.run(Long.MAX_VALUE, random);
+        }
+        assertTrue(kept > 0);
+    }
+
+    @Test
+    public void testBudget() {
+        HeadlessGame game = new HeadlessGame(5, new SplittableRandom(5));
+        SplittableRandom random = new SplittableRandom(6);
+        WinEstimator estimator = new WinEstimator(HeuristicPolicy.INSTANCE, Integer.MAX_VALUE, 20_000_000L);
+        estimator.update(toTrickStart(game, random), random);
+        long start = System.nanoTime();
+        estimator.run(Long.MAX_VALUE, random);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(estimator.isDone());
+        assertTrue(estimator.getSamples() > 0);
+        assertTrue(String.format("estimated %d ms", millis), millis < 200);
+    }
+
+    @Test
+    public void testNothingToEstimateBeforeDeal() {
+        HeadlessGame game = new HeadlessGame(4, new SplittableRandom(7));
+        SplittableRandom random = new SplittableRandom(8);
+        WinEstimator estimator = new WinEstimator(HeuristicPolicy.INSTANCE, SAMPLES, Long.MAX_VALUE);
+
+        assertEquals(Game.Action.CUT, game.getAction());
+        assertFalse(estimator.update(game, random));
+        assertEquals(0, estimator.run(Long.MAX_VALUE, random));
+        assertFalse(estimator.hasEstimate());
+    }
+
+    //copy of the game at the next start of a trick
+    private static HeadlessGame toTrickStart(HeadlessGame game, SplittableRandom random) {
+        do {
+            step(game, random);
+        } while(game.getAction() != Game.Action.PLAY_CARD || game.getTrickSeats() != 0);
+        return game.copy(random);
+    }
+
+    private static void step(HeadlessGame game, SplittableRandom random) {
+        int actor = game.getActor();
+        int[] moves = new int[HeadlessGame.MAX_MOVES];
+        int count = game.legalMoves(actor, moves);
+        game.apply(actor, HeuristicPolicy.INSTANCE.choose(game, actor, moves, count, random));
+    }
+}
@@ -0,0 +1,133 @@
+package fi.bizhop.jassu.service;
+
+import fi.bizhop.jassu.db.KirvesGameDB;
+import fi.bizhop.jassu.db.GameMessageRepo;
+import fi.bizhop.jassu.db.KirvesGameRepo;
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.exception.KirvesGameException;
+import fi.bizhop.jassu.exception.TransactionException;
+import fi.bizhop.jassu.model.User;
+import fi.bizhop.jassu.model.kirves.Game;
+import fi.bizhop.jassu.model.kirves.in.GameIn;
+import fi.bizhop.jassu.model.kirves.out.BotStatsOut;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+import java.util.Optional;
+
+import static fi.bizhop.jassu.model.kirves.Game.Action.DEAL;
+import static fi.bizhop.jassu.util.TestUserUtil.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+public class KirvesBotServiceTest {
+    private static final long TIMEOUT = 10_000L;
+
+    @MockBean
+    KirvesGameRepo kirvesGameRepo;
+
+    @MockBean
+    GameMessageRepo gameMessageRepo;
+    @MockBean
+    MessageService messageService;
+
+    KirvesService kirvesService;
+    KirvesBotService kirvesBotService;
+
+    @Before
+    public void setup() {
+        this.kirvesService = new KirvesService(null, this.kirvesGameRepo, this.gameMessageRepo);
+        this.kirvesBotService = new KirvesBotService(this.kirvesService, this.messageService, 20L, 2);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        this.kirvesBotService.stop();
+    }
+
+    @Test
+    public void testBotsPlayUntilHumanHasAction() throws CardException, KirvesGameException, TransactionException, InterruptedException {
+        User human = getTestUser();
+        when(this.kirvesGameRepo.findByIdAndActiveTrue(eq(0L))).thenReturn(Optional.of(this.getTestGameDB(human)));
+
+        List<User> bots = this.kirvesBotService.addBots(0L, 2, human);
+        assertEquals(2, bots.size());
+        assertTrue(bots.stream().allMatch(KirvesBotService::isBot));
+        assertFalse(KirvesBotService.isBot(human));
+
+        //last bot cuts, then it is dealer's turn
+        Game game = this.waitForAction(human);
+        assertEquals(3, game.getNumberOfPlayers());
+        assertTrue(game.userHasActionAvailable(human, DEAL));
+
+        GameIn deal = new GameIn();
+        deal.action = DEAL;
+        this.kirvesService.action(0L, deal, human);
+        this.kirvesBotService.wake(0L);
+        this.waitForAction(human);
+
+        BotStatsOut stats = this.kirvesBotService.getStats();
+        assertTrue(stats.getMoves() >= 1);
+        assertTrue(stats.getMaxThinkTime() < 1000);
+    }
+
+    @Test
+    public void testAddBotsFails() throws CardException, KirvesGameException, TransactionException {
+        when(this.kirvesGameRepo.findByIdAndActiveTrue(eq(0L))).thenReturn(Optional.of(this.getTestGameDB(getTestUser())));
+
+        try {
+            this.kirvesBotService.addBots(0L, 0, getTestUser());
+            fail();
+        } catch (KirvesGameException e) {
+            assertEquals(1, this.kirvesService.getGame(0L).getNumberOfPlayers());
+        }
+
+        //too many bots, none of them joins
+        try {
+            this.kirvesBotService.addBots(0L, 64, getTestUser());
+            fail();
+        } catch (KirvesGameException e) {
+            assertEquals(1, this.kirvesService.getGame(0L).getNumberOfPlayers());
+        }
+
+        //only admin or players can add bots
+        try {
+            this.kirvesBotService.addBots(0L, 1, getTestUser("other@example.com"));
+            fail();
+        } catch (KirvesGameException e) {
+            assertEquals(1, this.kirvesService.getGame(0L).getNumberOfPlayers());
+        }
+    }
+
+    private Game waitForAction(User user) throws CardException, KirvesGameException, TransactionException, InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while(System.currentTimeMillis() < deadline) {
+            Game game = this.kirvesService.getGame(0L);
+            boolean hasAction = game.getPlayer(user.getEmail())
+                    .map(player -> !player.getAvailableActions().isEmpty())
+                    .orElse(false);
+            if(hasAction) return game;
+            Thread.sleep(10);
+        }
+        fail(String.format("%s didn't get an action", user.getEmail()));
+        return null;
+    }
+
+    private KirvesGameDB getTestGameDB(User admin) throws CardException, KirvesGameException {
+        KirvesGameDB db = new KirvesGameDB();
+        db.id = 0L;
+        db.admin = getTestUserDB(admin.getEmail());
+        db.canJoin = true;
+        db.active = true;
+        db.players = 1;
+        db.gameData = new Game(admin).toJson();
+        return db;
+    }
+}
@@ -0,0 +1,90 @@
+package fi.bizhop.jassu.service;
+
+import fi.bizhop.jassu.db.KirvesGameDB;
+import fi.bizhop.jassu.db.GameMessageRepo;
+import fi.bizhop.jassu.db.KirvesGameRepo;
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.exception.KirvesGameException;
+import fi.bizhop.jassu.exception.TransactionException;
+import fi.bizhop.jassu.model.User;
+import fi.bizhop.jassu.model.kirves.Game;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static fi.bizhop.jassu.model.kirves.Game.Action.DEAL;
+import static fi.bizhop.jassu.util.TestUserUtil.*;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.when;
+
+@RunWith(SpringRunner.class)
+public class KirvesEstimateServiceTest {
+    private static final long TIMEOUT = 10_000L;
+
+    @MockBean
+    KirvesGameRepo kirvesGameRepo;
+
+    @MockBean
+    GameMessageRepo gameMessageRepo;
+    @MockBean
+    MessageService messageService;
+
+    KirvesService kirvesService;
+    KirvesEstimateService kirvesEstimateService;
+
+    @Before
+    public void setup() {
+        this.kirvesService = new KirvesService(null, this.kirvesGameRepo, this.gameMessageRepo);
+        this.kirvesEstimateService = new KirvesEstimateService(this.kirvesService, this.messageService, 200, 50L, 1);
+    }
+
+    @After
+    public void teardown() throws InterruptedException {
+        this.kirvesEstimateService.stop();
+    }
+
+    @Test
+    public void testEstimateOfDealtHand() throws CardException, KirvesGameException, InterruptedException, TransactionException {
+        User admin = getTestUser("admin@example.com");
+        User other = getTestUser("other@example.com");
+        Game game = new Game(admin);
+        game.addPlayer(other);
+        game.cut(other, false);
+        game.deal(game.getUserWithAction(DEAL).orElseThrow());
+        when(this.kirvesGameRepo.findByIdAndActiveTrue(eq(0L))).thenReturn(Optional.of(this.getTestGameDB(admin, game)));
+
+        Map<String, Double> estimate = this.waitForEstimate();
+        assertEquals(Set.of(admin.getNickname(), other.getNickname()), estimate.keySet());
+        assertTrue(estimate.values().stream().allMatch(probability -> probability >= 0.0 && probability <= 1.0));
+    }
+
+    private Map<String, Double> waitForEstimate() throws InterruptedException, CardException, KirvesGameException, TransactionException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while(System.currentTimeMillis() < deadline) {
+            Map<String, Double> estimate = this.kirvesEstimateService.get(0L, this.kirvesService.getGame(0L));
+            if(!estimate.isEmpty()) return estimate;
+            Thread.sleep(10);
+        }
+        fail("No estimate");
+        return null;
+    }
+
+    private KirvesGameDB getTestGameDB(User admin, Game game) throws KirvesGameException {
+        KirvesGameDB db = new KirvesGameDB();
+        db.id = 0L;
+        db.admin = getTestUserDB(admin.getEmail());
+        db.canJoin = false;
+        db.active = true;
+        db.players = 2;
+        db.gameData = game.toJson();
+        return db;
+    }
+}
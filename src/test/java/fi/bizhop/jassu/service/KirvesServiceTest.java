@@ -1,6 +1,8 @@
 package fi.bizhop.jassu.service;
 
 import fi.bizhop.jassu.db.KirvesGameDB;
+import fi.bizhop.jassu.db.GameMessageDB;
+import fi.bizhop.jassu.db.GameMessageRepo;
 import fi.bizhop.jassu.db.KirvesGameRepo;
 import fi.bizhop.jassu.exception.CardException;
 import fi.bizhop.jassu.exception.KirvesGameException;
@@ -19,9 +21,11 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 
 import static fi.bizhop.jassu.model.kirves.Game.Action.CUT;
+import static fi.bizhop.jassu.model.kirves.Game.Action.DEAL;
 import static fi.bizhop.jassu.util.TestUserUtil.*;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -31,11 +35,14 @@ public class KirvesServiceTest {
     @MockBean
     KirvesGameRepo kirvesGameRepo;
 
+    @MockBean
+    GameMessageRepo gameMessageRepo;
+
     KirvesService kirvesService;
 
     @Before
     public void setup() {
-        this.kirvesService = new KirvesService(null, this.kirvesGameRepo);
+        this.kirvesService = new KirvesService(null, this.kirvesGameRepo, this.gameMessageRepo);
     }
 
     @Test
@@ -71,6 +78,71 @@ public class KirvesServiceTest {
         assertNotEquals(originalPojo, pojo);
     }
 
+    @Test
+    public void testActionMakesNewVersion() throws IOException, TransactionException, CardException, KirvesGameException, InterruptedException {
+        when(this.kirvesGameRepo.findByIdAndActiveTrue(eq(0L))).thenReturn(Optional.of(this.getTestGameDB()));
+
+        User user = getTestUser();
+        Game previous = this.kirvesService.getGame(0L);
+        String json = previous.toJson();
+
+        //failing action keeps the current version
+        GameIn deal = new GameIn();
+        deal.action = DEAL;
+        try {
+            this.kirvesService.action(0L, deal, user, 0);
+            fail();
+        } catch (KirvesGameException e) {
+            assertSame(previous, this.kirvesService.getGame(0L));
+        }
+
+        GameIn cut = new GameIn();
+        cut.action = CUT;
+        cut.declineCut = false;
+        Game output = this.kirvesService.action(0L, cut, user, 0);
+
+        assertNotSame(previous, output);
+        assertSame(output, this.kirvesService.getGame(0L));
+        assertEquals(json, previous.toJson());
+    }
+
+    @Test
+    public void testFailedSaveKeepsVersion() throws IOException, TransactionException, CardException, KirvesGameException, InterruptedException {
+        when(this.kirvesGameRepo.findByIdAndActiveTrue(eq(0L))).thenReturn(Optional.of(this.getTestGameDB()));
+        when(this.kirvesGameRepo.save(any())).thenAnswer(invocation -> {
+            throw new IllegalStateException("Database is down");
+        });
+
+        User user = getTestUser();
+        Game previous = this.kirvesService.getGame(0L);
+        String json = previous.toJson();
+
+        GameIn cut = new GameIn();
+        cut.action = CUT;
+        cut.declineCut = false;
+        try {
+            this.kirvesService.action(0L, cut, user, 0);
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(previous, this.kirvesService.getGame(0L));
+            assertEquals(json, previous.toJson());
+        }
+    }
+
+    @Test
+    public void testMessageHistory()throws IOException, TransactionException, CardException, KirvesGameException {
+        when(this.kirvesGameRepo.findByIdAndActiveTrue(eq(0L))).thenReturn(Optional.of(this.getTestGameDB()));
+        GameMessageDB messageDB = new GameMessageDB();
+        messageDB.gameId = 0L;
+        messageDB.code = Game.Message.TEXT.name();
+        messageDB.text = "vanha viesti";
+        when(this.gameMessageRepo.findByGameIdOrderByIdAsc(eq(0L))).thenReturn(List.of(messageDB));
+
+        List<String> history = this.kirvesService.getMessageHistory(0L);
+        assertEquals("vanha viesti", history.get(0));
+        assertEquals(this.kirvesService.getGame(0L).getMessages().size() + 1, history.size());
+    }
+
     @Test
     public void testTransactionTimeout() throws IOException, CardException, KirvesGameException, InterruptedException, TransactionException {
         when(this.kirvesGameRepo.findByIdAndActiveTrue(eq(0L))).thenReturn(Optional.of(this.getTestGameDB()));
@@ -0,0 +1,132 @@
+package fi.bizhop.jassu.service;
+
+import fi.bizhop.jassu.db.PokerJournalDB;
+import fi.bizhop.jassu.db.PokerJournalRepo;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class PokerJournalTest {
+    @Test
+    public void testBatches() throws InterruptedException {
+        PokerJournalRepo repo = mock(PokerJournalRepo.class);
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            Iterable<PokerJournalDB> batch = invocation.getArgument(0);
+            batchSizes.add(size(batch));
+            return batch;
+        }).when(repo).saveAll(any());
+
+        PokerJournal journal = new PokerJournal(repo);
+        for(int i = 0; i < 1200; i++) {
+            journal.append(record(i % 10));
+        }
+        journal.start();
+        journal.stop();
+
+        assertEquals(List.of(500, 500, 200), batchSizes);
+    }
+
+    @Test
+    public void testSavesBeforeDeletes() throws InterruptedException {
+        PokerJournalRepo repo = mock(PokerJournalRepo.class);
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            Iterable<PokerJournalDB> batch = invocation.getArgument(0);
+            for(PokerJournalDB record : batch) {
+                calls.add("save " + record.gameId);
+            }
+            return batch;
+        }).when(repo).saveAll(any());
+        doAnswer(invocation -> {
+            Collection<Long> gameIds = invocation.getArgument(0);
+            for(Long gameId : gameIds) {
+                calls.add("delete " + gameId);
+            }
+            return null;
+        }).when(repo).deleteByGameIdIn(any());
+
+        PokerJournal journal = new PokerJournal(repo);
+        //more records of the deleted game than fit in one batch
+        for(int i = 0; i < 700; i++) {
+            journal.append(record(1L));
+        }
+        journal.deleteGames(List.of(1L));
+        journal.append(record(2L));
+        journal.start();
+        journal.stop();
+
+        assertEquals(702, calls.size());
+        assertEquals(1, calls.stream().filter("delete 1"::equals).count());
+        assertTrue(calls.lastIndexOf("save 1") < calls.indexOf("delete 1"));
+        assertFalse(calls.contains("delete 2"));
+    }
+
+    @Test
+    public void testFailedBatchIsRetried() throws InterruptedException {
+        PokerJournalRepo repo = mock(PokerJournalRepo.class);
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch saved = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            if(attempts.incrementAndGet() == 1) {
+                throw new RuntimeException("Database is down");
+            }
+            saved.countDown();
+            return invocation.getArgument(0);
+        }).when(repo).saveAll(any());
+
+        PokerJournal journal = new PokerJournal(repo);
+        journal.start();
+        journal.append(record(1L));
+        assertTrue(saved.await(10, TimeUnit.SECONDS));
+        journal.stop();
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testReadAllPages() {
+        PokerJournalRepo repo = mock(PokerJournalRepo.class);
+        List<PokerJournalDB> rows = new ArrayList<>();
+        for(long id = 1; id <= 1234; id++) {
+            PokerJournalDB row = record(id % 7);
+            row.id = id * 2;
+            rows.add(row);
+        }
+        List<Long> pagesAfter = new ArrayList<>();
+        when(repo.findTop500ByIdGreaterThanOrderByIdAsc(anyLong())).thenAnswer(invocation -> {
+            Long after = invocation.getArgument(0);
+            pagesAfter.add(after);
+            return rows.stream().filter(row -> row.id > after).limit(500).collect(Collectors.toList());
+        });
+
+        List<PokerJournalDB> read = new ArrayList<>();
+        new PokerJournal(repo).readAll(read::add);
+
+        assertEquals(rows, read);
+        assertEquals(List.of(Long.MIN_VALUE, 1000L, 2000L), pagesAfter);
+    }
+
+    private static PokerJournalDB record(long gameId) {
+        PokerJournalDB record = new PokerJournalDB();
+        record.gameId = gameId;
+        record.action = PokerJournal.PokerJournalAction.DEAL.name();
+        return record;
+    }
+
+    private static int size(Iterable<?> items) {
+        int size = 0;
+        for(Object ignored : items) size++;
+        return size;
+    }
+}
@@ -1,11 +1,26 @@
 package fi.bizhop.jassu.service;
 
+import fi.bizhop.jassu.db.PokerJournalDB;
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.exception.PokerGameException;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import fi.bizhop.jassu.model.poker.PokerGameIn;
+import fi.bizhop.jassu.model.poker.PokerStatsOut;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
 
 public class PokerServiceTest {
+    private static final long HELD_SEED = 4L;
+
     static UserService userService;
 
     @BeforeClass
@@ -15,7 +30,159 @@ public class PokerServiceTest {
 
     @Test
     public void dummy() {
-        PokerService service = new PokerService(userService);
+        PokerService service = new PokerService(userService, new TestJournal());
         service.dummy();
     }
+
+    @Test
+    public void testGameStore() throws CardException, PokerGameException {
+        PokerService service = new PokerService(userService, new TestJournal(), 2, Long.MAX_VALUE);
+        for(int i = 0; i < 4; i++) {
+            service.newGameForPlayer("first@example.com").deal();
+        }
+        service.newGameForPlayer("second@example.com").deal();
+        assertEquals(4, service.getGames("first@example.com").size());
+        assertEquals(1, service.getGames("second@example.com").size());
+        assertTrue(service.getGames("third@example.com").isEmpty());
+
+        for(long id = 0; id < 3; id++) {
+            finish(service, id, "first@example.com");
+        }
+        assertEquals(1, service.getGames("first@example.com").size());
+
+        PokerStatsOut stats = service.getStats();
+        assertEquals(4, stats.getGames());
+        assertEquals(2, stats.getFinishedGames());
+        assertEquals(2, stats.getPlayers());
+        assertEquals(1, stats.getEvictions());
+
+        //oldest finished game is gone
+        try {
+            service.getGame(0L, "first@example.com");
+            fail("Evicted game should not be found");
+        } catch (PokerGameException ignored) {}
+        assertFalse(service.getGame(1L, "first@example.com").active());
+        try {
+            service.getGame(4L, "first@example.com");
+            fail("Game of another player should not be returned");
+        } catch (PokerGameException ignored) {}
+    }
+
+    @Test
+    public void testFinishedGameTtl() throws CardException, PokerGameException {
+        PokerService service = new PokerService(userService, new TestJournal(), 100, 0L);
+        service.newGameForPlayer("first@example.com").deal();
+        finish(service, 0L, "first@example.com");
+
+        PokerStatsOut stats = service.getStats();
+        assertEquals(0, stats.getGames());
+        assertEquals(0, stats.getPlayers());
+        assertEquals(1, stats.getEvictions());
+    }
+
+    @Test
+    public void testEvictionDeletesJournal() throws CardException, PokerGameException {
+        TestJournal journal = new TestJournal();
+        PokerService service = new PokerService(userService, journal, 100, 0L);
+        service.newGameForPlayer("first@example.com").deal();
+        service.newGameForPlayer("first@example.com").deal();
+        finish(service, 0L, "first@example.com");
+
+        assertTrue(journal.records.stream().noneMatch(record -> record.gameId == 0L));
+        assertTrue(journal.records.stream().anyMatch(record -> record.gameId == 1L));
+    }
+
+    @Test
+    public void testUnfinishedGameTtl() throws CardException, PokerGameException {
+        TestJournal journal = new TestJournal();
+        PokerService service = new PokerService(userService, journal, 100, Long.MAX_VALUE, 0L);
+        service.newGameForPlayer("first@example.com").deal();
+        //next deal evicts the game left unfinished
+        service.newGameForPlayer("second@example.com").deal();
+
+        assertTrue(service.getGames("first@example.com").isEmpty());
+        assertEquals(1, service.getStats().getEvictions());
+        assertTrue(journal.records.stream().noneMatch(record -> record.gameId == 0L));
+        try {
+            PokerGameIn stay = new PokerGameIn();
+            stay.action = PokerGame.Action.STAY;
+            service.action(0L, stay, "first@example.com");
+            fail("Abandoned game should not be found");
+        } catch (PokerGameException ignored) {}
+    }
+
+    @Test
+    public void testRestoreFromJournal() throws CardException, PokerGameException {
+        TestJournal journal = new TestJournal();
+        PokerService service = new PokerService(userService, journal);
+        service.newGameForPlayer("first@example.com").deal();
+        service.newGameForPlayer("second@example.com").deal();
+        finish(service, 0L, "first@example.com");
+        PokerGame dealt = service.getGame(1L, "second@example.com");
+
+        //two pairs are dealt with this seed, so the game is still active after holding them
+        PokerGame held = new PokerGame(BigDecimal.ONE, HELD_SEED);
+        held.setPlayer("first@example.com");
+        held.deal();
+        journal.deal(2L, held, BigDecimal.ONE);
+        List<Integer> positions = List.of(0, 1, 2, 3);
+        held.hold(positions);
+        journal.action(2L, held, PokerGame.Action.HOLD, positions);
+        assertTrue(held.active());
+
+        PokerService restored = new PokerService(userService, journal);
+        restored.restore();
+        assertEquals(1, restored.getGames("first@example.com").size());
+        assertEquals(held.getHand().toString(), restored.getGame(2L, "first@example.com").getHand().toString());
+        assertEquals(held.getAvailableActions(), restored.getGame(2L, "first@example.com").getAvailableActions());
+        assertEquals(dealt.getHand().toString(), restored.getGame(1L, "second@example.com").getHand().toString());
+        try {
+            restored.getGame(0L, "first@example.com");
+            fail("Finished game should not be restored");
+        } catch (PokerGameException ignored) {}
+
+        //records of finished game are removed and new ids continue after journaled ones
+        assertTrue(journal.records.stream().noneMatch(record -> record.gameId == 0L));
+        restored.newGameForPlayer("second@example.com");
+        assertEquals(2, restored.getGames("second@example.com").size());
+        restored.getGame(3L, "second@example.com");
+    }
+
+    private static void finish(PokerService service, Long id, String email) throws CardException, PokerGameException {
+        PokerGameIn hold = new PokerGameIn();
+        hold.action = PokerGame.Action.HOLD;
+        hold.parameters = new ArrayList<>(List.of(0, 1, 2, 3, 4));
+        PokerGame game = service.action(id, hold, email);
+        if(game.active()) {
+            PokerGameIn stay = new PokerGameIn();
+            stay.action = PokerGame.Action.STAY;
+            service.action(id, stay, email);
+        }
+    }
+
+    //keeps records in memory, writer thread is never started
+    static class TestJournal extends PokerJournal {
+        final List<PokerJournalDB> records = new ArrayList<>();
+        private long nextId = 0;
+
+        TestJournal() {
+            super(null);
+        }
+
+        @Override
+        void append(PokerJournalDB record) {
+            record.id = this.nextId++;
+            this.records.add(record);
+        }
+
+        @Override
+        public void readAll(Consumer<PokerJournalDB> reader) {
+            new ArrayList<>(this.records).forEach(reader);
+        }
+
+        @Override
+        public void deleteGames(Collection<Long> gameIds) {
+            this.records.removeIf(record -> gameIds.contains(record.gameId));
+        }
+    }
 }
@@ -0,0 +1,105 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import fi.bizhop.jassu.service.UserService;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BankrollSimulatorTest {
+    @Test
+    public void testHouseEdgeMatchesRtp() {
+        BankrollSimulator.HoldStrategy optimal = BankrollSimulator.HoldStrategy.optimal(PokerGame.getMultipliers());
+        long start = System.nanoTime();
+        BankrollSimulator.Result result = BankrollSimulator.simulate(PokerGame.getMultipliers(), optimal,
+                BankrollSimulator.DoubleStrategy.NEVER, 10_000, 200, 1_000_000, 7L);
+        System.out.printf("%s%n(%d ms)%n", result, (System.nanoTime() - start) / 1_000_000);
+
+        assertEquals(2_000_000, result.getHandsPlayed());
+        assertEquals(0.0, result.getRuinProbability(), 0.0);
+        //standard error of the edge is about 0.002 with 2M hands
+        assertEquals(1.0 - RtpCalculator.rtp(), result.getHouseEdge(), 0.006);
+    }
+
+    @Test
+    public void testSameSeedSameResult() {
+        BankrollSimulator.Result first = BankrollSimulator.simulate(PokerGame.getMultipliers(), BankrollSimulator.HoldStrategy.PAT,
+                BankrollSimulator.DoubleStrategy.upTo(2), 1_000, 50, 20, 3L);
+        BankrollSimulator.Result second = BankrollSimulator.simulate(PokerGame.getMultipliers(), BankrollSimulator.HoldStrategy.PAT,
+                BankrollSimulator.DoubleStrategy.upTo(2), 1_000, 50, 20, 3L);
+        assertArrayEquals(first.getPercentiles(), second.getPercentiles(), 0.0);
+        assertEquals(first.getMean(), second.getMean(), 0.0);
+        assertEquals(first.getHandsPlayed(), second.getHandsPlayed());
+    }
+
+    @Test
+    public void testRuin() {
+        BankrollSimulator.Result result = BankrollSimulator.simulate(PokerGame.getMultipliers(), BankrollSimulator.HoldStrategy.PAT,
+                BankrollSimulator.DoubleStrategy.NEVER, 1_000, 1_000, 3, 11L);
+        assertTrue(result.getRuinProbability() > 0.5);
+        assertTrue(result.getHandsPlayed() < 1_000_000);
+
+        double[] percentiles = result.getPercentiles();
+        for(int i = 1; i < percentiles.length; i++) {
+            assertTrue(percentiles[i - 1] <= percentiles[i]);
+        }
+        //ruined sessions end below one wager
+        assertTrue(percentiles[0] < 1.0);
+    }
+
+    @Test
+    public void testSameAsPokerGame() throws CardException {
+        double[] payouts = RtpCalculator.payouts(PokerGame.getMultipliers());
+        //holds vary by hand, so draws are played too
+        BankrollSimulator.HoldStrategy holdStrategy = hand -> (int) (hand * 0x9E3779B97F4A7C15L >>> 59);
+        BankrollSimulator.DoubleStrategy doubleStrategy = BankrollSimulator.DoubleStrategy.upTo(5);
+        BigDecimal[] paid = new BigDecimal[1];
+        UserService userService = new UserService(null) {
+            @Override
+            public void modifyMoney(BigDecimal value, String email) {
+                paid[0] = value;
+            }
+        };
+        int doubled = 0;
+        for(long seed = 0; seed < 2_000; seed++) {
+            PokerGame game = new PokerGame(BigDecimal.ONE, seed);
+            Cards deck = game.getDeck();
+            int[] ordinals = new int[deck.size()];
+            for(int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = deck.get(i).ordinal();
+            }
+            double simulated = BankrollSimulator.play(ordinals, payouts, holdStrategy, doubleStrategy);
+
+            game.deal();
+            Cards hand = game.getHand();
+            long dealt = hand.mask();
+            int hold = holdStrategy.hold(dealt);
+            List<Integer> positions = new ArrayList<>();
+            for(int position = 0; position < hand.size(); position++) {
+                if((hold & 1 << Long.bitCount(dealt & (CardMask.of(hand.get(position)) - 1))) != 0) positions.add(position);
+            }
+            paid[0] = BigDecimal.ZERO;
+            game.hold(positions);
+            long seen = dealt | game.getHand().mask();
+            for(int doubles = 0; game.active(); doubles++) {
+                PokerGame.Action action = doubleStrategy.choose(game.getMoney().doubleValue(), doubles, seen);
+                if(action == null) {
+                    game.stay(userService);
+                } else {
+                    game.tryDouble(action, userService);
+                    seen |= game.getHand().mask();
+                    doubled++;
+                }
+            }
+            assertEquals(String.format("seed %d", seed), paid[0].doubleValue(), simulated, 1e-9);
+        }
+        assertTrue(doubled > 0);
+    }
+}
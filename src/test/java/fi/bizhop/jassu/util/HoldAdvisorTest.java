@@ -0,0 +1,86 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.StandardDeck;
+import fi.bizhop.jassu.model.poker.HoldAdviceOut;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import org.junit.Test;
+
+import java.util.List;
+
+import static fi.bizhop.jassu.model.Card.Rank.*;
+import static fi.bizhop.jassu.model.Card.Suit.*;
+import static org.junit.Assert.*;
+
+public class HoldAdvisorTest {
+    @Test
+    public void testStraightFlush() throws CardException {
+        Cards hand = new Cards(List.of(
+                Card.of(SPADES, KING), Card.of(SPADES, ACE), Card.of(SPADES, QUEEN), Card.of(SPADES, TEN), Card.of(SPADES, JACK)));
+        List<HoldAdviceOut> advice = HoldAdvisor.advise(hand);
+        assertEquals(32, advice.size());
+        assertEquals(List.of(0, 1, 2, 3, 4), advice.get(0).getHold());
+        assertEquals(50.0, advice.get(0).getExpectedReturn(), 0.0);
+        for(int i = 1; i < advice.size(); i++) {
+            assertTrue(advice.get(i - 1).getExpectedReturn() >= advice.get(i).getExpectedReturn());
+        }
+    }
+
+    @Test
+    public void testFourOfAKind() throws CardException {
+        Cards hand = new Cards(List.of(
+                Card.of(SPADES, NINE), Card.of(HEARTS, NINE), Card.of(CLUBS, TWO), Card.of(CLUBS, NINE), Card.of(DIAMONDS, NINE)));
+        List<HoldAdviceOut> advice = HoldAdvisor.advise(hand);
+        //holding all or just the four nines keeps four of a kind
+        assertEquals(30.0, advice.get(0).getExpectedReturn(), 0.0);
+        assertEquals(30.0, advice.get(1).getExpectedReturn(), 0.0);
+        assertFalse(advice.get(2).getExpectedReturn() >= 30.0);
+    }
+
+    @Test
+    public void testAgainstEnumeration() throws CardException {
+        Cards hand = new Cards(List.of(
+                Card.of(HEARTS, FIVE), Card.of(CLUBS, SIX), Card.of(HEARTS, SEVEN), Card.of(DIAMONDS, KING), Card.of(HEARTS, EIGHT)));
+        Cards suitsSwapped = new Cards(List.of(
+                Card.of(SPADES, FIVE), Card.of(DIAMONDS, SIX), Card.of(SPADES, SEVEN), Card.of(CLUBS, KING), Card.of(SPADES, EIGHT)));
+        List<HoldAdviceOut> advice = HoldAdvisor.advise(hand);
+        List<HoldAdviceOut> swappedAdvice = HoldAdvisor.advise(suitsSwapped);
+
+        long mask = hand.mask();
+        long held = CardMask.of(hand.get(0)) | CardMask.of(hand.get(2)) | CardMask.of(hand.get(4));
+        double sum = 0;
+        int draws = 0;
+        for(int a = 0; a < Card.NUM_OF_STANDARD_CARDS; a++) {
+            for(int b = a + 1; b < Card.NUM_OF_STANDARD_CARDS; b++) {
+                if((mask & (1L << a | 1L << b)) != 0) continue;
+                sum += PokerGame.getMultiplier(PokerHandEvaluator.getType(PokerHandEvaluator.evaluate(held | 1L << a | 1L << b))).doubleValue();
+                draws++;
+            }
+        }
+        assertEquals(1081, draws);
+        assertEquals(sum / draws, expectedReturn(advice, List.of(0, 2, 4)), 1e-9);
+        assertEquals(sum / draws, expectedReturn(swappedAdvice, List.of(0, 2, 4)), 1e-9);
+    }
+
+    @Test
+    public void testSpeed() throws CardException {
+        Cards deck = new Cards().reset(StandardDeck.TEMPLATE);
+        for(int i = 0; i < 10; i++) {
+            Cards hand = deck.shuffle().copy().deal(5);
+            long start = System.nanoTime();
+            HoldAdvisor.advise(hand);
+            System.out.printf("Advice for %s in %d ms%n", hand, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    private static double expectedReturn(List<HoldAdviceOut> advice, List<Integer> hold) {
+        return advice.stream()
+                .filter(a -> a.getHold().equals(hold))
+                .findFirst()
+                .orElseThrow()
+                .getExpectedReturn();
+    }
+}
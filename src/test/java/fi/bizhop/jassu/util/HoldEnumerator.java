@@ -0,0 +1,127 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.poker.PokerGame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reference for HoldAdvisor.expectedReturns: evaluates every draw from the 47 unseen cards
+ * (2,598,960 hands in total), split to the common fork join pool.
+ */
+public class HoldEnumerator {
+    private static final int HAND_SIZE = 5;
+    private static final int NUM_OF_HOLDS = 1 << HAND_SIZE;
+    private static final int NUM_OF_UNSEEN = Card.NUM_OF_STANDARD_CARDS - HAND_SIZE;
+    //draws of at least this many cards are split to subtasks by the first drawn card
+    private static final int SPLIT_DRAWS = 4;
+
+    //indexed by hand type ordinal
+    private static final double[] PAYOUTS = RtpCalculator.payouts(PokerGame.getMultipliers());
+
+    /**
+     * Expected returns of all holds of a hand
+     *
+     * @param mask card mask of five standard cards
+     * @return expected returns indexed by hold, bit n set = n:th card of hand in ordinal order held
+     */
+    public static double[] enumeratedReturns(long mask) {
+        int[] unseen = new int[NUM_OF_UNSEEN];
+        int index = 0;
+        for(int ordinal = 0; ordinal < Card.NUM_OF_STANDARD_CARDS; ordinal++) {
+            if((mask & 1L << ordinal) == 0) unseen[index++] = ordinal;
+        }
+        Holds holds = new Holds(mask, unseen);
+        ForkJoinPool.commonPool().invoke(holds);
+        return holds.returns;
+    }
+
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for(int i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+        }
+        return result;
+    }
+
+    private static class Holds extends RecursiveAction {
+        private final long hand;
+        private final int[] unseen;
+        private final double[] returns = new double[NUM_OF_HOLDS];
+
+        Holds(long hand, int[] unseen) {
+            this.hand = hand;
+            this.unseen = unseen;
+        }
+
+        @Override
+        protected void compute() {
+            List<Draws> draws = new ArrayList<>(NUM_OF_HOLDS);
+            for(int hold = 0; hold < NUM_OF_HOLDS; hold++) {
+                long held = 0;
+                int bit = 0;
+                for(long rest = this.hand; rest != 0; rest &= rest - 1, bit++) {
+                    if((hold & 1 << bit) != 0) held |= Long.lowestOneBit(rest);
+                }
+                draws.add(new Draws(this.unseen, held, HAND_SIZE - Integer.bitCount(hold), 0));
+            }
+            invokeAll(draws);
+            for(int hold = 0; hold < NUM_OF_HOLDS; hold++) {
+                int need = HAND_SIZE - Integer.bitCount(hold);
+                this.returns[hold] = draws.get(hold).join() / binomial(NUM_OF_UNSEEN, need);
+            }
+        }
+    }
+
+    //sum of payouts of all draws of need cards from unseen[from..]
+    private static class Draws extends RecursiveTask<Double> {
+        private final int[] unseen;
+        private final long cards;
+        private final int need;
+        private final int from;
+
+        Draws(int[] unseen, long cards, int need, int from) {
+            this.unseen = unseen;
+            this.cards = cards;
+            this.need = need;
+            this.from = from;
+        }
+
+        @Override
+        protected Double compute() {
+            if(this.need < SPLIT_DRAWS) {
+                return sum(this.cards, this.need, this.from);
+            }
+            List<Draws> subtasks = new ArrayList<>();
+            for(int i = this.from; i <= this.unseen.length - this.need; i++) {
+                subtasks.add(new Draws(this.unseen, this.cards | 1L << this.unseen[i], this.need - 1, i + 1));
+            }
+            double sum = 0;
+            for(Draws subtask : invokeAll(subtasks)) {
+                sum += subtask.join();
+            }
+            return sum;
+        }
+
+        private double sum(long cards, int need, int from) {
+            if(need == 0) {
+                return RtpCalculator.payout(cards, PAYOUTS);
+            }
+            double sum = 0;
+            if(need == 1) {
+                for(int i = from; i < this.unseen.length; i++) {
+                    sum += RtpCalculator.payout(cards | 1L << this.unseen[i], PAYOUTS);
+                }
+                return sum;
+            }
+            for(int i = from; i <= this.unseen.length - need; i++) {
+                sum += sum(cards | 1L << this.unseen[i], need - 1, i + 1);
+            }
+            return sum;
+        }
+    }
+}
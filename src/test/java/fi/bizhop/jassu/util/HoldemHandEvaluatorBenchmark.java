@@ -0,0 +1,47 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.model.Card;
+
+import java.util.Random;
+
+/**
+ * Throughput of seven card evaluation compared to enumerating the 21 five card subsets.
+ * Not a test, run the main method manually.
+ */
+public class HoldemHandEvaluatorBenchmark {
+    private static final int HANDS = 1 << 20;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        long[] hands = new long[HANDS];
+        for(int i = 0; i < HANDS; i++) {
+            while(Long.bitCount(hands[i]) < HoldemHandEvaluator.NUM_OF_CARDS) {
+                hands[i] |= 1L << random.nextInt(Card.NUM_OF_STANDARD_CARDS);
+            }
+        }
+
+        for(int run = 0; run < 5; run++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for(long hand : hands) {
+                int best = 0;
+                for(long skip1 = hand; skip1 != 0; skip1 &= skip1 - 1) {
+                    for(long skip2 = skip1 & (skip1 - 1); skip2 != 0; skip2 &= skip2 - 1) {
+                        best = Math.max(best, PokerHandEvaluator.evaluate(hand & ~Long.lowestOneBit(skip1) & ~Long.lowestOneBit(skip2)));
+                    }
+                }
+                sink += best;
+            }
+            long subsets = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(long hand : hands) {
+                sink += HoldemHandEvaluator.evaluate(hand);
+            }
+            long direct = System.nanoTime() - start;
+
+            System.out.printf("run %d: subsets %.1f M hands/s, direct %.1f M hands/s (%d)%n",
+                    run, HANDS * 1e3 / subsets, HANDS * 1e3 / direct, sink);
+        }
+    }
+}
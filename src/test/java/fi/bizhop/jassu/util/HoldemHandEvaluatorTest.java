@@ -0,0 +1,92 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.PokerHand;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static fi.bizhop.jassu.model.Card.Rank.*;
+import static fi.bizhop.jassu.model.Card.Suit.*;
+import static fi.bizhop.jassu.model.poker.PokerHand.Type.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HoldemHandEvaluatorTest {
+    @Test
+    public void testAgainstAllSubsets() {
+        Random random = new Random(7);
+        for(int i = 0; i < 300_000; i++) {
+            long mask = randomHand(random);
+            int expected = bestOfSubsets(mask);
+            int actual = HoldemHandEvaluator.evaluate(mask);
+            if(expected != actual) {
+                assertEquals(Long.toBinaryString(mask), expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluate() throws CardException {
+        //flush beats the straight on board
+        PokerHand flush = HoldemHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(HEARTS, TWO), Card.of(HEARTS, KING),
+                Card.of(HEARTS, FIVE), Card.of(SPADES, SIX), Card.of(HEARTS, SEVEN), Card.of(HEARTS, EIGHT), Card.of(CLUBS, NINE))));
+        assertEquals(FLUSH, flush.type);
+        assertEquals(13, flush.high);
+
+        //two trips make a full house
+        PokerHand fullHouse = HoldemHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(HEARTS, TWO), Card.of(SPADES, TWO),
+                Card.of(CLUBS, TWO), Card.of(SPADES, SIX), Card.of(HEARTS, SIX), Card.of(CLUBS, SIX), Card.of(CLUBS, NINE))));
+        assertEquals(FULL_HOUSE, fullHouse.type);
+        assertEquals(6, fullHouse.high);
+
+        PokerHand straightFlush = HoldemHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(DIAMONDS, ACE), Card.of(DIAMONDS, TWO),
+                Card.of(DIAMONDS, THREE), Card.of(DIAMONDS, FOUR), Card.of(DIAMONDS, FIVE), Card.of(DIAMONDS, KING), Card.of(CLUBS, ACE))));
+        assertEquals(STRAIGHT_FLUSH, straightFlush.type);
+        assertEquals(5, straightFlush.high);
+
+        PokerHand fiveCards = HoldemHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(DIAMONDS, ACE), Card.of(DIAMONDS, TWO), Card.of(DIAMONDS, THREE), Card.of(DIAMONDS, FOUR), Card.of(DIAMONDS, FIVE))));
+        assertEquals(INVALID, fiveCards.type);
+    }
+
+    private static long randomHand(Random random) {
+        long mask = 0;
+        while(Long.bitCount(mask) < HoldemHandEvaluator.NUM_OF_CARDS) {
+            mask |= 1L << random.nextInt(Card.NUM_OF_STANDARD_CARDS);
+        }
+        return mask;
+    }
+
+    //best of all 21 five card subsets
+    private static int bestOfSubsets(long mask) {
+        int best = 0;
+        for(long skip1 = mask; skip1 != 0; skip1 &= skip1 - 1) {
+            for(long skip2 = skip1 & (skip1 - 1); skip2 != 0; skip2 &= skip2 - 1) {
+                long hand = mask & ~Long.lowestOneBit(skip1) & ~Long.lowestOneBit(skip2);
+                best = Math.max(best, PokerHandEvaluator.evaluate(hand));
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testInvalidMasks() throws CardException {
+        long sixCards = CardMask.rank(QUEEN.getValue()) | CardMask.of(Card.of(CLUBS, TWO)) | CardMask.of(Card.of(CLUBS, THREE));
+        long eightCards = sixCards | CardMask.of(Card.of(CLUBS, FOUR)) | CardMask.of(Card.of(CLUBS, FIVE));
+        long withJoker = sixCards | CardMask.of(Card.of(JOKER, RED));
+        for(long mask : new long[] {0L, sixCards, eightCards, withJoker}) {
+            try {
+                HoldemHandEvaluator.evaluate(mask);
+                fail(String.format("Mask %x should not be evaluated", mask));
+            } catch (IllegalArgumentException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.PokerHand;
+import org.junit.Test;
+
+import java.util.List;
+
+import static fi.bizhop.jassu.model.Card.Rank.*;
+import static fi.bizhop.jassu.model.Card.Suit.*;
+import static fi.bizhop.jassu.model.poker.PokerHand.Type.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JokerHandEvaluatorTest {
+    private static final long BLACK_JOKER = 1L << Card.NUM_OF_STANDARD_CARDS;
+    private static final long RED_JOKER = BLACK_JOKER << 1;
+
+    @Test
+    public void testAgainstSubstitution() {
+        final int N = Card.NUM_OF_STANDARD_CARDS;
+        for(int a = 0; a < N; a++)
+        for(int b = a + 1; b < N; b++)
+        for(int c = b + 1; c < N; c++) {
+            long three = 1L << a | 1L << b | 1L << c;
+            assertSubstitution(three | CardMask.JOKERS);
+            for(int d = c + 1; d < N; d++) {
+                assertSubstitution(three | 1L << d | RED_JOKER);
+            }
+        }
+    }
+
+    @Test
+    public void testEvaluate() throws CardException {
+        Card joker = Card.of(JOKER, RED);
+
+        PokerHand five = JokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, NINE), Card.of(HEARTS, NINE), Card.of(CLUBS, NINE), Card.of(DIAMONDS, NINE), joker)), true);
+        assertEquals(FIVE_OF_A_KIND, five.type);
+        assertEquals(9, five.high);
+
+        PokerHand four = JokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, NINE), Card.of(HEARTS, NINE), Card.of(CLUBS, NINE), Card.of(DIAMONDS, NINE), joker)), false);
+        assertEquals(FOUR_OF_A_KIND, four.type);
+
+        PokerHand fiveWithTwoJokers = JokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, TWO), Card.of(HEARTS, TWO), Card.of(CLUBS, TWO), Card.of(JOKER, BLACK), joker)), true);
+        assertEquals(FIVE_OF_A_KIND, fiveWithTwoJokers.type);
+        assertEquals(2, fiveWithTwoJokers.high);
+
+        PokerHand straightFlush = JokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, ACE), Card.of(SPADES, KING), Card.of(SPADES, TEN), Card.of(JOKER, BLACK), joker)), true);
+        assertEquals(STRAIGHT_FLUSH, straightFlush.type);
+        assertEquals(14, straightFlush.high);
+
+        PokerHand noJokers = JokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, ACE), Card.of(HEARTS, KING), Card.of(SPADES, TEN), Card.of(SPADES, TWO), Card.of(CLUBS, THREE))), true);
+        assertEquals(HIGH, noJokers.type);
+
+        assertEquals(INVALID, JokerHandEvaluator.evaluate(new Cards(List.of(joker)), true).type);
+    }
+
+    //jokers replaced with every combination of cards not in hand
+    private static void assertSubstitution(long mask) {
+        long standard = mask & ~CardMask.JOKERS;
+        int jokers = Long.bitCount(mask & CardMask.JOKERS);
+        int expected = 0;
+        for(int first = 0; first < Card.NUM_OF_STANDARD_CARDS; first++) {
+            long withFirst = standard | 1L << first;
+            if(withFirst == standard) continue;
+            if(jokers == 1) {
+                expected = Math.max(expected, PokerHandEvaluator.evaluate(withFirst));
+                continue;
+            }
+            for(int second = first + 1; second < Card.NUM_OF_STANDARD_CARDS; second++) {
+                long withSecond = withFirst | 1L << second;
+                if(withSecond == withFirst) continue;
+                expected = Math.max(expected, PokerHandEvaluator.evaluate(withSecond));
+            }
+        }
+        int actual = JokerHandEvaluator.evaluate(mask, false);
+        if(expected != actual) {
+            assertEquals(Long.toBinaryString(mask), expected, actual);
+        }
+    }
+
+    @Test
+    public void testInvalidMasks() throws CardException {
+        long threeCards = CardMask.of(Card.of(CLUBS, TWO)) | CardMask.of(Card.of(HEARTS, TWO)) | CardMask.of(Card.of(JOKER, RED));
+        long fourCards = threeCards | CardMask.of(Card.of(JOKER, BLACK));
+        long sixCards = fourCards | CardMask.of(Card.of(CLUBS, THREE)) | CardMask.of(Card.of(CLUBS, FOUR));
+        long outOfDeck = fourCards | 1L << 63;
+        for(long mask : new long[] {0L, threeCards, fourCards, sixCards, outOfDeck}) {
+            try {
+                JokerHandEvaluator.evaluate(mask, true);
+                fail(String.format("Mask %x should not be evaluated", mask));
+            } catch (IllegalArgumentException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package fi.bizhop.jassu.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LruCacheTest {
+    @Test
+    public void testLeastRecentlyUsedIsDropped() {
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.putIfAbsent(1, "one");
+        cache.putIfAbsent(2, "two");
+        assertEquals("one", cache.get(1));
+
+        cache.putIfAbsent(3, "three");
+        assertEquals(2, cache.size());
+        assertNull(cache.get(2));
+        assertEquals("one", cache.get(1));
+        assertEquals("three", cache.get(3));
+    }
+
+    @Test
+    public void testFirstValueIsKept() {
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        assertEquals("one", cache.putIfAbsent(1, "one"));
+        assertEquals("one", cache.putIfAbsent(1, "other"));
+    }
+}
@@ -0,0 +1,129 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.Card;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.PokerHand;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static fi.bizhop.jassu.model.Card.Rank.*;
+import static fi.bizhop.jassu.model.Card.Suit.*;
+import static fi.bizhop.jassu.model.poker.PokerHand.Type.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PokerHandEvaluatorTest {
+    @Test
+    public void testAllHands() {
+        Map<PokerHand.Type, Integer> counts = new EnumMap<>(PokerHand.Type.class);
+        Set<Integer> strengths = new HashSet<>();
+        long[] masks = new long[2_598_960];
+        int n = 0;
+        Card[] cards = new Card[5];
+        final int N = Card.NUM_OF_STANDARD_CARDS;
+        for(int a = 0; a < N; a++)
+        for(int b = a + 1; b < N; b++)
+        for(int c = b + 1; c < N; c++)
+        for(int d = c + 1; d < N; d++)
+        for(int e = d + 1; e < N; e++) {
+            cards[0] = Card.of(a);
+            cards[1] = Card.of(b);
+            cards[2] = Card.of(c);
+            cards[3] = Card.of(d);
+            cards[4] = Card.of(e);
+            Cards hand = new Cards(List.of(cards));
+            PokerHand expected = PokerHandEvaluator.evaluateByChecks(hand);
+
+            int value = PokerHandEvaluator.evaluate(hand.mask());
+            if(PokerHandEvaluator.getType(value) != expected.type || PokerHandEvaluator.getHigh(value) != expected.high) {
+                assertEquals(hand.toString(), expected.type + " " + expected.high,
+                        PokerHandEvaluator.getType(value) + " " + PokerHandEvaluator.getHigh(value));
+            }
+            counts.merge(expected.type, 1, Integer::sum);
+            strengths.add(value);
+            masks[n++] = hand.mask();
+        }
+
+        //number of distinct five card hands when suits don't matter
+        assertEquals(7462, strengths.size());
+
+        int[] batch = new int[masks.length];
+        PokerHandEvaluator.evaluateParallel(masks, batch);
+        for(int i = 0; i < masks.length; i++) {
+            if(batch[i] != PokerHandEvaluator.evaluate(masks[i])) {
+                assertEquals(PokerHandEvaluator.evaluate(masks[i]), batch[i]);
+            }
+        }
+
+        assertEquals(40, (int) counts.get(STRAIGHT_FLUSH));
+        assertEquals(624, (int) counts.get(FOUR_OF_A_KIND));
+        assertEquals(3744, (int) counts.get(FULL_HOUSE));
+        assertEquals(5108, (int) counts.get(FLUSH));
+        assertEquals(10200, (int) counts.get(STRAIGHT));
+        assertEquals(54912, (int) counts.get(THREE_OF_A_KIND));
+        assertEquals(123552, (int) counts.get(TWO_PAIRS));
+        assertEquals(1098240, (int) counts.get(PAIR));
+        assertEquals(1302540, (int) counts.get(HIGH));
+    }
+
+    @Test
+    public void testEvaluate() throws CardException {
+        PokerHand wheel = PokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, ACE), Card.of(HEARTS, TWO), Card.of(SPADES, THREE), Card.of(HEARTS, FOUR), Card.of(CLUBS, FIVE))));
+        assertEquals(STRAIGHT, wheel.type);
+        assertEquals(5, wheel.high);
+
+        PokerHand twoPairs = PokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, NINE), Card.of(HEARTS, NINE), Card.of(SPADES, KING), Card.of(HEARTS, KING), Card.of(CLUBS, ACE))));
+        assertEquals(TWO_PAIRS, twoPairs.type);
+        assertEquals(13, twoPairs.high);
+
+        PokerHand twoPairsLowerKicker = PokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(CLUBS, NINE), Card.of(DIAMONDS, NINE), Card.of(CLUBS, KING), Card.of(DIAMONDS, KING), Card.of(CLUBS, QUEEN))));
+        assertEquals(TWO_PAIRS, twoPairsLowerKicker.type);
+        assertTrue(twoPairs.compareTo(twoPairsLowerKicker) > 0);
+
+        PokerHand flush = PokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(CLUBS, ACE), Card.of(CLUBS, NINE), Card.of(CLUBS, SEVEN), Card.of(CLUBS, FIVE), Card.of(CLUBS, THREE))));
+        PokerHand lowerFlush = PokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(HEARTS, ACE), Card.of(HEARTS, NINE), Card.of(HEARTS, SEVEN), Card.of(HEARTS, FIVE), Card.of(HEARTS, TWO))));
+        assertTrue(flush.compareTo(lowerFlush) > 0);
+        assertTrue(lowerFlush.compareTo(twoPairs) > 0);
+
+        PokerHand withJoker = PokerHandEvaluator.evaluate(new Cards(List.of(
+                Card.of(SPADES, NINE), Card.of(HEARTS, NINE), Card.of(SPADES, KING), Card.of(CLUBS, ACE), Card.of(JOKER, RED))));
+        assertEquals(PAIR, withJoker.type);
+
+        PokerHand tooShort = PokerHandEvaluator.evaluate(new Cards(List.of(Card.of(SPADES, NINE))));
+        assertEquals(INVALID, tooShort.type);
+
+        assertEquals(FOUR_OF_A_KIND, PokerHandEvaluator.getType(PokerHandEvaluator.evaluate(
+                CardMask.rank(QUEEN.getValue()) | CardMask.of(Card.of(CLUBS, TWO)))));
+    }
+
+    @Test
+    public void testInvalidMasks() throws CardException {
+        long fourCards = CardMask.rank(QUEEN.getValue());
+        long sixCards = fourCards | CardMask.of(Card.of(CLUBS, TWO)) | CardMask.of(Card.of(CLUBS, THREE));
+        long withJoker = fourCards | CardMask.of(Card.of(JOKER, RED));
+        long outOfDeck = fourCards | 1L << 63;
+        for(long mask : new long[] {0L, fourCards, sixCards, withJoker, outOfDeck}) {
+            try {
+                PokerHandEvaluator.evaluate(mask);
+                fail(String.format("Mask %x should not be evaluated", mask));
+            } catch (IllegalArgumentException ignored) {}
+        }
+        try {
+            PokerHandEvaluator.evaluateParallel(new long[] {fourCards}, new int[1]);
+            fail("Batch with four cards should not be evaluated");
+        } catch (IllegalArgumentException ignored) {}
+    }
+}
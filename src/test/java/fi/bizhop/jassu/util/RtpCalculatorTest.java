@@ -0,0 +1,101 @@
+package fi.bizhop.jassu.util;
+
+import fi.bizhop.jassu.exception.CardException;
+import fi.bizhop.jassu.model.CardMask;
+import fi.bizhop.jassu.model.Cards;
+import fi.bizhop.jassu.model.poker.PokerGame;
+import fi.bizhop.jassu.model.poker.PokerHand;
+import fi.bizhop.jassu.service.UserService;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RtpCalculatorTest {
+    //return to player of the current multiplier table
+    private static final double RTP = 0.9084182504891617;
+
+    @Test
+    public void testClasses() {
+        assertEquals(134_459, RtpCalculator.numOfClasses());
+    }
+
+    @Test
+    public void testAgainstEnumeration() {
+        double[] payouts = RtpCalculator.payouts(PokerGame.getMultipliers());
+        double[][] totals = RtpCalculator.totals(payouts);
+        Random random = new Random(5);
+        for(int i = 0; i < 5; i++) {
+            long hand = 0;
+            while(Long.bitCount(hand) < 5) {
+                hand |= 1L << random.nextInt(52);
+            }
+            double[] expected = HoldEnumerator.enumeratedReturns(hand);
+            double[] actual = RtpCalculator.expectedReturns(hand, payouts, totals);
+            for(int hold = 0; hold < expected.length; hold++) {
+                assertEquals(expected[hold], actual[hold], 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testRtp() {
+        Map<PokerHand.Type, BigDecimal> everythingPays = new EnumMap<>(PokerHand.Type.class);
+        for(PokerHand.Type type : PokerHand.Type.values()) {
+            everythingPays.put(type, BigDecimal.ONE);
+        }
+        assertEquals(1.0, RtpCalculator.rtp(everythingPays), 1e-9);
+
+        long start = System.nanoTime();
+        double rtp = RtpCalculator.rtp();
+        System.out.printf("RTP %.4f in %d ms%n", rtp, (System.nanoTime() - start) / 1_000_000);
+        assertEquals(RTP, rtp, 1e-12);
+
+        Map<PokerHand.Type, BigDecimal> lowerFullHouse = new EnumMap<>(PokerGame.getMultipliers());
+        lowerFullHouse.put(PokerHand.Type.FULL_HOUSE, BigDecimal.valueOf(12));
+        assertTrue(RtpCalculator.rtp(lowerFullHouse) < rtp);
+    }
+
+    @Test
+    public void testPayoutsOfGame() throws CardException {
+        double[] payouts = RtpCalculator.payouts(PokerGame.getMultipliers());
+        double[][] totals = RtpCalculator.totals(payouts);
+        BigDecimal[] paid = new BigDecimal[1];
+        UserService userService = new UserService(null) {
+            @Override
+            public void modifyMoney(BigDecimal value, String email) {
+                paid[0] = value;
+            }
+        };
+        for(long seed = 0; seed < 200; seed++) {
+            PokerGame game = new PokerGame(BigDecimal.ONE, seed);
+            game.deal();
+            Cards hand = game.getHand();
+            long mask = hand.mask();
+
+            //best hold of the calculator, bit n = n:th card of hand in ordinal order
+            double[] expected = RtpCalculator.expectedReturns(mask, payouts, totals);
+            int best = 0;
+            for(int hold = 1; hold < expected.length; hold++) {
+                if(expected[hold] > expected[best]) best = hold;
+            }
+            List<Integer> positions = new ArrayList<>();
+            for(int position = 0; position < hand.size(); position++) {
+                long card = CardMask.of(hand.get(position));
+                if((best & 1 << Long.bitCount(mask & (card - 1))) != 0) positions.add(position);
+            }
+
+            paid[0] = BigDecimal.ZERO;
+            game.hold(positions);
+            if(game.active()) game.stay(userService);
+            assertEquals(RtpCalculator.payout(game.getHand().mask(), payouts), paid[0].doubleValue(), 1e-9);
+        }
+    }
+}